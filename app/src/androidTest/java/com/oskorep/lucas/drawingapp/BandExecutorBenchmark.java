@@ -0,0 +1,78 @@
+package com.oskorep.lucas.drawingapp;
+
+import android.os.SystemClock;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import cn.Ragnarok.BandExecutor;
+import cn.Ragnarok.Filter;
+import cn.Ragnarok.GaussianBlurFilter;
+import cn.Ragnarok.OilFilter;
+import cn.Ragnarok.PixelBuffer;
+import cn.Ragnarok.SharpenFilter;
+
+import static org.junit.Assert.assertArrayEquals;
+
+/**
+ * Runs filters split into bands on 1 to N threads, which will execute on an Android device, and
+ * logs the scaling curve for a 4K and a 12 MP frame under the BENCHMARK tag.
+ */
+@RunWith(AndroidJUnit4.class)
+public class BandExecutorBenchmark {
+
+    private static final String TAG = "BENCHMARK";
+    private static final int[][] FRAMES = {{3840, 2160}, {4000, 3000}};
+    private static final int RUNS = 3;
+
+    @Test
+    public void scalingCurves() throws Exception {
+        Filter[] filters = {new GaussianBlurFilter(1.2), new OilFilter(3), new SharpenFilter()};
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (int[] frame : FRAMES) {
+            int width = frame[0], height = frame[1];
+            int[] source = new int[width * height];
+            Random random = new Random(7);
+            for (int i = 0; i < source.length; i++) {
+                source[i] = random.nextInt() | 0xFF000000;
+            }
+            for (Filter filter : filters) {
+                int[] serial = null;
+                double serialMs = 0;
+                for (int threads = 1; threads <= cores; threads++) {
+                    BandExecutor executor = new BandExecutor(threads);
+                    double[] times = new double[RUNS];
+                    PixelBuffer buffer = null;
+                    for (int run = 0; run < RUNS; run++) {
+                        buffer = new PixelBuffer(Arrays.copyOf(source, source.length), width, height);
+                        long start = SystemClock.elapsedRealtimeNanos();
+                        executor.apply(buffer, filter);
+                        times[run] = (SystemClock.elapsedRealtimeNanos() - start) / 1e6;
+                    }
+                    executor.shutdown();
+
+                    double ms = median(times);
+                    if (threads == 1) {
+                        serial = buffer.getPixels();
+                        serialMs = ms;
+                    } else {
+                        assertArrayEquals(serial, buffer.getPixels());
+                    }
+                    Log.i(TAG, "frame=" + width + "x" + height + " filter=" + filter.getClass().getSimpleName()
+                            + " threads=" + threads + " ms=" + ms + " speedup=" + serialMs / ms);
+                }
+            }
+        }
+    }
+
+    private static double median(double[] times) {
+        double[] sorted = Arrays.copyOf(times, times.length);
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+}
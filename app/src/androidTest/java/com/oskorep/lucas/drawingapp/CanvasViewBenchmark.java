@@ -0,0 +1,147 @@
+package com.oskorep.lucas.drawingapp;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.os.SystemClock;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+import android.view.MotionEvent;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Instrumentation benchmark for the drawing canvas, which will execute on an Android device.
+ * Results are written to logcat under the BENCHMARK tag.
+ */
+@RunWith(AndroidJUnit4.class)
+public class CanvasViewBenchmark {
+
+    private static final String TAG = "BENCHMARK";
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 1920;
+    private static final int FRAMES = 60;
+
+    private CanvasView mCanvasView;
+    private Canvas mScreen;
+
+    @Before
+    public void setUp() throws Exception {
+        mCanvasView = new CanvasView(InstrumentationRegistry.getTargetContext(), null);
+        mCanvasView.layout(0, 0, WIDTH, HEIGHT);
+        mScreen = new Canvas(Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.ARGB_8888));
+    }
+
+    /**
+     * Measures the average frame cost at increasing stroke counts. With strokes committed to the
+     * backing bitmap the cost of the last step should stay close to the first.
+     */
+    @Test
+    public void frameCostVersusStrokeCount() throws Exception {
+        int[] strokeCounts = {0, 100, 500, 1000};
+        int drawn = 0;
+        double first = 0, last = 0;
+
+        for (int count : strokeCounts) {
+            while (drawn < count) {
+                drawStroke(drawn++);
+            }
+            double frameMs = averageFrameMs();
+            Log.i(TAG, "strokes=" + count + " frameMs=" + frameMs);
+            if (count == 0) {
+                first = frameMs;
+            }
+            last = frameMs;
+        }
+        assertTrue("frame cost grew with stroke count", last < Math.max(first * 4, 2.0));
+    }
+
+    /**
+     * Checks the per-frame pixel counter against a full frame and a frame clipped to the damaged
+     * area of a single stroke segment.
+     */
+    @Test
+    public void pixelsRepaintedPerFrame() throws Exception {
+        mCanvasView.draw(mScreen);
+        assertEquals((long) WIDTH * HEIGHT, mCanvasView.getLastFramePixels());
+
+        mScreen.save();
+        mScreen.clipRect(100, 100, 160, 130);
+        mCanvasView.draw(mScreen);
+        mScreen.restore();
+        Log.i(TAG, "segmentPixels=" + mCanvasView.getLastFramePixels());
+        assertEquals(60 * 30, mCanvasView.getLastFramePixels());
+    }
+
+    /**
+     * Measures undo latency at increasing history lengths. With checkpoints an undo replays at most
+     * one checkpoint interval of strokes, so the latency should not grow with the history.
+     */
+    @Test
+    public void undoLatencyVersusHistoryLength() throws Exception {
+        int[] strokeCounts = {50, 200, 1000};
+        int drawn = 0;
+
+        for (int count : strokeCounts) {
+            while (drawn < count) {
+                drawStroke(drawn++);
+            }
+            long start = SystemClock.elapsedRealtimeNanos();
+            mCanvasView.undo();
+            double undoMs = (SystemClock.elapsedRealtimeNanos() - start) / 1e6;
+            mCanvasView.redo();
+            Log.i(TAG, "strokes=" + count + " undoMs=" + undoMs);
+        }
+    }
+
+    /**
+     * Forces the undo history over a small memory budget and undoes deep into it, logging the
+     * resident and spilled bytes and the page-in latency.
+     */
+    @Test
+    public void deepUndoPagesInSpilledHistory() throws Exception {
+        mCanvasView.setUndoCheckpointBudget(4 * 1024 * 1024);
+        for (int i = 0; i < 500; i++) {
+            drawStroke(i);
+        }
+        UndoCheckpoints checkpoints = mCanvasView.getUndoCheckpoints();
+        Log.i(TAG, "residentBytes=" + checkpoints.getResidentBytes()
+                + " spilledBytes=" + checkpoints.getSpilledBytes() + " spillFileBytes=" + checkpoints.getSpillFileBytes());
+        assertTrue(checkpoints.getResidentBytes() <= 4 * 1024 * 1024);
+
+        for (int i = 0; i < 480; i++) {
+            mCanvasView.undo();
+        }
+        Log.i(TAG, "pageInMs=" + checkpoints.getLastPageInMillis());
+    }
+
+    private double averageFrameMs() {
+        mCanvasView.draw(mScreen);
+        long start = SystemClock.elapsedRealtimeNanos();
+        for (int i = 0; i < FRAMES; i++) {
+            mCanvasView.draw(mScreen);
+        }
+        return (SystemClock.elapsedRealtimeNanos() - start) / 1e6 / FRAMES;
+    }
+
+    private void drawStroke(int seed) {
+        float y = (seed * 37) % HEIGHT;
+        long time = SystemClock.uptimeMillis();
+        dispatch(time, MotionEvent.ACTION_DOWN, 0, y);
+        for (int i = 1; i < 20; i++) {
+            dispatch(time + i * 8, MotionEvent.ACTION_MOVE, i * (WIDTH / 20f), y + (i % 2) * 15);
+        }
+        dispatch(time + 160, MotionEvent.ACTION_UP, WIDTH, y);
+    }
+
+    private void dispatch(long time, int action, float x, float y) {
+        MotionEvent event = MotionEvent.obtain(time, time, action, x, y, 0);
+        mCanvasView.onTouchEvent(event);
+        event.recycle();
+    }
+}
@@ -0,0 +1,78 @@
+package com.oskorep.lucas.drawingapp;
+
+import android.os.SystemClock;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import cn.Ragnarok.BitmapFilter;
+import cn.Ragnarok.ColorCubeFilter;
+import cn.Ragnarok.Filter;
+import cn.Ragnarok.GothamFilter;
+import cn.Ragnarok.OldFilter;
+import cn.Ragnarok.PixelBuffer;
+
+/**
+ * Times the gotham and old photo looks against their baked cubes on a 12 MP frame, which will
+ * execute on an Android device, along with how long baking takes. Results are written to logcat
+ * under the BENCHMARK tag.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ColorCubeBenchmark {
+
+    private static final String TAG = "BENCHMARK";
+    private static final int WIDTH = 4000;
+    private static final int HEIGHT = 3000;
+    private static final int RUNS = 5;
+
+    @Test
+    public void looksOnTwelveMegapixels() throws Exception {
+        int[] source = new int[WIDTH * HEIGHT];
+        Random random = new Random(7);
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                // gradients with some noise, closer to a photo than noise alone
+                int r = (x * 255 / WIDTH + random.nextInt(16)) & 0xFF;
+                int g = (y * 255 / HEIGHT + random.nextInt(16)) & 0xFF;
+                int b = ((x + y) * 255 / (WIDTH + HEIGHT) + random.nextInt(16)) & 0xFF;
+                source[y * WIDTH + x] = 0xFF000000 | r << 16 | g << 8 | b;
+            }
+        }
+        int[] pixels = new int[source.length];
+
+        int[] styles = {BitmapFilter.GOTHAM_STYLE, BitmapFilter.OLD_STYLE};
+        Filter[] looks = {new GothamFilter(), new OldFilter()};
+        for (int i = 0; i < styles.length; i++) {
+            long start = SystemClock.elapsedRealtimeNanos();
+            ColorCubeFilter cube = ColorCubeFilter.bake(looks[i]);
+            double bakeMs = (SystemClock.elapsedRealtimeNanos() - start) / 1e6;
+
+            double[] chain = new double[RUNS];
+            double[] cubeTimes = new double[RUNS];
+            for (int run = 0; run < RUNS; run++) {
+                System.arraycopy(source, 0, pixels, 0, source.length);
+                start = SystemClock.elapsedRealtimeNanos();
+                looks[i].apply(new PixelBuffer(pixels, WIDTH, HEIGHT));
+                chain[run] = (SystemClock.elapsedRealtimeNanos() - start) / 1e6;
+
+                System.arraycopy(source, 0, pixels, 0, source.length);
+                start = SystemClock.elapsedRealtimeNanos();
+                cube.apply(pixels, pixels.length);
+                cubeTimes[run] = (SystemClock.elapsedRealtimeNanos() - start) / 1e6;
+            }
+            Log.i(TAG, "frame=" + WIDTH + "x" + HEIGHT + " style=" + styles[i] + " cubeSize=" + cube.getSize()
+                    + " bakeMs=" + bakeMs + " chainMs=" + median(chain) + " cubeMs=" + median(cubeTimes));
+        }
+    }
+
+    private static double median(double[] times) {
+        double[] sorted = Arrays.copyOf(times, times.length);
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+}
@@ -0,0 +1,86 @@
+package com.oskorep.lucas.drawingapp;
+
+import android.os.SystemClock;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import cn.Ragnarok.ColorMatrixFilter;
+import cn.Ragnarok.GrayFilter;
+import cn.Ragnarok.InvertFilter;
+import cn.Ragnarok.OldFilter;
+
+/**
+ * Stacks one to five color adjustments on a 12 MP frame, which will execute on an Android device,
+ * and times running them one after another against the single composed pass, in float and in
+ * fixed point. Results are written to logcat under the BENCHMARK tag.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ColorMatrixBenchmark {
+
+    private static final String TAG = "BENCHMARK";
+    private static final int WIDTH = 4000;
+    private static final int HEIGHT = 3000;
+    private static final int RUNS = 5;
+
+    @Test
+    public void stackedAdjustmentsOnTwelveMegapixels() throws Exception {
+        ColorMatrixFilter[] adjustments = {
+                ColorMatrixFilter.saturation(0.6f),
+                ColorMatrixFilter.scale(1.1f, 1.0f, 0.9f, 1),
+                new OldFilter(),
+                new InvertFilter(),
+                new GrayFilter(),
+        };
+        int[] source = new int[WIDTH * HEIGHT];
+        Random random = new Random(7);
+        for (int i = 0; i < source.length; i++) {
+            source[i] = random.nextInt() | 0xFF000000;
+        }
+        int[] pixels = new int[source.length];
+
+        for (int count = 1; count <= adjustments.length; count++) {
+            ColorMatrixFilter composed = adjustments[0];
+            for (int i = 1; i < count; i++) {
+                composed = composed.then(adjustments[i]);
+            }
+            ColorMatrixFilter composedFixed = composed.toFixedPoint();
+
+            double[] separate = new double[RUNS];
+            double[] fused = new double[RUNS];
+            double[] fusedFixed = new double[RUNS];
+            for (int run = 0; run < RUNS; run++) {
+                System.arraycopy(source, 0, pixels, 0, source.length);
+                long start = SystemClock.elapsedRealtimeNanos();
+                for (int i = 0; i < count; i++) {
+                    adjustments[i].apply(pixels, pixels.length);
+                }
+                separate[run] = (SystemClock.elapsedRealtimeNanos() - start) / 1e6;
+
+                System.arraycopy(source, 0, pixels, 0, source.length);
+                start = SystemClock.elapsedRealtimeNanos();
+                composed.apply(pixels, pixels.length);
+                fused[run] = (SystemClock.elapsedRealtimeNanos() - start) / 1e6;
+
+                System.arraycopy(source, 0, pixels, 0, source.length);
+                start = SystemClock.elapsedRealtimeNanos();
+                composedFixed.apply(pixels, pixels.length);
+                fusedFixed[run] = (SystemClock.elapsedRealtimeNanos() - start) / 1e6;
+            }
+            Log.i(TAG, "frame=" + WIDTH + "x" + HEIGHT + " adjustments=" + count
+                    + " separateMs=" + median(separate) + " fusedMs=" + median(fused)
+                    + " fusedFixedMs=" + median(fusedFixed) + " fixedPoint=" + composedFixed.isFixedPoint());
+        }
+    }
+
+    private static double median(double[] times) {
+        double[] sorted = Arrays.copyOf(times, times.length);
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+}
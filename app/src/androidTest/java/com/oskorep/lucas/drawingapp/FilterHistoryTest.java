@@ -0,0 +1,179 @@
+package com.oskorep.lucas.drawingapp;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.os.SystemClock;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Undoes and redoes filters on tiled surfaces and on a CanvasView, which will execute on an
+ * Android device, including after the canvas was resized.
+ */
+@RunWith(AndroidJUnit4.class)
+public class FilterHistoryTest {
+
+    private static final int WIDTH = 600;
+    private static final int HEIGHT = 400;
+    private static final long TIMEOUT_MS = 30000;
+
+    @Test
+    public void undoAndRedoSwapTheFilteredTiles() throws Exception {
+        TiledSurface surface = new TiledSurface(WIDTH, HEIGHT);
+        surface.drawBitmap(filled(Color.RED), null);
+        FilterHistory history = record(surface, filled(Color.BLUE));
+
+        assertEquals(1, history.getAppliedCount());
+        assertEquals(Color.BLUE, surface.toBitmap().getPixel(10, 10));
+        assertTrue(history.canUndo(0));
+        assertTrue(history.undo(surface));
+        assertEquals(Color.RED, surface.toBitmap().getPixel(10, 10));
+        assertTrue(history.canRedo(0));
+        assertTrue(history.redo(surface));
+        assertEquals(Color.BLUE, surface.toBitmap().getPixel(WIDTH - 1, HEIGHT - 1));
+        assertFalse(history.canRedo(0));
+    }
+
+    @Test
+    public void forgottenTilesLeaveTheSurfaceAlone() throws Exception {
+        TiledSurface surface = new TiledSurface(WIDTH, HEIGHT);
+        surface.drawBitmap(filled(Color.RED), null);
+        FilterHistory history = record(surface, filled(Color.BLUE));
+
+        history.forgetTiles();
+        assertFalse(history.get(0).hasTiles());
+        assertEquals(0, history.getByteCount());
+        // A smaller surface, like the one of a resized canvas, is not touched.
+        TiledSurface smaller = new TiledSurface(WIDTH / 3, HEIGHT / 3);
+        assertFalse(history.undo(smaller));
+        assertEquals(0, history.getAppliedCount());
+        assertFalse(history.redo(smaller));
+        assertEquals(1, history.getAppliedCount());
+        assertEquals(Color.BLUE, surface.toBitmap().getPixel(10, 10));
+    }
+
+    @Test
+    public void checkpointAfterAFilterIsKeptOverBudget() throws Exception {
+        TiledSurface surface = new TiledSurface(WIDTH, HEIGHT);
+        surface.drawBitmap(filled(Color.RED), null);
+        // Without a spill file, checkpoints over the budget are dropped.
+        UndoCheckpoints checkpoints = new UndoCheckpoints();
+        checkpoints.setByteBudget(0);
+        checkpoints.add(1, 0, surface);
+        // Only tiles the surface no longer holds count against the budget.
+        surface.drawBitmap(filled(Color.BLUE), null);
+        checkpoints.addAfterFilter(1, 1, surface);
+        assertEquals(1, checkpoints.getCheckpointCount());
+
+        surface.drawBitmap(filled(Color.GREEN), null);
+        checkpoints.add(2, 1, surface);
+        assertEquals(1, checkpoints.getCheckpointCount());
+        assertEquals(1, checkpoints.getFilterCount(0));
+        assertTrue(checkpoints.getResidentBytes() > 0);
+    }
+
+    /**
+     * Inverts the blank canvas, shrinks it and undoes and redoes the filter, which has to run
+     * again since its tiles were taken at the old size.
+     */
+    @Test
+    public void undoAndRedoAfterAResize() throws Exception {
+        final CanvasView canvasView = new CanvasView(InstrumentationRegistry.getTargetContext(), null);
+        runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                canvasView.layout(0, 0, 1080, 1920);
+                canvasView.applyFilter(MainActivity.FILTER_INVERT);
+            }
+        });
+        waitForFilter(canvasView);
+        assertEquals(Color.BLACK, pixel(canvasView, 100, 100));
+
+        runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                canvasView.layout(0, 0, 540, 960);
+            }
+        });
+        waitForFilter(canvasView);
+        assertEquals(1, canvasView.getFilterHistory().getAppliedCount());
+        assertEquals(Color.BLACK, pixel(canvasView, 100, 100));
+
+        runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                canvasView.undo();
+            }
+        });
+        waitForFilter(canvasView);
+        assertEquals(0, canvasView.getFilterHistory().getAppliedCount());
+        assertEquals(Color.WHITE, pixel(canvasView, 100, 100));
+
+        runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                canvasView.redo();
+            }
+        });
+        waitForFilter(canvasView);
+        assertEquals(1, canvasView.getFilterHistory().getAppliedCount());
+        assertEquals(Color.BLACK, pixel(canvasView, 100, 100));
+    }
+
+    /**
+     * Replaces the surface with a filtered bitmap and records it like CanvasView.publishFilter.
+     */
+    private static FilterHistory record(TiledSurface surface, Bitmap filtered) {
+        FilterHistory history = new FilterHistory();
+        int[] changedIndices = new int[surface.getTileCount()];
+        Bitmap[] previousBitmaps = new Bitmap[surface.getTileCount()];
+        int changed = surface.replaceChangedTiles(filtered, changedIndices, previousBitmaps);
+        assertEquals(surface.getTileCount(), changed);
+        history.add(0, MainActivity.FILTER_INVERT, 0, changedIndices, previousBitmaps, changed);
+        return history;
+    }
+
+    private static Bitmap filled(int color) {
+        Bitmap bitmap = Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.ARGB_8888);
+        bitmap.eraseColor(color);
+        return bitmap;
+    }
+
+    private static void runOnMainSync(Runnable runnable) {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(runnable);
+    }
+
+    private static void waitForFilter(CanvasView canvasView) {
+        long deadline = SystemClock.uptimeMillis() + TIMEOUT_MS;
+        // A resize replays the filter off the main thread before any new filter runs.
+        while (canvasView.isFilterPending() || canvasView.isRebuildPending()) {
+            assertTrue("filter did not finish", SystemClock.uptimeMillis() < deadline);
+            InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+            SystemClock.sleep(5);
+        }
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+    }
+
+    /**
+     * Returns the color of a pixel of the canvas drawn over a white background, like on screen.
+     */
+    private static int pixel(final CanvasView canvasView, int x, int y) {
+        final Bitmap screen = Bitmap.createBitmap(canvasView.getWidth(), canvasView.getHeight(), Bitmap.Config.ARGB_8888);
+        screen.eraseColor(Color.WHITE);
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                canvasView.draw(new Canvas(screen));
+            }
+        });
+        return screen.getPixel(x, y);
+    }
+}
@@ -0,0 +1,195 @@
+package com.oskorep.lucas.drawingapp;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.os.SystemClock;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import cn.Ragnarok.BitmapFilter;
+import cn.Ragnarok.PixelBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Times the quarter size filter preview against the full size pass, which will execute on an
+ * Android device: once for the filters alone on a 12 MP frame, and once from picking a filter on
+ * the canvas until the preview and the full result are shown. Also times the thumbnail strip of
+ * every style. Results are written to logcat under the BENCHMARK tag.
+ */
+@RunWith(AndroidJUnit4.class)
+public class FilterPreviewBenchmark {
+
+    private static final String TAG = "BENCHMARK";
+    private static final int WIDTH = 4000;
+    private static final int HEIGHT = 3000;
+    private static final int RUNS = 5;
+    private static final long TIMEOUT_MS = 60000;
+
+    @Test
+    public void previewVersusFullSize() throws Exception {
+        int[] styles = {
+                BitmapFilter.OIL_STYLE,
+                BitmapFilter.GAUSSIAN_BLUR_STYLE,
+                BitmapFilter.PIXELATE_STYLE,
+                BitmapFilter.MOTION_BLUR_STYLE,
+                BitmapFilter.SKETCH_STYLE,
+                BitmapFilter.GOTHAM_STYLE,
+        };
+        Bitmap frame = drawing(WIDTH, HEIGHT);
+
+        for (int style : styles) {
+            double[] preview = new double[RUNS];
+            double[] full = new double[RUNS];
+            Bitmap previewBitmap = null;
+            for (int run = 0; run < RUNS; run++) {
+                long start = SystemClock.elapsedRealtimeNanos();
+                previewBitmap = BitmapFilter.previewStyle(frame, style, CanvasView.PREVIEW_SCALE);
+                preview[run] = (SystemClock.elapsedRealtimeNanos() - start) / 1e6;
+
+                start = SystemClock.elapsedRealtimeNanos();
+                BitmapFilter.changeStyle(frame, style);
+                full[run] = (SystemClock.elapsedRealtimeNanos() - start) / 1e6;
+            }
+            Log.i(TAG, "frame=" + WIDTH + "x" + HEIGHT + " style=" + style + " previewMs=" + median(preview)
+                    + " fullMs=" + median(full));
+            assertEquals(WIDTH / 4, previewBitmap.getWidth());
+        }
+    }
+
+    /**
+     * Picks the oil filter on the canvas and waits for the full result, reporting the time to the
+     * first preview and to the final image.
+     */
+    @Test
+    public void timeToPreviewAndFinal() throws Exception {
+        final CanvasView canvasView = new CanvasView(InstrumentationRegistry.getTargetContext(), null);
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                canvasView.layout(0, 0, 1080, 1920);
+            }
+        });
+        // Every run should filter, not find the result of the run before.
+        canvasView.setFilterCacheBudget(0);
+
+        double[] preview = new double[RUNS];
+        double[] total = new double[RUNS];
+        for (int run = 0; run < RUNS; run++) {
+            total[run] = pickAndWait(canvasView, MainActivity.FILTER_OIL);
+            preview[run] = canvasView.getPreviewNanos() / 1e6;
+        }
+        Log.i(TAG, "canvas=1080x1920 filter=oil previewMs=" + median(preview) + " finalMs=" + median(total));
+    }
+
+    /**
+     * Picks the oil filter, undoes it and picks it again, which the filter result cache should
+     * answer without running the filter.
+     */
+    @Test
+    public void pickingAgainHitsTheCache() throws Exception {
+        final CanvasView canvasView = new CanvasView(InstrumentationRegistry.getTargetContext(), null);
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                canvasView.layout(0, 0, 1080, 1920);
+            }
+        });
+        double first = pickAndWait(canvasView, MainActivity.FILTER_OIL);
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                canvasView.undo();
+            }
+        });
+        double again = pickAndWait(canvasView, MainActivity.FILTER_OIL);
+        FilterResultCache<Bitmap> cache = canvasView.getFilterCache();
+        Log.i(TAG, "canvas=1080x1920 filter=oil firstMs=" + first + " againMs=" + again + " hits=" + cache.getHitCount()
+                + " misses=" + cache.getMissCount() + " cacheBytes=" + cache.getBytes());
+        assertTrue("picking the filter again missed the cache", cache.getHitCount() >= 1);
+    }
+
+    /**
+     * Renders the filter strip for a drawing five times, the drawing changing in between, and
+     * reports the median time until every style's thumbnail was handed out.
+     */
+    @Test
+    public void filterStrip() throws Exception {
+        final CanvasView canvasView = new CanvasView(InstrumentationRegistry.getTargetContext(), null);
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                canvasView.layout(0, 0, 1080, 1920);
+            }
+        });
+        final FilterThumbnails.Listener ignore = new FilterThumbnails.Listener() {
+            @Override
+            public void onThumbnail(int styleNo, PixelBuffer thumbnail) {
+            }
+        };
+        double[] strip = new double[RUNS];
+        for (int run = 0; run < RUNS; run++) {
+            InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+                @Override
+                public void run() {
+                    canvasView.loadImage(drawing(1080, 1920));
+                    canvasView.renderThumbnails(ignore);
+                }
+            });
+            long deadline = SystemClock.uptimeMillis() + TIMEOUT_MS;
+            while (!canvasView.getFilterThumbnails().isComplete()) {
+                assertTrue("filter strip did not finish", SystemClock.uptimeMillis() < deadline);
+                InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+                SystemClock.sleep(5);
+            }
+            strip[run] = canvasView.getFilterThumbnails().getLastRenderNanos() / 1e6;
+        }
+        Log.i(TAG, "canvas=1080x1920 styles=" + FilterThumbnails.STYLE_COUNT + " stripMs=" + median(strip));
+        assertTrue("the filter strip took a second or more", median(strip) < 1000);
+    }
+
+    private static double pickAndWait(final CanvasView canvasView, final int filter) {
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                canvasView.applyFilter(filter);
+            }
+        });
+        long deadline = SystemClock.uptimeMillis() + TIMEOUT_MS;
+        while (canvasView.getFinalNanos() < 0) {
+            assertTrue("filter did not finish", SystemClock.uptimeMillis() < deadline);
+            InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+            SystemClock.sleep(5);
+        }
+        return canvasView.getFinalNanos() / 1e6;
+    }
+
+    private static Bitmap drawing(int width, int height) {
+        Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+        canvas.drawColor(Color.WHITE);
+        Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        Random random = new Random(11);
+        for (int i = 0; i < 200; i++) {
+            paint.setColor(random.nextInt() | 0xFF000000);
+            canvas.drawCircle(random.nextInt(width), random.nextInt(height), 20 + random.nextInt(400), paint);
+        }
+        return bitmap;
+    }
+
+    private static double median(double[] times) {
+        double[] sorted = Arrays.copyOf(times, times.length);
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+}
@@ -0,0 +1,64 @@
+package com.oskorep.lucas.drawingapp;
+
+import android.os.SystemClock;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import cn.Ragnarok.BitmapFilter;
+import cn.Ragnarok.Filter;
+import cn.Ragnarok.FilterRegistry;
+import cn.Ragnarok.GaussianBlurFilter;
+import cn.Ragnarok.PixelBuffer;
+
+/**
+ * Times the gaussian blur and the styles built on it on a 12 MP frame, on one thread, which will
+ * execute on an Android device. The exact separable blur and the box approximation are logged for
+ * growing sigmas under the BENCHMARK tag.
+ */
+@RunWith(AndroidJUnit4.class)
+public class GaussianBlurBenchmark {
+
+    private static final String TAG = "BENCHMARK";
+    private static final int WIDTH = 4000;
+    private static final int HEIGHT = 3000;
+    private static final int RUNS = 3;
+    private static final double[] SIGMAS = {0.6, 1.2, 3, 6, 12};
+
+    @Test
+    public void blurStylesOnTwelveMegapixels() throws Exception {
+        int[] source = new int[WIDTH * HEIGHT];
+        Random random = new Random(7);
+        for (int i = 0; i < source.length; i++) {
+            source[i] = random.nextInt() | 0xFF000000;
+        }
+
+        int[] styles = {BitmapFilter.GAUSSIAN_BLUR_STYLE, BitmapFilter.HDR_STYLE, BitmapFilter.SOFT_GLOW_STYLE};
+        for (int style : styles) {
+            Log.i(TAG, "frame=" + WIDTH + "x" + HEIGHT + " style=" + style
+                    + " ms=" + medianMs(FilterRegistry.create(style), source));
+        }
+        for (double sigma : SIGMAS) {
+            Log.i(TAG, "frame=" + WIDTH + "x" + HEIGHT + " sigma=" + sigma
+                    + " separableMs=" + medianMs(new GaussianBlurFilter(sigma), source)
+                    + " boxMs=" + medianMs(new GaussianBlurFilter(sigma, true), source));
+        }
+    }
+
+    private static double medianMs(Filter filter, int[] source) {
+        double[] times = new double[RUNS];
+        for (int run = 0; run < RUNS; run++) {
+            PixelBuffer buffer = new PixelBuffer(Arrays.copyOf(source, source.length), WIDTH, HEIGHT);
+            long start = SystemClock.elapsedRealtimeNanos();
+            filter.apply(buffer);
+            times[run] = (SystemClock.elapsedRealtimeNanos() - start) / 1e6;
+        }
+        Arrays.sort(times);
+        return times[RUNS / 2];
+    }
+}
@@ -0,0 +1,108 @@
+package com.oskorep.lucas.drawingapp;
+
+import android.graphics.Bitmap;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Spills and releases tiles of undo history, which will execute on an Android device, and checks
+ * the file reuses the space of released tiles instead of growing.
+ */
+@RunWith(AndroidJUnit4.class)
+public class HistorySpillFileTest {
+
+    private static final int SIZE = TiledSurface.TILE_SIZE;
+
+    private HistorySpillFile mSpillFile;
+
+    @Before
+    public void setUp() throws Exception {
+        mSpillFile = new HistorySpillFile(new File(InstrumentationRegistry.getTargetContext().getCacheDir(),
+                "spill-test"));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        mSpillFile.clear();
+    }
+
+    @Test
+    public void readsBackWhatWasWritten() throws Exception {
+        long[] handles = new long[8];
+        for (int i = 0; i < handles.length; i++) {
+            handles[i] = mSpillFile.write(tile(i));
+        }
+        for (int i = handles.length - 1; i >= 0; i--) {
+            assertTrue("tile " + i, mSpillFile.read(handles[i]).sameAs(tile(i)));
+        }
+    }
+
+    @Test
+    public void identicalTilesAreStoredOnce() throws Exception {
+        long first = mSpillFile.write(tile(1));
+        long length = mSpillFile.getLength();
+        assertEquals(first, mSpillFile.write(tile(1)));
+        assertEquals(length, mSpillFile.getLength());
+
+        // The tile stays until both writes were released.
+        mSpillFile.release(first);
+        assertEquals(length, mSpillFile.getLiveBytes());
+        assertTrue(mSpillFile.read(first).sameAs(tile(1)));
+        mSpillFile.release(first);
+        assertEquals(0, mSpillFile.getLiveBytes());
+    }
+
+    @Test
+    public void releasedSpaceIsReused() throws Exception {
+        long[] handles = new long[16];
+        for (int i = 0; i < handles.length; i++) {
+            handles[i] = mSpillFile.write(tile(i));
+        }
+        long length = mSpillFile.getLength();
+
+        // Drop and spill checkpoints over and over, like a long session of undos.
+        for (int round = 0; round < 20; round++) {
+            for (int i = 0; i < handles.length; i += 2) {
+                mSpillFile.release(handles[i]);
+            }
+            for (int i = 0; i < handles.length; i += 2) {
+                handles[i] = mSpillFile.write(tile(100 * round + i));
+            }
+        }
+        assertTrue("the file grew to " + mSpillFile.getLength(), mSpillFile.getLength() <= 2 * length);
+        for (int i = 1; i < handles.length; i += 2) {
+            assertTrue("tile " + i, mSpillFile.read(handles[i]).sameAs(tile(i)));
+        }
+
+        // Once nothing is referred to, the holes are cut off the end of the file.
+        for (long handle : handles) {
+            mSpillFile.release(handle);
+        }
+        assertEquals(0, mSpillFile.getLiveBytes());
+        assertEquals(0, mSpillFile.getLength());
+    }
+
+    /**
+     * A tile of noise on a flat background, so it compresses to a size that depends on the seed.
+     */
+    private static Bitmap tile(int seed) {
+        Random random = new Random(seed);
+        int[] pixels = new int[SIZE * SIZE];
+        int noisy = 1000 + random.nextInt(4000);
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = i < noisy ? random.nextInt() | 0xFF000000 : 0xFFFFFFFF;
+        }
+        return Bitmap.createBitmap(pixels, SIZE, SIZE, Bitmap.Config.ARGB_8888);
+    }
+}
@@ -0,0 +1,76 @@
+package com.oskorep.lucas.drawingapp;
+
+import android.os.SystemClock;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Random;
+
+import cn.Ragnarok.JavaFilterFunc;
+
+/**
+ * Times every pure Java filter on a 1024x768 frame, which will execute on an Android device, so
+ * the cost of the fallback can be compared with the native filters. The best of three runs of
+ * each filter is written to logcat under the BENCHMARK tag.
+ */
+@RunWith(AndroidJUnit4.class)
+public class JavaFilterBenchmark {
+
+    private static final String TAG = "BENCHMARK";
+    private static final int WIDTH = 1024;
+    private static final int HEIGHT = 768;
+    private static final int FILTER_COUNT = 16;
+    private static final int RUNS = 3;
+
+    @Test
+    public void everyJavaFilter() throws Exception {
+        // A photo-like frame: smooth gradients with a little sensor noise.
+        int[] source = new int[WIDTH * HEIGHT];
+        Random random = new Random(7);
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                int noise = random.nextInt(12);
+                int r = (x * 255 / WIDTH + noise) & 0xFF;
+                int g = (y * 255 / HEIGHT + noise) & 0xFF;
+                int b = ((x + y) / 16 + noise) & 0xFF;
+                source[y * WIDTH + x] = 0xFF000000 | r << 16 | g << 8 | b;
+            }
+        }
+
+        int[] pixels = new int[source.length];
+        for (int filter = 0; filter < FILTER_COUNT; filter++) {
+            long best = Long.MAX_VALUE;
+            for (int run = 0; run < RUNS; run++) {
+                System.arraycopy(source, 0, pixels, 0, source.length);
+                long start = SystemClock.elapsedRealtimeNanos();
+                runFilter(filter, pixels, WIDTH, HEIGHT);
+                best = Math.min(best, SystemClock.elapsedRealtimeNanos() - start);
+            }
+            Log.i(TAG, "frame=" + WIDTH + "x" + HEIGHT + " filter=" + filter + " javaMs=" + best / 1e6);
+        }
+    }
+
+    private static void runFilter(int filter, int[] pixels, int width, int height) {
+        switch (filter) {
+            case 0: JavaFilterFunc.lightFilter(pixels, width, height, width / 2, height / 2, height / 2); break;
+            case 1: JavaFilterFunc.lomoAddBlckRound(pixels, width, height, width / 2); break;
+            case 2: JavaFilterFunc.neonFilter(pixels, width, height, 200, 50, 100); break;
+            case 3: JavaFilterFunc.oilFilter(pixels, width, height, 5); break;
+            case 4: JavaFilterFunc.tvFilter(pixels, width, height); break;
+            case 5: JavaFilterFunc.averageSmooth(pixels, width, height, 5); break;
+            case 6: JavaFilterFunc.hdrFilter(pixels, width, height); break;
+            case 7: JavaFilterFunc.discreteGaussianBlur(pixels, width, height, 1.2); break;
+            case 8: JavaFilterFunc.softGlow(pixels, width, height, 0.6); break;
+            case 9: JavaFilterFunc.sketchFilter(pixels, width, height); break;
+            case 10: JavaFilterFunc.sharpenFilter(pixels, width, height); break;
+            case 11: JavaFilterFunc.reliefFilter(pixels, width, height); break;
+            case 12: JavaFilterFunc.pxelateFilter(pixels, width, height, 10); break;
+            case 13: JavaFilterFunc.blockFilter(pixels, width, height); break;
+            case 14: JavaFilterFunc.motionBlurFilter(pixels, width, height, 5, 1); break;
+            default: JavaFilterFunc.gothamFilter(pixels, width, height); break;
+        }
+    }
+}
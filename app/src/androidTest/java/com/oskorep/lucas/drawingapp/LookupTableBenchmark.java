@@ -0,0 +1,99 @@
+package com.oskorep.lucas.drawingapp;
+
+import android.os.SystemClock;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import cn.Ragnarok.FilterEngine;
+import cn.Ragnarok.LookupTableFilter;
+import cn.Ragnarok.PixelBuffer;
+
+import static org.junit.Assert.assertArrayEquals;
+
+/**
+ * Stacks one to four tone adjustments on a 12 MP frame, which will execute on an Android device,
+ * and times running their tables one after another against the single composed table, on the
+ * Java and the native engine. Results are written to logcat under the BENCHMARK tag.
+ */
+@RunWith(AndroidJUnit4.class)
+public class LookupTableBenchmark {
+
+    private static final String TAG = "BENCHMARK";
+    private static final int WIDTH = 4000;
+    private static final int HEIGHT = 3000;
+    private static final int RUNS = 5;
+
+    private FilterEngine mEngine;
+
+    @Before
+    public void setUp() throws Exception {
+        mEngine = FilterEngine.get();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        FilterEngine.set(mEngine);
+    }
+
+    @Test
+    public void stackedTonesOnTwelveMegapixels() throws Exception {
+        LookupTableFilter[] adjustments = {
+                LookupTableFilter.brightness(20),
+                LookupTableFilter.contrast(1.2),
+                LookupTableFilter.gamma(1 / 2.2),
+                LookupTableFilter.curve(0, 10, 96, 80, 160, 190, 255, 245),
+        };
+        int[] source = new int[WIDTH * HEIGHT];
+        Random random = new Random(7);
+        for (int i = 0; i < source.length; i++) {
+            source[i] = random.nextInt() | 0xFF000000;
+        }
+        PixelBuffer buffer = new PixelBuffer(new int[source.length], WIDTH, HEIGHT);
+        int[] pixels = buffer.getPixels();
+
+        for (FilterEngine engine : FilterEngine.values()) {
+            FilterEngine.set(engine);
+            for (int count = 1; count <= adjustments.length; count++) {
+                LookupTableFilter composed = adjustments[0];
+                for (int i = 1; i < count; i++) {
+                    composed = composed.then(adjustments[i]);
+                }
+
+                double[] separate = new double[RUNS];
+                double[] fused = new double[RUNS];
+                int[] separateResult = null;
+                for (int run = 0; run < RUNS; run++) {
+                    System.arraycopy(source, 0, pixels, 0, source.length);
+                    long start = SystemClock.elapsedRealtimeNanos();
+                    for (int i = 0; i < count; i++) {
+                        adjustments[i].apply(buffer);
+                    }
+                    separate[run] = (SystemClock.elapsedRealtimeNanos() - start) / 1e6;
+                    separateResult = Arrays.copyOf(pixels, pixels.length);
+
+                    System.arraycopy(source, 0, pixels, 0, source.length);
+                    start = SystemClock.elapsedRealtimeNanos();
+                    composed.apply(buffer);
+                    fused[run] = (SystemClock.elapsedRealtimeNanos() - start) / 1e6;
+                }
+                Log.i(TAG, "frame=" + WIDTH + "x" + HEIGHT + " engine=" + engine + " adjustments=" + count
+                        + " separateMs=" + median(separate) + " fusedMs=" + median(fused));
+                assertArrayEquals(separateResult, pixels);
+            }
+        }
+    }
+
+    private static double median(double[] times) {
+        double[] sorted = Arrays.copyOf(times, times.length);
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+}
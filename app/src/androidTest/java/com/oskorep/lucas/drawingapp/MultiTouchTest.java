@@ -0,0 +1,109 @@
+package com.oskorep.lucas.drawingapp;
+
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.view.MotionEvent;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Replays multi-pointer MotionEvent sequences into a CanvasView, which will execute on an Android
+ * device, and checks every finger ends up with its own stroke.
+ */
+@RunWith(AndroidJUnit4.class)
+public class MultiTouchTest {
+
+    private static final int STEPS = 20;
+
+    private CanvasView mCanvasView;
+
+    @Before
+    public void setUp() throws Exception {
+        mCanvasView = new CanvasView(InstrumentationRegistry.getTargetContext(), null);
+        mCanvasView.layout(0, 0, 1080, 1920);
+        // Keep every sample so the stored points can be compared with the dispatched ones.
+        mCanvasView.setStrokeSimplification(0);
+    }
+
+    /**
+     * Two fingers draw at the same time on different rows; the second lifts first.
+     */
+    @Test
+    public void concurrentStrokesStayIndependent() throws Exception {
+        int[] ids = {0, 1};
+        long time = 0;
+
+        dispatch(time++, MotionEvent.ACTION_DOWN, ids, 1, 0);
+        dispatch(time++, pointerAction(MotionEvent.ACTION_POINTER_DOWN, 1), ids, 2, 0);
+        for (int step = 1; step <= STEPS; step++) {
+            dispatch(time++, MotionEvent.ACTION_MOVE, ids, 2, step);
+        }
+        dispatch(time++, pointerAction(MotionEvent.ACTION_POINTER_UP, 1), ids, 2, STEPS);
+        dispatch(time, MotionEvent.ACTION_UP, ids, 1, STEPS);
+
+        StrokeStore strokes = mCanvasView.getStrokes();
+        assertEquals(2, strokes.getStrokeCount());
+        // Pointer 1 lifted first, so its stroke was committed first.
+        assertStroke(strokes, 0, 1);
+        assertStroke(strokes, 1, 0);
+    }
+
+    /**
+     * A cancelled gesture commits nothing.
+     */
+    @Test
+    public void cancelDropsActiveStrokes() throws Exception {
+        int[] ids = {0, 1};
+        dispatch(0, MotionEvent.ACTION_DOWN, ids, 1, 0);
+        dispatch(1, pointerAction(MotionEvent.ACTION_POINTER_DOWN, 1), ids, 2, 0);
+        dispatch(2, MotionEvent.ACTION_MOVE, ids, 2, 1);
+        dispatch(3, MotionEvent.ACTION_CANCEL, ids, 2, 1);
+
+        assertEquals(0, mCanvasView.getStrokes().getStrokeCount());
+    }
+
+    private static void assertStroke(StrokeStore strokes, int stroke, int pointer) {
+        assertEquals(STEPS + 1, strokes.getPointCount(stroke));
+        float[] points = strokes.getPoints();
+        int offset = strokes.getOffset(stroke);
+        for (int step = 0; step <= STEPS; step++) {
+            assertEquals(x(step), points[offset + step * 2], 0f);
+            assertEquals(y(pointer), points[offset + step * 2 + 1], 0f);
+        }
+    }
+
+    private static int pointerAction(int action, int index) {
+        return action | (index << MotionEvent.ACTION_POINTER_INDEX_SHIFT);
+    }
+
+    private void dispatch(long time, int action, int[] ids, int pointerCount, int step) {
+        MotionEvent.PointerProperties[] properties = new MotionEvent.PointerProperties[pointerCount];
+        MotionEvent.PointerCoords[] coords = new MotionEvent.PointerCoords[pointerCount];
+        for (int i = 0; i < pointerCount; i++) {
+            properties[i] = new MotionEvent.PointerProperties();
+            properties[i].id = ids[i];
+            properties[i].toolType = MotionEvent.TOOL_TYPE_FINGER;
+            coords[i] = new MotionEvent.PointerCoords();
+            coords[i].x = x(step);
+            coords[i].y = y(ids[i]);
+            coords[i].pressure = 1f;
+            coords[i].size = 1f;
+        }
+        MotionEvent event = MotionEvent.obtain(0, time, action, pointerCount, properties, coords,
+                0, 0, 1f, 1f, 0, 0, 0, 0);
+        mCanvasView.onTouchEvent(event);
+        event.recycle();
+    }
+
+    private static float x(int step) {
+        return 100 + step * 30;
+    }
+
+    private static float y(int pointer) {
+        return 400 + pointer * 600;
+    }
+}
@@ -0,0 +1,86 @@
+package com.oskorep.lucas.drawingapp;
+
+import android.os.SystemClock;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import cn.Ragnarok.NativeFilterFunc;
+
+import static org.junit.Assert.assertArrayEquals;
+
+/**
+ * Compares the copying native filter entry points with the in place ones on a 12 MP frame, which
+ * will execute on an Android device. The same cheap filter runs through every path, so the
+ * difference in time is what the copies cost. Results are written to logcat under the BENCHMARK
+ * tag.
+ */
+@RunWith(AndroidJUnit4.class)
+public class NativeFilterCopyBenchmark {
+
+    private static final String TAG = "BENCHMARK";
+    private static final int WIDTH = 4000;
+    private static final int HEIGHT = 3000;
+    private static final int PIXEL_SIZE = 16;
+    private static final int RUNS = 5;
+
+    @Test
+    public void copyOverheadOnTwelveMegapixels() throws Exception {
+        int[] source = new int[WIDTH * HEIGHT];
+        Random random = new Random(7);
+        for (int i = 0; i < source.length; i++) {
+            source[i] = random.nextInt() | 0xFF000000;
+        }
+        int[] pixels = new int[source.length];
+        IntBuffer direct = ByteBuffer.allocateDirect(source.length * 4).order(ByteOrder.nativeOrder()).asIntBuffer();
+
+        double[] copying = new double[RUNS];
+        double[] inPlace = new double[RUNS];
+        double[] directTimes = new double[RUNS];
+        int[] copyingResult = null;
+        for (int run = 0; run < RUNS; run++) {
+            System.arraycopy(source, 0, pixels, 0, source.length);
+            long start = SystemClock.elapsedRealtimeNanos();
+            copyingResult = NativeFilterFunc.pxelateFilter(pixels, WIDTH, HEIGHT, PIXEL_SIZE);
+            copying[run] = (SystemClock.elapsedRealtimeNanos() - start) / 1e6;
+
+            System.arraycopy(source, 0, pixels, 0, source.length);
+            start = SystemClock.elapsedRealtimeNanos();
+            NativeFilterFunc.pxelateFilterInPlace(pixels, WIDTH, HEIGHT, PIXEL_SIZE);
+            inPlace[run] = (SystemClock.elapsedRealtimeNanos() - start) / 1e6;
+
+            direct.clear();
+            direct.put(source);
+            start = SystemClock.elapsedRealtimeNanos();
+            NativeFilterFunc.pxelateFilterDirect(direct, WIDTH, HEIGHT, PIXEL_SIZE);
+            directTimes[run] = (SystemClock.elapsedRealtimeNanos() - start) / 1e6;
+        }
+
+        double copyingMs = median(copying);
+        double inPlaceMs = median(inPlace);
+        double directMs = median(directTimes);
+        Log.i(TAG, "frame=" + WIDTH + "x" + HEIGHT + " copyingMs=" + copyingMs + " inPlaceMs=" + inPlaceMs
+                + " directMs=" + directMs + " copyOverheadMs=" + (copyingMs - inPlaceMs));
+
+        // Every path has to produce the same frame.
+        assertArrayEquals(copyingResult, pixels);
+        int[] directResult = new int[source.length];
+        direct.rewind();
+        direct.get(directResult);
+        assertArrayEquals(copyingResult, directResult);
+    }
+
+    private static double median(double[] times) {
+        double[] sorted = Arrays.copyOf(times, times.length);
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+}
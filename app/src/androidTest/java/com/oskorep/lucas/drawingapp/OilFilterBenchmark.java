@@ -0,0 +1,61 @@
+package com.oskorep.lucas.drawingapp;
+
+import android.os.SystemClock;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import cn.Ragnarok.JavaFilterFunc;
+import cn.Ragnarok.NativeFilterFunc;
+
+import static org.junit.Assert.assertArrayEquals;
+
+/**
+ * Runs the native and the Java oil filter for every oilRange from 2 to 15 on a 1080p frame, which
+ * will execute on an Android device. Both have to produce the same pixels; the times are written
+ * to logcat under the BENCHMARK tag.
+ */
+@RunWith(AndroidJUnit4.class)
+public class OilFilterBenchmark {
+
+    private static final String TAG = "BENCHMARK";
+    private static final int WIDTH = 1920;
+    private static final int HEIGHT = 1080;
+
+    @Test
+    public void oilRangeTwoToFifteen() throws Exception {
+        // A photo-like frame: smooth gradients with a little sensor noise.
+        int[] source = new int[WIDTH * HEIGHT];
+        Random random = new Random(7);
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                int noise = random.nextInt(12);
+                int r = (x * 255 / WIDTH + noise) & 0xFF;
+                int g = (y * 255 / HEIGHT + noise) & 0xFF;
+                int b = ((x + y) / 16 + noise) & 0xFF;
+                source[y * WIDTH + x] = 0xFF000000 | r << 16 | g << 8 | b;
+            }
+        }
+
+        for (int oilRange = 2; oilRange <= 15; oilRange++) {
+            int[] nativePixels = Arrays.copyOf(source, source.length);
+            long start = SystemClock.elapsedRealtimeNanos();
+            NativeFilterFunc.oilFilterInPlace(nativePixels, WIDTH, HEIGHT, oilRange);
+            double nativeMs = (SystemClock.elapsedRealtimeNanos() - start) / 1e6;
+
+            int[] javaPixels = Arrays.copyOf(source, source.length);
+            start = SystemClock.elapsedRealtimeNanos();
+            JavaFilterFunc.oilFilter(javaPixels, WIDTH, HEIGHT, oilRange);
+            double javaMs = (SystemClock.elapsedRealtimeNanos() - start) / 1e6;
+
+            Log.i(TAG, "frame=" + WIDTH + "x" + HEIGHT + " oilRange=" + oilRange
+                    + " nativeMs=" + nativeMs + " javaMs=" + javaMs);
+            assertArrayEquals("oilRange " + oilRange, nativePixels, javaPixels);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.oskorep.lucas.drawingapp;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.os.Debug;
+import android.os.SystemClock;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import cn.Ragnarok.BitmapFilter;
+import cn.Ragnarok.PixelPool;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Measures the memory allocated per filter application on a 12 MP frame, which will execute on an
+ * Android device: once with a pixel pool that keeps nothing, as before pooling, and once with the
+ * shared pool, giving every result back. Reports the bytes the pool allocated, the bytes the
+ * runtime allocated on the Java heap and the time per application to logcat under the BENCHMARK
+ * tag.
+ */
+@RunWith(AndroidJUnit4.class)
+public class PixelPoolBenchmark {
+
+    private static final String TAG = "BENCHMARK";
+    private static final int WIDTH = 4000;
+    private static final int HEIGHT = 3000;
+    private static final int RUNS = 5;
+
+    @Test
+    public void allocatedBytesPerApplication() throws Exception {
+        int[] styles = {
+                BitmapFilter.OIL_STYLE,
+                BitmapFilter.SOFT_GLOW_STYLE,
+                BitmapFilter.SHARPEN_STYLE,
+                BitmapFilter.MOTION_BLUR_STYLE,
+                BitmapFilter.GOTHAM_STYLE,
+        };
+        Bitmap frame = drawing(WIDTH, HEIGHT);
+        PixelPool defaultPool = PixelPool.getDefault();
+        try {
+            for (int style : styles) {
+                long before = measure(frame, style, new PixelPool(0));
+                long after = measure(frame, style, new PixelPool(defaultPool.getMaxBytes()));
+                assertTrue("pooling allocated more for style " + style, after <= before);
+            }
+        } finally {
+            PixelPool.setDefault(defaultPool);
+        }
+    }
+
+    /**
+     * Applies a style RUNS times after a warm up run with the pool as the default one and returns
+     * the median bytes the pool allocated per application.
+     */
+    private static long measure(Bitmap frame, int style, PixelPool pool) {
+        PixelPool.setDefault(pool);
+        PixelPool.getDefault().recycle(BitmapFilter.changeStyle(frame, style));
+        double[] poolBytes = new double[RUNS];
+        double[] heapBytes = new double[RUNS];
+        double[] times = new double[RUNS];
+        for (int run = 0; run < RUNS; run++) {
+            pool.resetCounters();
+            long heap = heapAllocated();
+            long start = SystemClock.elapsedRealtimeNanos();
+            Bitmap result = BitmapFilter.changeStyle(frame, style);
+            times[run] = (SystemClock.elapsedRealtimeNanos() - start) / 1e6;
+            heapBytes[run] = heapAllocated() - heap;
+            poolBytes[run] = pool.getAllocatedBytes();
+            pool.recycle(result);
+        }
+        Log.i(TAG, "frame=" + WIDTH + "x" + HEIGHT + " style=" + style + " poolBudget=" + pool.getMaxBytes()
+                + " poolAllocatedBytes=" + (long) median(poolBytes) + " heapAllocatedBytes=" + (long) median(heapBytes)
+                + " ms=" + median(times));
+        return (long) median(poolBytes);
+    }
+
+    private static long heapAllocated() {
+        String bytes = Debug.getRuntimeStat("art.gc.bytes-allocated");
+        return bytes == null ? 0 : Long.parseLong(bytes);
+    }
+
+    private static Bitmap drawing(int width, int height) {
+        Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+        canvas.drawColor(Color.WHITE);
+        Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        Random random = new Random(11);
+        for (int i = 0; i < 200; i++) {
+            paint.setColor(random.nextInt() | 0xFF000000);
+            canvas.drawCircle(random.nextInt(width), random.nextInt(height), 20 + random.nextInt(400), paint);
+        }
+        return bitmap;
+    }
+
+    private static double median(double[] times) {
+        double[] sorted = Arrays.copyOf(times, times.length);
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+}
@@ -0,0 +1,135 @@
+package com.oskorep.lucas.drawingapp;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.os.Debug;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+import android.view.MotionEvent;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Feeds synthetic high-rate MotionEvent streams into a StrokeBuilder, which will execute on an
+ * Android device since MotionEvent is not available on the host.
+ */
+@RunWith(AndroidJUnit4.class)
+public class StrokeBuilderTest {
+
+    private static final String TAG = "BENCHMARK";
+    private static final int EVENTS = 200;
+    // A 240Hz digitizer delivers around four samples per 60Hz frame.
+    private static final int SAMPLES_PER_EVENT = 4;
+
+    private ArrayList<MotionEvent> mEvents = new ArrayList<MotionEvent>();
+
+    @Before
+    public void setUp() throws Exception {
+        for (int e = 0; e < EVENTS; e++) {
+            MotionEvent event = null;
+            for (int s = 0; s < SAMPLES_PER_EVENT; s++) {
+                int sample = e * SAMPLES_PER_EVENT + s + 1;
+                long time = sample * 4;
+                if (event == null) {
+                    event = MotionEvent.obtain(0, time, MotionEvent.ACTION_MOVE, x(sample), y(sample), 0);
+                } else {
+                    event.addBatch(time, x(sample), y(sample), 1f, 1f, 0);
+                }
+            }
+            mEvents.add(event);
+        }
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        for (MotionEvent event : mEvents) {
+            event.recycle();
+        }
+    }
+
+    @Test
+    public void keepsEveryHistoricalSample() throws Exception {
+        StrokeBuilder builder = new StrokeBuilder();
+        builder.begin(x(0), y(0));
+        for (MotionEvent event : mEvents) {
+            builder.addSamples(event, 0);
+        }
+        builder.end();
+
+        int expected = EVENTS * SAMPLES_PER_EVENT + 1;
+        Log.i(TAG, "samples=" + expected + " points=" + builder.getPointCount());
+        assertEquals(expected, builder.getPointCount());
+
+        float[] points = builder.getPoints();
+        for (int i = 0; i < expected; i++) {
+            assertEquals(x(i), points[i * 2], 0f);
+            assertEquals(y(i), points[i * 2 + 1], 0f);
+        }
+    }
+
+    @Test
+    public void movePathDoesNotAllocate() throws Exception {
+        StrokeBuilder builder = new StrokeBuilder();
+        // The first stroke grows the point buffer, later strokes reuse it.
+        builder.begin(x(0), y(0));
+        for (MotionEvent event : mEvents) {
+            builder.addSamples(event, 0);
+        }
+
+        builder.begin(x(0), y(0));
+        Debug.startAllocCounting();
+        Debug.resetThreadAllocCount();
+        for (MotionEvent event : mEvents) {
+            builder.addSamples(event, 0);
+        }
+        int allocations = Debug.getThreadAllocCount();
+        Debug.stopAllocCounting();
+
+        Log.i(TAG, "allocationsPerEvent=" + ((float) allocations / EVENTS));
+        assertEquals(0, allocations);
+    }
+
+    @Test
+    public void tapDrawsADot() throws Exception {
+        Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        paint.setColor(Color.BLACK);
+        paint.setStyle(Paint.Style.STROKE);
+        paint.setStrokeCap(Paint.Cap.ROUND);
+        paint.setStrokeWidth(20f);
+
+        for (boolean smoothing : new boolean[]{true, false}) {
+            StrokeBuilder builder = new StrokeBuilder();
+            builder.setSmoothing(smoothing);
+            builder.begin(50f, 50f);
+            // A finger resting in place repeats the sample, which is dropped.
+            builder.addPoint(50f, 50f);
+            builder.end();
+            assertEquals(1, builder.getPointCount());
+            assertFalse(builder.getPath().isEmpty());
+
+            Bitmap bitmap = Bitmap.createBitmap(100, 100, Bitmap.Config.ARGB_8888);
+            bitmap.eraseColor(Color.WHITE);
+            new Canvas(bitmap).drawPath(builder.getPath(), paint);
+            assertEquals("smoothing=" + smoothing, Color.BLACK, bitmap.getPixel(50, 50));
+            bitmap.recycle();
+        }
+    }
+
+    private static float x(int sample) {
+        return sample * 3f;
+    }
+
+    private static float y(int sample) {
+        return 500f + (float) Math.sin(sample / 10.0) * 200f;
+    }
+}
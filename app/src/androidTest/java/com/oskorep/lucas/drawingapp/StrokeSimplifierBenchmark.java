@@ -0,0 +1,125 @@
+package com.oskorep.lucas.drawingapp;
+
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.os.SystemClock;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Simplifies a corpus of recorded-like strokes, which will execute on an Android device, and logs
+ * the point reduction, the largest deviation from the samples and the replay time saved under the
+ * BENCHMARK tag.
+ */
+@RunWith(AndroidJUnit4.class)
+public class StrokeSimplifierBenchmark {
+
+    private static final String TAG = "BENCHMARK";
+    private static final int STROKES = 300;
+    private static final float[] WIDTHS = {5, 20, 60};
+
+    @Test
+    public void reductionErrorAndReplayTime() throws Exception {
+        StrokeSimplifier simplifier = new StrokeSimplifier();
+        for (float width : WIDTHS) {
+            Paint paint = new Paint();
+            paint.setAntiAlias(true);
+            paint.setStyle(Paint.Style.STROKE);
+            paint.setStrokeJoin(Paint.Join.ROUND);
+            paint.setStrokeCap(Paint.Cap.ROUND);
+            paint.setStrokeWidth(width);
+            float tolerance = StrokeSimplifier.toleranceFor(width, StrokeSimplifier.DEFAULT_TOLERANCE_PER_WIDTH);
+
+            StrokeStore raw = new StrokeStore();
+            StrokeStore simplified = new StrokeStore();
+            Random random = new Random(42);
+            long rawPoints = 0, keptPoints = 0;
+            float maxDeviation = 0;
+            for (int s = 0; s < STROKES; s++) {
+                float[] points = recordStroke(random);
+                int count = points.length / 2;
+                float[] kept = Arrays.copyOf(points, points.length);
+                int keptCount = simplifier.simplify(kept, count, tolerance);
+
+                raw.add(points, count, paint, true);
+                simplified.add(kept, keptCount, paint, true);
+                rawPoints += count;
+                keptPoints += keptCount;
+                maxDeviation = Math.max(maxDeviation, maxDeviation(points, count, kept, keptCount));
+            }
+
+            double rawMs = replayMs(raw);
+            double simplifiedMs = replayMs(simplified);
+            Log.i(TAG, "width=" + width + " tolerance=" + tolerance
+                    + " points=" + rawPoints + " kept=" + keptPoints
+                    + " reduction=" + (100 - keptPoints * 100 / rawPoints) + "%"
+                    + " maxDeviation=" + maxDeviation
+                    + " replayMs=" + rawMs + " simplifiedReplayMs=" + simplifiedMs);
+            assertTrue("deviation exceeded the tolerance", maxDeviation <= tolerance + 1e-3f);
+            assertTrue("nothing was simplified", keptPoints < rawPoints);
+        }
+    }
+
+    /**
+     * Rasterizes every stroke of the store the way undo replays them.
+     */
+    private static double replayMs(StrokeStore strokes) {
+        TiledSurface surface = new TiledSurface(1080, 1920);
+        Path path = new Path();
+        long start = SystemClock.elapsedRealtimeNanos();
+        for (int i = 0; i < strokes.getStrokeCount(); i++) {
+            strokes.buildPath(i, path);
+            surface.drawPath(path, strokes.getPaint(i));
+        }
+        double ms = (SystemClock.elapsedRealtimeNanos() - start) / 1e6;
+        surface.clear();
+        return ms;
+    }
+
+    /**
+     * Produces a stroke sampled at 240Hz: a slowly turning curve with sub-pixel digitizer noise.
+     */
+    private static float[] recordStroke(Random random) {
+        int count = 100 + random.nextInt(400);
+        float[] points = new float[count * 2];
+        float x = 100 + random.nextFloat() * 880;
+        float y = 100 + random.nextFloat() * 1720;
+        float heading = random.nextFloat() * 6.28f;
+        float turn = (random.nextFloat() - 0.5f) * 0.05f;
+        for (int i = 0; i < count; i++) {
+            points[i * 2] = x + (random.nextFloat() - 0.5f) * 0.6f;
+            points[i * 2 + 1] = y + (random.nextFloat() - 0.5f) * 0.6f;
+            heading += turn;
+            x += (float) Math.cos(heading) * 3;
+            y += (float) Math.sin(heading) * 3;
+        }
+        return points;
+    }
+
+    /**
+     * Returns the largest distance of an original sample from the simplified polyline.
+     */
+    private static float maxDeviation(float[] points, int count, float[] kept, int keptCount) {
+        float[] pair = new float[6];
+        float max = 0;
+        for (int i = 0; i < count; i++) {
+            float nearest = Float.MAX_VALUE;
+            for (int k = 0; k + 1 < keptCount; k++) {
+                pair[0] = points[i * 2];
+                pair[1] = points[i * 2 + 1];
+                System.arraycopy(kept, k * 2, pair, 2, 4);
+                nearest = Math.min(nearest, StrokeSimplifier.segmentDistanceSquared(pair, 0, 1, 2));
+            }
+            max = Math.max(max, nearest);
+        }
+        return (float) Math.sqrt(max);
+    }
+}
@@ -0,0 +1,99 @@
+package com.oskorep.lucas.drawingapp;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Counts the memory of undo checkpoints that share tiles with the surface and with each other,
+ * which will execute on an Android device, and spills them to a cache file.
+ */
+@RunWith(AndroidJUnit4.class)
+public class UndoCheckpointsTest {
+
+    private static final int SIZE = TiledSurface.TILE_SIZE;
+    private static final long TILE_BYTES = SIZE * SIZE * 4;
+
+    private UndoCheckpoints mCheckpoints;
+    private TiledSurface mSurface;
+
+    @Before
+    public void setUp() throws Exception {
+        mCheckpoints = new UndoCheckpoints(new File(InstrumentationRegistry.getTargetContext().getCacheDir(),
+                "checkpoints-test"));
+        // Four tiles, all drawn into.
+        mSurface = new TiledSurface(2 * SIZE, 2 * SIZE);
+        Bitmap white = Bitmap.createBitmap(2 * SIZE, 2 * SIZE, Bitmap.Config.ARGB_8888);
+        white.eraseColor(Color.WHITE);
+        mSurface.drawBitmap(white, null);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        mCheckpoints.clear();
+    }
+
+    @Test
+    public void tilesTheSurfaceHoldsDoNotCount() throws Exception {
+        mCheckpoints.add(1, 0, mSurface);
+        assertEquals(0, mCheckpoints.getResidentBytes());
+
+        // The stroke copies the one tile it touches, the checkpoint alone keeps the old one.
+        drawDot(10, 10);
+        mCheckpoints.add(2, 0, mSurface);
+        assertEquals(TILE_BYTES, mCheckpoints.getResidentBytes());
+
+        // The third checkpoint shares its three untouched tiles with the second, which count once.
+        drawDot(SIZE + 10, 10);
+        mCheckpoints.add(3, 0, mSurface);
+        assertEquals(2 * TILE_BYTES, mCheckpoints.getResidentBytes());
+    }
+
+    @Test
+    public void spillingFreesOnlyTheCheckpointsOwnTiles() throws Exception {
+        mCheckpoints.add(1, 0, mSurface);
+        drawDot(10, 10);
+        mCheckpoints.add(2, 0, mSurface);
+        drawDot(SIZE + 10, 10);
+        mCheckpoints.add(3, 0, mSurface);
+
+        // Spills the oldest checkpoints until nothing is held by checkpoints alone; the newest
+        // one shares every tile with the surface and stays in memory.
+        mCheckpoints.setByteBudget(0);
+        assertEquals(0, mCheckpoints.getResidentBytes());
+        assertEquals(3, mCheckpoints.getCheckpointCount());
+        assertTrue(mCheckpoints.getSpilledBytes() > 0);
+
+        // The oldest one is paged back into the surface, so its tiles don't count. The newest
+        // one now keeps all of its tiles alone.
+        mCheckpoints.setByteBudget(Long.MAX_VALUE);
+        assertEquals(0, mCheckpoints.restore(1, 0, new FilterHistory(), mSurface));
+        assertEquals(4 * TILE_BYTES, mCheckpoints.getResidentBytes());
+        assertEquals(Color.WHITE, mSurface.toBitmap().getPixel(10, 10));
+    }
+
+    private void drawDot(float x, float y) {
+        Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        paint.setColor(Color.BLACK);
+        paint.setStrokeWidth(6);
+        paint.setStyle(Paint.Style.STROKE);
+        paint.setStrokeCap(Paint.Cap.ROUND);
+        Path path = new Path();
+        path.moveTo(x, y);
+        path.lineTo(x, y);
+        mSurface.drawPath(path, paint);
+    }
+}
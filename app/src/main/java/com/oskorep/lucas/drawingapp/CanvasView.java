@@ -7,9 +7,16 @@ import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
 import android.graphics.Path;
+import android.graphics.PorterDuff;
+import android.graphics.PorterDuffXfermode;
+import android.graphics.Rect;
+import android.graphics.RectF;
 import android.media.MediaScannerConnection;
 import android.net.Uri;
 import android.os.Environment;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
 import android.provider.MediaStore;
 import android.util.AttributeSet;
 import android.util.Log;
@@ -17,20 +24,36 @@ import android.view.MotionEvent;
 import android.view.View;
 import android.widget.Toast;
 
-import com.mukesh.image_processing.ImageProcessor;
-
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.OutputStream;
-import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import cn.Ragnarok.BitmapFilter;
+import cn.Ragnarok.ColorMatrixFilter;
+import cn.Ragnarok.FilterPipeline;
+import cn.Ragnarok.PixelBuffer;
+import cn.Ragnarok.PixelPool;
 
 /**
  * This class serves as the custom view class facilitating as the "drawing canvas" for this app
  */
 class CanvasView extends View {
 
+    private final String TAG = "CANVAS_VIEW:";
+
+    // Linear size of the filter preview, a sixteenth of the pixels.
+    static final double PREVIEW_SCALE = 0.25;
+    // Longest side of the filter strip thumbnails in pixels.
+    static final int THUMBNAIL_SIZE = 192;
+    // How often a filter runs again because the drawing changed under it, before it waits for the
+    // user to stop drawing.
+    static final int MAX_FILTER_RETRIES = 2;
+    // How long no stroke has to be drawn before a waiting filter runs.
+    static final long FILTER_IDLE_MILLIS = 500;
+
     private Context mContext;
 
     private int mWidth, mHeight;
@@ -39,18 +62,83 @@ class CanvasView extends View {
     private int stroke_width = 10;
     private int filterColor = Color.WHITE;
 
-    private Paint mPaint, mCanvasPaint;
-    private Path mPath;
-
-    private ArrayList<Path> paths = new ArrayList<Path>();
-    private ArrayList<Paint> paints = new ArrayList<Paint>();
-
-    private ArrayList<Path> redoPaths = new ArrayList<Path>();
-    private ArrayList<Paint> redoPaints = new ArrayList<Paint>();
+    // The most pointers that can draw at the same time; further pointers are ignored.
+    private static final int MAX_POINTERS = 10;
 
-    private Bitmap mBitmap;
-
-    private Canvas mCanvas;
+    private Paint mPaint, mCanvasPaint;
+    // One builder per pointer id, each keeping its own point buffer between strokes.
+    private StrokeBuilder[] mStrokeBuilders = new StrokeBuilder[MAX_POINTERS];
+    private boolean[] mActivePointers = new boolean[MAX_POINTERS];
+    private boolean mStrokeSmoothing = true;
+    private StrokeSimplifier mSimplifier = new StrokeSimplifier();
+    private float mSimplifyTolerance = StrokeSimplifier.DEFAULT_TOLERANCE_PER_WIDTH;
+
+    // Every committed stroke, including undone strokes that can still be redone.
+    private StrokeStore mStrokes = new StrokeStore();
+    private UndoCheckpoints mCheckpoints;
+    private FilterHistory mFilters = new FilterHistory();
+    private Path mReplayPath = new Path();
+
+    // Committed layer: finished strokes are rasterized into these tiles once on ACTION_UP.
+    private TiledSurface mSurface;
+    // The loaded or filtered image the strokes are drawn on top of, null for a blank canvas.
+    private Bitmap mBackground;
+
+    private RectF mStrokeBounds = new RectF();
+    private RectF mPointerBounds = new RectF();
+    private boolean mHasStrokeBounds;
+    private Rect mDirtyRect = new Rect();
+    private long mLastFramePixels;
+
+    // Filters run off the main thread; the committed layer only changes when a result is published.
+    private FilterScheduler mFilterScheduler;
+    // Renders the picked filter on a proxy of the drawing, shown until the full result is ready.
+    private FilterScheduler mPreviewScheduler;
+    // Runs filters again when the committed layer is rebuilt without a checkpoint after them,
+    // e.g. after a resize. The layer is incomplete until the rebuild is done.
+    private FilterScheduler mReplayScheduler;
+    private boolean mRebuildPending;
+    // A filter picked during a rebuild, or one the user kept drawing under, applied once the layer
+    // is complete and the user stopped drawing, or -1.
+    private int mDeferredFilter = -1;
+    private int mDeferredColor;
+    private Runnable mApplyDeferredFilter = new Runnable() {
+        @Override
+        public void run() {
+            applyDeferredFilter();
+        }
+    };
+    private Bitmap mPreview;
+    private Rect mPreviewBounds = new Rect();
+    private Paint mPreviewPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    // Replaces the pixels a replayed filter result is drawn over, like publishFilter's tiles do.
+    private Paint mReplacePaint = new Paint();
+    private long mFilterPickedAt;
+    private FilterThumbnails mThumbnails;
+    // Filter results by input and filter, an eighth of the heap by default. Results are copied in
+    // and out through the pixel pool, so every job owns the result it got.
+    private FilterResultCache<Bitmap> mFilterCache = new FilterResultCache<Bitmap>(Runtime.getRuntime().maxMemory() / 8,
+            new FilterResultCache.Values<Bitmap>() {
+                @Override
+                public Bitmap copy(Bitmap bitmap) {
+                    Bitmap copy = PixelPool.getDefault().obtainBitmap(bitmap.getWidth(), bitmap.getHeight());
+                    copy.eraseColor(Color.TRANSPARENT);
+                    new Canvas(copy).drawBitmap(bitmap, 0, 0, null);
+                    return copy;
+                }
+
+                @Override
+                public void recycle(Bitmap bitmap) {
+                    PixelPool.getDefault().recycle(bitmap);
+                }
+            });
+    private long mPreviewNanos = -1;
+    private long mFinalNanos = -1;
+    // The bytes the pixel pool had allocated when the last filter was picked.
+    private long mPoolBytesAtPick;
+    // Counts every change to the committed layer, so a filter result computed from an older layer
+    // is recognized and computed again.
+    private int mEditCount;
 
 
     /**
@@ -65,7 +153,22 @@ class CanvasView extends View {
         mContext = context;
         setupPaint();
         mCanvasPaint = new Paint(Paint.DITHER_FLAG);
-        mPath = new Path();
+        mReplacePaint.setXfermode(new PorterDuffXfermode(PorterDuff.Mode.SRC));
+        mCheckpoints = new UndoCheckpoints(new File(context.getCacheDir(), "undo_history.bin"));
+        for (int i = 0; i < MAX_POINTERS; i++) {
+            mStrokeBuilders[i] = new StrokeBuilder();
+        }
+        final Handler mainHandler = new Handler(Looper.getMainLooper());
+        Executor mainThread = new Executor() {
+            @Override
+            public void execute(Runnable runnable) {
+                mainHandler.post(runnable);
+            }
+        };
+        mFilterScheduler = new FilterScheduler(FilterScheduler.DEFAULT_WORKERS, mainThread);
+        mPreviewScheduler = new FilterScheduler(1, mainThread);
+        mReplayScheduler = new FilterScheduler(1, mainThread);
+        mThumbnails = new FilterThumbnails(Runtime.getRuntime().availableProcessors(), mainThread);
     }
 
 //    final GestureDetector gestureDetector = new GestureDetector(new GestureDetector.SimpleOnGestureListener() {
@@ -82,22 +185,44 @@ class CanvasView extends View {
 ////    }
 
     /**
-     * Draws the user-made paths from this app to the screen whent eh View.onDraw call is made
+     * Draws the committed layer and the strokes currently in progress to the screen when the
+     * View.onDraw call is made. Finished strokes already live in mSurface, so the cost of a frame
+     * does not depend on how many strokes have been drawn.
      *
      * @param canvas
      */
     @Override
     protected void onDraw(Canvas canvas) {
-        canvas.drawBitmap(mBitmap, 0, 0, mCanvasPaint);
-        for (int x = 0; x < paths.size(); x++) {
-            canvas.drawPath(paths.get(x), paints.get(x));
+        // Only the damaged area needs to be copied out of the committed layer.
+        if (!canvas.getClipBounds(mDirtyRect)) {
+            mLastFramePixels = 0;
+            return;
+        }
+        mLastFramePixels = (long) mDirtyRect.width() * mDirtyRect.height();
+        mSurface.draw(canvas, mDirtyRect, mCanvasPaint);
+        if (mPreview != null) {
+            mPreviewBounds.set(0, 0, mWidth, mHeight);
+            canvas.drawBitmap(mPreview, null, mPreviewBounds, mPreviewPaint);
+        }
+        for (int i = 0; i < MAX_POINTERS; i++) {
+            if (mActivePointers[i]) {
+                canvas.drawPath(mStrokeBuilders[i].getPath(), mPaint);
+            }
         }
-        canvas.drawPath(mPath, mPaint);
+    }
+
+    /**
+     * Returns the number of pixels repainted by the last call to onDraw.
+     *
+     * @return - The area of the last frame's damaged region in pixels.
+     */
+    public long getLastFramePixels() {
+        return mLastFramePixels;
     }
 
     /**
      * Registeres touch events on teh given view and draws a line corresponding to the path traces
-     * by the user's input.
+     * by the user's input. Every pointer draws its own stroke, so several fingers can draw at once.
      *
      * @param event - The MotionEvent being triggered
      * @return - true if path changed, false if not.
@@ -106,61 +231,402 @@ class CanvasView extends View {
     @Override
     public boolean onTouchEvent(MotionEvent event) {
 
-        float touchX = event.getX();
-        float touchY = event.getY();
+        int actionIndex = event.getActionIndex();
+        int actionPointer = event.getPointerId(actionIndex);
+        boolean handled = false;
+        mHasStrokeBounds = false;
+
         // Checks for the event that occurs
-        switch (event.getAction()) {
+        switch (event.getActionMasked()) {
             case MotionEvent.ACTION_DOWN:
 
-                redoPaths.clear();
-                redoPaints.clear();
-                mPath.reset();
-                mPath.moveTo(touchX, touchY);
-                return true;
+                discardRedo();
+                handled = beginStroke(actionPointer, event.getX(actionIndex), event.getY(actionIndex));
+                break;
+
+            case MotionEvent.ACTION_POINTER_DOWN:
+
+                handled = beginStroke(actionPointer, event.getX(actionIndex), event.getY(actionIndex));
+                break;
 
             case MotionEvent.ACTION_MOVE:
 
-                mPath.lineTo(touchX, touchY);
+                // Includes the samples batched since the last event, not just the latest one.
+                for (int i = 0; i < event.getPointerCount(); i++) {
+                    int pointer = event.getPointerId(i);
+                    if (pointer < MAX_POINTERS && mActivePointers[pointer]) {
+                        mStrokeBuilders[pointer].addSamples(event, i);
+                        collectDirtyBounds(pointer);
+                        handled = true;
+                    }
+                }
                 break;
 
             case MotionEvent.ACTION_UP:
+            case MotionEvent.ACTION_POINTER_UP:
+
+                if (actionPointer < MAX_POINTERS && mActivePointers[actionPointer]) {
+                    mStrokeBuilders[actionPointer].addSamples(event, actionIndex);
+                    collectDirtyBounds(actionPointer);
+                    commitStroke(actionPointer);
+                    handled = true;
+                }
+                break;
+
+            case MotionEvent.ACTION_CANCEL:
 
-                mPath.lineTo(touchX, touchY);
-                mCanvas.drawPath(mPath, mPaint);
-                paths.add(mPath);
-                paints.add(mPaint);
-                setupPaint();
-                mPath = new Path();
-                mPath.reset();
+                for (int pointer = 0; pointer < MAX_POINTERS; pointer++) {
+                    if (mActivePointers[pointer]) {
+                        mStrokeBuilders[pointer].getPath().computeBounds(mPointerBounds, true);
+                        addDirtyBounds(mPointerBounds);
+                        mStrokeBuilders[pointer].reset();
+                        mActivePointers[pointer] = false;
+                    }
+                }
                 break;
             default:
 
                 return false;
         }
-        // Force a view to draw again
-        invalidate();
-        return false;
+        // Force the area covered by the new samples to draw again
+        if (mHasStrokeBounds) {
+            invalidateStrokeBounds(mStrokeBounds);
+        }
+        return handled;
     }
 
+    /**
+     * Starts a stroke for a pointer that just went down.
+     *
+     * @return - false if the pointer id is beyond MAX_POINTERS and is ignored.
+     */
+    private boolean beginStroke(int pointer, float x, float y) {
+        if (pointer >= MAX_POINTERS) {
+            return false;
+        }
+        mStrokeBuilders[pointer].setSmoothing(mStrokeSmoothing);
+        mStrokeBuilders[pointer].begin(x, y);
+        mActivePointers[pointer] = true;
+        collectDirtyBounds(pointer);
+        return true;
+    }
+
+    /**
+     * Commits a pointer's finished stroke to the committed layer and the stroke history. The stroke
+     * is simplified first, and the simplified version is what gets drawn, so undo replays exactly
+     * the pixels the user saw.
+     */
+    private void commitStroke(int pointer) {
+        StrokeBuilder builder = mStrokeBuilders[pointer];
+        builder.end();
+        // The live path is replaced by the committed one, so all of it needs to be drawn again.
+        builder.getPath().computeBounds(mPointerBounds, true);
+        addDirtyBounds(mPointerBounds);
+
+        int pointCount = builder.getPointCount();
+        if (mSimplifyTolerance > 0) {
+            float tolerance = StrokeSimplifier.toleranceFor(mPaint.getStrokeWidth(), mSimplifyTolerance);
+            pointCount = mSimplifier.simplify(builder.getPoints(), pointCount, tolerance);
+        }
+        mStrokes.add(builder.getPoints(), pointCount, mPaint, builder.isSmoothing());
+        drawStroke(mStrokes.getStrokeCount() - 1);
+        if (!mRebuildPending) {
+            // While rebuilding, the layer is missing a filter; the stroke is drawn again after it.
+            mCheckpoints.onStrokeCommitted(mStrokes.getStrokeCount(), mFilters.getAppliedCount(), mSurface);
+        }
+        mEditCount++;
+        builder.reset();
+        mActivePointers[pointer] = false;
+        if (mDeferredFilter >= 0) {
+            // Restarts the wait with every stroke.
+            removeCallbacks(mApplyDeferredFilter);
+            postDelayed(mApplyDeferredFilter, FILTER_IDLE_MILLIS);
+        }
+    }
+
+    /**
+     * Adds the bounds of a pointer's new samples to the area invalidated for this event.
+     */
+    private void collectDirtyBounds(int pointer) {
+        if (mStrokeBuilders[pointer].takeDirtyBounds(mPointerBounds)) {
+            addDirtyBounds(mPointerBounds);
+        }
+    }
+
+    /**
+     * Grows mStrokeBounds to include the bounds. Unlike RectF.union this keeps single points,
+     * whose bounds have no area.
+     */
+    private void addDirtyBounds(RectF bounds) {
+        if (!mHasStrokeBounds) {
+            mStrokeBounds.set(bounds);
+            mHasStrokeBounds = true;
+        } else {
+            mStrokeBounds.set(Math.min(mStrokeBounds.left, bounds.left), Math.min(mStrokeBounds.top, bounds.top),
+                    Math.max(mStrokeBounds.right, bounds.right), Math.max(mStrokeBounds.bottom, bounds.bottom));
+        }
+    }
+
+    /**
+     * Invalidates the bounding box of newly added stroke samples, inflated by half the stroke width
+     * for the round cap and joins plus a pixel for anti-aliasing.
+     */
+    private void invalidateStrokeBounds(RectF bounds) {
+        int inset = (int) Math.ceil(mPaint.getStrokeWidth() / 2) + 1;
+        invalidate((int) Math.floor(bounds.left) - inset,
+                (int) Math.floor(bounds.top) - inset,
+                (int) Math.ceil(bounds.right) + inset,
+                (int) Math.ceil(bounds.bottom) + inset);
+    }
+
+    /**
+     * Enables or disables smoothing of strokes with midpoint quadratic curves.
+     *
+     * @param smoothing - true to smooth strokes, false to join samples with straight lines.
+     */
+    public void setStrokeSmoothing(boolean smoothing) {
+        mStrokeSmoothing = smoothing;
+    }
+
+    /**
+     * Sets how far a simplified stroke may deviate from the touch samples, as a fraction of the
+     * brush size. Strokes are simplified when they are committed.
+     *
+     * @param tolerancePerWidth - The tolerance relative to the stroke width, or 0 to keep every sample.
+     */
+    public void setStrokeSimplification(float tolerancePerWidth) {
+        mSimplifyTolerance = tolerancePerWidth;
+    }
+
+    /**
+     * Removes the last stroke or filter. A filter is undone by swapping its saved tiles back in.
+     * For a stroke the committed layer is restored from the nearest checkpoint and only the strokes
+     * after it are replayed, so undo stays fast however long the history is.
+     */
     public void undo() {
-        if (paths.size() > 0) {
-            redoPaths.add(paths.remove(paths.size() - 1));
-            redoPaints.add(paints.remove(paints.size() - 1));
+        if (isFilterPending()) {
+            // Backs out of a filter that is still being previewed.
+            cancelFilter();
+        } else if (mFilters.canUndo(mStrokes.getStrokeCount())) {
+            if (mRebuildPending) {
+                // The layer the tiles would be swapped into is still being rebuilt.
+                mFilters.forgetTiles(mFilters.getAppliedCount() - 1);
+            }
+            if (!mFilters.undo(mSurface)) {
+                // The filter's tiles were taken before the canvas was resized.
+                rebuildCommittedLayer();
+            }
+            mEditCount++;
+            invalidate();
+        } else if (mStrokes.undo()) {
+            rebuildCommittedLayer();
+            mEditCount++;
             invalidate();
         }
     }
 
+    /**
+     * Restores the last undone stroke by drawing it straight onto the committed layer, or the last
+     * undone filter by swapping its filtered tiles back in.
+     */
     public void redo() {
-        if (redoPaths.size() > 0) {
-            paths.add(redoPaths.remove(redoPaths.size() - 1));
-            paints.add(redoPaints.remove(redoPaints.size() - 1));
+        if (mFilters.canRedo(mStrokes.getStrokeCount())) {
+            if (mRebuildPending) {
+                mFilters.forgetTiles(mFilters.getAppliedCount());
+            }
+            if (!mFilters.redo(mSurface)) {
+                rebuildCommittedLayer();
+            }
+            mEditCount++;
             invalidate();
+        } else if (mStrokes.redo()) {
+            drawStroke(mStrokes.getStrokeCount() - 1);
+            mEditCount++;
+            invalidate();
+        }
+    }
+
+    /**
+     * Discards the strokes and filters that were undone, before a new one is added.
+     */
+    private void discardRedo() {
+        mStrokes.clearRedo();
+        mFilters.discardRedo();
+        mCheckpoints.discardAfter(mStrokes.getStrokeCount(), mFilters.getAppliedCount());
+    }
+
+    /**
+     * Rebuilds the committed layer from the newest checkpoint that is still valid, or from the
+     * background if there is none, and replays the strokes and filters after it. Strokes are
+     * replayed right away, a filter runs on mReplayScheduler and the rebuild continues once its
+     * result is drawn. Starting over drops a rebuild that is still waiting for a filter.
+     */
+    private void rebuildCommittedLayer() {
+        mReplayScheduler.cancel();
+        int stroke = 0, filter = 0;
+
+        int checkpoint = mCheckpoints.restore(mStrokes.getStrokeCount(), mFilters.getAppliedCount(), mFilters,
+                mSurface);
+        if (checkpoint < 0) {
+            mSurface.clear();
+            if (mBackground != null) {
+                mSurface.drawBitmap(mBackground, mCanvasPaint);
+            }
+        } else {
+            stroke = mCheckpoints.getStrokeCount(checkpoint);
+            filter = mCheckpoints.getFilterCount(checkpoint);
         }
+        continueRebuild(stroke, filter);
+    }
+
+    /**
+     * Replays the strokes and filters from the given position up to the current one, handing the
+     * first filter on the way to replayFilter.
+     */
+    private void continueRebuild(int stroke, int filter) {
+        // Read on every call, strokes drawn while a filter was replayed are drawn after it.
+        int strokeCount = mStrokes.getStrokeCount();
+        int filterCount = mFilters.getAppliedCount();
+        while (stroke < strokeCount || filter < filterCount) {
+            FilterHistory.Step step = filter < filterCount ? mFilters.get(filter) : null;
+            if (step != null && step.strokeCount == stroke) {
+                // Only reached after a resize or if paging in the checkpoint after the filter failed.
+                replayFilter(filter);
+                return;
+            }
+            drawStroke(stroke++);
+        }
+        mRebuildPending = false;
+        applyDeferredFilter();
+    }
+
+    /**
+     * Runs a filter of the history on the layer rebuilt up to it, off the main thread. Its result
+     * is drawn and checkpointed, and the rebuild continues after it.
+     *
+     * @param index - The index of the filter in the history.
+     */
+    private void replayFilter(final int index) {
+        final FilterHistory.Step step = mFilters.get(index);
+        final Bitmap flattened = flatten();
+        mRebuildPending = true;
+        mReplayScheduler.submit(new Callable<Bitmap>() {
+            @Override
+            public Bitmap call() {
+                Bitmap filteredBitmap = null;
+                try {
+                    filteredBitmap = runFilter(step.filter, step.color, flattened);
+                    return filteredBitmap;
+                } finally {
+                    if (filteredBitmap != flattened) {
+                        PixelPool.getDefault().recycle(flattened);
+                    }
+                }
+            }
+        }, new FilterScheduler.Callback<Bitmap>() {
+            @Override
+            public void onResult(Bitmap filteredBitmap) {
+                // The result covers the whole layer, strokes drawn meanwhile are replayed below.
+                // Translucent pixels replace the layer's, as when the filter was first applied.
+                mSurface.drawBitmap(filteredBitmap, mReplacePaint);
+                PixelPool.getDefault().recycle(filteredBitmap);
+                mCheckpoints.addAfterFilter(step.strokeCount, index + 1, mSurface);
+                continueRebuild(step.strokeCount, index + 1);
+                mEditCount++;
+                invalidate();
+            }
+
+            @Override
+            public void onFailure(Throwable error) {
+                // The layer goes on without the filter rather than waiting for it forever.
+                continueRebuild(step.strokeCount, index + 1);
+                mEditCount++;
+                invalidate();
+            }
+        });
+    }
+
+    /**
+     * Returns true while the committed layer is being rebuilt and a filter on the way is still
+     * running.
+     */
+    public boolean isRebuildPending() {
+        return mRebuildPending;
+    }
+
+    /**
+     * Sets the maximum memory the undo checkpoints may hold before older ones are spilled to disk.
+     *
+     * @param bytes - The budget in bytes.
+     */
+    public void setUndoCheckpointBudget(long bytes) {
+        mCheckpoints.setByteBudget(bytes);
+    }
+
+    /**
+     * Returns the undo checkpoints, which report their resident bytes, spilled bytes and page-in
+     * latency.
+     */
+    UndoCheckpoints getUndoCheckpoints() {
+        return mCheckpoints;
+    }
+
+    /**
+     * Sets the maximum memory cached filter results may hold before the least recently used ones
+     * are evicted.
+     *
+     * @param bytes - The budget in bytes.
+     */
+    public void setFilterCacheBudget(long bytes) {
+        mFilterCache.setMaxBytes(bytes);
     }
 
+    /**
+     * Returns the filter result cache, which reports its size and hit, miss and eviction counts.
+     */
+    FilterResultCache<Bitmap> getFilterCache() {
+        return mFilterCache;
+    }
 
     /**
-     * Creates a paintbrush for drawing paths with default values.
+     * Releases cached filter results and the pixel buffers kept for reuse when the system runs
+     * low on memory, see ComponentCallbacks2.onTrimMemory.
+     *
+     * @param level - The level passed to onTrimMemory.
+     */
+    public void trimMemory(int level) {
+        mFilterCache.onTrimMemory(level);
+        // The pool only saves allocations, so it is emptied at any level.
+        PixelPool.getDefault().trimToSize(0);
+        Log.d(TAG, "Trim memory level " + level + ", filter cache holds " + mFilterCache.getBytes() + " bytes");
+    }
+
+    /**
+     * Rasterizes a stored stroke into the committed layer.
+     */
+    private void drawStroke(int stroke) {
+        mStrokes.buildPath(stroke, mReplayPath);
+        mSurface.drawPath(mReplayPath, mStrokes.getPaint(stroke));
+    }
+
+    /**
+     * Returns the filters applied to the drawing, with the tiles undo and redo swap.
+     */
+    FilterHistory getFilterHistory() {
+        return mFilters;
+    }
+
+    /**
+     * Returns the strokes of the drawing, which can also be serialized for saving or transfer.
+     */
+    public StrokeStore getStrokes() {
+        return mStrokes;
+    }
+
+
+    /**
+     * Creates the paintbrush for drawing paths with default values. Committed strokes keep their
+     * own style in the StrokeStore, so the brush is reused and only its color and width change.
      */
     private void setupPaint() {
         // Setup paint with color and stroke styles
@@ -181,9 +647,21 @@ class CanvasView extends View {
         mWidth = width;
         mHeight = height;
 
-        mBitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
-        mCanvas = new Canvas();
-//        mCanvas = new Canvas(mBitmap);
+        if (mSurface != null) {
+            mSurface.clear();
+        }
+        mSurface = new TiledSurface(width, height);
+        // Neither the checkpoints nor the filters' tiles fit the new grid, so the history is
+        // replayed from the strokes and filters.
+        mCheckpoints.clear();
+        mFilters.forgetTiles();
+        if (mBackground != null) {
+            Bitmap previous = mBackground;
+            mBackground = scaleBackground(previous, width, height);
+            PixelPool.getDefault().recycle(previous);
+        }
+        rebuildCommittedLayer();
+        mEditCount++;
 
     }
 
@@ -194,13 +672,33 @@ class CanvasView extends View {
      * @param bitmap - The new image to serve as a background.
      */
     public void loadImage(Bitmap bitmap) {
-        Bitmap newBitmap = Bitmap.createScaledBitmap(bitmap, mWidth, mHeight, true);
-        paths.clear();
-        paints.clear();
-        mBitmap = newBitmap;
+        Bitmap previous = mBackground;
+        mBackground = scaleBackground(bitmap, mWidth, mHeight);
+        if (previous != bitmap) {
+            PixelPool.getDefault().recycle(previous);
+        }
+        // A filter still running was picked for the old image.
+        cancelFilter();
+        mStrokes.clear();
+        mFilters.clear();
+        mCheckpoints.clear();
+        rebuildCommittedLayer();
+        mEditCount++;
         invalidate();
     }
 
+    /**
+     * Draws a bitmap scaled to the canvas into a bitmap from the pixel pool.
+     */
+    private Bitmap scaleBackground(Bitmap bitmap, int width, int height) {
+        Bitmap scaled = PixelPool.getDefault().obtainBitmap(width, height);
+        scaled.eraseColor(Color.TRANSPARENT);
+        Canvas canvas = new Canvas(scaled);
+        canvas.drawBitmap(bitmap, new Rect(0, 0, bitmap.getWidth(), bitmap.getHeight()), new Rect(0, 0, width, height),
+                mPreviewPaint);
+        return scaled;
+    }
+
     /**
      * Saves teh current canvas to the Android.GALLERY on Android.SDCARD
      */
@@ -215,52 +713,375 @@ class CanvasView extends View {
 
     /**
      * Applies a specified filter to the current image.  Also the current image should be flattened
-     * to preserve any current edits.
+     * to preserve any current edits. The filter runs on a worker thread and its result is swapped
+     * in later, all at once; picking another filter before then replaces this one. Meanwhile a
+     * preview of the filter on a quarter size copy is shown, which undo takes back. The filter is
+     * recorded in the undo history along with the tiles it changed.
      *
      * @param filter - the id of the filter to be applied.
      */
     public void applyFilter(int filter) {
-        this.setDrawingCacheEnabled(true);
-        Bitmap prefilteredBitmap = Bitmap.createBitmap(this.getDrawingCache());
+        mFilterPickedAt = SystemClock.elapsedRealtimeNanos();
+        mPoolBytesAtPick = PixelPool.getDefault().getAllocatedBytes();
+        mPreviewNanos = -1;
+        mFinalNanos = -1;
+        applyFilter(filter, filterColor, 0);
+    }
+
+    /**
+     * @param retries - How often the filter already ran again because the drawing changed.
+     */
+    private void applyFilter(final int filter, final int color, final int retries) {
+        if (mRebuildPending) {
+            // Flattening now would filter a layer that is missing a filter.
+            mDeferredFilter = filter;
+            mDeferredColor = color;
+            return;
+        }
+        long start = SystemClock.elapsedRealtimeNanos();
+        final Bitmap flattened = flatten();
+        final int editCount = mEditCount;
+        // The preview and the full pass both read the flattened drawing, the last one done gives
+        // it back to the pool. A filter that changes nothing hands back the flattened drawing
+        // itself, then the full pass is only done once its callback used the result. Jobs that
+        // are replaced before they run leave it to the collector.
+        final AtomicInteger readers = new AtomicInteger(2);
+        mPreviewScheduler.submit(new Callable<Bitmap>() {
+            @Override
+            public Bitmap call() {
+                try {
+                    return runFilter(filter, color, flattened, PREVIEW_SCALE);
+                } finally {
+                    if (readers.decrementAndGet() == 0) {
+                        PixelPool.getDefault().recycle(flattened);
+                    }
+                }
+            }
+        }, new FilterScheduler.Callback<Bitmap>() {
+            @Override
+            public void onResult(Bitmap preview) {
+                showPreview(filter, preview);
+            }
+
+            @Override
+            public void onFailure(Throwable error) {
+                // The full pass still replaces the canvas.
+            }
+        });
+        mFilterScheduler.submit(new Callable<Bitmap>() {
+            @Override
+            public Bitmap call() {
+                Bitmap filteredBitmap = null;
+                try {
+                    filteredBitmap = runFilter(filter, color, flattened, 1);
+                    return filteredBitmap;
+                } finally {
+                    if (filteredBitmap != flattened && readers.decrementAndGet() == 0) {
+                        PixelPool.getDefault().recycle(flattened);
+                    }
+                }
+            }
+        }, new FilterScheduler.Callback<Bitmap>() {
+            @Override
+            public void onResult(Bitmap filteredBitmap) {
+                boolean stale = editCount != mEditCount;
+                if (!stale) {
+                    publishFilter(filter, color, filteredBitmap);
+                }
+                if (filteredBitmap != flattened) {
+                    PixelPool.getDefault().recycle(filteredBitmap);
+                } else if (readers.decrementAndGet() == 0) {
+                    // The preview may still be reading it otherwise.
+                    PixelPool.getDefault().recycle(flattened);
+                }
+                if (stale && retries < MAX_FILTER_RETRIES) {
+                    // The drawing changed while the filter ran, run it again on the new drawing.
+                    applyFilter(filter, color, retries + 1);
+                } else if (stale) {
+                    // The user keeps drawing, the filter waits until they stop.
+                    deferFilter(filter, color);
+                }
+            }
+
+            @Override
+            public void onFailure(Throwable error) {
+                // The drawing stays as it was, without the preview.
+                cancelFilter();
+                Toast.makeText(mContext, "The filter could not be applied", Toast.LENGTH_SHORT).show();
+            }
+        });
+        Log.d(TAG, "Filter " + filter + " submitted, main thread " + (SystemClock.elapsedRealtimeNanos() - start) / 1000 + "us");
+    }
+
+    /**
+     * Keeps a filter the user kept drawing under, and applies it once no stroke was drawn for
+     * FILTER_IDLE_MILLIS. The preview is taken down meanwhile, so the new strokes stay visible.
+     */
+    private void deferFilter(int filter, int color) {
+        mPreviewScheduler.cancel();
+        mPreview = null;
+        mDeferredFilter = filter;
+        mDeferredColor = color;
+        removeCallbacks(mApplyDeferredFilter);
+        postDelayed(mApplyDeferredFilter, FILTER_IDLE_MILLIS);
+        invalidate();
+    }
+
+    /**
+     * Applies the filter that waited for a rebuild or for the user to stop drawing, unless it
+     * still has to wait.
+     */
+    private void applyDeferredFilter() {
+        if (mDeferredFilter < 0 || mRebuildPending) {
+            return;
+        }
+        for (boolean active : mActivePointers) {
+            if (active) {
+                // Posted again once the stroke is committed.
+                return;
+            }
+        }
+        int filter = mDeferredFilter;
+        mDeferredFilter = -1;
+        applyFilter(filter, mDeferredColor, 0);
+    }
+
+    /**
+     * Shows the proxy result over the canvas, unless the full result already replaced it.
+     */
+    private void showPreview(int filter, Bitmap preview) {
+        if (!mFilterScheduler.isPending()) {
+            return;
+        }
+        mPreview = preview;
+        if (mPreviewNanos < 0) {
+            mPreviewNanos = SystemClock.elapsedRealtimeNanos() - mFilterPickedAt;
+            Log.d(TAG, "Filter " + filter + " preview after " + mPreviewNanos / 1000000 + "ms");
+        }
+        invalidate();
+    }
+
+    /**
+     * Swaps the tiles a filter changed onto the committed layer and records them in the undo
+     * history. The result is left to the caller to give back.
+     */
+    private void publishFilter(int filter, int color, Bitmap filteredBitmap) {
+        long start = SystemClock.elapsedRealtimeNanos();
+        mPreviewScheduler.cancel();
+        mPreview = null;
+        mFinalNanos = start - mFilterPickedAt;
+        Log.d(TAG, "Filter " + filter + " final after " + mFinalNanos / 1000000 + "ms, preview after "
+                + mPreviewNanos / 1000000 + "ms");
+        discardRedo();
+        int tileCount = mSurface.getTileCount();
+        int[] changedIndices = new int[tileCount];
+        Bitmap[] previousBitmaps = new Bitmap[tileCount];
+        int changed = mSurface.replaceChangedTiles(filteredBitmap, changedIndices, previousBitmaps);
+        FilterHistory.Step step = mFilters.add(mStrokes.getStrokeCount(), filter, color,
+                changedIndices, previousBitmaps, changed);
+        // Strokes drawn after the filter can then be undone without running it again.
+        mCheckpoints.addAfterFilter(mStrokes.getStrokeCount(), mFilters.getAppliedCount(), mSurface);
+        mEditCount++;
+
+        Log.d(TAG, "Filter " + filter + " changed " + changed + "/" + tileCount + " tiles, keeping "
+                + step.getByteCount() + " bytes of history, main thread "
+                + (SystemClock.elapsedRealtimeNanos() - start) / 1000 + "us, pixel pool allocated "
+                + (PixelPool.getDefault().getAllocatedBytes() - mPoolBytesAtPick) + " bytes");
+        invalidate();
+    }
+
+    /**
+     * Returns true while a filter was picked but its result is not on the canvas yet.
+     */
+    public boolean isFilterPending() {
+        return mFilterScheduler.isPending() || mDeferredFilter >= 0;
+    }
+
+    /**
+     * Drops the filter being rendered and its preview, leaving the drawing as it was.
+     */
+    public void cancelFilter() {
+        mDeferredFilter = -1;
+        removeCallbacks(mApplyDeferredFilter);
+        mFilterScheduler.cancel();
+        mPreviewScheduler.cancel();
+        if (mPreview != null) {
+            mPreview = null;
+            invalidate();
+        }
+    }
+
+    /**
+     * Returns the time from picking the last filter until its preview was shown, or -1 if the
+     * full result came first.
+     */
+    public long getPreviewNanos() {
+        return mPreviewNanos;
+    }
+
+    /**
+     * Returns the time from picking the last filter until its full result was shown, or -1 while
+     * it is still rendering.
+     */
+    public long getFinalNanos() {
+        return mFinalNanos;
+    }
+
+    /**
+     * Returns the scheduler filters run on, which counts the jobs it coalesced and discarded.
+     */
+    FilterScheduler getFilterScheduler() {
+        return mFilterScheduler;
+    }
+
+    /**
+     * Hands every BitmapFilter style rendered on a small copy of the drawing to the listener, as
+     * each thumbnail finishes. Thumbnails are rendered again only once the drawing changed.
+     *
+     * @param listener - Receives the thumbnails on the main thread.
+     */
+    public void renderThumbnails(FilterThumbnails.Listener listener) {
+        if (mSurface == null) {
+            return;
+        }
+        double scale = Math.min(1, (double) THUMBNAIL_SIZE / Math.max(mWidth, mHeight));
+        PixelBuffer source = null;
+        if (!mThumbnails.hasVersion(mEditCount)) {
+            // Drawing the tiles scaled down avoids flattening the whole drawing first.
+            int width = Math.max(1, (int) Math.round(mWidth * scale));
+            int height = Math.max(1, (int) Math.round(mHeight * scale));
+            Bitmap bitmap = PixelPool.getDefault().obtainBitmap(width, height);
+            Canvas canvas = new Canvas(bitmap);
+            canvas.drawColor(Color.WHITE);
+            canvas.scale((float) width / mWidth, (float) height / mHeight);
+            mSurface.draw(canvas, new Rect(0, 0, mWidth, mHeight), mPreviewPaint);
+            source = PixelBuffer.fromBitmap(bitmap);
+            PixelPool.getDefault().recycle(bitmap);
+        }
+        mThumbnails.render(mEditCount, source, scale, listener);
+    }
+
+    /**
+     * Returns the filter strip thumbnails, which report how long the last full strip took.
+     */
+    FilterThumbnails getFilterThumbnails() {
+        return mThumbnails;
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        cancelFilter();
+        mThumbnails.cancel();
+    }
+
+    /**
+     * Draws the committed layer over the view's white background into a single bitmap from the
+     * pixel pool.
+     */
+    private Bitmap flatten() {
+        Bitmap bitmap = PixelPool.getDefault().obtainBitmap(mWidth, mHeight);
+        Canvas canvas = new Canvas(bitmap);
+        canvas.drawColor(Color.WHITE);
+        mSurface.draw(canvas, new Rect(0, 0, mWidth, mHeight), null);
+        return bitmap;
+    }
+
+    /**
+     * Runs a filter on a bitmap.
+     *
+     * @param filter - the id of the filter to be applied.
+     * @param color  - the color used by the tint filter.
+     * @param prefilteredBitmap - the bitmap to filter.
+     * @return - the filtered bitmap.
+     */
+    private Bitmap runFilter(int filter, int color, Bitmap prefilteredBitmap) {
+        return runFilter(filter, color, prefilteredBitmap, 1);
+    }
+
+    /**
+     * Runs a filter on a copy of a bitmap resized by scale, with its radii and sizes scaled to
+     * match, so the result looks like the full size one shrunk. The result is copied from the
+     * filter cache if the same filter already ran on the same pixels. Either way the caller owns
+     * the result and gives it back to the pixel pool.
+     *
+     * @param scale - the size of the result relative to the bitmap, 1 for the full size.
+     */
+    private Bitmap runFilter(int filter, int color, Bitmap prefilteredBitmap, double scale) {
+        // Only the tint filter uses the color.
+        FilterResultCache.Key key = new FilterResultCache.Key(FilterResultCache.hash(prefilteredBitmap),
+                prefilteredBitmap.getWidth(), prefilteredBitmap.getHeight(), filter,
+                filter == MainActivity.FILTER_TINT ? color : 0, scale);
+        Bitmap filteredBitmap = mFilterCache.get(key);
+        if (filteredBitmap == null) {
+            filteredBitmap = filterBitmap(filter, color, prefilteredBitmap, scale);
+            if (filteredBitmap != prefilteredBitmap) {
+                mFilterCache.put(key, filteredBitmap, filteredBitmap.getByteCount());
+            }
+        }
+        return filteredBitmap;
+    }
+
+    private Bitmap filterBitmap(int filter, int color, Bitmap prefilteredBitmap, double scale) {
         Bitmap filteredBitmap;
 
         //Add in the imagefilter here
 
-        ImageProcessor imageProcessor = new ImageProcessor();
-
         switch (filter) {
 
             case MainActivity.FILTER_GREYSCALE:
 
-                filteredBitmap = BitmapFilter.changeStyle(prefilteredBitmap, BitmapFilter.GRAY_STYLE);
+                filteredBitmap = changeStyle(prefilteredBitmap, BitmapFilter.GRAY_STYLE, scale);
                 break;
 
             case MainActivity.FILTER_INVERT:
 
-                filteredBitmap = BitmapFilter.changeStyle(prefilteredBitmap, BitmapFilter.INVERT_STYLE);
+                filteredBitmap = changeStyle(prefilteredBitmap, BitmapFilter.INVERT_STYLE, scale);
                 break;
 
             case MainActivity.FILTER_TINT:
 
-                filteredBitmap = imageProcessor.applyShadingFilter(prefilteredBitmap, filterColor);
+                Bitmap resized = resize(prefilteredBitmap, scale);
+                filteredBitmap = FilterPipeline.apply(resized, ColorMatrixFilter.tint(color));
+                if (resized != prefilteredBitmap) {
+                    PixelPool.getDefault().recycle(resized);
+                }
                 break;
 
             case MainActivity.FILTER_SKETCH:
 
-                filteredBitmap = BitmapFilter.changeStyle(prefilteredBitmap, BitmapFilter.SKETCH_STYLE);
+                filteredBitmap = changeStyle(prefilteredBitmap, BitmapFilter.SKETCH_STYLE, scale);
                 break;
 
             case MainActivity.FILTER_OIL:
 
-                filteredBitmap = BitmapFilter.changeStyle(prefilteredBitmap, BitmapFilter.OIL_STYLE);
+                filteredBitmap = changeStyle(prefilteredBitmap, BitmapFilter.OIL_STYLE, scale);
                 break;
 
             default:
-                filteredBitmap = prefilteredBitmap;
+                if (filter > MainActivity.FILTER_STYLE) {
+                    filteredBitmap = changeStyle(prefilteredBitmap, filter - MainActivity.FILTER_STYLE, scale);
+                    break;
+                }
+                filteredBitmap = resize(prefilteredBitmap, scale);
                 ;
         }
-        loadImage(filteredBitmap);
-        this.setDrawingCacheEnabled(false);
+        return filteredBitmap;
+    }
+
+    private static Bitmap changeStyle(Bitmap bitmap, int styleNo, double scale) {
+        if (scale == 1) {
+            return BitmapFilter.changeStyle(bitmap, styleNo);
+        }
+        return BitmapFilter.previewStyle(bitmap, styleNo, scale);
+    }
+
+    private static Bitmap resize(Bitmap bitmap, double scale) {
+        if (scale == 1) {
+            return bitmap;
+        }
+        return Bitmap.createScaledBitmap(bitmap, Math.max(1, (int) Math.round(bitmap.getWidth() * scale)),
+                Math.max(1, (int) Math.round(bitmap.getHeight() * scale)), true);
     }
 
 
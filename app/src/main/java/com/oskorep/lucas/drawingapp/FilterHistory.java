@@ -0,0 +1,202 @@
+package com.oskorep.lucas.drawingapp;
+
+import android.graphics.Bitmap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Records the filters applied to a drawing so they can be undone. Each step keeps only the tiles
+ * the filter changed. While a step is applied it holds the tiles from before the filter; undoing
+ * swaps them back onto the surface and keeps the filtered tiles for redo, so neither direction
+ * copies any pixels.
+ * <p>
+ * A position in the drawing's history is a stroke count plus a count of applied filters. Each
+ * filter remembers the stroke count it was applied at, which orders it among the strokes.
+ * <p>
+ * Tiles only fit the surface they were taken from. Once the surface is replaced, for example
+ * when the canvas is resized, the steps forget their tiles and undo and redo have to rebuild the
+ * drawing by running the filter again.
+ */
+class FilterHistory {
+
+    static class Step {
+        final int strokeCount;
+        final int filter;
+        final int color;
+        int[] tileIndices;
+        // The tiles that are currently not on the surface, null where a tile was not allocated.
+        // Null once the step forgot its tiles.
+        Bitmap[] tiles;
+
+        Step(int strokeCount, int filter, int color, int[] tileIndices, Bitmap[] tiles) {
+            this.strokeCount = strokeCount;
+            this.filter = filter;
+            this.color = color;
+            this.tileIndices = tileIndices;
+            this.tiles = tiles;
+        }
+
+        /**
+         * Returns true if undo and redo can swap this step's tiles instead of running the filter
+         * again.
+         */
+        public boolean hasTiles() {
+            return tiles != null;
+        }
+
+        /**
+         * Returns the memory held by the tiles this step keeps off the surface.
+         */
+        public long getByteCount() {
+            long bytes = 0;
+            if (tiles == null) {
+                return 0;
+            }
+            for (Bitmap tile : tiles) {
+                if (tile != null) {
+                    bytes += tile.getByteCount();
+                }
+            }
+            return bytes;
+        }
+    }
+
+    private ArrayList<Step> mSteps = new ArrayList<Step>();
+    private int mAppliedCount;
+
+    /**
+     * Records a filter that was just applied to the surface, discarding any undone filters.
+     *
+     * @param strokeCount     - The number of strokes when the filter was applied.
+     * @param filter          - The id of the filter.
+     * @param color           - The filter color, for filters that take one.
+     * @param changedIndices  - The indices of the tiles the filter replaced.
+     * @param previousBitmaps - The bitmaps of those tiles before the filter.
+     * @param changedCount    - The number of valid entries in the two arrays.
+     * @return - The recorded step.
+     */
+    public Step add(int strokeCount, int filter, int color, int[] changedIndices, Bitmap[] previousBitmaps, int changedCount) {
+        discardRedo();
+        Step step = new Step(strokeCount, filter, color, Arrays.copyOf(changedIndices, changedCount),
+                Arrays.copyOf(previousBitmaps, changedCount));
+        mSteps.add(step);
+        mAppliedCount++;
+        return step;
+    }
+
+    public int getAppliedCount() {
+        return mAppliedCount;
+    }
+
+    public Step get(int index) {
+        return mSteps.get(index);
+    }
+
+    /**
+     * Returns true if the most recent operation at this stroke count is an applied filter.
+     */
+    public boolean canUndo(int strokeCount) {
+        return mAppliedCount > 0 && mSteps.get(mAppliedCount - 1).strokeCount == strokeCount;
+    }
+
+    /**
+     * Returns true if the next operation to redo at this stroke count is a filter.
+     */
+    public boolean canRedo(int strokeCount) {
+        return mAppliedCount < mSteps.size() && mSteps.get(mAppliedCount).strokeCount == strokeCount;
+    }
+
+    /**
+     * Swaps the last applied filter's tiles with the surface's, restoring the drawing from before
+     * the filter.
+     *
+     * @return - false if the filter forgot its tiles, the surface was left untouched and has to be
+     * rebuilt without the filter.
+     */
+    public boolean undo(TiledSurface surface) {
+        return swap(mSteps.get(--mAppliedCount), surface);
+    }
+
+    /**
+     * Swaps the next undone filter's tiles back onto the surface.
+     *
+     * @return - false if the filter forgot its tiles, the surface was left untouched and has to be
+     * rebuilt with the filter.
+     */
+    public boolean redo(TiledSurface surface) {
+        return swap(mSteps.get(mAppliedCount++), surface);
+    }
+
+    /**
+     * Drops the tiles of every step, once they no longer fit the surface.
+     */
+    public void forgetTiles() {
+        for (int i = 0; i < mSteps.size(); i++) {
+            forgetTiles(i);
+        }
+    }
+
+    /**
+     * Drops the tiles of a step, so undoing or redoing it rebuilds the drawing instead.
+     *
+     * @param index - The index of the step.
+     */
+    public void forgetTiles(int index) {
+        Step step = mSteps.get(index);
+        step.tileIndices = null;
+        step.tiles = null;
+    }
+
+    /**
+     * Discards the filters that were undone.
+     */
+    public void discardRedo() {
+        while (mSteps.size() > mAppliedCount) {
+            mSteps.remove(mSteps.size() - 1);
+        }
+    }
+
+    public void clear() {
+        mSteps.clear();
+        mAppliedCount = 0;
+    }
+
+    /**
+     * Returns the memory held by every recorded filter.
+     */
+    public long getByteCount() {
+        long bytes = 0;
+        for (Step step : mSteps) {
+            bytes += step.getByteCount();
+        }
+        return bytes;
+    }
+
+    /**
+     * Checks whether the position (strokeCount, filterCount) is passed through on the way from an
+     * empty drawing to the position (targetStrokes, targetFilters), that is whether the drawing at
+     * that position is a prefix of the target drawing.
+     */
+    public boolean isOnPath(int strokeCount, int filterCount, int targetStrokes, int targetFilters) {
+        if (strokeCount > targetStrokes || filterCount > targetFilters) {
+            return false;
+        }
+        // Every filter counted must have been applied by then...
+        if (filterCount > 0 && mSteps.get(filterCount - 1).strokeCount > strokeCount) {
+            return false;
+        }
+        // ...and the next filter on the way to the target must not have been skipped.
+        return filterCount == targetFilters || mSteps.get(filterCount).strokeCount >= strokeCount;
+    }
+
+    private static boolean swap(Step step, TiledSurface surface) {
+        if (!step.hasTiles()) {
+            return false;
+        }
+        for (int i = 0; i < step.tileIndices.length; i++) {
+            step.tiles[i] = surface.swapTile(step.tileIndices[i], step.tiles[i]);
+        }
+        return true;
+    }
+}
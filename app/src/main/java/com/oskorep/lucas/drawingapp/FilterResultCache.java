@@ -0,0 +1,289 @@
+package com.oskorep.lucas.drawingapp;
+
+import android.content.ComponentCallbacks2;
+import android.graphics.Bitmap;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Remembers filter results, so picking a filter again on the same drawing, for example after an
+ * undo or when flipping between previews, costs a hash of the drawing instead of a filter pass.
+ * Results are keyed by a hash of the pixels they were computed from, the filter and its options.
+ * The memory held by results is capped by a byte budget; once it is exceeded the least recently
+ * used results are evicted. Under memory pressure onTrimMemory shrinks the cache further.
+ * <p>
+ * All methods may be called from any thread. The cache keeps its own copy of every result and
+ * hands out copies, so each caller owns what it gets and may reuse its memory. Evicted copies are
+ * handed back through Values.recycle.
+ *
+ * @param <V> - The type of the results, a Bitmap in the app.
+ */
+class FilterResultCache<V> {
+
+    private static final long HASH_SEED = 0x2545F4914F6CDD1DL;
+    private static final long HASH_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+    /**
+     * Identifies a filter result by its input and the filter that produced it.
+     */
+    static final class Key {
+        private final long mContentHash;
+        private final int mWidth;
+        private final int mHeight;
+        private final int mFilter;
+        private final Object[] mOptions;
+
+        /**
+         * @param contentHash - The hash of the input pixels, see hash.
+         * @param width       - The width of the input.
+         * @param height      - The height of the input.
+         * @param filter      - The id of the filter.
+         * @param options     - The options of the filter. Numbers are compared by value, so 5 and
+         *                    5.0 are the same option.
+         */
+        Key(long contentHash, int width, int height, int filter, Object... options) {
+            mContentHash = contentHash;
+            mWidth = width;
+            mHeight = height;
+            mFilter = filter;
+            mOptions = new Object[options.length];
+            for (int i = 0; i < options.length; i++) {
+                mOptions[i] = options[i] instanceof Number ? (Object) ((Number) options[i]).doubleValue() : options[i];
+            }
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return mContentHash == other.mContentHash && mWidth == other.mWidth && mHeight == other.mHeight
+                    && mFilter == other.mFilter && Arrays.equals(mOptions, other.mOptions);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = (int) (mContentHash ^ (mContentHash >>> 32));
+            result = 31 * result + mWidth;
+            result = 31 * result + mHeight;
+            result = 31 * result + mFilter;
+            return 31 * result + Arrays.hashCode(mOptions);
+        }
+    }
+
+    /**
+     * Copies results into and out of the cache, and takes back the memory of evicted ones.
+     */
+    interface Values<V> {
+        V copy(V value);
+
+        void recycle(V value);
+    }
+
+    private static class Entry<V> {
+        final V value;
+        final long bytes;
+
+        Entry(V value, long bytes) {
+            this.value = value;
+            this.bytes = bytes;
+        }
+    }
+
+    // In access order, least recently used first.
+    private final LinkedHashMap<Key, Entry<V>> mEntries = new LinkedHashMap<Key, Entry<V>>(16, 0.75f, true);
+    private final Values<V> mValues;
+    private long mMaxBytes;
+    private long mBytes;
+
+    private int mHitCount;
+    private int mMissCount;
+    private int mPutCount;
+    private int mEvictionCount;
+
+    /**
+     * Creates a cache of immutable results, which are handed out as they are.
+     *
+     * @param maxBytes - The budget in bytes.
+     */
+    FilterResultCache(long maxBytes) {
+        this(maxBytes, new Values<V>() {
+            @Override
+            public V copy(V value) {
+                return value;
+            }
+
+            @Override
+            public void recycle(V value) {
+            }
+        });
+    }
+
+    /**
+     * @param maxBytes - The budget in bytes.
+     * @param values   - Copies results in and out and takes back evicted ones.
+     */
+    FilterResultCache(long maxBytes, Values<V> values) {
+        mMaxBytes = maxBytes;
+        mValues = values;
+    }
+
+    /**
+     * Returns a copy of the cached result for a key, which the caller owns, and marks it as
+     * recently used, or null if there is none.
+     */
+    synchronized V get(Key key) {
+        Entry<V> entry = mEntries.get(key);
+        if (entry == null) {
+            mMissCount++;
+            return null;
+        }
+        mHitCount++;
+        return mValues.copy(entry.value);
+    }
+
+    /**
+     * Caches a copy of a result, evicting the least recently used ones if it doesn't fit the
+     * budget. A result larger than the whole budget is not cached. The caller keeps the result.
+     *
+     * @param key   - Identifies the result.
+     * @param value - The result.
+     * @param bytes - The memory the result holds.
+     */
+    synchronized void put(Key key, V value, long bytes) {
+        if (bytes > mMaxBytes) {
+            return;
+        }
+        Entry<V> previous = mEntries.put(key, new Entry<V>(mValues.copy(value), bytes));
+        if (previous != null) {
+            mBytes -= previous.bytes;
+            mValues.recycle(previous.value);
+        }
+        mBytes += bytes;
+        mPutCount++;
+        trimToSize(mMaxBytes);
+    }
+
+    /**
+     * Sets the maximum memory results may hold, evicting the least recently used ones if it is
+     * exceeded.
+     *
+     * @param bytes - The budget in bytes.
+     */
+    synchronized void setMaxBytes(long bytes) {
+        mMaxBytes = bytes;
+        trimToSize(bytes);
+    }
+
+    /**
+     * Evicts the least recently used results until the rest hold at most the given bytes. The
+     * budget is left as it is.
+     */
+    synchronized void trimToSize(long bytes) {
+        Iterator<Map.Entry<Key, Entry<V>>> iterator = mEntries.entrySet().iterator();
+        while (mBytes > bytes && iterator.hasNext()) {
+            Entry<V> entry = iterator.next().getValue();
+            iterator.remove();
+            mBytes -= entry.bytes;
+            mValues.recycle(entry.value);
+            mEvictionCount++;
+        }
+    }
+
+    /**
+     * Shrinks the cache as asked by ComponentCallbacks2.onTrimMemory: by half once the app is in
+     * the background or memory runs low, and completely when the system is about to kill
+     * processes.
+     *
+     * @param level - The level passed to onTrimMemory.
+     */
+    synchronized void onTrimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE
+                || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+            trimToSize(0);
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND
+                || level == ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN
+                || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            trimToSize(mMaxBytes / 2);
+        }
+    }
+
+    /**
+     * Returns the memory held by the cached results.
+     */
+    synchronized long getBytes() {
+        return mBytes;
+    }
+
+    synchronized long getMaxBytes() {
+        return mMaxBytes;
+    }
+
+    synchronized int getCount() {
+        return mEntries.size();
+    }
+
+    synchronized int getHitCount() {
+        return mHitCount;
+    }
+
+    synchronized int getMissCount() {
+        return mMissCount;
+    }
+
+    synchronized int getPutCount() {
+        return mPutCount;
+    }
+
+    synchronized int getEvictionCount() {
+        return mEvictionCount;
+    }
+
+    /**
+     * Hashes the pixels of a bitmap a row at a time, without copying the whole bitmap.
+     */
+    static long hash(Bitmap bitmap) {
+        int width = bitmap.getWidth();
+        int height = bitmap.getHeight();
+        int[] row = new int[width];
+        long hash = HASH_SEED;
+        for (int y = 0; y < height; y++) {
+            bitmap.getPixels(row, 0, width, 0, y, width, 1);
+            hash = hash(row, width, hash);
+        }
+        return hash;
+    }
+
+    /**
+     * Continues a 64 bit hash over the first length pixels. Four independent lanes keep the
+     * multiplications from waiting on each other.
+     *
+     * @param pixels - The pixels to hash.
+     * @param length - The number of pixels to hash.
+     * @param hash   - The hash of the pixels before, or any seed for the first ones.
+     * @return - The hash including the pixels.
+     */
+    static long hash(int[] pixels, int length, long hash) {
+        long a = hash, b = hash ^ 1, c = hash ^ 2, d = hash ^ 3;
+        int i = 0;
+        for (; i + 4 <= length; i += 4) {
+            a = (a ^ pixels[i]) * HASH_MULTIPLIER;
+            b = (b ^ pixels[i + 1]) * HASH_MULTIPLIER;
+            c = (c ^ pixels[i + 2]) * HASH_MULTIPLIER;
+            d = (d ^ pixels[i + 3]) * HASH_MULTIPLIER;
+        }
+        for (; i < length; i++) {
+            a = (a ^ pixels[i]) * HASH_MULTIPLIER;
+        }
+        long result = a ^ Long.rotateLeft(b, 16) ^ Long.rotateLeft(c, 32) ^ Long.rotateLeft(d, 48) ^ length;
+        // Final mix, so every input bit reaches every output bit.
+        result ^= result >>> 33;
+        result *= 0xFF51AFD7ED558CCDL;
+        result ^= result >>> 33;
+        return result;
+    }
+}
@@ -0,0 +1,209 @@
+package com.oskorep.lucas.drawingapp;
+
+import android.util.Log;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs filter jobs on a small pool of worker threads, so the UI thread only hands a job over and
+ * later receives its result. Only the latest job matters: submitting a job supersedes every
+ * earlier one. A superseded job that has not started yet never runs, and the result of one that
+ * was already running is dropped. The filters themselves can't be interrupted, they are split
+ * into bands on every core by BandExecutor, so running jobs are left to finish.
+ * <p>
+ * Results are handed to the publisher, normally the main thread, and a result is only published
+ * if no job was submitted and nothing was cancelled in the meantime. submit and cancel must be
+ * called on the publisher's thread, so that check can't race with them. A job that throws, or runs
+ * out of memory, is logged and publishes a failure instead of a result.
+ */
+class FilterScheduler {
+
+    private static final String TAG = "FilterScheduler";
+
+    public static final int DEFAULT_WORKERS = 2;
+
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    /**
+     * Receives the result of the latest job on the publisher's thread.
+     */
+    interface Callback<T> {
+        void onResult(T result);
+
+        /**
+         * Called instead of onResult if the job threw. The error was already logged.
+         */
+        void onFailure(Throwable error);
+    }
+
+    private final ThreadPoolExecutor mWorkers;
+    private final Executor mPublisher;
+    // Incremented by every submit and cancel; a job may only publish for its own generation.
+    private final AtomicLong mGeneration = new AtomicLong();
+    // The latest job, until it publishes or is superseded.
+    private Runnable mPending;
+
+    private final AtomicInteger mSubmitted = new AtomicInteger();
+    private final AtomicInteger mCoalesced = new AtomicInteger();
+    private final AtomicInteger mDiscarded = new AtomicInteger();
+    private final AtomicInteger mPublished = new AtomicInteger();
+    private final AtomicInteger mFailed = new AtomicInteger();
+
+    /**
+     * @param workers   - The number of jobs that can run at the same time, the rest wait in a queue.
+     * @param publisher - Runs the callbacks, e.g. posts them to the main thread.
+     */
+    FilterScheduler(int workers, Executor publisher) {
+        mPublisher = publisher;
+        mWorkers = new ThreadPoolExecutor(workers, workers, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            private final AtomicInteger mCount = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "FilterWorker-" + mCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        mWorkers.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Queues a job, superseding every job submitted before it.
+     *
+     * @param job      - Computes the result on a worker thread.
+     * @param callback - Receives the result on the publisher, unless the job is superseded first.
+     */
+    <T> void submit(final Callable<T> job, final Callback<T> callback) {
+        final long generation = supersede();
+        mSubmitted.incrementAndGet();
+        mPending = new Runnable() {
+            @Override
+            public void run() {
+                if (generation != mGeneration.get()) {
+                    // Superseded after a worker took it off the queue.
+                    mCoalesced.incrementAndGet();
+                    return;
+                }
+                final T result;
+                try {
+                    result = job.call();
+                } catch (final Exception | OutOfMemoryError e) {
+                    publish(generation, new Runnable() {
+                        @Override
+                        public void run() {
+                            // The result is dropped, the app keeps running without it.
+                            Log.e(TAG, "Filter job failed", e);
+                            mFailed.incrementAndGet();
+                            callback.onFailure(e);
+                        }
+                    });
+                    return;
+                }
+                publish(generation, new Runnable() {
+                    @Override
+                    public void run() {
+                        mPublished.incrementAndGet();
+                        callback.onResult(result);
+                    }
+                });
+            }
+        };
+        mWorkers.execute(mPending);
+    }
+
+    /**
+     * Drops every submitted job; none of them will publish a result.
+     */
+    void cancel() {
+        supersede();
+    }
+
+    /**
+     * Returns true while the latest job has not published its result yet.
+     */
+    boolean isPending() {
+        return mPending != null;
+    }
+
+    private long supersede() {
+        if (mPending != null) {
+            // A job that has not started is taken out of the queue, a running one finishes and is dropped.
+            if (mWorkers.remove(mPending)) {
+                mCoalesced.incrementAndGet();
+            }
+            mPending = null;
+        }
+        return mGeneration.incrementAndGet();
+    }
+
+    private void publish(final long generation, final Runnable delivery) {
+        if (generation != mGeneration.get()) {
+            mDiscarded.incrementAndGet();
+            return;
+        }
+        mPublisher.execute(new Runnable() {
+            @Override
+            public void run() {
+                // Checked again on the publisher's thread, where submit and cancel happen.
+                if (generation != mGeneration.get()) {
+                    mDiscarded.incrementAndGet();
+                    return;
+                }
+                mPending = null;
+                delivery.run();
+            }
+        });
+    }
+
+    /**
+     * Returns the number of jobs submitted.
+     */
+    int getSubmittedCount() {
+        return mSubmitted.get();
+    }
+
+    /**
+     * Returns the number of jobs that were superseded before they started, so never ran.
+     */
+    int getCoalescedCount() {
+        return mCoalesced.get();
+    }
+
+    /**
+     * Returns the number of jobs that ran but were superseded before their result was published.
+     */
+    int getDiscardedCount() {
+        return mDiscarded.get();
+    }
+
+    /**
+     * Returns the number of results handed to a callback.
+     */
+    int getPublishedCount() {
+        return mPublished.get();
+    }
+
+    /**
+     * Returns the number of jobs that threw instead of publishing a result.
+     */
+    int getFailedCount() {
+        return mFailed.get();
+    }
+
+    /**
+     * Stops the worker threads once the running jobs finish; nothing is published after this.
+     */
+    void shutdown() {
+        cancel();
+        mWorkers.shutdown();
+    }
+}
@@ -0,0 +1,185 @@
+package com.oskorep.lucas.drawingapp;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import cn.Ragnarok.BandExecutor;
+import cn.Ragnarok.BitmapFilter;
+import cn.Ragnarok.Filter;
+import cn.Ragnarok.FilterRegistry;
+import cn.Ragnarok.PixelBuffer;
+
+/**
+ * Renders every BitmapFilter style on a small copy of the drawing, so the filter strip can show
+ * what each one looks like. Every style is a job of its own on a pool with a thread per core, and
+ * each thumbnail is handed to the listener as soon as it is done. The filters run with their
+ * options scaled to the thumbnail, see FilterRegistry.createScaled.
+ * <p>
+ * Thumbnails are kept for the version of the drawing they were rendered from and handed out
+ * again without rendering until the version changes. render and cancel must be called on the
+ * publisher's thread.
+ */
+class FilterThumbnails {
+
+    public static final int STYLE_COUNT = BitmapFilter.TOTAL_FILTER_NUM;
+
+    private static final long KEEP_ALIVE_SECONDS = 30;
+    // Thumbnails are filtered on the pool's own threads, not split into bands.
+    private static final BandExecutor SERIAL = new BandExecutor(1);
+
+    /**
+     * Receives the thumbnails on the publisher's thread.
+     */
+    interface Listener {
+        /**
+         * @param styleNo   - The BitmapFilter style id.
+         * @param thumbnail - The filtered copy, which must not be modified.
+         */
+        void onThumbnail(int styleNo, PixelBuffer thumbnail);
+    }
+
+    private final ThreadPoolExecutor mWorkers;
+    private final Executor mPublisher;
+    // Incremented by every new version and cancel; jobs of older generations are dropped.
+    private final AtomicInteger mGeneration = new AtomicInteger();
+    private int mVersion = -1;
+    private Listener mListener;
+    // By style id, null until rendered.
+    private PixelBuffer[] mThumbnails = new PixelBuffer[STYLE_COUNT + 1];
+    private int mCompleted;
+    private long mStartNanos;
+    private long mLastRenderNanos = -1;
+    private final AtomicInteger mRendered = new AtomicInteger();
+
+    /**
+     * @param workers   - The number of thumbnails rendered at the same time.
+     * @param publisher - Runs the listener, e.g. posts to the main thread.
+     */
+    FilterThumbnails(int workers, Executor publisher) {
+        mPublisher = publisher;
+        mWorkers = new ThreadPoolExecutor(workers, workers, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            private final AtomicInteger mCount = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "ThumbnailWorker-" + mCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        mWorkers.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Returns true if the thumbnails of this version are kept or being rendered, so render needs
+     * no source.
+     */
+    boolean hasVersion(int version) {
+        return version == mVersion;
+    }
+
+    /**
+     * Hands out every thumbnail of a version, rendering the ones that are not kept yet. The
+     * thumbnails already rendered are handed out before this returns, the rest as they finish.
+     *
+     * @param version  - Identifies the drawing, e.g. a count of its edits.
+     * @param source   - The small copy of the drawing, only read if the version is new.
+     * @param scale    - The size of the source relative to the drawing, to scale filter options.
+     * @param listener - Receives the thumbnails, replacing the listener of earlier calls.
+     */
+    void render(int version, PixelBuffer source, double scale, Listener listener) {
+        mListener = listener;
+        if (version == mVersion) {
+            for (int style = 1; style <= STYLE_COUNT; style++) {
+                if (mThumbnails[style] != null) {
+                    listener.onThumbnail(style, mThumbnails[style]);
+                }
+            }
+            return;
+        }
+        final int generation = mGeneration.incrementAndGet();
+        mVersion = version;
+        mThumbnails = new PixelBuffer[STYLE_COUNT + 1];
+        mCompleted = 0;
+        mStartNanos = System.nanoTime();
+        mLastRenderNanos = -1;
+        for (int style = 1; style <= STYLE_COUNT; style++) {
+            mWorkers.execute(renderJob(generation, style, source, scale));
+        }
+    }
+
+    private Runnable renderJob(final int generation, final int style, final PixelBuffer source, final double scale) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                if (generation != mGeneration.get()) {
+                    return;
+                }
+                final PixelBuffer thumbnail = new PixelBuffer(source.getPixels().clone(), source.getWidth(), source.getHeight());
+                Filter filter = FilterRegistry.createScaled(style, scale);
+                if (filter != null) {
+                    SERIAL.apply(thumbnail, filter);
+                }
+                mRendered.incrementAndGet();
+                mPublisher.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (generation != mGeneration.get()) {
+                            return;
+                        }
+                        mThumbnails[style] = thumbnail;
+                        if (++mCompleted == STYLE_COUNT) {
+                            mLastRenderNanos = System.nanoTime() - mStartNanos;
+                        }
+                        mListener.onThumbnail(style, thumbnail);
+                    }
+                });
+            }
+        };
+    }
+
+    /**
+     * Stops rendering and forgets the kept thumbnails.
+     */
+    void cancel() {
+        mGeneration.incrementAndGet();
+        mVersion = -1;
+        mThumbnails = new PixelBuffer[STYLE_COUNT + 1];
+        mCompleted = 0;
+    }
+
+    /**
+     * Returns true once every thumbnail of the current version was handed out.
+     */
+    boolean isComplete() {
+        return mCompleted == STYLE_COUNT;
+    }
+
+    /**
+     * Returns the time from rendering a new version until its last thumbnail was handed out, or -1
+     * while it is still rendering.
+     */
+    long getLastRenderNanos() {
+        return mLastRenderNanos;
+    }
+
+    /**
+     * Returns the number of thumbnails filtered so far, kept ones handed out again don't count.
+     */
+    int getRenderedCount() {
+        return mRendered.get();
+    }
+
+    /**
+     * Stops the worker threads once the running jobs finish.
+     */
+    void shutdown() {
+        cancel();
+        mWorkers.shutdown();
+    }
+}
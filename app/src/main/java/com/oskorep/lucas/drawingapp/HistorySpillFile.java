@@ -0,0 +1,330 @@
+package com.oskorep.lucas.drawingapp;
+
+import android.graphics.Bitmap;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * A cache file holding compressed tiles of undo history that no longer fit in memory. Identical
+ * tiles are stored once, so a checkpoint only adds the tiles that changed since earlier spilled
+ * checkpoints. Every write of a tile must be matched by a release once its checkpoint is dropped;
+ * tiles nobody refers to any more leave a hole that later tiles fill, and holes at the end of the
+ * file are cut off, so the file stays about as large as the history that is still reachable.
+ * Tiles are read back through memory mapped windows of the file.
+ */
+class HistorySpillFile {
+
+    private static final String TAG = "HistorySpillFile";
+
+    private static final int TILE_BYTES = TiledSurface.TILE_SIZE * TiledSurface.TILE_SIZE * 4;
+    // The size of the part of the file mapped at a time, tiles of the same checkpoint are
+    // usually read from the same window.
+    private static final long WINDOW_BYTES = 4 * 1024 * 1024;
+
+    /**
+     * A tile written to the file, shared by every write of identical pixels.
+     */
+    private static class Record {
+        final long crc;
+        final long offset;
+        final int length;
+        int references = 1;
+
+        Record(long crc, long offset, int length) {
+            this.crc = crc;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+
+    private final File mFile;
+    private RandomAccessFile mAccess;
+    private FileChannel mChannel;
+    private MappedByteBuffer mMapped;
+    private long mMappedStart;
+    private long mLength;
+    private long mLiveBytes;
+
+    private final Deflater mDeflater = new Deflater(Deflater.BEST_SPEED);
+    private final Inflater mInflater = new Inflater();
+    private final CRC32 mCrc = new CRC32();
+    private final ByteBuffer mRaw = ByteBuffer.allocate(TILE_BYTES);
+    private byte[] mCompressed = new byte[TILE_BYTES + 1024];
+    private byte[] mExisting = new byte[TILE_BYTES + 1024];
+
+    // Previously written tiles, keyed by the checksum of their uncompressed pixels.
+    private final HashMap<Long, ArrayList<Record>> mWritten = new HashMap<Long, ArrayList<Record>>();
+    // Previously written tiles by offset, to find the one a handle refers to.
+    private final HashMap<Long, Record> mRecords = new HashMap<Long, Record>();
+    // Lengths of the holes left by released tiles, by offset. Neighbouring holes are merged.
+    private final TreeMap<Long, Long> mFree = new TreeMap<Long, Long>();
+
+    /**
+     * Creates a spill file. Nothing is written to disk until the first tile is spilled.
+     *
+     * @param file - The cache file to use, replaced if it already exists.
+     */
+    public HistorySpillFile(File file) {
+        mFile = file;
+    }
+
+    /**
+     * Compresses a tile and writes it to the file, unless an identical tile was already written.
+     *
+     * @param tile - A TILE_SIZE x TILE_SIZE ARGB_8888 bitmap.
+     * @return - The offset of the tile in the file in the upper 40 bits and its compressed length in
+     * the lower 24 bits, to be passed to read and release.
+     */
+    public long write(Bitmap tile) throws IOException {
+        open();
+        mRaw.clear();
+        tile.copyPixelsToBuffer(mRaw);
+
+        mCrc.reset();
+        mCrc.update(mRaw.array(), 0, TILE_BYTES);
+        long crc = mCrc.getValue();
+
+        mDeflater.reset();
+        mDeflater.setInput(mRaw.array(), 0, TILE_BYTES);
+        mDeflater.finish();
+        int length = mDeflater.deflate(mCompressed);
+        while (!mDeflater.finished()) {
+            mCompressed = Arrays.copyOf(mCompressed, mCompressed.length * 2);
+            length += mDeflater.deflate(mCompressed, length, mCompressed.length - length);
+        }
+
+        ArrayList<Record> candidates = mWritten.get(crc);
+        if (candidates != null) {
+            for (Record candidate : candidates) {
+                if (candidate.length == length && sameBytes(candidate.offset, length)) {
+                    candidate.references++;
+                    return handle(candidate.offset, length);
+                }
+            }
+        } else {
+            candidates = new ArrayList<Record>(1);
+            mWritten.put(crc, candidates);
+        }
+
+        long offset = allocate(length);
+        ByteBuffer source = ByteBuffer.wrap(mCompressed, 0, length);
+        while (source.hasRemaining()) {
+            mChannel.write(source, offset + source.position());
+        }
+        Record record = new Record(crc, offset, length);
+        candidates.add(record);
+        mRecords.put(offset, record);
+        mLiveBytes += length;
+        return handle(offset, length);
+    }
+
+    /**
+     * Pages a tile back in from the file.
+     *
+     * @param handle - The value returned by write.
+     * @return - A new mutable bitmap holding the tile.
+     */
+    public Bitmap read(long handle) throws IOException {
+        long offset = handle >>> 24;
+        int length = (int) (handle & 0xFFFFFF);
+        MappedByteBuffer mapped = map(offset, length);
+        if (mExisting.length < length) {
+            mExisting = new byte[length];
+        }
+        mapped.position((int) (offset - mMappedStart));
+        mapped.get(mExisting, 0, length);
+
+        mInflater.reset();
+        mInflater.setInput(mExisting, 0, length);
+        try {
+            mInflater.inflate(mRaw.array(), 0, TILE_BYTES);
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt tile in undo history", e);
+        }
+        mRaw.rewind();
+        Bitmap tile = Bitmap.createBitmap(TiledSurface.TILE_SIZE, TiledSurface.TILE_SIZE, Bitmap.Config.ARGB_8888);
+        tile.copyPixelsFromBuffer(mRaw);
+        return tile;
+    }
+
+    /**
+     * Gives up one write of a tile. Once every write of it was released, its bytes are reused by
+     * later tiles.
+     *
+     * @param handle - The value returned by write.
+     */
+    public void release(long handle) {
+        Record record = mRecords.get(handle >>> 24);
+        if (record == null || --record.references > 0) {
+            return;
+        }
+        mRecords.remove(record.offset);
+        ArrayList<Record> candidates = mWritten.get(record.crc);
+        candidates.remove(record);
+        if (candidates.isEmpty()) {
+            mWritten.remove(record.crc);
+        }
+        mLiveBytes -= record.length;
+        free(record.offset, record.length);
+    }
+
+    /**
+     * Returns the size of the file on disk.
+     */
+    public long getLength() {
+        return mLength;
+    }
+
+    /**
+     * Returns the bytes of the tiles that are still referred to, the rest of the file are holes
+     * waiting to be reused.
+     */
+    public long getLiveBytes() {
+        return mLiveBytes;
+    }
+
+    /**
+     * Discards every spilled tile and deletes the file.
+     */
+    public void clear() {
+        close();
+        mWritten.clear();
+        mRecords.clear();
+        mFree.clear();
+        mLength = 0;
+        mLiveBytes = 0;
+        mFile.delete();
+    }
+
+    /**
+     * Closes the file, leaving it on disk until clear is called.
+     */
+    public void close() {
+        mMapped = null;
+        if (mAccess != null) {
+            try {
+                mAccess.close();
+            } catch (IOException e) {
+                Log.w(TAG, "Could not close the undo history file: " + e.getMessage());
+            }
+            mAccess = null;
+            mChannel = null;
+        }
+    }
+
+    private void open() throws IOException {
+        if (mAccess == null) {
+            if (mLength == 0) {
+                mFile.delete();
+            }
+            mAccess = new RandomAccessFile(mFile, "rw");
+            mChannel = mAccess.getChannel();
+        }
+    }
+
+    /**
+     * Returns the offset to write length bytes at, the first hole they fit in or the end of the
+     * file.
+     */
+    private long allocate(int length) {
+        for (Map.Entry<Long, Long> hole : mFree.entrySet()) {
+            long offset = hole.getKey();
+            long holeLength = hole.getValue();
+            if (holeLength >= length) {
+                mFree.remove(offset);
+                if (holeLength > length) {
+                    mFree.put(offset + length, holeLength - length);
+                }
+                return offset;
+            }
+        }
+        long offset = mLength;
+        mLength += length;
+        return offset;
+    }
+
+    /**
+     * Turns the bytes of a released tile into a hole, merged with the holes next to it. A hole
+     * reaching the end of the file is cut off.
+     */
+    private void free(long offset, long length) {
+        Map.Entry<Long, Long> before = mFree.floorEntry(offset);
+        if (before != null && before.getKey() + before.getValue() == offset) {
+            offset = before.getKey();
+            length += before.getValue();
+            mFree.remove(offset);
+        }
+        Long after = mFree.get(offset + length);
+        if (after != null) {
+            mFree.remove(offset + length);
+            length += after;
+        }
+        if (offset + length < mLength) {
+            mFree.put(offset, length);
+            return;
+        }
+        mLength = offset;
+        mMapped = null;
+        try {
+            mChannel.truncate(mLength);
+        } catch (IOException e) {
+            // The file only stays longer than needed, the end is written over again.
+            Log.w(TAG, "Could not shrink the undo history file: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Returns a mapping of the file that holds the given bytes, mapping a new window only when
+     * they are outside of the current one.
+     */
+    private MappedByteBuffer map(long offset, int length) throws IOException {
+        open();
+        if (mMapped == null || offset < mMappedStart || offset + length > mMappedStart + mMapped.capacity()) {
+            mMappedStart = offset - offset % WINDOW_BYTES;
+            long size = Math.min(Math.max(WINDOW_BYTES, offset + length - mMappedStart), mLength - mMappedStart);
+            mMapped = mChannel.map(FileChannel.MapMode.READ_ONLY, mMappedStart, size);
+        }
+        return mMapped;
+    }
+
+    /**
+     * Compares a written tile with the one just compressed, reading it through the channel so
+     * the file needn't be mapped again after appending.
+     */
+    private boolean sameBytes(long offset, int length) throws IOException {
+        if (mExisting.length < length) {
+            mExisting = new byte[length];
+        }
+        ByteBuffer existing = ByteBuffer.wrap(mExisting, 0, length);
+        while (existing.hasRemaining()) {
+            if (mChannel.read(existing, offset + existing.position()) < 0) {
+                return false;
+            }
+        }
+        for (int i = 0; i < length; i++) {
+            if (mExisting[i] != mCompressed[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long handle(long offset, int length) {
+        return offset << 24 | length;
+    }
+}
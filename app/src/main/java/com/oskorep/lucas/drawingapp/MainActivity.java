@@ -20,11 +20,16 @@ import android.support.v7.app.AlertDialog;
 import android.support.v7.app.AppCompatActivity;
 import android.util.Log;
 import android.view.ContextMenu;
+import android.view.LayoutInflater;
 import android.view.Menu;
 import android.view.MenuInflater;
 import android.view.MenuItem;
 import android.view.View;
+import android.widget.HorizontalScrollView;
+import android.widget.ImageView;
+import android.widget.LinearLayout;
 import android.widget.ListView;
+import android.widget.TextView;
 import android.widget.Toast;
 import android.widget.Toolbar;
 
@@ -34,6 +39,8 @@ import com.github.clans.fab.FloatingActionMenu;
 
 import java.util.ArrayList;
 
+import cn.Ragnarok.PixelBuffer;
+
 /**
  * This is the MainActivity class for the Drawing App.
  * The purpose of this class is to facilitate all interactions between the activity and
@@ -51,10 +58,16 @@ public class MainActivity extends AppCompatActivity {
     public static final int FILTER_INVERT = 125;
     public static final int FILTER_SKETCH = 126;
     public static final int FILTER_OIL = 127;
+    // Plus a BitmapFilter style id, for the styles picked from the filter strip.
+    public static final int FILTER_STYLE = 1000;
 
     private DrawerLayout mDrawerLayout;
     private ListView mDrawerList;
     private CanvasView mCanvasView;
+    private HorizontalScrollView mFilterStrip;
+    private LinearLayout mFilterStripItems;
+    // The bitmap each strip item shows by style id, written over when the strip is filled again.
+    private Bitmap[] mThumbnailBitmaps = new Bitmap[FilterThumbnails.STYLE_COUNT + 1];
 
     private Context mContext = this;
 
@@ -85,6 +98,7 @@ public class MainActivity extends AppCompatActivity {
         setupColorDrawer();
         setupToolbar();
         setupFloatingActionMenu();
+        setupFilterStrip();
 
         handleIntents();
 
@@ -230,13 +244,89 @@ public class MainActivity extends AppCompatActivity {
             @Override
             public void onClick(View view) {
 
-                view.showContextMenu();
+                // A long press still opens the filter menu.
+                if (mFilterStrip.getVisibility() == View.VISIBLE) {
+                    mFilterStrip.setVisibility(View.GONE);
+                } else {
+                    showFilterStrip();
+                }
                 menu.close(true);
             }
         });
 
     }
 
+    /**
+     * Fills the filter strip with an item for every BitmapFilter style. Tapping an item applies
+     * its style to the canvas.
+     */
+    void setupFilterStrip() {
+        mFilterStrip = (HorizontalScrollView) findViewById(R.id.filter_strip);
+        mFilterStripItems = (LinearLayout) findViewById(R.id.filter_strip_items);
+        String[] names = getResources().getStringArray(R.array.filter_style_names);
+        LayoutInflater inflater = LayoutInflater.from(mContext);
+
+        for (int style = 1; style <= FilterThumbnails.STYLE_COUNT; style++) {
+            View item = inflater.inflate(R.layout.filter_thumbnail_item, mFilterStripItems, false);
+            ((TextView) item.findViewById(R.id.filter_thumbnail_text)).setText(names[style - 1]);
+            final int styleNo = style;
+            item.setOnClickListener(new View.OnClickListener() {
+                @Override
+                public void onClick(View view) {
+                    mFilterStrip.setVisibility(View.GONE);
+                    Toast.makeText(mContext, "Applying Filter", Toast.LENGTH_SHORT).show();
+                    mCanvasView.applyFilter(FILTER_STYLE + styleNo);
+                }
+            });
+            mFilterStripItems.addView(item);
+        }
+    }
+
+    /**
+     * Shows the filter strip and fills in the thumbnails of the current drawing as they finish.
+     */
+    void showFilterStrip() {
+        mFilterStrip.setVisibility(View.VISIBLE);
+        mCanvasView.renderThumbnails(new FilterThumbnails.Listener() {
+            private boolean mLogged;
+
+            @Override
+            public void onThumbnail(int styleNo, PixelBuffer thumbnail) {
+                View item = mFilterStripItems.getChildAt(styleNo - 1);
+                ((ImageView) item.findViewById(R.id.filter_thumbnail_image)).setImageBitmap(thumbnailBitmap(styleNo, thumbnail));
+                if (!mLogged && mCanvasView.getFilterThumbnails().isComplete()) {
+                    mLogged = true;
+                    Log.d(TAG, "Filter strip rendered in "
+                            + mCanvasView.getFilterThumbnails().getLastRenderNanos() / 1000000 + "ms");
+                }
+            }
+        });
+    }
+
+    /**
+     * Copies a thumbnail into the bitmap its strip item already shows, or into a new one if the
+     * size changed, e.g. after the canvas was resized. The replaced bitmap is recycled once the
+     * item shows the new one.
+     */
+    private Bitmap thumbnailBitmap(int styleNo, PixelBuffer thumbnail) {
+        Bitmap bitmap = mThumbnailBitmaps[styleNo];
+        if (bitmap == null || bitmap.getWidth() != thumbnail.getWidth() || bitmap.getHeight() != thumbnail.getHeight()) {
+            final Bitmap previous = bitmap;
+            bitmap = Bitmap.createBitmap(thumbnail.getWidth(), thumbnail.getHeight(), Bitmap.Config.ARGB_8888);
+            mThumbnailBitmaps[styleNo] = bitmap;
+            if (previous != null) {
+                mFilterStripItems.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        previous.recycle();
+                    }
+                });
+            }
+        }
+        thumbnail.writeTo(bitmap);
+        return bitmap;
+    }
+
     /**
      * Creates the Option menu when the settings button is pressed and inflates its view into the application.
      *
@@ -294,6 +384,29 @@ public class MainActivity extends AppCompatActivity {
         }
     }
 
+    /**
+     * Backs out of a filter that is still being previewed before leaving the app.
+     */
+    @Override
+    public void onBackPressed() {
+        if (mCanvasView.isFilterPending()) {
+            mCanvasView.cancelFilter();
+            return;
+        }
+        super.onBackPressed();
+    }
+
+    /**
+     * Lets the canvas release cached filter results when memory runs low.
+     *
+     * @param level - How much memory the system needs, see ComponentCallbacks2.
+     */
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        mCanvasView.trimMemory(level);
+    }
+
     /**
      * Loads an image in from the default android gallery application. to be drawn on top of.
      */
@@ -388,7 +501,7 @@ public class MainActivity extends AppCompatActivity {
         AlertDialog.Builder alertDialogueBuilder = new AlertDialog.Builder(mContext);
         alertDialogueBuilder.setTitle("Apply Filter Warning");
         alertDialogueBuilder
-                .setMessage("Filters cannot currently be undone, and applying a filter will flatten the current drawing.")
+                .setMessage("Applying a filter will flatten the current drawing. Use undo to remove the filter.")
                 .setCancelable(false)
                 .setPositiveButton("Accept", new DialogInterface.OnClickListener() {
 
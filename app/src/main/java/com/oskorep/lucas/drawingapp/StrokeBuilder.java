@@ -0,0 +1,161 @@
+package com.oskorep.lucas.drawingapp;
+
+import android.graphics.Path;
+import android.graphics.RectF;
+import android.view.MotionEvent;
+
+import java.util.Arrays;
+
+/**
+ * Builds a single stroke from touch input. Every sample of a MotionEvent, including the historical
+ * samples Android batches between frames, is appended to a reusable float buffer and to the
+ * stroke's Path. Once the buffer has grown to fit the longest stroke, the move path allocates
+ * nothing.
+ */
+class StrokeBuilder {
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    // Interleaved x, y pairs of every sample in the current stroke.
+    private float[] mPoints = new float[INITIAL_CAPACITY];
+    private int mSize;
+
+    private final Path mPath = new Path();
+    private boolean mSmoothing = true;
+
+    // Bounds of the samples added since the last call to takeDirtyBounds.
+    private float mDirtyLeft, mDirtyTop, mDirtyRight, mDirtyBottom;
+    private boolean mHasDirty;
+
+    /**
+     * Enables or disables midpoint quadratic smoothing for strokes started after this call.
+     *
+     * @param smoothing - true to join samples with quadratic curves, false for straight lines.
+     */
+    public void setSmoothing(boolean smoothing) {
+        mSmoothing = smoothing;
+    }
+
+    /**
+     * Starts a new stroke at the given point, reusing the point buffer of the previous stroke.
+     */
+    public void begin(float x, float y) {
+        mSize = 0;
+        mHasDirty = false;
+        mPath.reset();
+        mPath.moveTo(x, y);
+        append(x, y);
+    }
+
+    /**
+     * Appends every historical sample of the event for the pointer, followed by its current
+     * position.
+     *
+     * @param event        - The MotionEvent carrying the samples.
+     * @param pointerIndex - The index of the pointer in the event.
+     */
+    public void addSamples(MotionEvent event, int pointerIndex) {
+        int historySize = event.getHistorySize();
+        for (int h = 0; h < historySize; h++) {
+            addPoint(event.getHistoricalX(pointerIndex, h), event.getHistoricalY(pointerIndex, h));
+        }
+        addPoint(event.getX(pointerIndex), event.getY(pointerIndex));
+    }
+
+    /**
+     * Appends a single sample to the stroke.
+     */
+    public void addPoint(float x, float y) {
+        float lastX = mPoints[mSize - 2];
+        float lastY = mPoints[mSize - 1];
+        if (x == lastX && y == lastY) {
+            return;
+        }
+        if (mSmoothing) {
+            // The previous sample becomes the control point of a curve ending halfway to this one.
+            mPath.quadTo(lastX, lastY, (lastX + x) / 2, (lastY + y) / 2);
+        } else {
+            mPath.lineTo(x, y);
+        }
+        append(x, y);
+    }
+
+    /**
+     * Finishes the stroke by drawing the remaining half segment to the last sample. A tap, a
+     * stroke of a single sample, gets a zero length line so the round cap draws a dot.
+     */
+    public void end() {
+        if (mSize == 2) {
+            mPath.lineTo(mPoints[0], mPoints[1]);
+        } else if (mSmoothing && mSize >= 4) {
+            mPath.lineTo(mPoints[mSize - 2], mPoints[mSize - 1]);
+        }
+    }
+
+    /**
+     * Clears the stroke once it has been committed, keeping the point buffer for the next one.
+     */
+    public void reset() {
+        mSize = 0;
+        mHasDirty = false;
+        mPath.reset();
+    }
+
+    public boolean isSmoothing() {
+        return mSmoothing;
+    }
+
+    public Path getPath() {
+        return mPath;
+    }
+
+    /**
+     * Returns the point buffer. Only the first getPointCount() * 2 entries are valid.
+     */
+    public float[] getPoints() {
+        return mPoints;
+    }
+
+    public int getPointCount() {
+        return mSize / 2;
+    }
+
+    /**
+     * Writes the bounds of the samples added since the previous call, including the last sample
+     * of the previous batch so the connecting segment is covered, and resets them.
+     *
+     * @param out - Receives the bounds.
+     * @return - false if no samples were added.
+     */
+    public boolean takeDirtyBounds(RectF out) {
+        if (!mHasDirty) {
+            return false;
+        }
+        out.set(mDirtyLeft, mDirtyTop, mDirtyRight, mDirtyBottom);
+        float lastX = mPoints[mSize - 2];
+        float lastY = mPoints[mSize - 1];
+        mDirtyLeft = mDirtyRight = lastX;
+        mDirtyTop = mDirtyBottom = lastY;
+        mHasDirty = false;
+        return true;
+    }
+
+    private void append(float x, float y) {
+        if (mSize + 2 > mPoints.length) {
+            mPoints = Arrays.copyOf(mPoints, mPoints.length * 2);
+        }
+        mPoints[mSize++] = x;
+        mPoints[mSize++] = y;
+
+        if (mSize == 2) {
+            mDirtyLeft = mDirtyRight = x;
+            mDirtyTop = mDirtyBottom = y;
+        } else {
+            mDirtyLeft = Math.min(mDirtyLeft, x);
+            mDirtyTop = Math.min(mDirtyTop, y);
+            mDirtyRight = Math.max(mDirtyRight, x);
+            mDirtyBottom = Math.max(mDirtyBottom, y);
+        }
+        mHasDirty = true;
+    }
+}
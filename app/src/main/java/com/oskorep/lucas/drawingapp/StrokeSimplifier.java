@@ -0,0 +1,115 @@
+package com.oskorep.lucas.drawingapp;
+
+import java.util.Arrays;
+
+/**
+ * Reduces the points of a finished stroke with the Ramer-Douglas-Peucker algorithm. Points are
+ * dropped as long as the simplified polyline stays within a tolerance of every original point, so
+ * long straight or gently curved runs of touch samples collapse into a few points.
+ * <p>
+ * The work buffers are kept between calls, so simplifying allocates nothing once they fit the
+ * longest stroke.
+ */
+class StrokeSimplifier {
+
+    // Tolerance as a fraction of the stroke width; wider strokes hide larger deviations.
+    public static final float DEFAULT_TOLERANCE_PER_WIDTH = 0.05f;
+    // Lower bound of the tolerance in pixels, so thin strokes still lose sub-pixel jitter.
+    public static final float MIN_TOLERANCE = 0.5f;
+
+    private boolean[] mKeep = new boolean[256];
+    // Pairs of first and last point index of the ranges still to examine.
+    private int[] mStack = new int[512];
+
+    /**
+     * Returns the tolerance to simplify a stroke of the given width with.
+     *
+     * @param strokeWidth       - The width of the stroke in pixels.
+     * @param tolerancePerWidth - The tolerance as a fraction of the width.
+     * @return - The tolerance in pixels.
+     */
+    public static float toleranceFor(float strokeWidth, float tolerancePerWidth) {
+        return Math.max(MIN_TOLERANCE, strokeWidth * tolerancePerWidth);
+    }
+
+    /**
+     * Simplifies a stroke in place. The first and last points are always kept and the kept points
+     * stay in order at the front of the array.
+     *
+     * @param points     - Interleaved x, y pairs, overwritten with the kept points.
+     * @param pointCount - The number of points in the stroke.
+     * @param tolerance  - The maximum distance in pixels between a dropped point and the result.
+     * @return - The number of points kept.
+     */
+    public int simplify(float[] points, int pointCount, float tolerance) {
+        if (pointCount < 3) {
+            return pointCount;
+        }
+        if (mKeep.length < pointCount) {
+            mKeep = new boolean[pointCount];
+            mStack = new int[pointCount * 2];
+        }
+        Arrays.fill(mKeep, 0, pointCount, false);
+        mKeep[0] = true;
+        mKeep[pointCount - 1] = true;
+
+        float toleranceSquared = tolerance * tolerance;
+        int top = 0;
+        mStack[top++] = 0;
+        mStack[top++] = pointCount - 1;
+        while (top > 0) {
+            int last = mStack[--top];
+            int first = mStack[--top];
+
+            int farthest = -1;
+            float farthestDistance = toleranceSquared;
+            for (int i = first + 1; i < last; i++) {
+                float distance = segmentDistanceSquared(points, i, first, last);
+                if (distance > farthestDistance) {
+                    farthest = i;
+                    farthestDistance = distance;
+                }
+            }
+            if (farthest < 0) {
+                continue;
+            }
+            // Ranges never overlap, so there are never more of them on the stack than points.
+            mKeep[farthest] = true;
+            if (farthest - first > 1) {
+                mStack[top++] = first;
+                mStack[top++] = farthest;
+            }
+            if (last - farthest > 1) {
+                mStack[top++] = farthest;
+                mStack[top++] = last;
+            }
+        }
+
+        int kept = 0;
+        for (int i = 0; i < pointCount; i++) {
+            if (mKeep[i]) {
+                points[kept * 2] = points[i * 2];
+                points[kept * 2 + 1] = points[i * 2 + 1];
+                kept++;
+            }
+        }
+        return kept;
+    }
+
+    /**
+     * Returns the squared distance of a point from the segment between two other points.
+     */
+    static float segmentDistanceSquared(float[] points, int point, int start, int end) {
+        float px = points[point * 2], py = points[point * 2 + 1];
+        float ax = points[start * 2], ay = points[start * 2 + 1];
+        float dx = points[end * 2] - ax, dy = points[end * 2 + 1] - ay;
+        float lengthSquared = dx * dx + dy * dy;
+        float t = 0;
+        if (lengthSquared > 0) {
+            t = Math.max(0, Math.min(1, ((px - ax) * dx + (py - ay) * dy) / lengthSquared));
+        }
+        float ex = ax + t * dx - px;
+        float ey = ay + t * dy - py;
+        return ex * ex + ey * ey;
+    }
+}
@@ -0,0 +1,335 @@
+package com.oskorep.lucas.drawingapp;
+
+import android.graphics.Paint;
+import android.graphics.Path;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Stores every stroke of a drawing in a handful of primitive arrays. All points live in one float
+ * array, each stroke is an offset into it, and each stroke's brush is an index into a table of
+ * distinct styles, so strokes drawn with the same brush share a single Paint.
+ * <p>
+ * Strokes past getStrokeCount() are undone strokes that can still be redone. Adding a new stroke
+ * discards them.
+ */
+class StrokeStore {
+
+    private static final int FORMAT_VERSION = 1;
+    // The number of Paint.Cap and Paint.Join values, BUTT, ROUND, SQUARE and MITER, ROUND, BEVEL.
+    private static final int CAP_COUNT = 3;
+    private static final int JOIN_COUNT = 3;
+
+    // Interleaved x, y pairs of every stroke, back to back.
+    private float[] mPoints = new float[1024];
+    // mOffsets[i] is the index in mPoints of stroke i's first x, mOffsets[i + 1] is its end.
+    private int[] mOffsets = new int[65];
+    private int[] mStrokeStyles = new int[64];
+    private int mStrokeCount;
+    private int mRedoCount;
+
+    private int[] mStyleColors = new int[8];
+    private float[] mStyleWidths = new float[8];
+    private int[] mStyleCaps = new int[8];
+    private int[] mStyleJoins = new int[8];
+    private boolean[] mStyleSmooth = new boolean[8];
+    private Paint[] mStylePaints = new Paint[8];
+    private int mStyleCount;
+
+    /**
+     * Adds a stroke, discarding any strokes that were undone.
+     *
+     * @param points     - Interleaved x, y pairs.
+     * @param pointCount - The number of points to copy from the array.
+     * @param paint      - The brush the stroke was drawn with.
+     * @param smooth     - Whether the points are joined with midpoint quadratic curves.
+     */
+    public void add(float[] points, int pointCount, Paint paint, boolean smooth) {
+        add(points, pointCount, paint.getColor(), paint.getStrokeWidth(), paint.getStrokeCap().ordinal(),
+                paint.getStrokeJoin().ordinal(), smooth);
+    }
+
+    /**
+     * Adds a stroke drawn with the brush described by its Paint properties, discarding any strokes
+     * that were undone.
+     *
+     * @param cap  - The ordinal of the Paint.Cap.
+     * @param join - The ordinal of the Paint.Join.
+     */
+    void add(float[] points, int pointCount, int color, float width, int cap, int join, boolean smooth) {
+        if (pointCount < 1) {
+            throw new IllegalArgumentException("A stroke needs at least one point, got " + pointCount);
+        }
+        mRedoCount = 0;
+        int style = findOrAddStyle(color, width, cap, join, smooth);
+        appendStroke(points, 0, pointCount, style);
+    }
+
+    /**
+     * Hides the last stroke, keeping it available to redo.
+     *
+     * @return - false if there was no stroke to undo.
+     */
+    public boolean undo() {
+        if (mStrokeCount == 0) {
+            return false;
+        }
+        mStrokeCount--;
+        mRedoCount++;
+        return true;
+    }
+
+    /**
+     * Restores the most recently undone stroke.
+     *
+     * @return - false if there was no stroke to redo.
+     */
+    public boolean redo() {
+        if (mRedoCount == 0) {
+            return false;
+        }
+        mStrokeCount++;
+        mRedoCount--;
+        return true;
+    }
+
+    /**
+     * Discards the strokes that could be redone.
+     */
+    public void clearRedo() {
+        mRedoCount = 0;
+    }
+
+    /**
+     * Removes every stroke. The style table is kept since brushes are usually reused.
+     */
+    public void clear() {
+        mStrokeCount = 0;
+        mRedoCount = 0;
+    }
+
+    public int getStrokeCount() {
+        return mStrokeCount;
+    }
+
+    /**
+     * Returns the number of distinct brushes the strokes were drawn with.
+     */
+    int getStyleCount() {
+        return mStyleCount;
+    }
+
+    /**
+     * Returns the index of a stroke's brush, strokes drawn with the same brush share it.
+     */
+    int getStyle(int stroke) {
+        return mStrokeStyles[stroke];
+    }
+
+    public int getPointCount(int stroke) {
+        return (mOffsets[stroke + 1] - mOffsets[stroke]) / 2;
+    }
+
+    /**
+     * Returns the shared point array. Stroke i occupies indices getOffset(i) up to getOffset(i + 1).
+     */
+    public float[] getPoints() {
+        return mPoints;
+    }
+
+    public int getOffset(int stroke) {
+        return mOffsets[stroke];
+    }
+
+    /**
+     * Returns the Paint shared by every stroke drawn with the same style as this stroke.
+     */
+    public Paint getPaint(int stroke) {
+        int style = mStrokeStyles[stroke];
+        Paint paint = mStylePaints[style];
+        if (paint == null) {
+            paint = new Paint();
+            paint.setColor(mStyleColors[style]);
+            paint.setAntiAlias(true);
+            paint.setStrokeWidth(mStyleWidths[style]);
+            paint.setStyle(Paint.Style.STROKE);
+            paint.setStrokeCap(Paint.Cap.values()[mStyleCaps[style]]);
+            paint.setStrokeJoin(Paint.Join.values()[mStyleJoins[style]]);
+            mStylePaints[style] = paint;
+        }
+        return paint;
+    }
+
+    /**
+     * Rebuilds a stroke's outline into the given Path, replacing its contents.
+     *
+     * @param stroke - The index of the stroke.
+     * @param path   - The Path to fill, reused between calls.
+     */
+    public void buildPath(int stroke, Path path) {
+        path.reset();
+        int start = mOffsets[stroke];
+        int end = mOffsets[stroke + 1];
+        float[] p = mPoints;
+        path.moveTo(p[start], p[start + 1]);
+        if (mStyleSmooth[mStrokeStyles[stroke]]) {
+            for (int i = start + 2; i < end; i += 2) {
+                path.quadTo(p[i - 2], p[i - 1], (p[i - 2] + p[i]) / 2, (p[i - 1] + p[i + 1]) / 2);
+            }
+            if (end - start >= 4) {
+                path.lineTo(p[end - 2], p[end - 1]);
+            }
+        } else {
+            for (int i = start + 2; i < end; i += 2) {
+                path.lineTo(p[i], p[i + 1]);
+            }
+        }
+        if (end - start == 2) {
+            // A tap, the round cap of a zero length line draws the dot.
+            path.lineTo(p[start], p[start + 1]);
+        }
+    }
+
+    /**
+     * Serializes the visible strokes and their styles, for saving or sending to another device.
+     *
+     * @return - The encoded strokes.
+     */
+    public byte[] toByteArray() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(FORMAT_VERSION);
+        out.writeInt(mStyleCount);
+        for (int s = 0; s < mStyleCount; s++) {
+            out.writeInt(mStyleColors[s]);
+            out.writeFloat(mStyleWidths[s]);
+            out.writeByte(mStyleCaps[s]);
+            out.writeByte(mStyleJoins[s]);
+            out.writeBoolean(mStyleSmooth[s]);
+        }
+        out.writeInt(mStrokeCount);
+        for (int i = 0; i < mStrokeCount; i++) {
+            out.writeInt(mStrokeStyles[i]);
+            out.writeInt(mOffsets[i + 1] - mOffsets[i]);
+            for (int j = mOffsets[i]; j < mOffsets[i + 1]; j++) {
+                out.writeFloat(mPoints[j]);
+            }
+        }
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Replaces the contents of this store with strokes encoded by toByteArray. If the data is
+     * malformed the store is left empty.
+     *
+     * @param data - The encoded strokes.
+     * @throws IOException - If the data is truncated or not a valid encoding.
+     */
+    public void readFrom(byte[] data) throws IOException {
+        clear();
+        mStyleCount = 0;
+        try {
+            read(new DataInputStream(new ByteArrayInputStream(data)));
+        } catch (IOException e) {
+            clear();
+            mStyleCount = 0;
+            throw e;
+        }
+    }
+
+    private void read(DataInputStream in) throws IOException {
+        int version = in.readInt();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported stroke format version " + version);
+        }
+        int styleCount = in.readInt();
+        if (styleCount < 0) {
+            throw new IOException("Invalid style count " + styleCount);
+        }
+        for (int s = 0; s < styleCount; s++) {
+            int color = in.readInt();
+            float width = in.readFloat();
+            int cap = in.readByte();
+            int join = in.readByte();
+            boolean smooth = in.readBoolean();
+            if (cap < 0 || cap >= CAP_COUNT || join < 0 || join >= JOIN_COUNT) {
+                throw new IOException("Invalid cap " + cap + " or join " + join + " of style " + s);
+            }
+            addStyle(color, width, cap, join, smooth);
+        }
+        int strokeCount = in.readInt();
+        if (strokeCount < 0) {
+            throw new IOException("Invalid stroke count " + strokeCount);
+        }
+        float[] points = new float[64];
+        for (int i = 0; i < strokeCount; i++) {
+            int style = in.readInt();
+            int length = in.readInt();
+            if (style < 0 || style >= mStyleCount) {
+                throw new IOException("Stroke " + i + " has style " + style + " of " + mStyleCount);
+            }
+            // Every point is two floats, and a stroke has at least one.
+            if (length < 2 || length % 2 != 0 || length > in.available() / 4) {
+                throw new IOException("Stroke " + i + " has an invalid length of " + length + " floats");
+            }
+            if (length > points.length) {
+                points = new float[length];
+            }
+            for (int j = 0; j < length; j++) {
+                points[j] = in.readFloat();
+            }
+            appendStroke(points, 0, length / 2, style);
+        }
+    }
+
+    private void appendStroke(float[] points, int offset, int pointCount, int style) {
+        int length = pointCount * 2;
+        int start = mOffsets[mStrokeCount];
+        if (start + length > mPoints.length) {
+            mPoints = Arrays.copyOf(mPoints, Math.max(mPoints.length * 2, start + length));
+        }
+        if (mStrokeCount + 1 >= mStrokeStyles.length) {
+            mStrokeStyles = Arrays.copyOf(mStrokeStyles, mStrokeStyles.length * 2);
+            mOffsets = Arrays.copyOf(mOffsets, mStrokeStyles.length + 1);
+        }
+        System.arraycopy(points, offset, mPoints, start, length);
+        mStrokeStyles[mStrokeCount] = style;
+        mOffsets[mStrokeCount + 1] = start + length;
+        mStrokeCount++;
+    }
+
+    private int findOrAddStyle(int color, float width, int cap, int join, boolean smooth) {
+        for (int s = 0; s < mStyleCount; s++) {
+            if (mStyleColors[s] == color && mStyleWidths[s] == width && mStyleCaps[s] == cap
+                    && mStyleJoins[s] == join && mStyleSmooth[s] == smooth) {
+                return s;
+            }
+        }
+        return addStyle(color, width, cap, join, smooth);
+    }
+
+    private int addStyle(int color, float width, int cap, int join, boolean smooth) {
+        if (mStyleCount == mStyleColors.length) {
+            int capacity = mStyleCount * 2;
+            mStyleColors = Arrays.copyOf(mStyleColors, capacity);
+            mStyleWidths = Arrays.copyOf(mStyleWidths, capacity);
+            mStyleCaps = Arrays.copyOf(mStyleCaps, capacity);
+            mStyleJoins = Arrays.copyOf(mStyleJoins, capacity);
+            mStyleSmooth = Arrays.copyOf(mStyleSmooth, capacity);
+            mStylePaints = Arrays.copyOf(mStylePaints, capacity);
+        }
+        mStyleColors[mStyleCount] = color;
+        mStyleWidths[mStyleCount] = width;
+        mStyleCaps[mStyleCount] = cap;
+        mStyleJoins[mStyleCount] = join;
+        mStyleSmooth[mStyleCount] = smooth;
+        mStylePaints[mStyleCount] = null;
+        return mStyleCount++;
+    }
+}
@@ -0,0 +1,359 @@
+package com.oskorep.lucas.drawingapp;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.graphics.Rect;
+import android.graphics.RectF;
+
+import java.util.List;
+
+/**
+ * A drawing surface split into fixed size tiles. Tiles are only allocated once something is drawn
+ * into them, and each tile remembers whether it changed since its dirty flag was last cleared.
+ * <p>
+ * Snapshots share tile bitmaps with the surface instead of copying them. A shared tile is copied
+ * the first time it is drawn into again, so a snapshot only ever costs the tiles that changed
+ * after it was taken.
+ */
+class TiledSurface {
+
+    public static final int TILE_SIZE = 256;
+
+    private final int mWidth, mHeight;
+    private final int mColumns, mRows;
+    private final Tile[] mTiles;
+
+    private final RectF mBounds = new RectF();
+    private final Rect mTileRect = new Rect();
+
+    /**
+     * A single TILE_SIZE x TILE_SIZE region of the surface and its backing bitmap.
+     */
+    static class Tile {
+        final int left, top;
+        final Bitmap bitmap;
+        final Canvas canvas;
+        boolean dirty;
+        // Set once the bitmap is referenced from outside the surface, it must be copied before writing.
+        boolean shared;
+
+        Tile(int left, int top) {
+            this(left, top, Bitmap.createBitmap(TILE_SIZE, TILE_SIZE, Bitmap.Config.ARGB_8888));
+        }
+
+        Tile(int left, int top, Bitmap bitmap) {
+            this.left = left;
+            this.top = top;
+            this.bitmap = bitmap;
+            canvas = new Canvas(bitmap);
+            // Draw calls use surface coordinates, so shift them into this tile.
+            canvas.translate(-left, -top);
+        }
+    }
+
+    /**
+     * The allocated tiles of a surface at some point in time. The tile bitmaps may be shared with
+     * the surface and with other snapshots, so they must never be modified or recycled.
+     */
+    static class Snapshot {
+        private final Bitmap[] tiles;
+        private final long bytes;
+
+        Snapshot(Bitmap[] tiles) {
+            long bytes = 0;
+            for (Bitmap tile : tiles) {
+                if (tile != null) {
+                    bytes += tile.getByteCount();
+                }
+            }
+            this.tiles = tiles;
+            this.bytes = bytes;
+        }
+
+        public int getTileCount() {
+            return tiles.length;
+        }
+
+        /**
+         * Returns the copy of the tile at the index, or null if that tile was never drawn into.
+         */
+        public Bitmap getTile(int index) {
+            return tiles[index];
+        }
+
+        /**
+         * Returns the memory referenced by the snapshot's tiles, some of which may be shared.
+         */
+        public long getByteCount() {
+            return bytes;
+        }
+    }
+
+    /**
+     * Creates an empty surface. No tile memory is allocated until the first draw.
+     *
+     * @param width  - The width of the surface in pixels.
+     * @param height - The height of the surface in pixels.
+     */
+    public TiledSurface(int width, int height) {
+        mWidth = width;
+        mHeight = height;
+        mColumns = (width + TILE_SIZE - 1) / TILE_SIZE;
+        mRows = (height + TILE_SIZE - 1) / TILE_SIZE;
+        mTiles = new Tile[mColumns * mRows];
+    }
+
+    public int getWidth() {
+        return mWidth;
+    }
+
+    public int getHeight() {
+        return mHeight;
+    }
+
+    public int getTileCount() {
+        return mTiles.length;
+    }
+
+    /**
+     * Draws a stroke into every tile its bounds touch, allocating those tiles if needed.
+     *
+     * @param path  - The stroke to rasterize.
+     * @param paint - The paint the stroke is drawn with.
+     */
+    public void drawPath(Path path, Paint paint) {
+        path.computeBounds(mBounds, true);
+        float inset = paint.getStrokeWidth() / 2 + 1;
+        mBounds.inset(-inset, -inset);
+
+        int firstColumn = Math.max(0, (int) Math.floor(mBounds.left) / TILE_SIZE);
+        int lastColumn = Math.min(mColumns - 1, (int) Math.ceil(mBounds.right) / TILE_SIZE);
+        int firstRow = Math.max(0, (int) Math.floor(mBounds.top) / TILE_SIZE);
+        int lastRow = Math.min(mRows - 1, (int) Math.ceil(mBounds.bottom) / TILE_SIZE);
+
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                Tile tile = obtainWritableTile(column, row);
+                tile.canvas.drawPath(path, paint);
+                tile.dirty = true;
+            }
+        }
+    }
+
+    /**
+     * Draws a bitmap at the surface origin. Every tile the bitmap covers is allocated.
+     *
+     * @param bitmap - The bitmap to draw.
+     * @param paint  - The paint the bitmap is drawn with, may be null.
+     */
+    public void drawBitmap(Bitmap bitmap, Paint paint) {
+        int lastColumn = Math.min(mColumns, (bitmap.getWidth() + TILE_SIZE - 1) / TILE_SIZE);
+        int lastRow = Math.min(mRows, (bitmap.getHeight() + TILE_SIZE - 1) / TILE_SIZE);
+        for (int row = 0; row < lastRow; row++) {
+            for (int column = 0; column < lastColumn; column++) {
+                Tile tile = obtainWritableTile(column, row);
+                tile.canvas.drawBitmap(bitmap, 0, 0, paint);
+                tile.dirty = true;
+            }
+        }
+    }
+
+    /**
+     * Draws the allocated tiles that intersect the clip rectangle onto the canvas.
+     *
+     * @param canvas - The canvas to draw onto.
+     * @param clip   - The region of the surface that needs to be drawn.
+     * @param paint  - The paint the tiles are drawn with.
+     */
+    public void draw(Canvas canvas, Rect clip, Paint paint) {
+        int firstColumn = Math.max(0, clip.left / TILE_SIZE);
+        int lastColumn = Math.min(mColumns - 1, (clip.right - 1) / TILE_SIZE);
+        int firstRow = Math.max(0, clip.top / TILE_SIZE);
+        int lastRow = Math.min(mRows - 1, (clip.bottom - 1) / TILE_SIZE);
+
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                Tile tile = mTiles[row * mColumns + column];
+                if (tile != null) {
+                    canvas.drawBitmap(tile.bitmap, tile.left, tile.top, paint);
+                }
+            }
+        }
+    }
+
+    /**
+     * Flattens the surface into a single bitmap, for example to save or filter it.
+     *
+     * @return - A new bitmap the size of the surface.
+     */
+    public Bitmap toBitmap() {
+        Bitmap bitmap = Bitmap.createBitmap(mWidth, mHeight, Bitmap.Config.ARGB_8888);
+        mTileRect.set(0, 0, mWidth, mHeight);
+        draw(new Canvas(bitmap), mTileRect, null);
+        return bitmap;
+    }
+
+    /**
+     * Captures every allocated tile without copying it. Tiles are copied lazily once the surface
+     * draws into them again.
+     *
+     * @return - A snapshot that can later be passed to restore.
+     */
+    public Snapshot snapshot() {
+        Bitmap[] tiles = new Bitmap[mTiles.length];
+        for (int i = 0; i < mTiles.length; i++) {
+            if (mTiles[i] != null) {
+                mTiles[i].shared = true;
+                tiles[i] = mTiles[i].bitmap;
+            }
+        }
+        return new Snapshot(tiles);
+    }
+
+    /**
+     * Replaces the contents of the surface with a snapshot taken from a surface of the same size.
+     * The snapshot's tiles are shared rather than copied, so it can be restored again.
+     *
+     * @param snapshot - The snapshot to restore.
+     */
+    public void restore(Snapshot snapshot) {
+        clear();
+        for (int i = 0; i < mTiles.length; i++) {
+            if (snapshot.tiles[i] != null) {
+                swapTile(i, snapshot.tiles[i]);
+            }
+        }
+    }
+
+    /**
+     * Puts a bitmap in place of a tile, for example to undo or redo a filter, and returns the
+     * bitmap it replaced. The new bitmap is treated as shared.
+     *
+     * @param index  - The index of the tile, row by row.
+     * @param bitmap - A TILE_SIZE x TILE_SIZE mutable bitmap, or null to release the tile.
+     * @return - The previous bitmap of the tile, or null if it was not allocated.
+     */
+    public Bitmap swapTile(int index, Bitmap bitmap) {
+        Tile previous = mTiles[index];
+        if (bitmap == null) {
+            mTiles[index] = null;
+        } else {
+            Tile tile = new Tile((index % mColumns) * TILE_SIZE, (index / mColumns) * TILE_SIZE, bitmap);
+            tile.shared = true;
+            tile.dirty = true;
+            mTiles[index] = tile;
+        }
+        return previous == null ? null : previous.bitmap;
+    }
+
+    /**
+     * Replaces the content of the surface with a bitmap of the same size, such as a filtered copy of
+     * it. Only tiles whose pixels change are replaced; their previous bitmaps are handed back
+     * instead of being copied.
+     *
+     * @param source          - The new content of the surface.
+     * @param changedIndices  - Receives the indices of the replaced tiles, sized getTileCount().
+     * @param previousBitmaps - Receives the replaced bitmaps, null where a tile was not allocated.
+     * @return - The number of tiles replaced.
+     */
+    public int replaceChangedTiles(Bitmap source, int[] changedIndices, Bitmap[] previousBitmaps) {
+        int changed = 0;
+        for (int i = 0; i < mTiles.length; i++) {
+            Tile tile = new Tile((i % mColumns) * TILE_SIZE, (i / mColumns) * TILE_SIZE);
+            tile.canvas.drawBitmap(source, 0, 0, null);
+            Tile previous = mTiles[i];
+            if (previous != null && previous.bitmap.sameAs(tile.bitmap)) {
+                tile.bitmap.recycle();
+                continue;
+            }
+            tile.dirty = true;
+            mTiles[i] = tile;
+            changedIndices[changed] = i;
+            previousBitmaps[changed] = previous == null ? null : previous.bitmap;
+            changed++;
+        }
+        return changed;
+    }
+
+    /**
+     * Returns true if the tile at the index is backed by the very bitmap, e.g. one shared with a
+     * snapshot that was not copied yet.
+     *
+     * @param index  - The index of the tile, row by row.
+     * @param bitmap - The bitmap to look for.
+     */
+    public boolean holdsTile(int index, Bitmap bitmap) {
+        return index < mTiles.length && mTiles[index] != null && mTiles[index].bitmap == bitmap;
+    }
+
+    /**
+     * Adds every tile that changed since the dirty flags were last cleared to the list.
+     *
+     * @param out - The list receiving the dirty tiles.
+     */
+    public void getDirtyTiles(List<Tile> out) {
+        for (Tile tile : mTiles) {
+            if (tile != null && tile.dirty) {
+                out.add(tile);
+            }
+        }
+    }
+
+    /**
+     * Marks every tile as clean.
+     */
+    public void clearDirty() {
+        for (Tile tile : mTiles) {
+            if (tile != null) {
+                tile.dirty = false;
+            }
+        }
+    }
+
+    /**
+     * Releases every tile, leaving an empty surface. Shared tiles are left to their other owners.
+     */
+    public void clear() {
+        for (int i = 0; i < mTiles.length; i++) {
+            if (mTiles[i] != null) {
+                if (!mTiles[i].shared) {
+                    mTiles[i].bitmap.recycle();
+                }
+                mTiles[i] = null;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of tiles currently holding memory.
+     *
+     * @return - The number of allocated tiles.
+     */
+    public int getAllocatedTileCount() {
+        int count = 0;
+        for (Tile tile : mTiles) {
+            if (tile != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns a tile that may be drawn into, allocating it if needed and copying it if it is shared.
+     */
+    private Tile obtainWritableTile(int column, int row) {
+        int index = row * mColumns + column;
+        Tile tile = mTiles[index];
+        if (tile == null) {
+            tile = new Tile(column * TILE_SIZE, row * TILE_SIZE);
+            mTiles[index] = tile;
+        } else if (tile.shared) {
+            tile = new Tile(tile.left, tile.top, tile.bitmap.copy(Bitmap.Config.ARGB_8888, true));
+            mTiles[index] = tile;
+        }
+        return tile;
+    }
+}
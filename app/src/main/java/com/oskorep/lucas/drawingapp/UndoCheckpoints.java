@@ -0,0 +1,364 @@
+package com.oskorep.lucas.drawingapp;
+
+import android.graphics.Bitmap;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+
+/**
+ * Keeps raster snapshots of the committed layer every few strokes, so undo can restore the nearest
+ * snapshot and replay only the strokes drawn after it instead of the whole history. The memory
+ * held by snapshots is capped by a byte budget. Once it is exceeded the oldest snapshots are
+ * compressed into a spill file and paged back in when an undo reaches them; without a spill file
+ * they are dropped instead.
+ * <p>
+ * Checkpoints are keyed by the number of strokes and the number of applied filters, see
+ * FilterHistory.
+ * <p>
+ * Snapshots share tiles with the surface and with each other, see TiledSurface. Only the memory
+ * the checkpoints alone keep alive counts against the budget: each tile once, and none that the
+ * surface still holds.
+ */
+class UndoCheckpoints {
+
+    private static final String TAG = "UndoCheckpoints";
+
+    public static final int DEFAULT_INTERVAL = 25;
+    public static final long DEFAULT_BYTE_BUDGET = 32 * 1024 * 1024;
+
+    private static final long EMPTY_TILE = -1;
+
+    private static class Checkpoint {
+        final int strokeCount;
+        final int filterCount;
+        // Taken after a filter, so undoing past it never runs the filter again. Kept in memory
+        // when it can't be spilled.
+        final boolean pinned;
+        // The tiles in memory, null while the checkpoint only lives in the spill file.
+        TiledSurface.Snapshot snapshot;
+        // Spill file handles of the tiles, null until the checkpoint is first spilled.
+        long[] spilled;
+
+        Checkpoint(int strokeCount, int filterCount, TiledSurface.Snapshot snapshot, boolean pinned) {
+            this.strokeCount = strokeCount;
+            this.filterCount = filterCount;
+            this.snapshot = snapshot;
+            this.pinned = pinned;
+        }
+    }
+
+    // Ordered by position, oldest first.
+    private ArrayList<Checkpoint> mCheckpoints = new ArrayList<Checkpoint>();
+    private int mInterval = DEFAULT_INTERVAL;
+    private long mByteBudget = DEFAULT_BYTE_BUDGET;
+    // The surface of the last add or restore, whose tiles don't count as resident.
+    private TiledSurface mSurface;
+
+    private HistorySpillFile mSpillFile;
+    private long mLastPageInMillis;
+
+    /**
+     * Creates checkpoints that are dropped once they exceed the byte budget.
+     */
+    public UndoCheckpoints() {
+    }
+
+    /**
+     * Creates checkpoints that spill to the given cache file once they exceed the byte budget.
+     *
+     * @param spillFile - The file to spill to, usually in the app's cache directory.
+     */
+    public UndoCheckpoints(File spillFile) {
+        mSpillFile = new HistorySpillFile(spillFile);
+    }
+
+    /**
+     * Sets how many strokes are drawn between two checkpoints. This bounds the number of strokes
+     * an undo has to replay.
+     *
+     * @param interval - The number of strokes between checkpoints.
+     */
+    public void setInterval(int interval) {
+        if (interval < 1) {
+            throw new IllegalArgumentException(String.format("the interval must be positive, but was %d", interval));
+        }
+        mInterval = interval;
+    }
+
+    /**
+     * Sets the maximum memory checkpoints may hold, spilling or dropping the oldest ones if it is
+     * exceeded.
+     *
+     * @param bytes - The budget in bytes.
+     */
+    public void setByteBudget(long bytes) {
+        mByteBudget = bytes;
+        trim();
+    }
+
+    /**
+     * Returns the memory held only by checkpoints that are currently in memory. Tiles shared by
+     * several checkpoints count once, tiles the surface still holds don't count.
+     */
+    public long getResidentBytes() {
+        IdentityHashMap<Bitmap, Boolean> counted = new IdentityHashMap<Bitmap, Boolean>();
+        long bytes = 0;
+        for (Checkpoint checkpoint : mCheckpoints) {
+            if (checkpoint.snapshot == null) {
+                continue;
+            }
+            for (int i = 0; i < checkpoint.snapshot.getTileCount(); i++) {
+                Bitmap tile = checkpoint.snapshot.getTile(i);
+                if (tile == null || (mSurface != null && mSurface.holdsTile(i, tile))) {
+                    continue;
+                }
+                if (counted.put(tile, Boolean.TRUE) == null) {
+                    bytes += tile.getByteCount();
+                }
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Returns the bytes of spilled tiles that checkpoints still refer to.
+     */
+    public long getSpilledBytes() {
+        return mSpillFile == null ? 0 : mSpillFile.getLiveBytes();
+    }
+
+    /**
+     * Returns the size of the spill file on disk, including holes left by dropped checkpoints.
+     */
+    public long getSpillFileBytes() {
+        return mSpillFile == null ? 0 : mSpillFile.getLength();
+    }
+
+    /**
+     * Returns how long the last checkpoint paged in from the spill file took to load.
+     */
+    public long getLastPageInMillis() {
+        return mLastPageInMillis;
+    }
+
+    public int getCheckpointCount() {
+        return mCheckpoints.size();
+    }
+
+    /**
+     * Called after a stroke has been committed to the surface. Takes a checkpoint once every
+     * interval strokes. Either way the tiles the stroke copied are now held by the checkpoints
+     * alone, so the budget is checked again.
+     *
+     * @param strokeCount - The number of strokes now on the surface.
+     * @param filterCount - The number of filters applied to the surface.
+     * @param surface     - The surface holding those strokes.
+     */
+    public void onStrokeCommitted(int strokeCount, int filterCount, TiledSurface surface) {
+        if (strokeCount % mInterval == 0) {
+            add(strokeCount, filterCount, surface);
+        } else {
+            mSurface = surface;
+            trim();
+        }
+    }
+
+    /**
+     * Takes a checkpoint of the surface right away, replacing any at the same position.
+     *
+     * @param strokeCount - The number of strokes on the surface.
+     * @param filterCount - The number of filters applied to the surface.
+     * @param surface     - The surface to capture.
+     */
+    public void add(int strokeCount, int filterCount, TiledSurface surface) {
+        discardAfter(strokeCount, filterCount);
+        int last = mCheckpoints.size() - 1;
+        if (last >= 0 && mCheckpoints.get(last).strokeCount == strokeCount
+                && mCheckpoints.get(last).filterCount == filterCount) {
+            drop(last);
+        }
+        mCheckpoints.add(new Checkpoint(strokeCount, filterCount, surface.snapshot(), false));
+        mSurface = surface;
+        trim();
+    }
+
+    /**
+     * Takes a checkpoint of the surface a filter was just applied to, or replayed on. It is never
+     * dropped to make room, only spilled, so strokes drawn after the filter are undone without
+     * running the filter again. Checkpoints of later positions are kept.
+     *
+     * @param strokeCount - The number of strokes on the surface.
+     * @param filterCount - The number of filters applied to the surface, including this one.
+     * @param surface     - The surface to capture.
+     */
+    public void addAfterFilter(int strokeCount, int filterCount, TiledSurface surface) {
+        int index = mCheckpoints.size();
+        while (index > 0 && (mCheckpoints.get(index - 1).strokeCount > strokeCount
+                || mCheckpoints.get(index - 1).filterCount > filterCount)) {
+            index--;
+        }
+        if (index > 0 && mCheckpoints.get(index - 1).strokeCount == strokeCount
+                && mCheckpoints.get(index - 1).filterCount == filterCount) {
+            drop(--index);
+        }
+        mCheckpoints.add(index, new Checkpoint(strokeCount, filterCount, surface.snapshot(), true));
+        mSurface = surface;
+        trim();
+    }
+
+    /**
+     * Restores the newest checkpoint on the way to the given position, paging it in from the spill
+     * file if needed.
+     *
+     * @param strokeCount - The number of strokes that should be visible.
+     * @param filterCount - The number of filters that should be applied.
+     * @param filters     - The filter history the positions refer to.
+     * @param surface     - The surface to restore into.
+     * @return - The index of the restored checkpoint, or -1 if there was none and the surface was
+     * left untouched.
+     */
+    public int restore(int strokeCount, int filterCount, FilterHistory filters, TiledSurface surface) {
+        for (int i = mCheckpoints.size() - 1; i >= 0; i--) {
+            Checkpoint checkpoint = mCheckpoints.get(i);
+            if (!filters.isOnPath(checkpoint.strokeCount, checkpoint.filterCount, strokeCount, filterCount)) {
+                continue;
+            }
+            if (checkpoint.snapshot == null && !pageIn(checkpoint)) {
+                drop(i);
+                continue;
+            }
+            surface.restore(checkpoint.snapshot);
+            mSurface = surface;
+            trim();
+            return mCheckpoints.indexOf(checkpoint);
+        }
+        return -1;
+    }
+
+    public int getStrokeCount(int index) {
+        return mCheckpoints.get(index).strokeCount;
+    }
+
+    public int getFilterCount(int index) {
+        return mCheckpoints.get(index).filterCount;
+    }
+
+    /**
+     * Drops checkpoints of positions that can no longer be reached, for example once the redo
+     * history is discarded.
+     *
+     * @param strokeCount - The number of strokes that remain.
+     * @param filterCount - The number of filters that remain.
+     */
+    public void discardAfter(int strokeCount, int filterCount) {
+        for (int i = mCheckpoints.size() - 1; i >= 0; i--) {
+            Checkpoint checkpoint = mCheckpoints.get(i);
+            if (checkpoint.strokeCount > strokeCount || checkpoint.filterCount > filterCount) {
+                drop(i);
+            }
+        }
+    }
+
+    /**
+     * Drops every checkpoint and deletes the spill file.
+     */
+    public void clear() {
+        for (int i = mCheckpoints.size() - 1; i >= 0; i--) {
+            drop(i);
+        }
+        mSurface = null;
+        if (mSpillFile != null) {
+            mSpillFile.clear();
+        }
+    }
+
+    /**
+     * Moves the oldest checkpoints out of memory until the resident bytes fit the budget. Pinned
+     * checkpoints that can't be spilled stay in memory, over the budget if need be.
+     */
+    private void trim() {
+        for (int i = 0; i < mCheckpoints.size() && getResidentBytes() > mByteBudget; ) {
+            Checkpoint checkpoint = mCheckpoints.get(i);
+            if (checkpoint.snapshot == null) {
+                i++;
+            } else if (spill(checkpoint) || checkpoint.pinned) {
+                i++;
+            } else {
+                drop(i);
+            }
+        }
+    }
+
+    /**
+     * Writes a checkpoint's tiles to the spill file, unless it was spilled before, and frees them.
+     *
+     * @return - false if there is no spill file or writing failed.
+     */
+    private boolean spill(Checkpoint checkpoint) {
+        if (mSpillFile == null) {
+            return false;
+        }
+        TiledSurface.Snapshot snapshot = checkpoint.snapshot;
+        if (checkpoint.spilled == null) {
+            long[] handles = new long[snapshot.getTileCount()];
+            int written = 0;
+            try {
+                for (; written < handles.length; written++) {
+                    Bitmap tile = snapshot.getTile(written);
+                    handles[written] = tile == null ? EMPTY_TILE : mSpillFile.write(tile);
+                }
+            } catch (IOException e) {
+                Log.e(TAG, "Could not spill undo checkpoint: " + e.getMessage());
+                for (int i = 0; i < written; i++) {
+                    if (handles[i] != EMPTY_TILE) {
+                        mSpillFile.release(handles[i]);
+                    }
+                }
+                return false;
+            }
+            checkpoint.spilled = handles;
+        }
+        checkpoint.snapshot = null;
+        return true;
+    }
+
+    /**
+     * Reads a spilled checkpoint's tiles back into memory.
+     *
+     * @return - false if reading failed.
+     */
+    private boolean pageIn(Checkpoint checkpoint) {
+        long start = SystemClock.elapsedRealtime();
+        Bitmap[] tiles = new Bitmap[checkpoint.spilled.length];
+        try {
+            for (int i = 0; i < tiles.length; i++) {
+                if (checkpoint.spilled[i] != EMPTY_TILE) {
+                    tiles[i] = mSpillFile.read(checkpoint.spilled[i]);
+                }
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Could not page in undo checkpoint: " + e.getMessage());
+            return false;
+        }
+        checkpoint.snapshot = new TiledSurface.Snapshot(tiles);
+        mLastPageInMillis = SystemClock.elapsedRealtime() - start;
+        Log.d(TAG, "Paged in checkpoint at stroke " + checkpoint.strokeCount + " in " + mLastPageInMillis + "ms");
+        return true;
+    }
+
+    private void drop(int index) {
+        Checkpoint checkpoint = mCheckpoints.remove(index);
+        if (checkpoint.spilled != null) {
+            // Tiles no other checkpoint shares become space for later spills.
+            for (long handle : checkpoint.spilled) {
+                if (handle != EMPTY_TILE) {
+                    mSpillFile.release(handle);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.oskorep.lucas.drawingapp;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import cn.Ragnarok.JavaFilterFunc;
+
+import static org.junit.Assert.assertArrayEquals;
+
+/**
+ * Checks the running sum average blur, on the development machine (host), against the full
+ * window sums the filter used to compute for every pixel.
+ */
+public class AverageSmoothTest {
+
+    private static final int WIDTH = 73;
+    private static final int HEIGHT = 41;
+
+    @Test
+    public void matchesFullWindowSums() throws Exception {
+        Random random = new Random(11);
+        int[] source = new int[WIDTH * HEIGHT];
+        for (int i = 0; i < source.length; i++) {
+            source[i] = random.nextInt();
+        }
+        for (int maskSize = 1; maskSize <= HEIGHT + 1; maskSize++) {
+            int[] expected = Arrays.copyOf(source, source.length);
+            fullWindowSmooth(expected, WIDTH, HEIGHT, maskSize);
+            int[] actual = Arrays.copyOf(source, source.length);
+            JavaFilterFunc.averageSmooth(actual, WIDTH, HEIGHT, maskSize);
+            assertArrayEquals("maskSize " + maskSize, expected, actual);
+        }
+    }
+
+    /**
+     * The former AverageSmoothFilter.cpp, with the window of an even mask one pixel shorter
+     * below and right of the center.
+     */
+    private static void fullWindowSmooth(int[] pixels, int width, int height, int maskSize) {
+        int div = maskSize * maskSize;
+        int before = maskSize / 2;
+        int after = (maskSize - 1) / 2;
+        for (int row = before; row < height - after; row++) {
+            for (int col = before; col < width - after; col++) {
+                int sumR = 0, sumG = 0, sumB = 0;
+                for (int m = -before; m <= after; m++) {
+                    for (int n = -before; n <= after; n++) {
+                        int color = pixels[(row + m) * width + col + n];
+                        sumR += (color >> 16) & 0xFF;
+                        sumG += (color >> 8) & 0xFF;
+                        sumB += color & 0xFF;
+                    }
+                }
+                pixels[row * width + col] = 0xFF000000 | (sumR / div) << 16 | (sumG / div) << 8 | sumB / div;
+            }
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.oskorep.lucas.drawingapp;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import cn.Ragnarok.BandExecutor;
+import cn.Ragnarok.BlockFilter;
+import cn.Ragnarok.Filter;
+import cn.Ragnarok.GaussianBlurFilter;
+import cn.Ragnarok.GothamFilter;
+import cn.Ragnarok.HDRFilter;
+import cn.Ragnarok.MotionBlurFilter;
+import cn.Ragnarok.NeonFilter;
+import cn.Ragnarok.OilFilter;
+import cn.Ragnarok.PixelBuffer;
+import cn.Ragnarok.ReliefFilter;
+import cn.Ragnarok.SharpenFilter;
+import cn.Ragnarok.SketchFilter;
+import cn.Ragnarok.SoftGlowFilter;
+
+import static org.junit.Assert.assertArrayEquals;
+
+/**
+ * Filters images band by band with the pure Java engine on the development machine (host) and
+ * checks the result is exactly the one of filtering the whole image on one thread.
+ */
+public class BandExecutorTest {
+
+    private static final int WIDTH = 157;
+    private static final int HEIGHT = 331;
+    private static final int[] THREADS = {2, 3, 4, 7};
+
+    @Test
+    public void bandsMatchTheSerialResult() throws Exception {
+        Filter[] filters = {
+                new GaussianBlurFilter(1.2),
+                new GaussianBlurFilter(2.5),
+                new GaussianBlurFilter(4.0, true),
+                new SoftGlowFilter(0.6),
+                new OilFilter(2),
+                new OilFilter(5),
+                new SharpenFilter(),
+                new SketchFilter(),
+                new NeonFilter(200, 50, 100),
+                new HDRFilter(),
+                new MotionBlurFilter(5, 1),
+                new MotionBlurFilter(-3, 2),
+                new MotionBlurFilter(2, -4),
+                new BlockFilter(),
+                new GothamFilter(),
+                // not a BandFilter, so it has to run on the calling thread
+                new ReliefFilter(),
+        };
+        int[] source = createImage();
+        for (Filter filter : filters) {
+            PixelBuffer serial = new PixelBuffer(Arrays.copyOf(source, source.length), WIDTH, HEIGHT);
+            filter.apply(serial);
+            for (int threads : THREADS) {
+                BandExecutor executor = new BandExecutor(threads);
+                PixelBuffer banded = new PixelBuffer(Arrays.copyOf(source, source.length), WIDTH, HEIGHT);
+                executor.apply(banded, filter);
+                executor.shutdown();
+                assertArrayEquals(filter.getClass().getSimpleName() + " on " + threads + " threads",
+                        serial.getPixels(), banded.getPixels());
+            }
+        }
+    }
+
+    /**
+     * Smooth gradients with noise and a few hard edged boxes, so every filter has work to do.
+     */
+    private static int[] createImage() {
+        Random random = new Random(3);
+        int[] pixels = new int[WIDTH * HEIGHT];
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                int r = Math.min(255, x + random.nextInt(40));
+                int g = Math.min(255, y * 255 / HEIGHT + random.nextInt(40));
+                int b = (x * y) % 255;
+                if ((x / 20 + y / 30) % 5 == 0) {
+                    r = g = b = 250;
+                }
+                pixels[y * WIDTH + x] = 0xFF000000 | r << 16 | g << 8 | b;
+            }
+        }
+        return pixels;
+    }
+}
@@ -0,0 +1,156 @@
+package com.oskorep.lucas.drawingapp;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Random;
+
+import cn.Ragnarok.BitmapFilter;
+import cn.Ragnarok.ColorCubeFilter;
+import cn.Ragnarok.ColorMatrixFilter;
+import cn.Ragnarok.Filter;
+import cn.Ragnarok.GothamFilter;
+import cn.Ragnarok.PixelBuffer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks the 3D color lookup tables on the development machine (host): baked cubes against the
+ * filters they were baked from, and reading and writing .cube files.
+ */
+public class ColorCubeFilterTest {
+
+    private static final int SIZE = 100000;
+
+    @Test
+    public void gridColorsAreExact() throws Exception {
+        Filter look = new GothamFilter();
+        ColorCubeFilter cube = ColorCubeFilter.bake(look, 18);
+        // 18 grid colors on an axis are every 15th channel value.
+        int[] pixels = new int[18 * 18 * 18];
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = 0xFF000000 | (i % 18 * 15) << 16 | (i / 18 % 18 * 15) << 8 | (i / 324 * 15);
+        }
+        int[] expected = run(look, pixels);
+        cube.apply(pixels, pixels.length);
+        assertArrayEquals(expected, pixels);
+    }
+
+    @Test
+    public void linearLooksInterpolateExactly() throws Exception {
+        // Tetrahedral interpolation reproduces an affine map, only the baked grid is rounded.
+        Filter look = ColorMatrixFilter.saturation(0.4f).then(ColorMatrixFilter.scale(0.9f, 0.8f, 0.7f, 1));
+        int[] source = randomPixels(1);
+        int[] expected = run(look, source);
+        int[] actual = Arrays.copyOf(source, SIZE);
+        ColorCubeFilter.bake(look).apply(actual, SIZE);
+        assertTrue(maxDifference(expected, actual) <= 1);
+    }
+
+    @Test
+    public void gothamPresetIsCloseToTheChain() throws Exception {
+        int[] source = randomPixels(2);
+        int[] expected = run(new GothamFilter(), source);
+        int[] actual = Arrays.copyOf(source, SIZE);
+        ColorCubeFilter.preset(BitmapFilter.GOTHAM_STYLE).apply(actual, SIZE);
+        // The chain clamps and drops colors out of range, so the cube is only close near those.
+        assertTrue(maxDifference(expected, actual) <= 6);
+        assertTrue(meanDifference(expected, actual) < 0.5);
+        assertTrue(ColorCubeFilter.preset(BitmapFilter.GOTHAM_STYLE) == ColorCubeFilter.preset(BitmapFilter.GOTHAM_STYLE));
+    }
+
+    @Test
+    public void cubeFilesRoundTrip() throws Exception {
+        ColorCubeFilter cube = ColorCubeFilter.preset(BitmapFilter.OLD_STYLE);
+        StringWriter writer = new StringWriter();
+        cube.toCube(writer, "old");
+        ColorCubeFilter loaded = ColorCubeFilter.fromCube(new StringReader(writer.toString()));
+        assertEquals(cube.getSize(), loaded.getSize());
+
+        // The loaded grid sits at the exact i / (size - 1) colors, the baked one at whole
+        // channel values, so the two can differ by the slope of a rounding step.
+        int[] source = randomPixels(3);
+        int[] expected = Arrays.copyOf(source, SIZE);
+        cube.apply(expected, SIZE);
+        int[] actual = Arrays.copyOf(source, SIZE);
+        loaded.apply(actual, SIZE);
+        assertTrue(maxDifference(expected, actual) <= 1);
+    }
+
+    @Test
+    public void identityCubeFile() throws Exception {
+        String file = "# corners only\n"
+                + "TITLE \"identity\"\n"
+                + "LUT_3D_SIZE 2\n"
+                + "DOMAIN_MIN 0 0 0\n"
+                + "DOMAIN_MAX 1 1 1\n"
+                + "0 0 0\n1 0 0\n0 1 0\n1 1 0\n"
+                + "0 0 1\n1 0 1\n0 1 1\n1 1 1\n";
+        ColorCubeFilter cube = ColorCubeFilter.fromCube(new StringReader(file));
+        int[] source = randomPixels(4);
+        int[] actual = Arrays.copyOf(source, SIZE);
+        cube.apply(actual, SIZE);
+        assertTrue(maxDifference(source, actual) <= 1);
+    }
+
+    @Test
+    public void malformedCubeFilesAreRejected() throws Exception {
+        String[] files = {
+                "0 0 0\n",
+                "LUT_3D_SIZE 2\n0 0 0\n",
+                "LUT_3D_SIZE 1\n",
+                "LUT_1D_SIZE 256\n",
+                "LUT_3D_SIZE 2\nDOMAIN_MAX 2 2 2\n",
+                "LUT_3D_SIZE 2\n0 0\n",
+        };
+        for (String file : files) {
+            try {
+                ColorCubeFilter.fromCube(new StringReader(file));
+                fail("accepted " + file);
+            } catch (IOException e) {
+                // expected
+            }
+        }
+    }
+
+    private static int[] run(Filter filter, int[] source) {
+        PixelBuffer buffer = new PixelBuffer(Arrays.copyOf(source, source.length), source.length, 1);
+        filter.apply(buffer);
+        return buffer.getPixels();
+    }
+
+    private static int[] randomPixels(long seed) {
+        Random random = new Random(seed);
+        int[] pixels = new int[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            pixels[i] = random.nextInt() | 0xFF000000;
+        }
+        return pixels;
+    }
+
+    private static int maxDifference(int[] expected, int[] actual) {
+        int max = 0;
+        for (int i = 0; i < expected.length; i++) {
+            for (int shift = 0; shift < 32; shift += 8) {
+                max = Math.max(max, Math.abs(((expected[i] >>> shift) & 0xFF) - ((actual[i] >>> shift) & 0xFF)));
+            }
+        }
+        return max;
+    }
+
+    private static double meanDifference(int[] expected, int[] actual) {
+        long sum = 0;
+        for (int i = 0; i < expected.length; i++) {
+            for (int shift = 0; shift < 24; shift += 8) {
+                sum += Math.abs(((expected[i] >>> shift) & 0xFF) - ((actual[i] >>> shift) & 0xFF));
+            }
+        }
+        return sum / (3.0 * expected.length);
+    }
+}
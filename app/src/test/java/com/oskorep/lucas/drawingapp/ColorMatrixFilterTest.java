@@ -0,0 +1,128 @@
+package com.oskorep.lucas.drawingapp;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import cn.Ragnarok.ColorMatrixFilter;
+import cn.Ragnarok.FilterPipeline;
+import cn.Ragnarok.InvertFilter;
+import cn.Ragnarok.OldFilter;
+import cn.Ragnarok.PixelBuffer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the color matrix engine on the development machine (host): composed matrices against
+ * passes run one after another, the fixed point mode against the float one, and the matrices
+ * of the point filters against the loops they replaced.
+ */
+public class ColorMatrixFilterTest {
+
+    private static final int SIZE = 10000;
+
+    @Test
+    public void composedMatrixMatchesSeparatePasses() throws Exception {
+        // Nothing here leaves 0..255 between the stages, so only rounding can differ.
+        ColorMatrixFilter[] stages = {
+                ColorMatrixFilter.scale(0.8f, 0.7f, 0.9f, 1),
+                ColorMatrixFilter.saturation(0.5f),
+                new InvertFilter(),
+                ColorMatrixFilter.tint(0xFFC08040),
+        };
+        int[] source = randomPixels(1);
+        int[] separate = Arrays.copyOf(source, SIZE);
+        ColorMatrixFilter composed = stages[0];
+        stages[0].apply(separate, SIZE);
+        for (int i = 1; i < stages.length; i++) {
+            stages[i].apply(separate, SIZE);
+            composed = composed.then(stages[i]);
+        }
+        int[] fused = Arrays.copyOf(source, SIZE);
+        composed.apply(fused, SIZE);
+        // Every separate pass may round a channel, so the difference can add up to one per stage.
+        assertAtMost(stages.length, separate, fused);
+    }
+
+    @Test
+    public void pipelineComposesNeighbouringMatrices() throws Exception {
+        FilterPipeline pipeline = new FilterPipeline.Builder()
+                .add(ColorMatrixFilter.saturation(0.3f))
+                .add(new InvertFilter())
+                .add(ColorMatrixFilter.tint(0xFF80FF80))
+                .build();
+        assertEquals(1, pipeline.getFilters().size());
+
+        int[] source = randomPixels(2);
+        PixelBuffer buffer = new PixelBuffer(Arrays.copyOf(source, SIZE), SIZE, 1);
+        pipeline.apply(buffer);
+        int[] expected = Arrays.copyOf(source, SIZE);
+        ColorMatrixFilter.saturation(0.3f).then(new InvertFilter()).then(ColorMatrixFilter.tint(0xFF80FF80))
+                .apply(expected, SIZE);
+        assertArrayEquals(expected, buffer.getPixels());
+    }
+
+    @Test
+    public void fixedPointIsWithinOneOfFloat() throws Exception {
+        Random random = new Random(3);
+        for (int run = 0; run < 20; run++) {
+            float[] matrix = new float[20];
+            for (int i = 0; i < 20; i++) {
+                matrix[i] = i % 5 == 4 ? random.nextFloat() * 200 - 100 : random.nextFloat() * 3 - 1;
+            }
+            ColorMatrixFilter floatFilter = new ColorMatrixFilter(matrix);
+            ColorMatrixFilter fixedFilter = floatFilter.toFixedPoint();
+            assertTrue(fixedFilter.isFixedPoint());
+
+            int[] source = randomPixels(run);
+            int[] floatResult = Arrays.copyOf(source, SIZE);
+            floatFilter.apply(floatResult, SIZE);
+            int[] fixedResult = Arrays.copyOf(source, SIZE);
+            fixedFilter.apply(fixedResult, SIZE);
+            assertAtMost(1, floatResult, fixedResult);
+        }
+        // Weights an int sum can't hold fall back to float.
+        assertFalse(ColorMatrixFilter.scale(40, 1, 1, 1).toFixedPoint().isFixedPoint());
+    }
+
+    @Test
+    public void invertAndOldMatchTheirLoops() throws Exception {
+        int[] source = randomPixels(4);
+        int[] inverted = Arrays.copyOf(source, SIZE);
+        new InvertFilter().apply(inverted, SIZE);
+        int[] sepia = Arrays.copyOf(source, SIZE);
+        new OldFilter().apply(sepia, SIZE);
+        for (int i = 0; i < SIZE; i++) {
+            int r = (source[i] >> 16) & 0xFF, g = (source[i] >> 8) & 0xFF, b = source[i] & 0xFF;
+            assertEquals(0xFF000000 | (255 - r) << 16 | (255 - g) << 8 | (255 - b), inverted[i]);
+
+            int oldR = Math.min(255, (int) (0.393 * r + 0.769 * g + 0.189 * b));
+            int oldG = Math.min(255, (int) (0.349 * r + 0.686 * g + 0.168 * b));
+            int oldB = Math.min(255, (int) (0.272 * r + 0.534 * g + 0.131 * b));
+            assertAtMost(1, new int[]{0xFF000000 | oldR << 16 | oldG << 8 | oldB}, new int[]{sepia[i]});
+        }
+    }
+
+    private static int[] randomPixels(long seed) {
+        Random random = new Random(seed);
+        int[] pixels = new int[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            pixels[i] = random.nextInt() | 0xFF000000;
+        }
+        return pixels;
+    }
+
+    private static void assertAtMost(int difference, int[] expected, int[] actual) {
+        for (int i = 0; i < expected.length; i++) {
+            for (int shift = 0; shift < 32; shift += 8) {
+                int channelDifference = Math.abs(((expected[i] >>> shift) & 0xFF) - ((actual[i] >>> shift) & 0xFF));
+                assertTrue("pixel " + i + ": expected " + Integer.toHexString(expected[i]) + " but was "
+                        + Integer.toHexString(actual[i]), channelDifference <= difference);
+            }
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.oskorep.lucas.drawingapp;
+
+import android.content.ComponentCallbacks2;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the byte bounded LRU eviction, the counters, the ownership of results and the keys of the
+ * filter result cache.
+ */
+public class FilterResultCacheTest {
+
+    private static final int GRAY = 124;
+    private static final int OIL = 127;
+
+    private static FilterResultCache.Key key(long hash, int filter) {
+        return new FilterResultCache.Key(hash, 100, 50, filter, 0, 1.0);
+    }
+
+    @Test
+    public void evictsTheLeastRecentlyUsed() throws Exception {
+        FilterResultCache<String> cache = new FilterResultCache<String>(300);
+        cache.put(key(1, GRAY), "a", 100);
+        cache.put(key(2, GRAY), "b", 100);
+        cache.put(key(3, GRAY), "c", 100);
+        // Using a makes b the least recently used.
+        assertEquals("a", cache.get(key(1, GRAY)));
+        cache.put(key(4, GRAY), "d", 100);
+
+        assertNull(cache.get(key(2, GRAY)));
+        assertEquals("a", cache.get(key(1, GRAY)));
+        assertEquals("c", cache.get(key(3, GRAY)));
+        assertEquals("d", cache.get(key(4, GRAY)));
+        assertEquals(300, cache.getBytes());
+        assertEquals(4, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(4, cache.getPutCount());
+        assertEquals(1, cache.getEvictionCount());
+    }
+
+    @Test
+    public void boundsBytesNotEntries() throws Exception {
+        FilterResultCache<String> cache = new FilterResultCache<String>(1000);
+        for (int i = 0; i < 10; i++) {
+            cache.put(key(i, OIL), "small" + i, 10);
+        }
+        assertEquals(10, cache.getCount());
+        // Makes room for a large result by evicting several small ones.
+        cache.put(key(99, OIL), "large", 950);
+        assertEquals(6, cache.getCount());
+        assertEquals(1000, cache.getBytes());
+        // A result larger than the budget isn't cached, and doesn't flush the rest.
+        cache.put(key(100, OIL), "huge", 1001);
+        assertNull(cache.get(key(100, OIL)));
+        assertEquals(6, cache.getCount());
+        // Replacing a result counts its new size only.
+        cache.put(key(99, OIL), "large2", 900);
+        assertEquals(950, cache.getBytes());
+    }
+
+    @Test
+    public void trimMemoryShrinksUnderPressure() throws Exception {
+        FilterResultCache<String> cache = new FilterResultCache<String>(400);
+        for (int i = 0; i < 4; i++) {
+            cache.put(key(i, GRAY), "r" + i, 100);
+        }
+        cache.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE);
+        assertEquals(400, cache.getBytes());
+        cache.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN);
+        assertEquals(200, cache.getBytes());
+        // The most recently used results are kept.
+        assertEquals("r3", cache.get(key(3, GRAY)));
+        cache.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_COMPLETE);
+        assertEquals(0, cache.getBytes());
+        assertEquals(0, cache.getCount());
+        // The budget stays, the cache fills up again afterwards.
+        assertEquals(400, cache.getMaxBytes());
+    }
+
+    @Test
+    public void keysCompareFilterOptionsAndContent() throws Exception {
+        assertEquals(new FilterResultCache.Key(7, 10, 20, OIL, 5), new FilterResultCache.Key(7, 10, 20, OIL, 5.0));
+        assertEquals(new FilterResultCache.Key(7, 10, 20, OIL, 5).hashCode(),
+                new FilterResultCache.Key(7, 10, 20, OIL, 5.0).hashCode());
+        assertFalse(new FilterResultCache.Key(7, 10, 20, OIL, 5).equals(new FilterResultCache.Key(7, 10, 20, OIL, 6)));
+        assertFalse(new FilterResultCache.Key(7, 10, 20, OIL).equals(new FilterResultCache.Key(7, 10, 20, GRAY)));
+        assertFalse(new FilterResultCache.Key(7, 10, 20, OIL).equals(new FilterResultCache.Key(8, 10, 20, OIL)));
+        assertFalse(new FilterResultCache.Key(7, 10, 20, OIL).equals(new FilterResultCache.Key(7, 20, 10, OIL)));
+    }
+
+    @Test
+    public void handsOutCopiesAndRecyclesEvictedOnes() throws Exception {
+        final List<StringBuilder> recycled = new ArrayList<StringBuilder>();
+        FilterResultCache<StringBuilder> cache = new FilterResultCache<StringBuilder>(200,
+                new FilterResultCache.Values<StringBuilder>() {
+                    @Override
+                    public StringBuilder copy(StringBuilder value) {
+                        return new StringBuilder(value);
+                    }
+
+                    @Override
+                    public void recycle(StringBuilder value) {
+                        recycled.add(value);
+                    }
+                });
+        StringBuilder result = new StringBuilder("a");
+        cache.put(key(1, GRAY), result, 100);
+        // The caller may reuse what it put and what it got without touching the cached copy.
+        result.append("-reused");
+        StringBuilder first = cache.get(key(1, GRAY));
+        StringBuilder second = cache.get(key(1, GRAY));
+        assertEquals("a", first.toString());
+        assertTrue(first != second);
+        first.append("-reused");
+        assertEquals("a", cache.get(key(1, GRAY)).toString());
+
+        // Only the cache's own copy is handed back once it is evicted.
+        cache.put(key(2, GRAY), new StringBuilder("b"), 100);
+        cache.put(key(3, GRAY), new StringBuilder("c"), 100);
+        assertEquals(1, recycled.size());
+        assertEquals("a", recycled.get(0).toString());
+        assertTrue(recycled.get(0) != result && recycled.get(0) != first && recycled.get(0) != second);
+        cache.trimToSize(0);
+        assertEquals(3, recycled.size());
+    }
+
+    @Test
+    public void hashSeesEveryPixel() throws Exception {
+        Random random = new Random(9);
+        int[] pixels = new int[1003];
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = random.nextInt();
+        }
+        long hash = FilterResultCache.hash(pixels, pixels.length, 0);
+        assertEquals(hash, FilterResultCache.hash(pixels.clone(), pixels.length, 0));
+        for (int i = 0; i < pixels.length; i++) {
+            int[] changed = pixels.clone();
+            changed[i] ^= 1 << random.nextInt(32);
+            assertTrue("pixel " + i, FilterResultCache.hash(changed, changed.length, 0) != hash);
+        }
+        // Swapping two pixels changes the hash as well.
+        int[] swapped = pixels.clone();
+        swapped[0] = pixels[1];
+        swapped[1] = pixels[0];
+        assertTrue(FilterResultCache.hash(swapped, swapped.length, 0) != hash);
+    }
+}
@@ -0,0 +1,176 @@
+package com.oskorep.lucas.drawingapp;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Drives the scheduler with one worker and a publisher the test runs by hand, standing in for the
+ * main thread, and checks that only the latest job publishes.
+ */
+public class FilterSchedulerTest {
+
+    private static final long TIMEOUT_SECONDS = 5;
+
+    private final LinkedBlockingQueue<Runnable> mPublished = new LinkedBlockingQueue<>();
+    private final FilterScheduler mScheduler = new FilterScheduler(1, new Executor() {
+        @Override
+        public void execute(Runnable runnable) {
+            mPublished.add(runnable);
+        }
+    });
+    private final List<String> mResults = new ArrayList<>();
+    private final List<String> mRan = new ArrayList<>();
+    private final List<Throwable> mFailures = new ArrayList<>();
+
+    private final FilterScheduler.Callback<String> mCallback = new FilterScheduler.Callback<String>() {
+        @Override
+        public void onResult(String result) {
+            mResults.add(result);
+        }
+
+        @Override
+        public void onFailure(Throwable error) {
+            mFailures.add(error);
+        }
+    };
+
+    private Callable<String> job(final String name) {
+        return new Callable<String>() {
+            @Override
+            public String call() {
+                synchronized (mRan) {
+                    mRan.add(name);
+                }
+                return name;
+            }
+        };
+    }
+
+    private Callable<String> blockingJob(final String name, final CountDownLatch started,
+                                         final CountDownLatch release) {
+        return new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                started.countDown();
+                assertTrue(release.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+                return job(name).call();
+            }
+        };
+    }
+
+    // Runs the next delivery on the test thread, as the main looper would.
+    private void publishNext() throws InterruptedException {
+        Runnable delivery = mPublished.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertNotNull("nothing was published", delivery);
+        delivery.run();
+    }
+
+    @Test
+    public void publishesTheResult() throws Exception {
+        mScheduler.submit(job("gray"), mCallback);
+        assertTrue(mScheduler.isPending());
+        publishNext();
+
+        assertEquals(1, mResults.size());
+        assertEquals("gray", mResults.get(0));
+        assertFalse(mScheduler.isPending());
+        assertEquals(1, mScheduler.getPublishedCount());
+    }
+
+    @Test
+    public void coalescesJobsQueuedBehindARunningOne() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        mScheduler.submit(blockingJob("gray", started, release), mCallback);
+        assertTrue(started.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+        mScheduler.submit(job("invert"), mCallback);
+        mScheduler.submit(job("sketch"), mCallback);
+        mScheduler.submit(job("oil"), mCallback);
+        release.countDown();
+        publishNext();
+
+        // invert and sketch never ran, and gray finished but was superseded.
+        assertEquals(1, mResults.size());
+        assertEquals("oil", mResults.get(0));
+        synchronized (mRan) {
+            assertEquals(2, mRan.size());
+            assertEquals("oil", mRan.get(1));
+        }
+        assertEquals(4, mScheduler.getSubmittedCount());
+        assertEquals(2, mScheduler.getCoalescedCount());
+        assertEquals(1, mScheduler.getDiscardedCount());
+        assertNull(mPublished.poll());
+    }
+
+    @Test
+    public void cancelPublishesNothing() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        mScheduler.submit(blockingJob("gray", started, release), mCallback);
+        assertTrue(started.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        mScheduler.submit(job("invert"), mCallback);
+
+        mScheduler.cancel();
+        assertFalse(mScheduler.isPending());
+        release.countDown();
+        mScheduler.shutdown();
+
+        assertNull(mPublished.poll(200, TimeUnit.MILLISECONDS));
+        assertTrue(mResults.isEmpty());
+        assertEquals(1, mScheduler.getCoalescedCount());
+        assertEquals(1, mScheduler.getDiscardedCount());
+    }
+
+    @Test
+    public void dropsAFinishedResultSupersededBeforeItIsPublished() throws Exception {
+        mScheduler.submit(job("gray"), mCallback);
+        // Wait until gray's result is waiting on the publisher, then submit the next job first.
+        Runnable grayDelivery = mPublished.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertNotNull(grayDelivery);
+        mScheduler.submit(job("invert"), mCallback);
+
+        grayDelivery.run();
+        assertTrue(mResults.isEmpty());
+        assertTrue(mScheduler.isPending());
+        publishNext();
+
+        assertEquals(1, mResults.size());
+        assertEquals("invert", mResults.get(0));
+        assertEquals(1, mScheduler.getDiscardedCount());
+        assertEquals(1, mScheduler.getPublishedCount());
+    }
+
+    @Test
+    public void aFailingJobPublishesItsFailure() throws Exception {
+        mScheduler.submit(new Callable<String>() {
+            @Override
+            public String call() {
+                throw new OutOfMemoryError("full size pass");
+            }
+        }, mCallback);
+        publishNext();
+
+        // Nothing is thrown on the publisher, and the next job runs as usual.
+        assertTrue(mResults.isEmpty());
+        assertEquals(1, mFailures.size());
+        assertFalse(mScheduler.isPending());
+        assertEquals(1, mScheduler.getFailedCount());
+        mScheduler.submit(job("gray"), mCallback);
+        publishNext();
+        assertEquals("gray", mResults.get(0));
+    }
+}
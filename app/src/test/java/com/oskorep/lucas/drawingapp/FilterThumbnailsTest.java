@@ -0,0 +1,121 @@
+package com.oskorep.lucas.drawingapp;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import cn.Ragnarok.Filter;
+import cn.Ragnarok.FilterRegistry;
+import cn.Ragnarok.PixelBuffer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Renders the filter strip on the development machine (host) with a publisher the test runs by
+ * hand, standing in for the main thread.
+ */
+public class FilterThumbnailsTest {
+
+    private static final int WIDTH = 192;
+    private static final int HEIGHT = 144;
+    private static final double SCALE = 0.1;
+    private static final long TIMEOUT_SECONDS = 30;
+
+    private final LinkedBlockingQueue<Runnable> mPublished = new LinkedBlockingQueue<>();
+    private final FilterThumbnails mThumbnails = new FilterThumbnails(4, new Executor() {
+        @Override
+        public void execute(Runnable runnable) {
+            mPublished.add(runnable);
+        }
+    });
+    private final PixelBuffer[] mReceived = new PixelBuffer[FilterThumbnails.STYLE_COUNT + 1];
+    private int mReceivedCount;
+
+    private final FilterThumbnails.Listener mListener = new FilterThumbnails.Listener() {
+        @Override
+        public void onThumbnail(int styleNo, PixelBuffer thumbnail) {
+            mReceived[styleNo] = thumbnail;
+            mReceivedCount++;
+        }
+    };
+
+    private void publishAll() throws InterruptedException {
+        while (!mThumbnails.isComplete()) {
+            Runnable delivery = mPublished.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            assertNotNull("a thumbnail did not finish", delivery);
+            delivery.run();
+        }
+    }
+
+    @Test
+    public void rendersEveryStyleAsTheScaledFilter() throws Exception {
+        PixelBuffer source = drawing(1);
+        mThumbnails.render(1, source, SCALE, mListener);
+        // Nothing is handed out until the publisher runs.
+        assertEquals(0, mReceivedCount);
+        publishAll();
+
+        assertEquals(FilterThumbnails.STYLE_COUNT, mReceivedCount);
+        for (int style = 1; style <= FilterThumbnails.STYLE_COUNT; style++) {
+            PixelBuffer expected = new PixelBuffer(source.getPixels().clone(), WIDTH, HEIGHT);
+            Filter filter = FilterRegistry.createScaled(style, SCALE);
+            filter.apply(expected);
+            assertArrayEquals("style " + style, expected.getPixels(), mReceived[style].getPixels());
+        }
+        assertTrue(mThumbnails.getLastRenderNanos() > 0);
+    }
+
+    @Test
+    public void keepsThumbnailsUntilTheVersionChanges() throws Exception {
+        mThumbnails.render(1, drawing(1), SCALE, mListener);
+        publishAll();
+        int rendered = mThumbnails.getRenderedCount();
+
+        // The same version is handed out right away, without a source or rendering.
+        mReceivedCount = 0;
+        assertTrue(mThumbnails.hasVersion(1));
+        mThumbnails.render(1, null, SCALE, mListener);
+        assertEquals(FilterThumbnails.STYLE_COUNT, mReceivedCount);
+        assertEquals(rendered, mThumbnails.getRenderedCount());
+        assertNull(mPublished.poll());
+
+        PixelBuffer first = mReceived[1];
+        assertFalse(mThumbnails.hasVersion(2));
+        mThumbnails.render(2, drawing(2), SCALE, mListener);
+        publishAll();
+        assertEquals(2 * rendered, mThumbnails.getRenderedCount());
+        assertFalse(Arrays.equals(first.getPixels(), mReceived[1].getPixels()));
+    }
+
+    @Test
+    public void cancelHandsOutNothing() throws Exception {
+        mThumbnails.render(1, drawing(1), SCALE, mListener);
+        mThumbnails.cancel();
+        mThumbnails.shutdown();
+        Runnable delivery;
+        while ((delivery = mPublished.poll(200, TimeUnit.MILLISECONDS)) != null) {
+            delivery.run();
+        }
+        assertEquals(0, mReceivedCount);
+        assertFalse(mThumbnails.hasVersion(1));
+    }
+
+    private static PixelBuffer drawing(long seed) {
+        Random random = new Random(seed);
+        int[] pixels = new int[WIDTH * HEIGHT];
+        for (int i = 0; i < pixels.length; i++) {
+            int x = i % WIDTH, y = i / WIDTH;
+            pixels[i] = 0xFF000000 | (x * 255 / WIDTH) << 16 | (y * 255 / HEIGHT) << 8 | random.nextInt(64);
+        }
+        return new PixelBuffer(pixels, WIDTH, HEIGHT);
+    }
+}
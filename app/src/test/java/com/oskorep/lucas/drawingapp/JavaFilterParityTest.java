@@ -0,0 +1,263 @@
+package com.oskorep.lucas.drawingapp;
+
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import cn.Ragnarok.JavaFilterFunc;
+import cn.Ragnarok.LookupTableFilter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs the pure Java filters on the development machine (host) and compares them with the output
+ * of the native filters, which library/jni/tools/GoldenGenerator.cpp wrote to the golden
+ * resources.
+ */
+public class JavaFilterParityTest {
+
+    // The Java ports round like the C++ code, but libm and the JVM may still differ in the last
+    // bit of a double before it is truncated to a channel.
+    private static final int MAX_CHANNEL_DIFFERENCE = 2;
+
+    @Test
+    public void lightFilter() throws Exception {
+        Image image = load("input");
+        JavaFilterFunc.lightFilter(image.pixels, image.width, image.height,
+                image.width / 2, image.height / 2, Math.min(image.width / 2, image.height / 2));
+        assertMatches("light", image);
+    }
+
+    @Test
+    public void lomoAddBlckRound() throws Exception {
+        Image image = load("input");
+        JavaFilterFunc.lomoAddBlckRound(image.pixels, image.width, image.height, (image.width / 2) * 95 / 100);
+        assertMatches("lomo_round", image);
+    }
+
+    @Test
+    public void neonFilter() throws Exception {
+        Image image = load("input");
+        JavaFilterFunc.neonFilter(image.pixels, image.width, image.height, 200, 50, 100);
+        assertMatches("neon", image);
+    }
+
+    @Test
+    public void oilFilter() throws Exception {
+        Image image = load("input");
+        JavaFilterFunc.oilFilter(image.pixels, image.width, image.height, 5);
+        assertMatches("oil_5", image);
+
+        image = load("input");
+        JavaFilterFunc.oilFilter(image.pixels, image.width, image.height, 2);
+        assertMatches("oil_2", image);
+
+        image = load("input");
+        JavaFilterFunc.oilFilter(image.pixels, image.width, image.height, 15);
+        assertMatches("oil_15", image);
+    }
+
+    @Test
+    public void tvFilter() throws Exception {
+        Image image = load("input");
+        JavaFilterFunc.tvFilter(image.pixels, image.width, image.height);
+        assertMatches("tv", image);
+    }
+
+    @Test
+    public void averageSmooth() throws Exception {
+        Image image = load("input");
+        JavaFilterFunc.averageSmooth(image.pixels, image.width, image.height, 5);
+        assertMatches("average_5", image);
+
+        image = load("input");
+        JavaFilterFunc.averageSmooth(image.pixels, image.width, image.height, 4);
+        assertMatches("average_4", image);
+
+        image = load("input");
+        JavaFilterFunc.averageSmooth(image.pixels, image.width, image.height, 15);
+        assertMatches("average_15", image);
+    }
+
+    @Test
+    public void hdrFilter() throws Exception {
+        Image image = load("input");
+        JavaFilterFunc.hdrFilter(image.pixels, image.width, image.height);
+        assertMatches("hdr", image);
+    }
+
+    @Test
+    public void discreteGaussianBlur() throws Exception {
+        Image image = load("input");
+        JavaFilterFunc.discreteGaussianBlur(image.pixels, image.width, image.height, 1.2);
+        assertMatches("gaussian_1.2", image);
+
+        image = load("input");
+        JavaFilterFunc.discreteGaussianBlur(image.pixels, image.width, image.height, 3.0);
+        assertMatches("gaussian_3", image);
+    }
+
+    @Test
+    public void boxGaussianBlur() throws Exception {
+        Image image = load("input");
+        JavaFilterFunc.boxGaussianBlur(image.pixels, image.width, image.height, 4.0);
+        assertMatches("gaussian_box_4", image);
+    }
+
+    @Test
+    public void softGlow() throws Exception {
+        Image image = load("input");
+        JavaFilterFunc.softGlow(image.pixels, image.width, image.height, 0.6);
+        assertMatches("soft_glow_0.6", image);
+    }
+
+    @Test
+    public void sketchFilter() throws Exception {
+        Image image = load("input");
+        JavaFilterFunc.sketchFilter(image.pixels, image.width, image.height);
+        assertMatches("sketch", image);
+    }
+
+    @Test
+    public void sharpenFilter() throws Exception {
+        Image image = load("input");
+        JavaFilterFunc.sharpenFilter(image.pixels, image.width, image.height);
+        assertMatches("sharpen", image);
+    }
+
+    @Test
+    public void reliefFilter() throws Exception {
+        Image image = load("input");
+        JavaFilterFunc.reliefFilter(image.pixels, image.width, image.height);
+        assertMatches("relief", image);
+    }
+
+    @Test
+    public void pxelateFilter() throws Exception {
+        Image image = load("input");
+        JavaFilterFunc.pxelateFilter(image.pixels, image.width, image.height, 10);
+        assertMatches("pixelate_10", image);
+    }
+
+    @Test
+    public void blockFilter() throws Exception {
+        Image image = load("input");
+        JavaFilterFunc.blockFilter(image.pixels, image.width, image.height);
+        assertMatches("block", image);
+    }
+
+    @Test
+    public void motionBlurFilter() throws Exception {
+        Image image = load("input");
+        JavaFilterFunc.motionBlurFilter(image.pixels, image.width, image.height, 5, 1);
+        assertMatches("motion_blur_5_1", image);
+
+        image = load("input");
+        JavaFilterFunc.motionBlurFilter(image.pixels, image.width, image.height, -3, 2);
+        assertMatches("motion_blur_-3_2", image);
+    }
+
+    @Test
+    public void gothamFilter() throws Exception {
+        Image image = load("input");
+        JavaFilterFunc.gothamFilter(image.pixels, image.width, image.height);
+        assertMatches("gotham", image);
+    }
+
+    @Test
+    public void hueSaturationFilter() throws Exception {
+        // One hue in every sector of the HSI conversion.
+        double[][] options = {{30, 0.4}, {200, 0.2}, {300, 0.6}};
+        for (double[] option : options) {
+            Image image = load("input");
+            JavaFilterFunc.hueSaturationFilter(image.pixels, image.width, image.height, option[0], option[1]);
+            assertMatches("hue_saturation_" + (int) option[0] + "_" + option[1], image);
+        }
+    }
+
+    @Test
+    public void lookupTableFilter() throws Exception {
+        int[][] tables = new int[3][LookupTableFilter.TABLE_SIZE];
+        for (int i = 0; i < 3 * LookupTableFilter.TABLE_SIZE; i++) {
+            tables[i / LookupTableFilter.TABLE_SIZE][i % LookupTableFilter.TABLE_SIZE] =
+                    (i * 37 + i / LookupTableFilter.TABLE_SIZE * 101) & 0xFF;
+        }
+        Image image = load("input");
+        new LookupTableFilter(tables[0], tables[1], tables[2]).apply(image.pixels, image.pixels.length);
+        assertMatches("lookup_table", image);
+    }
+
+    /**
+     * The tone tables against the native brightness, contrast and gamma kernels, which always
+     * write opaque pixels.
+     */
+    @Test
+    public void toneTables() throws Exception {
+        Image image = opaque(load("input"));
+        LookupTableFilter.brightness(30).then(LookupTableFilter.contrast(1.3)).apply(image.pixels, image.pixels.length);
+        assertMatches("bright_contrast_30_1.3", image);
+
+        image = opaque(load("input"));
+        LookupTableFilter.gamma(0.7).apply(image.pixels, image.pixels.length);
+        assertMatches("gamma_0.7", image);
+    }
+
+    private static void assertMatches(String golden, Image actual) throws IOException {
+        Image expected = load(golden);
+        assertEquals(expected.width, actual.width);
+        assertEquals(expected.height, actual.height);
+        int worst = 0, worstIndex = 0;
+        for (int i = 0; i < expected.pixels.length; i++) {
+            for (int shift = 0; shift < 32; shift += 8) {
+                int difference = Math.abs(((expected.pixels[i] >>> shift) & 0xFF) - ((actual.pixels[i] >>> shift) & 0xFF));
+                if (difference > worst) {
+                    worst = difference;
+                    worstIndex = i;
+                }
+            }
+        }
+        assertTrue(golden + " differs by " + worst + " at x=" + worstIndex % expected.width
+                        + " y=" + worstIndex / expected.width + ": expected "
+                        + Integer.toHexString(expected.pixels[worstIndex]) + " but was "
+                        + Integer.toHexString(actual.pixels[worstIndex]),
+                worst <= MAX_CHANNEL_DIFFERENCE);
+    }
+
+    private static Image opaque(Image image) {
+        for (int i = 0; i < image.pixels.length; i++) {
+            image.pixels[i] |= 0xFF000000;
+        }
+        return image;
+    }
+
+    /**
+     * Reads a golden image: the width, the height and the ARGB pixels as big endian ints.
+     */
+    private static Image load(String name) throws IOException {
+        InputStream stream = JavaFilterParityTest.class.getClassLoader().getResourceAsStream("golden/" + name + ".argb");
+        assertNotNull("missing golden " + name, stream);
+        DataInputStream input = new DataInputStream(stream);
+        try {
+            Image image = new Image();
+            image.width = input.readInt();
+            image.height = input.readInt();
+            image.pixels = new int[image.width * image.height];
+            for (int i = 0; i < image.pixels.length; i++) {
+                image.pixels[i] = input.readInt();
+            }
+            return image;
+        } finally {
+            input.close();
+        }
+    }
+
+    private static class Image {
+        int width;
+        int height;
+        int[] pixels;
+    }
+}
@@ -0,0 +1,98 @@
+package com.oskorep.lucas.drawingapp;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import cn.Ragnarok.BrightContrastFilter;
+import cn.Ragnarok.FilterPipeline;
+import cn.Ragnarok.GammaCorrectionFilter;
+import cn.Ragnarok.LookupTableFilter;
+import cn.Ragnarok.PixelBuffer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the lookup table engine on the development machine (host): composed tables against
+ * passes run one after another, and the curve tables.
+ */
+public class LookupTableFilterTest {
+
+    private static final int SIZE = 10000;
+
+    @Test
+    public void composedTableMatchesSeparatePasses() throws Exception {
+        LookupTableFilter[] stages = {
+                LookupTableFilter.brightness(-40),
+                LookupTableFilter.gamma(0.7),
+                LookupTableFilter.contrast(1.5),
+                LookupTableFilter.invert(),
+                LookupTableFilter.curve(0, 20, 128, 160, 255, 230),
+        };
+        int[] source = randomPixels(1);
+        int[] separate = Arrays.copyOf(source, SIZE);
+        LookupTableFilter composed = stages[0];
+        stages[0].apply(separate, SIZE);
+        for (int i = 1; i < stages.length; i++) {
+            stages[i].apply(separate, SIZE);
+            composed = composed.then(stages[i]);
+        }
+        int[] fused = Arrays.copyOf(source, SIZE);
+        composed.apply(fused, SIZE);
+        // Every table clamps, so nothing is lost by composing them.
+        assertArrayEquals(separate, fused);
+    }
+
+    @Test
+    public void pipelineComposesNeighbouringTables() throws Exception {
+        FilterPipeline pipeline = new FilterPipeline.Builder()
+                .add(new BrightContrastFilter(20, 1.2))
+                .add(new GammaCorrectionFilter(1 / 2.2))
+                .add(LookupTableFilter.invert())
+                .build();
+        assertEquals(1, pipeline.getFilters().size());
+
+        int[] source = randomPixels(2);
+        PixelBuffer buffer = new PixelBuffer(Arrays.copyOf(source, SIZE), SIZE, 1);
+        pipeline.apply(buffer);
+        int[] expected = Arrays.copyOf(source, SIZE);
+        new BrightContrastFilter(20, 1.2).apply(expected, SIZE);
+        new GammaCorrectionFilter(1 / 2.2).apply(expected, SIZE);
+        LookupTableFilter.invert().apply(expected, SIZE);
+        assertArrayEquals(expected, buffer.getPixels());
+    }
+
+    @Test
+    public void alphaIsKept() throws Exception {
+        int[] pixels = {0x00102030, 0x80FFFFFF, 0xFF000000};
+        LookupTableFilter.invert().apply(pixels, pixels.length);
+        assertArrayEquals(new int[]{0x00EFDFCF, 0x80000000, 0xFFFFFFFF}, pixels);
+    }
+
+    @Test
+    public void curvePassesThroughItsPointsWithoutOvershooting() throws Exception {
+        int[] points = {0, 0, 64, 30, 128, 200, 192, 210, 255, 255};
+        int[] table = LookupTableFilter.curve(points).getTable();
+        for (int i = 0; i < points.length; i += 2) {
+            assertEquals(points[i + 1], table[points[i]]);
+        }
+        for (int i = 1; i < LookupTableFilter.TABLE_SIZE; i++) {
+            assertTrue("not monotone at " + i, table[i] >= table[i - 1]);
+        }
+        // The identity curve.
+        int[] identity = LookupTableFilter.identity().getTable();
+        assertArrayEquals(identity, LookupTableFilter.curve(0, 0, 255, 255).getTable());
+    }
+
+    private static int[] randomPixels(long seed) {
+        Random random = new Random(seed);
+        int[] pixels = new int[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            pixels[i] = random.nextInt();
+        }
+        return pixels;
+    }
+}
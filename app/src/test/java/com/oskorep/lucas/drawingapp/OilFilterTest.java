@@ -0,0 +1,77 @@
+package com.oskorep.lucas.drawingapp;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import cn.Ragnarok.JavaFilterFunc;
+
+import static org.junit.Assert.assertArrayEquals;
+
+/**
+ * Checks the sliding histogram oil filter, on the development machine (host), against the
+ * histograms the filter used to rebuild for every pixel.
+ */
+public class OilFilterTest {
+
+    private static final int[][] SIZES = {{1, 1}, {3, 7}, {40, 33}, {97, 61}, {5, 120}};
+
+    @Test
+    public void matchesRebuiltHistograms() throws Exception {
+        Random random = new Random(5);
+        for (int[] size : SIZES) {
+            int width = size[0], height = size[1];
+            for (int oilRange = 1; oilRange <= 15; oilRange++) {
+                // noise has a new mode at almost every pixel, few levels have many ties
+                for (boolean fewLevels : new boolean[]{false, true}) {
+                    int[] source = new int[width * height];
+                    for (int i = 0; i < source.length; i++) {
+                        source[i] = fewLevels ? (random.nextInt() & 0x03030303) * 20 : random.nextInt();
+                    }
+                    int[] expected = Arrays.copyOf(source, source.length);
+                    rebuiltHistogramOil(expected, width, height, oilRange);
+                    int[] actual = Arrays.copyOf(source, source.length);
+                    JavaFilterFunc.oilFilter(actual, width, height, oilRange);
+                    assertArrayEquals(width + "x" + height + " oilRange " + oilRange, expected, actual);
+                }
+            }
+        }
+    }
+
+    /**
+     * The former OilFilter.cpp.
+     */
+    private static void rebuiltHistogramOil(int[] pixels, int width, int height, int oilRange) {
+        int[] originPixels = Arrays.copyOf(pixels, pixels.length);
+        int[][] his = new int[3][256];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                for (int[] channel : his) {
+                    Arrays.fill(channel, 0);
+                }
+                for (int row = y - oilRange; row < y + oilRange; row++) {
+                    for (int col = x - oilRange; col < x + oilRange; col++) {
+                        if (row >= 0 && row < height && col >= 0 && col < width) {
+                            int color = originPixels[row * width + col];
+                            his[0][(color >> 16) & 0xFF]++;
+                            his[1][(color >> 8) & 0xFF]++;
+                            his[2][color & 0xFF]++;
+                        }
+                    }
+                }
+                int[] mode = new int[3];
+                for (int c = 0; c < 3; c++) {
+                    for (int i = 1; i < 256; i++) {
+                        if (his[c][i] > his[c][mode[c]]) {
+                            mode[c] = i;
+                        }
+                    }
+                }
+                if (his[0][mode[0]] != 0 && his[1][mode[1]] != 0 && his[2][mode[2]] != 0) {
+                    pixels[y * width + x] = 0xFF000000 | mode[0] << 16 | mode[1] << 8 | mode[2];
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.oskorep.lucas.drawingapp;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import cn.Ragnarok.BandExecutor;
+import cn.Ragnarok.Filter;
+import cn.Ragnarok.GaussianBlurFilter;
+import cn.Ragnarok.HDRFilter;
+import cn.Ragnarok.MotionBlurFilter;
+import cn.Ragnarok.OilFilter;
+import cn.Ragnarok.PixelBuffer;
+import cn.Ragnarok.PixelPool;
+import cn.Ragnarok.SharpenFilter;
+import cn.Ragnarok.SketchFilter;
+import cn.Ragnarok.SoftGlowFilter;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Borrows and returns pixel arrays on the development machine (host), and checks filters running
+ * on reused, dirty arrays give exactly the results of freshly allocated ones.
+ */
+public class PixelPoolTest {
+
+    private static final int WIDTH = 157;
+    private static final int HEIGHT = 331;
+
+    @Test
+    public void reusesArraysOfTheSameLength() {
+        PixelPool pool = new PixelPool(1 << 20);
+        int[] first = pool.obtainPixels(100);
+        pool.recycle(first);
+        assertEquals(400, pool.getKeptBytes());
+
+        assertTrue(first == pool.obtainPixels(100));
+        assertFalse(first == pool.obtainPixels(100));
+        assertEquals(0, pool.getKeptBytes());
+        assertEquals(2, pool.getAllocatedCount());
+        assertEquals(800, pool.getAllocatedBytes());
+        assertEquals(1, pool.getReusedCount());
+        assertEquals(400, pool.getReusedBytes());
+
+        int[] copy = pool.copyOf(new int[]{1, 2, 3}, 3);
+        assertArrayEquals(new int[]{1, 2, 3}, copy);
+        pool.resetCounters();
+        assertEquals(0, pool.getAllocatedBytes());
+    }
+
+    @Test
+    public void budgetDropsTheOldestFirst() {
+        PixelPool pool = new PixelPool(1200);
+        int[] oldest = new int[100];
+        pool.recycle(oldest);
+        pool.recycle(new int[100]);
+        pool.recycle(new int[100]);
+        assertEquals(1200, pool.getKeptBytes());
+
+        int[] newest = new int[100];
+        pool.recycle(newest);
+        assertEquals(1200, pool.getKeptBytes());
+        // The newest comes back first and the oldest was dropped.
+        assertTrue(newest == pool.obtainPixels(100));
+        for (int i = 0; i < 2; i++) {
+            assertFalse(oldest == pool.obtainPixels(100));
+        }
+        assertEquals(0, pool.getKeptBytes());
+
+        // Larger than the whole budget, so it is not kept.
+        pool.recycle(new int[301]);
+        assertEquals(0, pool.getKeptBytes());
+
+        pool.recycle(new int[100]);
+        pool.trimToSize(0);
+        assertEquals(0, pool.getKeptBytes());
+        pool.setMaxBytes(0);
+        pool.recycle(new int[1]);
+        assertEquals(0, pool.getKeptBytes());
+    }
+
+    @Test
+    public void reusedArraysGiveTheSameResults() throws Exception {
+        Filter[] filters = {
+                new GaussianBlurFilter(2.5),
+                new SoftGlowFilter(0.6),
+                new OilFilter(3),
+                new SharpenFilter(),
+                new SketchFilter(),
+                new HDRFilter(),
+                new MotionBlurFilter(5, 1),
+        };
+        int[] source = createImage();
+        PixelPool defaultPool = PixelPool.getDefault();
+        BandExecutor executor = new BandExecutor(4);
+        try {
+            int[][] expected = new int[filters.length][];
+            PixelPool.setDefault(new PixelPool(0));
+            for (int i = 0; i < filters.length; i++) {
+                PixelBuffer buffer = new PixelBuffer(Arrays.copyOf(source, source.length), WIDTH, HEIGHT);
+                filters[i].apply(buffer);
+                expected[i] = buffer.getPixels();
+            }
+
+            PixelPool pool = new PixelPool(1 << 24);
+            PixelPool.setDefault(pool);
+            // The second round borrows the arrays the first one gave back, holding its pixels.
+            for (int round = 0; round < 2; round++) {
+                for (int i = 0; i < filters.length; i++) {
+                    PixelBuffer buffer = new PixelBuffer(Arrays.copyOf(source, source.length), WIDTH, HEIGHT);
+                    executor.apply(buffer, filters[i]);
+                    assertArrayEquals(filters[i].getClass().getSimpleName(), expected[i],
+                            Arrays.copyOf(buffer.getPixels(), source.length));
+                    buffer.recycle();
+                }
+            }
+            assertTrue(pool.getReusedCount() > pool.getAllocatedCount());
+        } finally {
+            executor.shutdown();
+            PixelPool.setDefault(defaultPool);
+        }
+    }
+
+    private static int[] createImage() {
+        Random random = new Random(7);
+        int[] pixels = new int[WIDTH * HEIGHT];
+        for (int i = 0; i < pixels.length; i++) {
+            int x = i % WIDTH, y = i / WIDTH;
+            pixels[i] = 0xFF000000 | (x * 255 / WIDTH) << 16 | (y * 255 / HEIGHT) << 8 | random.nextInt(256);
+        }
+        return pixels;
+    }
+}
@@ -0,0 +1,127 @@
+package com.oskorep.lucas.drawingapp;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import cn.Ragnarok.BitmapFilter;
+import cn.Ragnarok.Filter;
+import cn.Ragnarok.FilterRegistry;
+import cn.Ragnarok.PixelBuffer;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks on the development machine (host) that a filter created for a quarter size proxy looks
+ * like the full size result shrunk, closer than the same filter with the full size options.
+ */
+public class ScaledFilterTest {
+
+    private static final int WIDTH = 256;
+    private static final int HEIGHT = 192;
+    private static final int FACTOR = 4;
+    private static final double SCALE = 1.0 / FACTOR;
+
+    @Test
+    public void scaledOptionsMatchTheShrunkResult() throws Exception {
+        Object[][] styles = {
+                {BitmapFilter.GAUSSIAN_BLUR_STYLE, new Object[]{8.0}},
+                {BitmapFilter.AVERAGE_BLUR_STYLE, new Object[]{21}},
+                {BitmapFilter.OIL_STYLE, new Object[]{8}},
+                {BitmapFilter.PIXELATE_STYLE, new Object[]{16}},
+                {BitmapFilter.MOTION_BLUR_STYLE, new Object[]{12, -8}},
+                {BitmapFilter.SOFT_GLOW_STYLE, new Object[]{6.0}},
+        };
+        int[] source = blobs(WIDTH, HEIGHT);
+        int[] proxy = shrink(source, WIDTH, HEIGHT);
+        for (Object[] style : styles) {
+            int styleNo = (Integer) style[0];
+            Object[] options = (Object[]) style[1];
+
+            int[] expected = shrink(run(FilterRegistry.create(styleNo, options), source, WIDTH, HEIGHT), WIDTH, HEIGHT);
+            int[] scaled = run(FilterRegistry.createScaled(styleNo, SCALE, options), proxy, WIDTH / FACTOR, HEIGHT / FACTOR);
+            int[] unscaled = run(FilterRegistry.create(styleNo, options), proxy, WIDTH / FACTOR, HEIGHT / FACTOR);
+
+            double scaledError = meanDifference(expected, scaled);
+            double unscaledError = meanDifference(expected, unscaled);
+            assertTrue("style " + styleNo + " scaled " + scaledError + " unscaled " + unscaledError,
+                    scaledError < unscaledError);
+        }
+    }
+
+    @Test
+    public void smallScalesKeepValidOptions() throws Exception {
+        // The default sigma 1.2 would be 0.03, too small for GaussianBlurFilter.
+        assertNotNull(FilterRegistry.createScaled(BitmapFilter.GAUSSIAN_BLUR_STYLE, 0.025));
+        assertNotNull(FilterRegistry.createScaled(BitmapFilter.SOFT_GLOW_STYLE, 0.025));
+        assertNotNull(FilterRegistry.createScaled(BitmapFilter.AVERAGE_BLUR_STYLE, 0.025));
+        for (int style = 1; style <= BitmapFilter.TOTAL_FILTER_NUM; style++) {
+            Filter filter = FilterRegistry.createScaled(style, SCALE);
+            assertNotNull("style " + style, filter);
+            filter.apply(new PixelBuffer(blobs(32, 24), 32, 24));
+        }
+    }
+
+    private static int[] run(Filter filter, int[] pixels, int width, int height) {
+        PixelBuffer buffer = new PixelBuffer(pixels.clone(), width, height);
+        filter.apply(buffer);
+        return buffer.getPixels();
+    }
+
+    // Soft colored discs on a gradient, so every filter has edges and flat areas to work on.
+    private static int[] blobs(int width, int height) {
+        Random random = new Random(3);
+        int[] pixels = new int[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                pixels[y * width + x] = 0xFF000000 | (x * 255 / width) << 16 | (y * 255 / height) << 8 | 96;
+            }
+        }
+        for (int i = 0; i < 12; i++) {
+            int cx = random.nextInt(width), cy = random.nextInt(height);
+            int radius = 8 + random.nextInt(width / 6);
+            int color = random.nextInt() | 0xFF000000;
+            for (int y = Math.max(0, cy - radius); y < Math.min(height, cy + radius); y++) {
+                for (int x = Math.max(0, cx - radius); x < Math.min(width, cx + radius); x++) {
+                    if ((x - cx) * (x - cx) + (y - cy) * (y - cy) < radius * radius) {
+                        pixels[y * width + x] = color;
+                    }
+                }
+            }
+        }
+        return pixels;
+    }
+
+    // Averages every FACTOR x FACTOR block, as a filtering resize does.
+    private static int[] shrink(int[] pixels, int width, int height) {
+        int w = width / FACTOR, h = height / FACTOR;
+        int[] result = new int[w * h];
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                int r = 0, g = 0, b = 0;
+                for (int dy = 0; dy < FACTOR; dy++) {
+                    for (int dx = 0; dx < FACTOR; dx++) {
+                        int color = pixels[(y * FACTOR + dy) * width + x * FACTOR + dx];
+                        r += (color >> 16) & 0xFF;
+                        g += (color >> 8) & 0xFF;
+                        b += color & 0xFF;
+                    }
+                }
+                int n = FACTOR * FACTOR;
+                result[y * w + x] = 0xFF000000 | (r / n) << 16 | (g / n) << 8 | (b / n);
+            }
+        }
+        return result;
+    }
+
+    private static double meanDifference(int[] a, int[] b) {
+        long sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            for (int shift = 0; shift < 24; shift += 8) {
+                sum += Math.abs(((a[i] >> shift) & 0xFF) - ((b[i] >> shift) & 0xFF));
+            }
+        }
+        return sum / (3.0 * a.length);
+    }
+}
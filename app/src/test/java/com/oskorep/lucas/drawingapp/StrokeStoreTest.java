@@ -0,0 +1,145 @@
+package com.oskorep.lucas.drawingapp;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Adds, undoes and serializes strokes on the development machine (host). Brushes are passed as
+ * their Paint properties, since Paint is not available on the host.
+ */
+public class StrokeStoreTest {
+
+    private static final int BLACK = 0xFF000000;
+    private static final int RED = 0xFFFF0000;
+    private static final int ROUND = 1;
+
+    @Test
+    public void undoAndRedoKeepTheStrokes() {
+        StrokeStore store = new StrokeStore();
+        store.add(new float[]{1, 2, 3, 4}, 2, BLACK, 5f, ROUND, ROUND, true);
+        store.add(new float[]{5, 6}, 1, BLACK, 5f, ROUND, ROUND, true);
+        assertEquals(2, store.getStrokeCount());
+        assertEquals(2, store.getPointCount(0));
+        assertEquals(1, store.getPointCount(1));
+
+        assertTrue(store.undo());
+        assertTrue(store.undo());
+        assertFalse(store.undo());
+        assertEquals(0, store.getStrokeCount());
+
+        assertTrue(store.redo());
+        assertEquals(1, store.getStrokeCount());
+        assertEquals(3f, store.getPoints()[store.getOffset(0) + 2], 0f);
+
+        // A new stroke discards the one that could still be redone.
+        store.add(new float[]{7, 8}, 1, BLACK, 5f, ROUND, ROUND, true);
+        assertFalse(store.redo());
+        assertEquals(2, store.getStrokeCount());
+        assertEquals(7f, store.getPoints()[store.getOffset(1)], 0f);
+    }
+
+    @Test
+    public void strokesWithTheSameBrushShareAStyle() {
+        StrokeStore store = new StrokeStore();
+        store.add(new float[]{1, 2}, 1, BLACK, 5f, ROUND, ROUND, true);
+        store.add(new float[]{3, 4}, 1, RED, 5f, ROUND, ROUND, true);
+        store.add(new float[]{5, 6}, 1, BLACK, 5f, ROUND, ROUND, true);
+        store.add(new float[]{7, 8}, 1, BLACK, 5f, ROUND, ROUND, false);
+        assertEquals(3, store.getStyleCount());
+        assertEquals(store.getStyle(0), store.getStyle(2));
+        assertTrue(store.getStyle(0) != store.getStyle(1));
+        assertTrue(store.getStyle(0) != store.getStyle(3));
+    }
+
+    @Test
+    public void roundTripsThroughBytes() throws Exception {
+        StrokeStore store = new StrokeStore();
+        // Enough strokes and points to grow every array.
+        for (int i = 0; i < 100; i++) {
+            float[] points = new float[2 * (i % 7 + 1)];
+            for (int j = 0; j < points.length; j++) {
+                points[j] = i * 10 + j;
+            }
+            store.add(points, points.length / 2, i % 3 == 0 ? RED : BLACK, 1 + i % 12, i % 3, ROUND, i % 2 == 0);
+        }
+        // The undone stroke is not written.
+        store.undo();
+
+        StrokeStore read = new StrokeStore();
+        read.readFrom(store.toByteArray());
+        assertEquals(99, read.getStrokeCount());
+        assertEquals(store.getStyleCount(), read.getStyleCount());
+        for (int i = 0; i < 99; i++) {
+            assertEquals(store.getStyle(i), read.getStyle(i));
+            assertEquals(store.getPointCount(i), read.getPointCount(i));
+            for (int j = 0; j < 2 * store.getPointCount(i); j++) {
+                assertEquals(store.getPoints()[store.getOffset(i) + j], read.getPoints()[read.getOffset(i) + j], 0f);
+            }
+        }
+    }
+
+    @Test
+    public void rejectsMalformedData() throws Exception {
+        assertRejected(encode(2, 1, 0, 2), "unknown version");
+        assertRejected(encode(1, 1, 5, 2), "style out of range");
+        assertRejected(encode(1, 1, -1, 2), "negative style");
+        assertRejected(encode(1, 1, 0, 3), "odd length");
+        assertRejected(encode(1, 1, 0, -2), "negative length");
+        assertRejected(encode(1, 1, 0, 0), "no points");
+        assertRejected(encode(1, 1, 0, 1000), "length past the end");
+
+        byte[] valid = encode(1, 1, 0, 2);
+        byte[] truncated = new byte[valid.length - 1];
+        System.arraycopy(valid, 0, truncated, 0, truncated.length);
+        assertRejected(truncated, "truncated");
+
+        StrokeStore store = new StrokeStore();
+        store.readFrom(valid);
+        assertEquals(1, store.getStrokeCount());
+    }
+
+    private static void assertRejected(byte[] data, String what) {
+        StrokeStore store = new StrokeStore();
+        store.add(new float[]{1, 2}, 1, BLACK, 5f, ROUND, ROUND, true);
+        try {
+            store.readFrom(data);
+            fail(what + " was accepted");
+        } catch (IOException e) {
+            // The store is left empty rather than half read.
+            assertEquals(0, store.getStrokeCount());
+            assertEquals(0, store.getStyleCount());
+        }
+    }
+
+    /**
+     * Encodes a single style and a single stroke with the given fields, and two points.
+     */
+    private static byte[] encode(int version, int styleCount, int style, int length) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(version);
+        out.writeInt(styleCount);
+        for (int s = 0; s < styleCount; s++) {
+            out.writeInt(BLACK);
+            out.writeFloat(5f);
+            out.writeByte(ROUND);
+            out.writeByte(ROUND);
+            out.writeBoolean(true);
+        }
+        out.writeInt(1);
+        out.writeInt(style);
+        out.writeInt(length);
+        out.writeFloat(10f);
+        out.writeFloat(20f);
+        out.close();
+        return bytes.toByteArray();
+    }
+}
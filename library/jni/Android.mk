@@ -24,6 +24,7 @@ LOCAL_SRC_FILES := cn_Ragnarok_NativeFilterFunc.cpp \
 					ColorTranslator.cpp \
 					HueSaturationFilter.cpp \
 					GothamFilter.cpp \
+					LookupTableFilter.cpp \
 
 LOCAL_LDLIBS := -lm -llog
 
@@ -19,31 +19,82 @@ AverageSmoothFilter::AverageSmoothFilter(int* pixels, int width, int height):
 	maskSize = 5;
 }
 
+/*
+ * the window sums are kept up to date instead of summed again for every pixel: a sum per
+ * column over the rows of the window, moved down a row at a time, and the sum of those
+ * over the columns of the window, moved right a pixel at a time. like the full sums did,
+ * the sums read the pixels already smoothed above and left of the center, so every
+ * written pixel is added to them.
+ *
+ * an even mask reaches maskSize / 2 pixels up and left but one less down and right.
+ */
 int* AverageSmoothFilter::procImage() {
-	int sumR = 0;
-	int sumG = 0;
-	int sumB = 0;
+	if (maskSize < 1 || width < maskSize || height < maskSize) {
+		return this->pixels;
+	}
 	int div = maskSize * maskSize;
-	int halfMaskSize = maskSize / 2;
-
-	for (int row = halfMaskSize; row < height - halfMaskSize; row++) {
-		for (int col = halfMaskSize; col < width - halfMaskSize; col++) {
-			sumR = sumG = sumB = 0;
-			for (int m = -halfMaskSize; m <= halfMaskSize; m++) {
-				for (int n = -halfMaskSize; n <= halfMaskSize; n++) {
-					int index = (row + m) * width + col + n;
-					if (index < width * height) {
-						Color color(pixels[(row + m) * width + col + n]);
-						sumR += color.R();
-						sumG += color.G();
-						sumB += color.B();
-					}
-				}
+	int before = maskSize / 2;
+	int after = (maskSize - 1) / 2;
+
+	int *columnR = new int[width];
+	int *columnG = new int[width];
+	int *columnB = new int[width];
+	memset(columnR, 0, width * sizeof(int));
+	memset(columnG, 0, width * sizeof(int));
+	memset(columnB, 0, width * sizeof(int));
+	for (int row = 0; row < maskSize; row++) {
+		for (int col = 0; col < width; col++) {
+			Color color(pixels[row * width + col]);
+			columnR[col] += color.R();
+			columnG[col] += color.G();
+			columnB[col] += color.B();
+		}
+	}
+
+	for (int row = before; row < height - after; row++) {
+		if (row > before) {
+			int *entering = pixels + (row + after) * width;
+			int *leaving = pixels + (row - before - 1) * width;
+			for (int col = 0; col < width; col++) {
+				Color enteringColor(entering[col]);
+				Color leavingColor(leaving[col]);
+				columnR[col] += enteringColor.R() - leavingColor.R();
+				columnG[col] += enteringColor.G() - leavingColor.G();
+				columnB[col] += enteringColor.B() - leavingColor.B();
 			}
-			pixels[row * width + col] = RGB2Color(sumR / div, sumG / div, sumB / div);
+		}
+
+		int sumR = 0, sumG = 0, sumB = 0;
+		for (int col = 0; col < maskSize; col++) {
+			sumR += columnR[col];
+			sumG += columnG[col];
+			sumB += columnB[col];
+		}
+		for (int col = before; col < width - after; col++) {
+			if (col > before) {
+				sumR += columnR[col + after] - columnR[col - before - 1];
+				sumG += columnG[col + after] - columnG[col - before - 1];
+				sumB += columnB[col + after] - columnB[col - before - 1];
+			}
+			int index = row * width + col;
+			Color oldColor(pixels[index]);
+			int newR = sumR / div;
+			int newG = sumG / div;
+			int newB = sumB / div;
+			pixels[index] = RGB2Color(newR, newG, newB);
+
+			columnR[col] += newR - oldColor.R();
+			columnG[col] += newG - oldColor.G();
+			columnB[col] += newB - oldColor.B();
+			sumR += newR - oldColor.R();
+			sumG += newG - oldColor.G();
+			sumB += newB - oldColor.B();
 		}
 	}
 
+	delete [] columnR;
+	delete [] columnG;
+	delete [] columnB;
+
 	return this->pixels;
 }
-
@@ -17,34 +17,30 @@ int* BrightContrastFilter::procImage() {
 }
 
 int* BrightContrastFilter::setBrightness(double brightness) {
-	for (int i = 0; i < width * height; i++) {
-		Color color(pixels[i]);
-		int r = color.R() + brightness;
-		int g = color.G() + brightness;
-		int b = color.B() + brightness;
-
-		r = min(255, max(0, r));
-		g = min(255, max(0, g));
-		b = min(255, max(0, b));
-
-		pixels[i] = RGB2Color(r, g, b);
+	int table[LOOKUP_TABLE_SIZE];
+	for (int i = 0; i < LOOKUP_TABLE_SIZE; i++) {
+		int c = i + brightness;
+		table[i] = min(255, max(0, c));
 	}
-
-	return pixels;
+	return applyTable(table);
 }
 
 int* BrightContrastFilter::setContrast(double contrast) {
+	int table[LOOKUP_TABLE_SIZE];
+	for (int i = 0; i < LOOKUP_TABLE_SIZE; i++) {
+		int c = 128 + (i - 128) * contrast;
+		table[i] = min(255, max(0, c));
+	}
+	return applyTable(table);
+}
+
+/*
+ * the same table for every channel, the result is opaque
+ */
+int* BrightContrastFilter::applyTable(const int *table) {
 	for (int i = 0; i < width * height; i++) {
 		Color color(pixels[i]);
-		int r = 128 + (color.R() - 128) * contrast;
-		int g = 128 + (color.G() - 128) * contrast;
-		int b = 128 + (color.B() - 128) * contrast;
-
-		r = min(255, max(0, r));
-		g = min(255, max(0, g));
-		b = min(255, max(0, b));
-
-		pixels[i] = RGB2Color(r, g, b);
+		pixels[i] = RGB2Color(table[color.R()], table[color.G()], table[color.B()]);
 	}
 
 	return pixels;
@@ -9,6 +9,7 @@
 #define BRIGHTCONTRASTFILTER_H_
 
 #include "ImageFilter.h"
+#include "LookupTableFilter.h"
 
 
 class BrightContrastFilter : public ImageFilter {
@@ -17,6 +18,8 @@ public:
 	int* procImage();
 	int* setBrightness(double brightness);
 	int* setContrast(double contrast);
+private:
+	int* applyTable(const int *table);
 };
 
 
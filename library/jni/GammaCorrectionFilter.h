@@ -28,7 +28,7 @@ public:
 	int* procImage();
 private:
 	double gamma;
-	double gammaTable[GAMMA_TABLE_SIZE]; // the gamma lookup table
+	int gammaTable[GAMMA_TABLE_SIZE]; // the gamma lookup table, truncated like the kernel always did
 	void initGammaTable();
 };
 
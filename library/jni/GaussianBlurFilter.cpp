@@ -7,87 +7,238 @@
 
 #include <math.h>
 #include <stdio.h>
+#include <pthread.h>
+#include <map>
 
 #include "GaussianBlurFilter.h"
 
+// sigmas come from sliders, so the cache is emptied once it holds this many kernels
+#define MAX_CACHED_KERNELS 32
+
+static pthread_mutex_t kernelCacheLock = PTHREAD_MUTEX_INITIALIZER;
+static std::map<double, std::vector<int> > kernelCache;
 
 GaussianBlurFilter::GaussianBlurFilter(int *_pixels, int _width, int _height, GaussianBlurOptions options):
 	ImageFilter(_pixels, _width, _height),
 	sigma(options.sigma),
-	kernelSum(0) {
+	boxApproximation(options.boxApproximation) {
+	maskSize = ceil(sigma * 3 + 1);
+}
 
-	// pre-calculate kernel
-	int ksize = ceil(sigma * 3 + 1);
-	if (ksize == 1) {
-		return;
+std::vector<int> GaussianBlurFilter::getKernel(double sigma) {
+	pthread_mutex_lock(&kernelCacheLock);
+	std::map<double, std::vector<int> >::iterator cached = kernelCache.find(sigma);
+	if (cached != kernelCache.end()) {
+		std::vector<int> kernel = cached->second;
+		pthread_mutex_unlock(&kernelCacheLock);
+		return kernel;
 	}
-	maskSize = ksize;
-	this->kernel = new double[ksize * ksize];
+	pthread_mutex_unlock(&kernelCacheLock);
+
+	int radius = (int) ceil(sigma * 3 + 1) / 2;
+	std::vector<double> weights(2 * radius + 1);
 	double scale = -0.5 / (sigma * sigma);
-	double cons = -scale / PI;
 	double sum = 0;
+	for (int i = -radius; i <= radius; i++) {
+		weights[i + radius] = exp(scale * i * i);
+		sum += weights[i + radius];
+	}
 
-	for (int i = 0; i < ksize; i++) {
-		for (int j = 0; j < ksize; j++) {
-			int x = i - (ksize - 1) / 2;
-			int y = j - (ksize - 1) / 2;
-			kernel[i * ksize + j] = cons * exp(scale * (x * x + y * y));
-
-			sum += kernel[i * ksize + j];
-		}
+	// round every weight, then give what rounding lost or added to the center
+	std::vector<int> kernel(2 * radius + 1);
+	int fixedSum = 0;
+	for (int i = 0; i < kernel.size(); i++) {
+		kernel[i] = (int) floor(weights[i] / sum * (1 << KERNEL_SHIFT) + 0.5);
+		fixedSum += kernel[i];
 	}
+	kernel[radius] += (1 << KERNEL_SHIFT) - fixedSum;
 
-	// normalize
-	for (int i = 0; i < ksize; i++) {
-		for (int j = 0; j < ksize; j++) {
-			kernel[i * ksize + j] /= sum;
-		}
+	pthread_mutex_lock(&kernelCacheLock);
+	if (kernelCache.size() >= MAX_CACHED_KERNELS) {
+		kernelCache.clear();
 	}
-	kernelSum = sum;
+	kernelCache[sigma] = kernel;
+	pthread_mutex_unlock(&kernelCacheLock);
+	return kernel;
 }
 
+void GaussianBlurFilter::getBoxRadii(double sigma, int *radii) {
+	// box widths whose variances add up to sigma^2, see Kovesi, "Fast Almost-Gaussian Filtering"
+	double idealWidth = sqrt(12 * sigma * sigma / BOX_PASSES + 1);
+	int lowerWidth = (int) floor(idealWidth);
+	if (lowerWidth % 2 == 0) {
+		lowerWidth--;
+	}
+	int upperWidth = lowerWidth + 2;
+	double idealLowerCount = (12 * sigma * sigma - BOX_PASSES * lowerWidth * lowerWidth
+			- 4 * BOX_PASSES * lowerWidth - 3 * BOX_PASSES) / (-4.0 * lowerWidth - 4);
+	int lowerCount = (int) floor(idealLowerCount + 0.5);
+	for (int i = 0; i < BOX_PASSES; i++) {
+		radii[i] = ((i < lowerCount ? lowerWidth : upperWidth) - 1) / 2;
+	}
+}
 
 int* GaussianBlurFilter::procImage() {
-	if (maskSize == 1) {
-		return NULL;
+	if (maskSize <= 1 || width <= 0 || height <= 0) {
+		return this->pixels;
 	}
-	int* tempPixels = new int[width * height];
-	memcpy(tempPixels, pixels, width * height * sizeof(int));
-
-	double sumR = 0, sumG = 0, sumB = 0;
-	int index = 0;
-	int bound = maskSize / 2;
 
 	long startTime = getCurrentTime();
 
-	for (int row = bound; row < height - bound; row++) {
+	if (boxApproximation) {
+		boxBlur();
+	} else {
+		separableBlur();
+	}
+
+	long endTime = getCurrentTime();
+
+	LOGI("guassian blur use %ld ms, maskSize: %d, sigma: %f, box: %d", endTime - startTime, maskSize, sigma, boxApproximation);
+
+	return this->pixels;
+}
+
+void GaussianBlurFilter::separableBlur() {
+	std::vector<int> kernel = getKernel(sigma);
+	int bound = kernel.size() / 2;
+	if (width <= 2 * bound || height <= 2 * bound) {
+		return;
+	}
+	int size = width * height;
+	const int roundHalf = 1 << (KERNEL_SHIFT - INTERMEDIATE_SHIFT - 1);
+
+	// horizontal pass over every row, the vertical pass needs the rows next to the border
+	unsigned short *planeR = new unsigned short[size];
+	unsigned short *planeG = new unsigned short[size];
+	unsigned short *planeB = new unsigned short[size];
+	for (int row = 0; row < height; row++) {
 		for (int col = bound; col < width - bound; col++) {
-			index = 0;
-			sumR = sumG = sumB = 0;
-			for (int i = -bound; i <= bound; i++) {
-				for (int j = -bound; j <= bound; j++) {
-					int pixel_index = (row + i) * width + col + j;
-					if (pixel_index < width * height) {
-						Color color(tempPixels[pixel_index]);
-						sumR += color.R() * kernel[index];
-						sumG += color.G() * kernel[index];
-						sumB += color.B() * kernel[index];
-						index++;
-					}
-
-				}
+			int sumR = 0, sumG = 0, sumB = 0;
+			int *source = pixels + row * width + col - bound;
+			for (int i = 0; i <= 2 * bound; i++) {
+				int color = source[i];
+				sumR += ((color >> 16) & 0xFF) * kernel[i];
+				sumG += ((color >> 8) & 0xFF) * kernel[i];
+				sumB += (color & 0xFF) * kernel[i];
 			}
+			int index = row * width + col;
+			planeR[index] = (sumR + roundHalf) >> (KERNEL_SHIFT - INTERMEDIATE_SHIFT);
+			planeG[index] = (sumG + roundHalf) >> (KERNEL_SHIFT - INTERMEDIATE_SHIFT);
+			planeB[index] = (sumB + roundHalf) >> (KERNEL_SHIFT - INTERMEDIATE_SHIFT);
+		}
+	}
 
-			pixels[row * width + col] = RGB2Color(int(sumR), int(sumG), int(sumB));
+	// vertical pass, a row of sums at a time so the planes are read in order
+	int *sumR = new int[width];
+	int *sumG = new int[width];
+	int *sumB = new int[width];
+	for (int row = bound; row < height - bound; row++) {
+		memset(sumR, 0, width * sizeof(int));
+		memset(sumG, 0, width * sizeof(int));
+		memset(sumB, 0, width * sizeof(int));
+		for (int i = 0; i <= 2 * bound; i++) {
+			int weight = kernel[i];
+			int offset = (row + i - bound) * width;
+			for (int col = bound; col < width - bound; col++) {
+				sumR[col] += planeR[offset + col] * weight;
+				sumG[col] += planeG[offset + col] * weight;
+				sumB[col] += planeB[offset + col] * weight;
+			}
+		}
+		for (int col = bound; col < width - bound; col++) {
+			pixels[row * width + col] = RGB2Color(sumR[col] >> (KERNEL_SHIFT + INTERMEDIATE_SHIFT),
+					sumG[col] >> (KERNEL_SHIFT + INTERMEDIATE_SHIFT), sumB[col] >> (KERNEL_SHIFT + INTERMEDIATE_SHIFT));
 		}
 	}
 
-	long endTime = getCurrentTime();
+	delete [] sumR;
+	delete [] sumG;
+	delete [] sumB;
+	delete [] planeR;
+	delete [] planeG;
+	delete [] planeB;
+}
 
-	LOGI("guassian blur use %ld ms, maskSize: %d, sigma: %f", endTime - startTime, maskSize, sigma);
+/*
+ * sum * reciprocal(boxSize) >> 32 is sum / boxSize for every box sum of 8 bit values
+ * while boxSize < 4096, without a division per pixel
+ */
+static inline unsigned long long reciprocal(int boxSize) {
+	return ((1ULL << 32) + boxSize - 1) / boxSize;
+}
 
-	delete [] tempPixels;
+/*
+ * a running sum box blur along the rows of a channel plane, the edge pixels repeat
+ */
+static void boxBlurRows(unsigned char *source, unsigned char *target, int width, int height, int radius) {
+	unsigned long long scale = reciprocal(2 * radius + 1);
+	for (int row = 0; row < height; row++) {
+		unsigned char *in = source + row * width;
+		unsigned char *out = target + row * width;
+		int sum = (radius + 1) * in[0];
+		for (int i = 1; i <= radius; i++) {
+			sum += in[min(i, width - 1)];
+		}
+		for (int col = 0; col < width; col++) {
+			out[col] = ((sum + radius) * scale) >> 32;
+			sum += in[min(col + radius + 1, width - 1)] - in[max(col - radius, 0)];
+		}
+	}
+}
 
-	return this->pixels;
+/*
+ * the same along the columns, with a running sum for every column
+ */
+static void boxBlurColumns(unsigned char *source, unsigned char *target, int width, int height, int radius, int *sums) {
+	unsigned long long scale = reciprocal(2 * radius + 1);
+	for (int col = 0; col < width; col++) {
+		sums[col] = (radius + 1) * source[col];
+	}
+	for (int i = 1; i <= radius; i++) {
+		unsigned char *in = source + min(i, height - 1) * width;
+		for (int col = 0; col < width; col++) {
+			sums[col] += in[col];
+		}
+	}
+	for (int row = 0; row < height; row++) {
+		unsigned char *out = target + row * width;
+		unsigned char *entering = source + min(row + radius + 1, height - 1) * width;
+		unsigned char *leaving = source + max(row - radius, 0) * width;
+		for (int col = 0; col < width; col++) {
+			out[col] = ((sums[col] + radius) * scale) >> 32;
+			sums[col] += entering[col] - leaving[col];
+		}
+	}
 }
 
+void GaussianBlurFilter::boxBlur() {
+	int radii[BOX_PASSES];
+	getBoxRadii(sigma, radii);
+	int size = width * height;
+
+	unsigned char *planes = new unsigned char[size * 3];
+	unsigned char *temp = new unsigned char[size];
+	int *sums = new int[width];
+	for (int i = 0; i < size; i++) {
+		int color = pixels[i];
+		planes[i] = (color >> 16) & 0xFF;
+		planes[size + i] = (color >> 8) & 0xFF;
+		planes[2 * size + i] = color & 0xFF;
+	}
+	for (int channel = 0; channel < 3; channel++) {
+		unsigned char *plane = planes + channel * size;
+		for (int pass = 0; pass < BOX_PASSES; pass++) {
+			if (radii[pass] > 0) {
+				boxBlurRows(plane, temp, width, height, radii[pass]);
+				boxBlurColumns(temp, plane, width, height, radii[pass], sums);
+			}
+		}
+	}
+	for (int i = 0; i < size; i++) {
+		pixels[i] = RGB2Color(planes[i], planes[size + i], planes[2 * size + i]);
+	}
+
+	delete [] sums;
+	delete [] temp;
+	delete [] planes;
+}
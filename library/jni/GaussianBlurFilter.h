@@ -8,29 +8,52 @@
 #ifndef GAUSSIANBLURFILTER_H_
 #define GAUSSIANBLURFILTER_H_
 
+#include <vector>
+
 #include "ImageFilter.h"
 #include "Util.h"
 
+// fixed point weights of the separable kernel sum to 1 << KERNEL_SHIFT
+#define KERNEL_SHIFT 14
+// the horizontal pass keeps 8 fraction bits for the vertical one
+#define INTERMEDIATE_SHIFT 8
+#define BOX_PASSES 3
+
 typedef struct _gaussianBlurOptions {
-	_gaussianBlurOptions(double s) {
+	_gaussianBlurOptions(double s, bool box = false) {
 		this->sigma = s;
+		this->boxApproximation = box;
 	}
 	double sigma;
+	// approximate the gaussian with three box blurs, which cost the same for every sigma
+	bool boxApproximation;
 } GaussianBlurOptions;
 
+/*
+ * the gaussian is separable, so it runs as a horizontal and a vertical pass of a 1d kernel,
+ * O(sigma) per pixel instead of O(sigma^2). pixels closer than ksize / 2 to the border are
+ * left as they are. in the box mode the border is blurred too, repeating the edge pixels.
+ */
 class GaussianBlurFilter : public ImageFilter {
 public:
 	GaussianBlurFilter(int *_pixels, int _width, int _height, GaussianBlurOptions opions);
 	~GaussianBlurFilter() {
 		this->sigma = 0;
-		delete [] kernel;
-		kernel = NULL;
 	}
 	int* procImage();
+	/**
+	 * the fixed point 1d kernel for sigma, 2 * radius + 1 weights, from a cache shared by all threads
+	 */
+	static std::vector<int> getKernel(double sigma);
+	/**
+	 * the radii of the three box blurs approximating a gaussian with sigma
+	 */
+	static void getBoxRadii(double sigma, int *radii);
 private:
+	void separableBlur();
+	void boxBlur();
 	double sigma;
-	double *kernel;
-	int kernelSum;
+	bool boxApproximation;
 	int maskSize;
 };
 
@@ -10,12 +10,23 @@
 #include "ColorTranslator.h"
 
 HueSaturationFilter::HueSaturationFilter(int* pixels, int width, int height):
-	ImageFilter(pixels, width, height) {
+	ImageFilter(pixels, width, height),
+	hue(-1), saturation(-1) {
 	pixelsHSI = new HSI[width * height];
 
 	initPixelsHSI();
 }
 
+/*
+ * procImage replaces the hue and the saturation of every pixel in a single pass. only the
+ * intensity of a pixel is kept, so the HSI of the whole image isn't computed up front
+ */
+HueSaturationFilter::HueSaturationFilter(int* pixels, int width, int height, HueSaturationOptions options):
+	ImageFilter(pixels, width, height),
+	pixelsHSI(NULL),
+	hue(options.hue), saturation(options.saturation) {
+}
+
 HueSaturationFilter::~HueSaturationFilter() {
 	delete [] pixelsHSI;
 	pixelsHSI = NULL;
@@ -30,7 +41,25 @@ void HueSaturationFilter::initPixelsHSI() {
 }
 
 int* HueSaturationFilter::procImage() {
-	return NULL;
+	if (pixelsHSI != NULL) {
+		return NULL;
+	}
+	double h = hue;
+	if (h > 360) {
+		h = h - 360;
+	} else if (h < 0) {
+		h = h + 360;
+	}
+	double s = min(1.0, max(0.0, saturation));
+	for (int i = 0; i < width * height; i++) {
+		Color color(pixels[i]);
+		double intensity = (color.R() / COLOR_UPPER_BOUND + color.G() / COLOR_UPPER_BOUND + color.B() / COLOR_UPPER_BOUND) / 3.0;
+		RGB rgb = ColorTranslator::HSI2RGB(h, s, intensity);
+		if (ColorTranslator::checkRGB(rgb)) {
+			pixels[i] = RGB2Color(rgb.r, rgb.g, rgb.b);
+		}
+	}
+	return pixels;
 }
 
 int* HueSaturationFilter::setHue(double hue) {
@@ -11,9 +11,19 @@
 #include "ImageFilter.h"
 #include "ColorTranslator.h"
 
+typedef struct _hueSaturationOptions {
+	_hueSaturationOptions(double h, double s) {
+		hue = h;
+		saturation = s;
+	}
+	double hue;
+	double saturation;
+} HueSaturationOptions;
+
 class HueSaturationFilter : public ImageFilter {
 public:
 	HueSaturationFilter(int *pixels, int width, int height);
+	HueSaturationFilter(int *pixels, int width, int height, HueSaturationOptions options);
 	~HueSaturationFilter();
 	int* procImage();
 	int* setHue(double hue);
@@ -22,6 +32,8 @@ public:
 	int* setHueSaturationIntesity(double hue, double saturation, double intesity);
 private:
 	HSI* pixelsHSI;
+	double hue;
+	double saturation;
 	void initPixelsHSI();
 };
 
@@ -0,0 +1,26 @@
+/*
+ * LookupTableFilter.cpp
+ *
+ *  Created on: 2026-10-18
+ */
+
+#include "LookupTableFilter.h"
+
+LookupTableFilter::LookupTableFilter(int *pixels, int width, int height, LookupTableOptions options):
+	ImageFilter(pixels, width, height),
+	redTable(options.table),
+	greenTable(options.table + LOOKUP_TABLE_SIZE),
+	blueTable(options.table + 2 * LOOKUP_TABLE_SIZE) {
+}
+
+int* LookupTableFilter::procImage() {
+	int size = width * height;
+	for (int i = 0; i < size; i++) {
+		unsigned int color = pixels[i];
+		pixels[i] = (color & 0xFF000000)
+				| redTable[(color >> 16) & 0xFF] << 16
+				| greenTable[(color >> 8) & 0xFF] << 8
+				| blueTable[color & 0xFF];
+	}
+	return pixels;
+}
@@ -0,0 +1,36 @@
+/*
+ * LookupTableFilter.h
+ *
+ *  Created on: 2026-10-18
+ */
+
+#ifndef LOOKUPTABLEFILTER_H_
+#define LOOKUPTABLEFILTER_H_
+
+#include "ImageFilter.h"
+
+#define LOOKUP_TABLE_SIZE 256
+
+typedef struct _lookupTableOptions {
+	_lookupTableOptions(const int *t) {
+		table = t;
+	}
+	const int *table; // the red, green and blue tables one after another, 3 * LOOKUP_TABLE_SIZE values
+} LookupTableOptions;
+
+/*
+ * maps every channel of every pixel through its own 256 entry table, alpha is kept
+ */
+class LookupTableFilter : public ImageFilter {
+public:
+	LookupTableFilter(int *pixels, int width, int height, LookupTableOptions options);
+	int* procImage();
+private:
+	const int *redTable;
+	const int *greenTable;
+	const int *blueTable;
+};
+
+
+
+#endif /* LOOKUPTABLEFILTER_H_ */
@@ -20,60 +20,103 @@ OilFilter::OilFilter(int *pixels, int width, int height, OilFilterOptions option
 	this->oilRange = options.oilRange;
 }
 
+/*
+ * the histogram of one channel over the window, with its mode kept up to date while levels
+ * are added, so it only has to be searched again when a level of the mode is removed
+ */
+class ModeHistogram {
+public:
+	void clear() {
+		memset(counts, 0, OIL_FILTER_LEVEL * sizeof(int));
+		mode = 0;
+		dirty = false;
+	}
+	void add(int level) {
+		int count = ++counts[level];
+		if (!dirty && (count > counts[mode] || (count == counts[mode] && level < mode))) {
+			mode = level;
+		}
+	}
+	void remove(int level) {
+		counts[level]--;
+		if (level == mode) {
+			dirty = true;
+		}
+	}
+	/**
+	 * the most frequent level, the lowest one of a tie
+	 */
+	int getMode() {
+		if (dirty) {
+			mode = 0;
+			for (int i = 1; i < OIL_FILTER_LEVEL; i++) {
+				if (counts[i] > counts[mode]) {
+					mode = i;
+				}
+			}
+			dirty = false;
+		}
+		return mode;
+	}
+	int getModeCount() {
+		return counts[getMode()];
+	}
+private:
+	int counts[OIL_FILTER_LEVEL];
+	int mode;
+	bool dirty;
+};
+
+/*
+ * the histograms slide along each row: moving a pixel right removes the column leaving the
+ * window and adds the one entering it, O(oilRange) per pixel instead of O(oilRange^2)
+ */
 int* OilFilter::procImage() {
+	if (oilRange < 1) {
+		return pixels;
+	}
 	int *originPixels = new int[width * height];
 	memcpy(originPixels, pixels, width * height * sizeof(int));
 
-	int rHis[OIL_FILTER_LEVEL], gHis[OIL_FILTER_LEVEL], bHis[OIL_FILTER_LEVEL];
+	ModeHistogram rHis, gHis, bHis;
 
 	for (int y = 0; y < height; y++) {
-		for (int x = 0; x < width; x++) {
-			memset(rHis, 0, OIL_FILTER_LEVEL * sizeof(int));
-			memset(gHis, 0, OIL_FILTER_LEVEL * sizeof(int));
-			memset(bHis, 0, OIL_FILTER_LEVEL * sizeof(int));
-
-			int rowOffset, colOffset;
-			for (int row = -this->oilRange; row < this->oilRange; row++) {
-				rowOffset = y + row;
-				if (rowOffset >= 0 && rowOffset < height) {
-					for (int col = -this->oilRange; col < this->oilRange; col++) {
-						colOffset = x + col;
-						if (colOffset >= 0 && colOffset < width) {
-							Color color = originPixels[rowOffset * width + colOffset];
-							int r = color.R();
-							int g = color.G();
-							int b = color.B();
-
-							rHis[r]++;
-							gHis[g]++;
-							bHis[b]++;
-						}
-					}
-				}
+		int firstRow = max(0, y - oilRange);
+		int lastRow = min(height, y + oilRange);
+		rHis.clear();
+		gHis.clear();
+		bHis.clear();
+		for (int col = 0; col < min(width, oilRange); col++) {
+			for (int row = firstRow; row < lastRow; row++) {
+				Color color(originPixels[row * width + col]);
+				rHis.add(color.R());
+				gHis.add(color.G());
+				bHis.add(color.B());
 			}
+		}
 
-			int maxR = 0, maxG = 0, maxB = 0;
-			for (int i = 1; i < OIL_FILTER_LEVEL; i++) {
-				if (rHis[i] > rHis[maxR]) {
-					maxR = i;
-				}
-				if (gHis[i] > gHis[maxG]) {
-					maxG = i;
+		for (int x = 0; x < width; x++) {
+			int leaving = x - oilRange - 1;
+			int entering = x + oilRange - 1;
+			if (x > 0 && leaving >= 0) {
+				for (int row = firstRow; row < lastRow; row++) {
+					Color color(originPixels[row * width + leaving]);
+					rHis.remove(color.R());
+					gHis.remove(color.G());
+					bHis.remove(color.B());
 				}
-				if (bHis[i] > bHis[maxB]) {
-					maxB = i;
+			}
+			if (x > 0 && entering < width) {
+				for (int row = firstRow; row < lastRow; row++) {
+					Color color(originPixels[row * width + entering]);
+					rHis.add(color.R());
+					gHis.add(color.G());
+					bHis.add(color.B());
 				}
 			}
-			if (rHis[maxR] != 0 && gHis[maxG] != 0 && bHis[maxB] != 0) {
-				int finalR = maxR;
-				int finalG = maxG;
-				int finalB = maxB;
-
-				finalR = min(255, max(0, finalR));
-				finalG = min(255, max(0, finalG));
-				finalB = min(255, max(0, finalB));
 
-				pixels[y * width + x] = RGB2Color(finalR, finalG, finalB);
+			if (rHis.getModeCount() != 0 && gHis.getModeCount() != 0 && bHis.getModeCount() != 0) {
+				pixels[y * width + x] = RGB2Color(rHis.getMode(), gHis.getMode(), bHis.getMode());
 			}
 		}
 	}
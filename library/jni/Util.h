@@ -43,6 +43,45 @@
 	result; \
 })\
 
+/**
+ * the in place macros filter the caller's int[] or direct buffer and leave the result in it,
+ * instead of copying the frame in and handing back a new array. the int[] is accessed with
+ * GetPrimitiveArrayCritical, so the filter must not call back into the JVM.
+ */
+#define PROC_IMAGE_IN_PLACE_WITH_OPTIONS(env, pixels, width, height, FilterClass, options) ({\
+	jint* pixelsBuff = getCriticalPixels(env, pixels, width, height); \
+	if (pixelsBuff != NULL) { \
+		FilterClass filter(pixelsBuff, width, height, options); \
+		filter.procImage(); \
+		env->ReleasePrimitiveArrayCritical(pixels, pixelsBuff, 0); \
+	} \
+})\
+
+#define PROC_IMAGE_IN_PLACE_WITHOUT_OPTIONS(env, pixels, width, height, FilterClass) ({\
+	jint* pixelsBuff = getCriticalPixels(env, pixels, width, height); \
+	if (pixelsBuff != NULL) { \
+		FilterClass filter(pixelsBuff, width, height); \
+		filter.procImage(); \
+		env->ReleasePrimitiveArrayCritical(pixels, pixelsBuff, 0); \
+	} \
+})\
+
+#define PROC_DIRECT_BUFFER_WITH_OPTIONS(env, buffer, width, height, FilterClass, options) ({\
+	jint* pixelsBuff = getDirectPixels(env, buffer, width, height); \
+	if (pixelsBuff != NULL) { \
+		FilterClass filter(pixelsBuff, width, height, options); \
+		filter.procImage(); \
+	} \
+})\
+
+#define PROC_DIRECT_BUFFER_WITHOUT_OPTIONS(env, buffer, width, height, FilterClass) ({\
+	jint* pixelsBuff = getDirectPixels(env, buffer, width, height); \
+	if (pixelsBuff != NULL) { \
+		FilterClass filter(pixelsBuff, width, height); \
+		filter.procImage(); \
+	} \
+})\
+
 typedef void (*GENERAL_IMG_PROC_FUNC)(int*, int, int); // pixels, width, height
 
 static inline int min(int a, int b) {
@@ -92,6 +131,50 @@ static inline void releaseArray(JNIEnv* env, jintArray array1, jint* array2) {
 	env->ReleaseIntArrayElements(array1, array2, 0);
 }
 
+static inline void throwIllegalArgument(JNIEnv* env, const char* message) {
+	jclass exceptionClass = env->FindClass("java/lang/IllegalArgumentException");
+	if (exceptionClass != NULL) {
+		env->ThrowNew(exceptionClass, message);
+	}
+}
+
+/**
+ * pin the caller's array, returns NULL with a pending exception if it's too small
+ */
+static inline jint* getCriticalPixels(JNIEnv* env, jintArray pixels, jint width, jint height) {
+	if (env->GetArrayLength(pixels) < width * height) {
+		throwIllegalArgument(env, "the pixels array is smaller than width * height");
+		return NULL;
+	}
+	jint* pixelsBuff = (jint*) env->GetPrimitiveArrayCritical(pixels, 0);
+	if (pixelsBuff == NULL) {
+		LOGE("can't get pixels");
+	}
+	return pixelsBuff;
+}
+
+/**
+ * get the ARGB ints of a direct IntBuffer or ByteBuffer in native order,
+ * returns NULL with a pending exception if it isn't direct or is too small
+ */
+static inline jint* getDirectPixels(JNIEnv* env, jobject buffer, jint width, jint height) {
+	jint* pixelsBuff = (jint*) env->GetDirectBufferAddress(buffer);
+	if (pixelsBuff == NULL) {
+		throwIllegalArgument(env, "the pixels buffer isn't a direct buffer");
+		return NULL;
+	}
+	jlong capacity = env->GetDirectBufferCapacity(buffer);
+	jclass byteBufferClass = env->FindClass("java/nio/ByteBuffer");
+	if (env->IsInstanceOf(buffer, byteBufferClass)) {
+		capacity /= sizeof(jint);
+	}
+	if (capacity < (jlong) width * height) {
+		throwIllegalArgument(env, "the pixels buffer is smaller than width * height");
+		return NULL;
+	}
+	return pixelsBuff;
+}
+
 static inline jintArray procImage(JNIEnv* env, jintArray pixels, jint width, jint height, GENERAL_IMG_PROC_FUNC procFunc) {
 	jint* pixelsBuff = getPixleArray(env, pixels);
 
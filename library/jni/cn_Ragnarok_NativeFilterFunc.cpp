@@ -25,6 +25,8 @@
 #include "BlockFilter.h"
 #include "MotionBlurFilter.h"
 #include "GothamFilter.h"
+#include "LookupTableFilter.h"
+#include "HueSaturationFilter.h"
 
 jintArray Java_cn_Ragnarok_NativeFilterFunc_lightFilter(JNIEnv* env,
 		jclass object, jintArray pixels, jint width, jint height, jint centerX, jint centerY, jint radius) {
@@ -141,3 +143,239 @@ jintArray Java_cn_Ragnarok_NativeFilterFunc_gothamFilter(JNIEnv* env, jclass obj
 	jintArray result = PROC_IMAGE_WITHOUT_OPTIONS(env, pixels, width, height, GothamFilter);
 	return result;
 }
+
+void Java_cn_Ragnarok_NativeFilterFunc_lightFilterInPlace(JNIEnv* env, jclass object,
+		jintArray pixels, jint width, jint height, jint centerX, jint centerY, jint radius) {
+	LightFilterOptions options(centerX, centerY, radius);
+	PROC_IMAGE_IN_PLACE_WITH_OPTIONS(env, pixels, width, height, LightFilter, options);
+}
+
+void Java_cn_Ragnarok_NativeFilterFunc_lightFilterDirect(JNIEnv* env, jclass object,
+		jobject pixels, jint width, jint height, jint centerX, jint centerY, jint radius) {
+	LightFilterOptions options(centerX, centerY, radius);
+	PROC_DIRECT_BUFFER_WITH_OPTIONS(env, pixels, width, height, LightFilter, options);
+}
+
+void Java_cn_Ragnarok_NativeFilterFunc_lomoAddBlckRoundInPlace(JNIEnv* env, jclass object,
+		jintArray pixels, jint width, jint height, jdouble roundRadius) {
+	BlackRoundOptions options(roundRadius);
+	PROC_IMAGE_IN_PLACE_WITH_OPTIONS(env, pixels, width, height, LomoAddBlackRound, options);
+}
+
+void Java_cn_Ragnarok_NativeFilterFunc_lomoAddBlckRoundDirect(JNIEnv* env, jclass object,
+		jobject pixels, jint width, jint height, jdouble roundRadius) {
+	BlackRoundOptions options(roundRadius);
+	PROC_DIRECT_BUFFER_WITH_OPTIONS(env, pixels, width, height, LomoAddBlackRound, options);
+}
+
+void Java_cn_Ragnarok_NativeFilterFunc_neonFilterInPlace(JNIEnv* env, jclass object,
+		jintArray pixels, jint width, jint height, jint r, jint g, jint b) {
+	NeonFilterOptions options(r, g, b);
+	PROC_IMAGE_IN_PLACE_WITH_OPTIONS(env, pixels, width, height, NeonFilter, options);
+}
+
+void Java_cn_Ragnarok_NativeFilterFunc_neonFilterDirect(JNIEnv* env, jclass object,
+		jobject pixels, jint width, jint height, jint r, jint g, jint b) {
+	NeonFilterOptions options(r, g, b);
+	PROC_DIRECT_BUFFER_WITH_OPTIONS(env, pixels, width, height, NeonFilter, options);
+}
+
+void Java_cn_Ragnarok_NativeFilterFunc_oilFilterInPlace(JNIEnv* env, jclass object,
+		jintArray pixels, jint width, jint height, jint oilRange) {
+	OilFilterOptions options(oilRange);
+	PROC_IMAGE_IN_PLACE_WITH_OPTIONS(env, pixels, width, height, OilFilter, options);
+}
+
+void Java_cn_Ragnarok_NativeFilterFunc_oilFilterDirect(JNIEnv* env, jclass object,
+		jobject pixels, jint width, jint height, jint oilRange) {
+	OilFilterOptions options(oilRange);
+	PROC_DIRECT_BUFFER_WITH_OPTIONS(env, pixels, width, height, OilFilter, options);
+}
+
+void Java_cn_Ragnarok_NativeFilterFunc_tvFilterInPlace(JNIEnv* env, jclass object,
+		jintArray pixels, jint width, jint height) {
+	PROC_IMAGE_IN_PLACE_WITHOUT_OPTIONS(env, pixels, width, height, TvFilter);
+}
+
+void Java_cn_Ragnarok_NativeFilterFunc_tvFilterDirect(JNIEnv* env, jclass object,
+		jobject pixels, jint width, jint height) {
+	PROC_DIRECT_BUFFER_WITHOUT_OPTIONS(env, pixels, width, height, TvFilter);
+}
+
+void Java_cn_Ragnarok_NativeFilterFunc_averageSmoothInPlace(JNIEnv* env, jclass object,
+		jintArray pixels, jint width, jint height, jint maskSize) {
+	AverageSmoothOptions options(maskSize);
+	PROC_IMAGE_IN_PLACE_WITH_OPTIONS(env, pixels, width, height, AverageSmoothFilter, options);
+}
+
+void Java_cn_Ragnarok_NativeFilterFunc_averageSmoothDirect(JNIEnv* env, jclass object,
+		jobject pixels, jint width, jint height, jint maskSize) {
+	AverageSmoothOptions options(maskSize);
+	PROC_DIRECT_BUFFER_WITH_OPTIONS(env, pixels, width, height, AverageSmoothFilter, options);
+}
+
+void Java_cn_Ragnarok_NativeFilterFunc_hdrFilterInPlace(JNIEnv* env, jclass object,
+		jintArray pixels, jint width, jint height) {
+	PROC_IMAGE_IN_PLACE_WITHOUT_OPTIONS(env, pixels, width, height, HDRFilter);
+}
+
+void Java_cn_Ragnarok_NativeFilterFunc_hdrFilterDirect(JNIEnv* env, jclass object,
+		jobject pixels, jint width, jint height) {
+	PROC_DIRECT_BUFFER_WITHOUT_OPTIONS(env, pixels, width, height, HDRFilter);
+}
+
+void Java_cn_Ragnarok_NativeFilterFunc_discreteGaussianBlurInPlace(JNIEnv* env, jclass object,
+		jintArray pixels, jint width, jint height, jdouble sigma) {
+	GaussianBlurOptions options(sigma);
+	PROC_IMAGE_IN_PLACE_WITH_OPTIONS(env, pixels, width, height, GaussianBlurFilter, options);
+}
+
+void Java_cn_Ragnarok_NativeFilterFunc_discreteGaussianBlurDirect(JNIEnv* env, jclass object,
+		jobject pixels, jint width, jint height, jdouble sigma) {
+	GaussianBlurOptions options(sigma);
+	PROC_DIRECT_BUFFER_WITH_OPTIONS(env, pixels, width, height, GaussianBlurFilter, options);
+}
+
+void Java_cn_Ragnarok_NativeFilterFunc_boxGaussianBlurInPlace(JNIEnv* env, jclass object,
+		jintArray pixels, jint width, jint height, jdouble sigma) {
+	GaussianBlurOptions options(sigma, true);
+	PROC_IMAGE_IN_PLACE_WITH_OPTIONS(env, pixels, width, height, GaussianBlurFilter, options);
+}
+
+void Java_cn_Ragnarok_NativeFilterFunc_boxGaussianBlurDirect(JNIEnv* env, jclass object,
+		jobject pixels, jint width, jint height, jdouble sigma) {
+	GaussianBlurOptions options(sigma, true);
+	PROC_DIRECT_BUFFER_WITH_OPTIONS(env, pixels, width, height, GaussianBlurFilter, options);
+}
+
+void Java_cn_Ragnarok_NativeFilterFunc_softGlowInPlace(JNIEnv* env, jclass object,
+		jintArray pixels, jint width, jint height, jdouble blurSigma) {
+	SoftGlowOptions options(blurSigma);
+	PROC_IMAGE_IN_PLACE_WITH_OPTIONS(env, pixels, width, height, SoftGlowFilter, options);
+}
+
+void Java_cn_Ragnarok_NativeFilterFunc_softGlowDirect(JNIEnv* env, jclass object,
+		jobject pixels, jint width, jint height, jdouble blurSigma) {
+	SoftGlowOptions options(blurSigma);
+	PROC_DIRECT_BUFFER_WITH_OPTIONS(env, pixels, width, height, SoftGlowFilter, options);
+}
+
+void Java_cn_Ragnarok_NativeFilterFunc_sketchFilterInPlace(JNIEnv* env, jclass object,
+		jintArray pixels, jint width, jint height) {
+	PROC_IMAGE_IN_PLACE_WITHOUT_OPTIONS(env, pixels, width, height, SketchFilter);
+}
+
+void Java_cn_Ragnarok_NativeFilterFunc_sketchFilterDirect(JNIEnv* env, jclass object,
+		jobject pixels, jint width, jint height) {
+	PROC_DIRECT_BUFFER_WITHOUT_OPTIONS(env, pixels, width, height, SketchFilter);
+}
+
+void Java_cn_Ragnarok_NativeFilterFunc_sharpenFilterInPlace(JNIEnv* env, jclass object,
+		jintArray pixels, jint width, jint height) {
+	PROC_IMAGE_IN_PLACE_WITHOUT_OPTIONS(env, pixels, width, height, SharpenFilter);
+}
+
+void Java_cn_Ragnarok_NativeFilterFunc_sharpenFilterDirect(JNIEnv* env, jclass object,
+		jobject pixels, jint width, jint height) {
+	PROC_DIRECT_BUFFER_WITHOUT_OPTIONS(env, pixels, width, height, SharpenFilter);
+}
+
+void Java_cn_Ragnarok_NativeFilterFunc_reliefFilterInPlace(JNIEnv* env, jclass object,
+		jintArray pixels, jint width, jint height) {
+	PROC_IMAGE_IN_PLACE_WITHOUT_OPTIONS(env, pixels, width, height, ReliefFilter);
+}
+
+void Java_cn_Ragnarok_NativeFilterFunc_reliefFilterDirect(JNIEnv* env, jclass object,
+		jobject pixels, jint width, jint height) {
+	PROC_DIRECT_BUFFER_WITHOUT_OPTIONS(env, pixels, width, height, ReliefFilter);
+}
+
+void Java_cn_Ragnarok_NativeFilterFunc_pxelateFilterInPlace(JNIEnv* env, jclass object,
+		jintArray pixels, jint width, jint height, jint pixelSize) {
+	PixelateOptions options(pixelSize);
+	PROC_IMAGE_IN_PLACE_WITH_OPTIONS(env, pixels, width, height, PixelateFilter, options);
+}
+
+void Java_cn_Ragnarok_NativeFilterFunc_pxelateFilterDirect(JNIEnv* env, jclass object,
+		jobject pixels, jint width, jint height, jint pixelSize) {
+	PixelateOptions options(pixelSize);
+	PROC_DIRECT_BUFFER_WITH_OPTIONS(env, pixels, width, height, PixelateFilter, options);
+}
+
+void Java_cn_Ragnarok_NativeFilterFunc_blockFilterInPlace(JNIEnv* env, jclass object,
+		jintArray pixels, jint width, jint height) {
+	PROC_IMAGE_IN_PLACE_WITHOUT_OPTIONS(env, pixels, width, height, BlockFilter);
+}
+
+void Java_cn_Ragnarok_NativeFilterFunc_blockFilterDirect(JNIEnv* env, jclass object,
+		jobject pixels, jint width, jint height) {
+	PROC_DIRECT_BUFFER_WITHOUT_OPTIONS(env, pixels, width, height, BlockFilter);
+}
+
+void Java_cn_Ragnarok_NativeFilterFunc_motionBlurFilterInPlace(JNIEnv* env, jclass object,
+		jintArray pixels, jint width, jint height, jint xSpeed, jint ySpeed) {
+	MotionBlurFilterOpitons options(xSpeed, ySpeed);
+	PROC_IMAGE_IN_PLACE_WITH_OPTIONS(env, pixels, width, height, MotionBlurFilter, options);
+}
+
+void Java_cn_Ragnarok_NativeFilterFunc_motionBlurFilterDirect(JNIEnv* env, jclass object,
+		jobject pixels, jint width, jint height, jint xSpeed, jint ySpeed) {
+	MotionBlurFilterOpitons options(xSpeed, ySpeed);
+	PROC_DIRECT_BUFFER_WITH_OPTIONS(env, pixels, width, height, MotionBlurFilter, options);
+}
+
+void Java_cn_Ragnarok_NativeFilterFunc_gothamFilterInPlace(JNIEnv* env, jclass object,
+		jintArray pixels, jint width, jint height) {
+	PROC_IMAGE_IN_PLACE_WITHOUT_OPTIONS(env, pixels, width, height, GothamFilter);
+}
+
+void Java_cn_Ragnarok_NativeFilterFunc_gothamFilterDirect(JNIEnv* env, jclass object,
+		jobject pixels, jint width, jint height) {
+	PROC_DIRECT_BUFFER_WITHOUT_OPTIONS(env, pixels, width, height, GothamFilter);
+}
+
+/**
+ * copy the red, green and blue tables out of the caller's array before the pixels are pinned,
+ * returns false with a pending exception if the array is too small
+ */
+static bool getLookupTable(JNIEnv* env, jintArray table, jint* buffer) {
+	if (env->GetArrayLength(table) < 3 * LOOKUP_TABLE_SIZE) {
+		throwIllegalArgument(env, "a lookup table needs 256 values for each of red, green and blue");
+		return false;
+	}
+	env->GetIntArrayRegion(table, 0, 3 * LOOKUP_TABLE_SIZE, buffer);
+	for (int i = 0; i < 3 * LOOKUP_TABLE_SIZE; i++) {
+		buffer[i] &= 0xFF;
+	}
+	return true;
+}
+
+void Java_cn_Ragnarok_NativeFilterFunc_lookupTableFilterInPlace(JNIEnv* env, jclass object,
+		jintArray pixels, jint width, jint height, jintArray table) {
+	jint tableBuff[3 * LOOKUP_TABLE_SIZE];
+	if (getLookupTable(env, table, tableBuff)) {
+		LookupTableOptions options(tableBuff);
+		PROC_IMAGE_IN_PLACE_WITH_OPTIONS(env, pixels, width, height, LookupTableFilter, options);
+	}
+}
+
+void Java_cn_Ragnarok_NativeFilterFunc_lookupTableFilterDirect(JNIEnv* env, jclass object,
+		jobject pixels, jint width, jint height, jintArray table) {
+	jint tableBuff[3 * LOOKUP_TABLE_SIZE];
+	if (getLookupTable(env, table, tableBuff)) {
+		LookupTableOptions options(tableBuff);
+		PROC_DIRECT_BUFFER_WITH_OPTIONS(env, pixels, width, height, LookupTableFilter, options);
+	}
+}
+
+void Java_cn_Ragnarok_NativeFilterFunc_hueSaturationFilterInPlace(JNIEnv* env, jclass object,
+		jintArray pixels, jint width, jint height, jdouble hue, jdouble saturation) {
+	HueSaturationOptions options(hue, saturation);
+	PROC_IMAGE_IN_PLACE_WITH_OPTIONS(env, pixels, width, height, HueSaturationFilter, options);
+}
+
+void Java_cn_Ragnarok_NativeFilterFunc_hueSaturationFilterDirect(JNIEnv* env, jclass object,
+		jobject pixels, jint width, jint height, jdouble hue, jdouble saturation) {
+	HueSaturationOptions options(hue, saturation);
+	PROC_DIRECT_BUFFER_WITH_OPTIONS(env, pixels, width, height, HueSaturationFilter, options);
+}
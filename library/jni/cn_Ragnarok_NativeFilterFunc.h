@@ -135,6 +135,310 @@ JNIEXPORT jintArray JNICALL Java_cn_Ragnarok_NativeFilterFunc_motionBlurFilter
 JNIEXPORT jintArray JNICALL Java_cn_Ragnarok_NativeFilterFunc_gothamFilter
   (JNIEnv *, jclass, jintArray, jint, jint);
 
+/*
+ * Class:     cn_Ragnarok_NativeFilterFunc
+ * Method:    lightFilterInPlace
+ * Signature: ([IIIIII)V
+ */
+JNIEXPORT void JNICALL Java_cn_Ragnarok_NativeFilterFunc_lightFilterInPlace
+  (JNIEnv *, jclass, jintArray, jint, jint, jint, jint, jint);
+
+/*
+ * Class:     cn_Ragnarok_NativeFilterFunc
+ * Method:    lightFilterDirect
+ * Signature: (Ljava/nio/Buffer;IIIII)V
+ */
+JNIEXPORT void JNICALL Java_cn_Ragnarok_NativeFilterFunc_lightFilterDirect
+  (JNIEnv *, jclass, jobject, jint, jint, jint, jint, jint);
+
+/*
+ * Class:     cn_Ragnarok_NativeFilterFunc
+ * Method:    lomoAddBlckRoundInPlace
+ * Signature: ([IIID)V
+ */
+JNIEXPORT void JNICALL Java_cn_Ragnarok_NativeFilterFunc_lomoAddBlckRoundInPlace
+  (JNIEnv *, jclass, jintArray, jint, jint, jdouble);
+
+/*
+ * Class:     cn_Ragnarok_NativeFilterFunc
+ * Method:    lomoAddBlckRoundDirect
+ * Signature: (Ljava/nio/Buffer;IID)V
+ */
+JNIEXPORT void JNICALL Java_cn_Ragnarok_NativeFilterFunc_lomoAddBlckRoundDirect
+  (JNIEnv *, jclass, jobject, jint, jint, jdouble);
+
+/*
+ * Class:     cn_Ragnarok_NativeFilterFunc
+ * Method:    neonFilterInPlace
+ * Signature: ([IIIIII)V
+ */
+JNIEXPORT void JNICALL Java_cn_Ragnarok_NativeFilterFunc_neonFilterInPlace
+  (JNIEnv *, jclass, jintArray, jint, jint, jint, jint, jint);
+
+/*
+ * Class:     cn_Ragnarok_NativeFilterFunc
+ * Method:    neonFilterDirect
+ * Signature: (Ljava/nio/Buffer;IIIII)V
+ */
+JNIEXPORT void JNICALL Java_cn_Ragnarok_NativeFilterFunc_neonFilterDirect
+  (JNIEnv *, jclass, jobject, jint, jint, jint, jint, jint);
+
+/*
+ * Class:     cn_Ragnarok_NativeFilterFunc
+ * Method:    oilFilterInPlace
+ * Signature: ([IIII)V
+ */
+JNIEXPORT void JNICALL Java_cn_Ragnarok_NativeFilterFunc_oilFilterInPlace
+  (JNIEnv *, jclass, jintArray, jint, jint, jint);
+
+/*
+ * Class:     cn_Ragnarok_NativeFilterFunc
+ * Method:    oilFilterDirect
+ * Signature: (Ljava/nio/Buffer;III)V
+ */
+JNIEXPORT void JNICALL Java_cn_Ragnarok_NativeFilterFunc_oilFilterDirect
+  (JNIEnv *, jclass, jobject, jint, jint, jint);
+
+/*
+ * Class:     cn_Ragnarok_NativeFilterFunc
+ * Method:    tvFilterInPlace
+ * Signature: ([III)V
+ */
+JNIEXPORT void JNICALL Java_cn_Ragnarok_NativeFilterFunc_tvFilterInPlace
+  (JNIEnv *, jclass, jintArray, jint, jint);
+
+/*
+ * Class:     cn_Ragnarok_NativeFilterFunc
+ * Method:    tvFilterDirect
+ * Signature: (Ljava/nio/Buffer;II)V
+ */
+JNIEXPORT void JNICALL Java_cn_Ragnarok_NativeFilterFunc_tvFilterDirect
+  (JNIEnv *, jclass, jobject, jint, jint);
+
+/*
+ * Class:     cn_Ragnarok_NativeFilterFunc
+ * Method:    averageSmoothInPlace
+ * Signature: ([IIII)V
+ */
+JNIEXPORT void JNICALL Java_cn_Ragnarok_NativeFilterFunc_averageSmoothInPlace
+  (JNIEnv *, jclass, jintArray, jint, jint, jint);
+
+/*
+ * Class:     cn_Ragnarok_NativeFilterFunc
+ * Method:    averageSmoothDirect
+ * Signature: (Ljava/nio/Buffer;III)V
+ */
+JNIEXPORT void JNICALL Java_cn_Ragnarok_NativeFilterFunc_averageSmoothDirect
+  (JNIEnv *, jclass, jobject, jint, jint, jint);
+
+/*
+ * Class:     cn_Ragnarok_NativeFilterFunc
+ * Method:    hdrFilterInPlace
+ * Signature: ([III)V
+ */
+JNIEXPORT void JNICALL Java_cn_Ragnarok_NativeFilterFunc_hdrFilterInPlace
+  (JNIEnv *, jclass, jintArray, jint, jint);
+
+/*
+ * Class:     cn_Ragnarok_NativeFilterFunc
+ * Method:    hdrFilterDirect
+ * Signature: (Ljava/nio/Buffer;II)V
+ */
+JNIEXPORT void JNICALL Java_cn_Ragnarok_NativeFilterFunc_hdrFilterDirect
+  (JNIEnv *, jclass, jobject, jint, jint);
+
+/*
+ * Class:     cn_Ragnarok_NativeFilterFunc
+ * Method:    discreteGaussianBlurInPlace
+ * Signature: ([IIID)V
+ */
+JNIEXPORT void JNICALL Java_cn_Ragnarok_NativeFilterFunc_discreteGaussianBlurInPlace
+  (JNIEnv *, jclass, jintArray, jint, jint, jdouble);
+
+/*
+ * Class:     cn_Ragnarok_NativeFilterFunc
+ * Method:    discreteGaussianBlurDirect
+ * Signature: (Ljava/nio/Buffer;IID)V
+ */
+JNIEXPORT void JNICALL Java_cn_Ragnarok_NativeFilterFunc_discreteGaussianBlurDirect
+  (JNIEnv *, jclass, jobject, jint, jint, jdouble);
+
+/*
+ * Class:     cn_Ragnarok_NativeFilterFunc
+ * Method:    boxGaussianBlurInPlace
+ * Signature: ([IIID)V
+ */
+JNIEXPORT void JNICALL Java_cn_Ragnarok_NativeFilterFunc_boxGaussianBlurInPlace
+  (JNIEnv *, jclass, jintArray, jint, jint, jdouble);
+
+/*
+ * Class:     cn_Ragnarok_NativeFilterFunc
+ * Method:    boxGaussianBlurDirect
+ * Signature: (Ljava/nio/Buffer;IID)V
+ */
+JNIEXPORT void JNICALL Java_cn_Ragnarok_NativeFilterFunc_boxGaussianBlurDirect
+  (JNIEnv *, jclass, jobject, jint, jint, jdouble);
+
+/*
+ * Class:     cn_Ragnarok_NativeFilterFunc
+ * Method:    softGlowInPlace
+ * Signature: ([IIID)V
+ */
+JNIEXPORT void JNICALL Java_cn_Ragnarok_NativeFilterFunc_softGlowInPlace
+  (JNIEnv *, jclass, jintArray, jint, jint, jdouble);
+
+/*
+ * Class:     cn_Ragnarok_NativeFilterFunc
+ * Method:    softGlowDirect
+ * Signature: (Ljava/nio/Buffer;IID)V
+ */
+JNIEXPORT void JNICALL Java_cn_Ragnarok_NativeFilterFunc_softGlowDirect
+  (JNIEnv *, jclass, jobject, jint, jint, jdouble);
+
+/*
+ * Class:     cn_Ragnarok_NativeFilterFunc
+ * Method:    sketchFilterInPlace
+ * Signature: ([III)V
+ */
+JNIEXPORT void JNICALL Java_cn_Ragnarok_NativeFilterFunc_sketchFilterInPlace
+  (JNIEnv *, jclass, jintArray, jint, jint);
+
+/*
+ * Class:     cn_Ragnarok_NativeFilterFunc
+ * Method:    sketchFilterDirect
+ * Signature: (Ljava/nio/Buffer;II)V
+ */
+JNIEXPORT void JNICALL Java_cn_Ragnarok_NativeFilterFunc_sketchFilterDirect
+  (JNIEnv *, jclass, jobject, jint, jint);
+
+/*
+ * Class:     cn_Ragnarok_NativeFilterFunc
+ * Method:    sharpenFilterInPlace
+ * Signature: ([III)V
+ */
+JNIEXPORT void JNICALL Java_cn_Ragnarok_NativeFilterFunc_sharpenFilterInPlace
+  (JNIEnv *, jclass, jintArray, jint, jint);
+
+/*
+ * Class:     cn_Ragnarok_NativeFilterFunc
+ * Method:    sharpenFilterDirect
+ * Signature: (Ljava/nio/Buffer;II)V
+ */
+JNIEXPORT void JNICALL Java_cn_Ragnarok_NativeFilterFunc_sharpenFilterDirect
+  (JNIEnv *, jclass, jobject, jint, jint);
+
+/*
+ * Class:     cn_Ragnarok_NativeFilterFunc
+ * Method:    reliefFilterInPlace
+ * Signature: ([III)V
+ */
+JNIEXPORT void JNICALL Java_cn_Ragnarok_NativeFilterFunc_reliefFilterInPlace
+  (JNIEnv *, jclass, jintArray, jint, jint);
+
+/*
+ * Class:     cn_Ragnarok_NativeFilterFunc
+ * Method:    reliefFilterDirect
+ * Signature: (Ljava/nio/Buffer;II)V
+ */
+JNIEXPORT void JNICALL Java_cn_Ragnarok_NativeFilterFunc_reliefFilterDirect
+  (JNIEnv *, jclass, jobject, jint, jint);
+
+/*
+ * Class:     cn_Ragnarok_NativeFilterFunc
+ * Method:    pxelateFilterInPlace
+ * Signature: ([IIII)V
+ */
+JNIEXPORT void JNICALL Java_cn_Ragnarok_NativeFilterFunc_pxelateFilterInPlace
+  (JNIEnv *, jclass, jintArray, jint, jint, jint);
+
+/*
+ * Class:     cn_Ragnarok_NativeFilterFunc
+ * Method:    pxelateFilterDirect
+ * Signature: (Ljava/nio/Buffer;III)V
+ */
+JNIEXPORT void JNICALL Java_cn_Ragnarok_NativeFilterFunc_pxelateFilterDirect
+  (JNIEnv *, jclass, jobject, jint, jint, jint);
+
+/*
+ * Class:     cn_Ragnarok_NativeFilterFunc
+ * Method:    blockFilterInPlace
+ * Signature: ([III)V
+ */
+JNIEXPORT void JNICALL Java_cn_Ragnarok_NativeFilterFunc_blockFilterInPlace
+  (JNIEnv *, jclass, jintArray, jint, jint);
+
+/*
+ * Class:     cn_Ragnarok_NativeFilterFunc
+ * Method:    blockFilterDirect
+ * Signature: (Ljava/nio/Buffer;II)V
+ */
+JNIEXPORT void JNICALL Java_cn_Ragnarok_NativeFilterFunc_blockFilterDirect
+  (JNIEnv *, jclass, jobject, jint, jint);
+
+/*
+ * Class:     cn_Ragnarok_NativeFilterFunc
+ * Method:    motionBlurFilterInPlace
+ * Signature: ([IIIII)V
+ */
+JNIEXPORT void JNICALL Java_cn_Ragnarok_NativeFilterFunc_motionBlurFilterInPlace
+  (JNIEnv *, jclass, jintArray, jint, jint, jint, jint);
+
+/*
+ * Class:     cn_Ragnarok_NativeFilterFunc
+ * Method:    motionBlurFilterDirect
+ * Signature: (Ljava/nio/Buffer;IIII)V
+ */
+JNIEXPORT void JNICALL Java_cn_Ragnarok_NativeFilterFunc_motionBlurFilterDirect
+  (JNIEnv *, jclass, jobject, jint, jint, jint, jint);
+
+/*
+ * Class:     cn_Ragnarok_NativeFilterFunc
+ * Method:    gothamFilterInPlace
+ * Signature: ([III)V
+ */
+JNIEXPORT void JNICALL Java_cn_Ragnarok_NativeFilterFunc_gothamFilterInPlace
+  (JNIEnv *, jclass, jintArray, jint, jint);
+
+/*
+ * Class:     cn_Ragnarok_NativeFilterFunc
+ * Method:    gothamFilterDirect
+ * Signature: (Ljava/nio/Buffer;II)V
+ */
+JNIEXPORT void JNICALL Java_cn_Ragnarok_NativeFilterFunc_gothamFilterDirect
+  (JNIEnv *, jclass, jobject, jint, jint);
+
+/*
+ * Class:     cn_Ragnarok_NativeFilterFunc
+ * Method:    lookupTableFilterInPlace
+ * Signature: ([III[I)V
+ */
+JNIEXPORT void JNICALL Java_cn_Ragnarok_NativeFilterFunc_lookupTableFilterInPlace
+  (JNIEnv *, jclass, jintArray, jint, jint, jintArray);
+
+/*
+ * Class:     cn_Ragnarok_NativeFilterFunc
+ * Method:    lookupTableFilterDirect
+ * Signature: (Ljava/nio/Buffer;II[I)V
+ */
+JNIEXPORT void JNICALL Java_cn_Ragnarok_NativeFilterFunc_lookupTableFilterDirect
+  (JNIEnv *, jclass, jobject, jint, jint, jintArray);
+
+/*
+ * Class:     cn_Ragnarok_NativeFilterFunc
+ * Method:    hueSaturationFilterInPlace
+ * Signature: ([IIIDD)V
+ */
+JNIEXPORT void JNICALL Java_cn_Ragnarok_NativeFilterFunc_hueSaturationFilterInPlace
+  (JNIEnv *, jclass, jintArray, jint, jint, jdouble, jdouble);
+
+/*
+ * Class:     cn_Ragnarok_NativeFilterFunc
+ * Method:    hueSaturationFilterDirect
+ * Signature: (Ljava/nio/Buffer;IIDD)V
+ */
+JNIEXPORT void JNICALL Java_cn_Ragnarok_NativeFilterFunc_hueSaturationFilterDirect
+  (JNIEnv *, jclass, jobject, jint, jint, jdouble, jdouble);
+
 #ifdef __cplusplus
 }
 #endif
@@ -0,0 +1,142 @@
+/*
+ * GoldenGenerator.cpp
+ *
+ * runs every native filter on a fixed test image and writes the results, which the
+ * JVM tests compare JavaFilterFunc against. build and run it on a desktop host:
+ *
+ *   cd library/jni
+ *   g++ -std=c++11 -fpermissive -w -Itools/host -I$JAVA_HOME/include -I$JAVA_HOME/include/linux \
+ *       tools/GoldenGenerator.cpp LightFilter.cpp LomoAddBlackRound.cpp NeonFilter.cpp OilFilter.cpp \
+ *       TvFilter.cpp AverageSmoothFilter.cpp HDRFilter.cpp GaussianBlurFilter.cpp SoftGlowFilter.cpp \
+ *       SketchFilter.cpp SharpenFilter.cpp ReliefFilter.cpp PixelateFilter.cpp BlockFilter.cpp \
+ *       MotionBlurFilter.cpp GothamFilter.cpp GammaCorrectionFilter.cpp BrightContrastFilter.cpp \
+ *       HueSaturationFilter.cpp ColorTranslator.cpp LookupTableFilter.cpp -o /tmp/golden
+ *   /tmp/golden ../../app/src/test/resources/golden
+ *
+ * every file holds the width, the height and then the ARGB pixels, as big endian ints.
+ */
+
+#include <stdio.h>
+#include <string.h>
+#include <string>
+
+#include "../LightFilter.h"
+#include "../LomoAddBlackRound.h"
+#include "../NeonFilter.h"
+#include "../OilFilter.h"
+#include "../TvFilter.h"
+#include "../AverageSmoothFilter.h"
+#include "../HDRFilter.h"
+#include "../GaussianBlurFilter.h"
+#include "../SoftGlowFilter.h"
+#include "../SketchFilter.h"
+#include "../SharpenFilter.h"
+#include "../ReliefFilter.h"
+#include "../PixelateFilter.h"
+#include "../BlockFilter.h"
+#include "../MotionBlurFilter.h"
+#include "../GothamFilter.h"
+#include "../BrightContrastFilter.h"
+#include "../GammaCorrectionFilter.h"
+#include "../HueSaturationFilter.h"
+#include "../LookupTableFilter.h"
+
+// odd sizes, so edge handling and partial blocks are covered
+#define WIDTH 61
+#define HEIGHT 47
+
+static int input[WIDTH * HEIGHT];
+static int pixels[WIDTH * HEIGHT];
+static std::string outputDir;
+
+static void createInput() {
+	unsigned int seed = 12345;
+	for (int y = 0; y < HEIGHT; y++) {
+		for (int x = 0; x < WIDTH; x++) {
+			seed = seed * 1103515245 + 12345;
+			int noise = (seed >> 16) & 0x1F;
+			int r = min(255, x * 4 + noise);
+			int g = min(255, y * 5 + noise);
+			int b = min(255, (x + y) * 2 + noise);
+			int alpha = 255;
+			if (x > 10 && x < 25 && y > 8 && y < 20) {
+				// a flat patch
+				r = 200; g = 180; b = 40;
+			}
+			if (x > 35 && x < 50 && y > 25 && y < 40) {
+				// a bright box with hard edges
+				r = g = b = 250;
+			}
+			if (x < 8 && y > 38) {
+				alpha = 100 + x * 10;
+			}
+			input[y * WIDTH + x] = ARGB2Color(alpha, r, g, b);
+		}
+	}
+}
+
+static void write(const char* name, int* data) {
+	std::string path = outputDir + "/" + name + ".argb";
+	FILE* file = fopen(path.c_str(), "wb");
+	if (file == NULL) {
+		fprintf(stderr, "can't write %s\n", path.c_str());
+		return;
+	}
+	int header[] = { WIDTH, HEIGHT };
+	for (int i = 0; i < 2 + WIDTH * HEIGHT; i++) {
+		unsigned int v = i < 2 ? header[i] : data[i - 2];
+		unsigned char bytes[] = { (unsigned char) (v >> 24), (unsigned char) (v >> 16), (unsigned char) (v >> 8), (unsigned char) v };
+		fwrite(bytes, 1, 4, file);
+	}
+	fclose(file);
+}
+
+static int* reset() {
+	memcpy(pixels, input, sizeof(pixels));
+	return pixels;
+}
+
+int main(int argc, char** argv) {
+	outputDir = argc > 1 ? argv[1] : ".";
+	createInput();
+	write("input", input);
+
+	{ LightFilter f(reset(), WIDTH, HEIGHT, LightFilterOptions(WIDTH / 2, HEIGHT / 2, min(WIDTH / 2, HEIGHT / 2))); write("light", f.procImage()); }
+	{ LomoAddBlackRound f(reset(), WIDTH, HEIGHT, BlackRoundOptions((WIDTH / 2) * 95 / 100)); write("lomo_round", f.procImage()); }
+	{ NeonFilter f(reset(), WIDTH, HEIGHT, NeonFilterOptions(200, 50, 100)); write("neon", f.procImage()); }
+	{ OilFilter f(reset(), WIDTH, HEIGHT, OilFilterOptions(5)); write("oil_5", f.procImage()); }
+	{ OilFilter f(reset(), WIDTH, HEIGHT, OilFilterOptions(2)); write("oil_2", f.procImage()); }
+	{ OilFilter f(reset(), WIDTH, HEIGHT, OilFilterOptions(15)); write("oil_15", f.procImage()); }
+	{ TvFilter f(reset(), WIDTH, HEIGHT); write("tv", f.procImage()); }
+	{ AverageSmoothFilter f(reset(), WIDTH, HEIGHT, AverageSmoothOptions(5)); write("average_5", f.procImage()); }
+	{ AverageSmoothFilter f(reset(), WIDTH, HEIGHT, AverageSmoothOptions(4)); write("average_4", f.procImage()); }
+	{ AverageSmoothFilter f(reset(), WIDTH, HEIGHT, AverageSmoothOptions(15)); write("average_15", f.procImage()); }
+	{ HDRFilter f(reset(), WIDTH, HEIGHT); write("hdr", f.procImage()); }
+	{ GaussianBlurFilter f(reset(), WIDTH, HEIGHT, GaussianBlurOptions(1.2)); write("gaussian_1.2", f.procImage()); }
+	{ GaussianBlurFilter f(reset(), WIDTH, HEIGHT, GaussianBlurOptions(3.0)); write("gaussian_3", f.procImage()); }
+	{ GaussianBlurFilter f(reset(), WIDTH, HEIGHT, GaussianBlurOptions(4.0, true)); write("gaussian_box_4", f.procImage()); }
+	{ SoftGlowFilter f(reset(), WIDTH, HEIGHT, SoftGlowOptions(0.6)); write("soft_glow_0.6", f.procImage()); }
+	{ SketchFilter f(reset(), WIDTH, HEIGHT); write("sketch", f.procImage()); }
+	{ SharpenFilter f(reset(), WIDTH, HEIGHT); write("sharpen", f.procImage()); }
+	{ ReliefFilter f(reset(), WIDTH, HEIGHT); write("relief", f.procImage()); }
+	{ PixelateFilter f(reset(), WIDTH, HEIGHT, PixelateOptions(10)); write("pixelate_10", f.procImage()); }
+	{ BlockFilter f(reset(), WIDTH, HEIGHT); write("block", f.procImage()); }
+	{ MotionBlurFilter f(reset(), WIDTH, HEIGHT, MotionBlurFilterOpitons(5, 1)); write("motion_blur_5_1", f.procImage()); }
+	{ MotionBlurFilter f(reset(), WIDTH, HEIGHT, MotionBlurFilterOpitons(-3, 2)); write("motion_blur_-3_2", f.procImage()); }
+	{ GothamFilter f(reset(), WIDTH, HEIGHT); write("gotham", f.procImage()); }
+	{ BrightContrastFilter f(reset(), WIDTH, HEIGHT); f.setBrightness(30); write("bright_contrast_30_1.3", f.setContrast(1.3)); }
+	{ GammaCorrectionFilter f(reset(), WIDTH, HEIGHT, 0.7); write("gamma_0.7", f.procImage()); }
+	{ HueSaturationFilter f(reset(), WIDTH, HEIGHT, HueSaturationOptions(30, 0.4)); write("hue_saturation_30_0.4", f.procImage()); }
+	{ HueSaturationFilter f(reset(), WIDTH, HEIGHT, HueSaturationOptions(200, 0.2)); write("hue_saturation_200_0.2", f.procImage()); }
+	{ HueSaturationFilter f(reset(), WIDTH, HEIGHT, HueSaturationOptions(300, 0.6)); write("hue_saturation_300_0.6", f.procImage()); }
+	{
+		// a different scramble for every channel, so mixed up tables show
+		static int table[3 * LOOKUP_TABLE_SIZE];
+		for (int i = 0; i < 3 * LOOKUP_TABLE_SIZE; i++) {
+			table[i] = (i * 37 + i / LOOKUP_TABLE_SIZE * 101) & 0xFF;
+		}
+		LookupTableFilter f(reset(), WIDTH, HEIGHT, LookupTableOptions(table));
+		write("lookup_table", f.procImage());
+	}
+	return 0;
+}
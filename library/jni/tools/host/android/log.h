@@ -0,0 +1,19 @@
+/*
+ * log.h
+ *
+ * stand-in for the NDK's android/log.h, so the filters can be built on a
+ * desktop host by GoldenGenerator.cpp. log calls are dropped.
+ */
+
+#ifndef ANDROID_LOG_H_
+#define ANDROID_LOG_H_
+
+#define ANDROID_LOG_DEBUG 3
+#define ANDROID_LOG_INFO 4
+#define ANDROID_LOG_ERROR 6
+
+static inline int __android_log_print(int prio, const char* tag, const char* fmt, ...) {
+	return 0;
+}
+
+#endif /* ANDROID_LOG_H_ */
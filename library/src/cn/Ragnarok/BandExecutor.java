@@ -0,0 +1,134 @@
+package cn.Ragnarok;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * runs filters on horizontal bands of an image in parallel on a fork-join pool.
+ * 
+ * every band is copied together with getHalo() rows above and below it, the filter runs
+ * on the copy and only the rows of the band are copied to the result. the result is
+ * the same as filtering the whole image on one thread. filters that are no BandFilter,
+ * and images too small to be worth splitting, are filtered on the calling thread.
+ * the band copies and the result are borrowed from PixelPool.getDefault().
+ */
+public class BandExecutor {
+	// a band never gets less rows than this, nor less than HALO_FACTOR times the halo,
+	// so the copied halo rows stay cheap compared to the band
+	private static final int MIN_BAND_ROWS = 16;
+	private static final int HALO_FACTOR = 4;
+	
+	private static BandExecutor defaultExecutor;
+	
+	private final ForkJoinPool pool;
+	
+	/**
+	 * @param parallelism, the number of threads, 1 filters on the calling thread
+	 */
+	public BandExecutor(int parallelism) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException(String.format("parallelism must be at least 1, but got %d", parallelism));
+		}
+		pool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+	}
+	
+	/**
+	 * @return an executor with a thread for every core, shared by the static filter methods
+	 */
+	public static synchronized BandExecutor getDefault() {
+		if (defaultExecutor == null) {
+			defaultExecutor = new BandExecutor(Runtime.getRuntime().availableProcessors());
+		}
+		return defaultExecutor;
+	}
+	
+	public int getParallelism() {
+		return pool == null ? 1 : pool.getParallelism();
+	}
+	
+	/**
+	 * filter the pixels of the buffer, every filter of a FilterPipeline is split into bands
+	 * on its own
+	 * @param buffer, left holding the result
+	 * @param filter
+	 */
+	public void apply(PixelBuffer buffer, Filter filter) {
+		if (filter instanceof FilterPipeline) {
+			for (Filter stage : ((FilterPipeline) filter).getFilters()) {
+				apply(buffer, stage);
+			}
+			return;
+		}
+		int bands = 1;
+		if (pool != null && filter instanceof BandFilter) {
+			int halo = ((BandFilter) filter).getHalo();
+			int minRows = Math.max(MIN_BAND_ROWS, halo * HALO_FACTOR);
+			bands = Math.min(pool.getParallelism(), buffer.getHeight() / minRows);
+		}
+		if (bands <= 1) {
+			filter.apply(buffer);
+			return;
+		}
+		
+		int[] result = PixelPool.getDefault().obtainPixels(buffer.getWidth() * buffer.getHeight());
+		pool.invoke(new BandTask((BandFilter) filter, buffer, result, bands, 0, bands));
+		buffer.setPooledPixels(result);
+	}
+	
+	/**
+	 * stop the threads, the executor can't be used afterwards
+	 */
+	public void shutdown() {
+		if (pool != null) {
+			pool.shutdown();
+		}
+	}
+	
+	/**
+	 * filters the bands [firstBand, lastBand), splitting them in halves until a task has one
+	 */
+	private static class BandTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		
+		private final BandFilter filter;
+		private final PixelBuffer source;
+		private final int[] result;
+		private final int bands;
+		private final int firstBand;
+		private final int lastBand;
+		
+		BandTask(BandFilter filter, PixelBuffer source, int[] result, int bands, int firstBand, int lastBand) {
+			this.filter = filter;
+			this.source = source;
+			this.result = result;
+			this.bands = bands;
+			this.firstBand = firstBand;
+			this.lastBand = lastBand;
+		}
+		
+		@Override
+		protected void compute() {
+			if (lastBand - firstBand > 1) {
+				int middle = (firstBand + lastBand) / 2;
+				invokeAll(new BandTask(filter, source, result, bands, firstBand, middle),
+						new BandTask(filter, source, result, bands, middle, lastBand));
+				return;
+			}
+			
+			int width = source.getWidth();
+			int height = source.getHeight();
+			int halo = filter.getHalo();
+			int top = (int) ((long) height * firstBand / bands);
+			int bottom = (int) ((long) height * (firstBand + 1) / bands);
+			int copyTop = Math.max(0, top - halo);
+			int copyBottom = Math.min(height, bottom + halo);
+			
+			int[] band = PixelPool.getDefault().obtainPixels((copyBottom - copyTop) * width);
+			System.arraycopy(source.getPixels(), copyTop * width, band, 0, band.length);
+			PixelBuffer bandBuffer = new PixelBuffer(band, width, copyBottom - copyTop);
+			filter.apply(bandBuffer);
+			System.arraycopy(bandBuffer.getPixels(), (top - copyTop) * width, result, top * width, (bottom - top) * width);
+			PixelPool.getDefault().recycle(band);
+		}
+	}
+}
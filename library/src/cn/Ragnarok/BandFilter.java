@@ -0,0 +1,13 @@
+package cn.Ragnarok;
+
+/**
+ * a filter whose result for a row only depends on the rows close to it, so BandExecutor
+ * can filter horizontal bands of an image at the same time
+ */
+public interface BandFilter extends Filter {
+	/**
+	 * @return the number of rows above and below a band the filter needs to see, so the
+	 * rows of the band come out exactly like they would when the whole image is filtered
+	 */
+	public int getHalo();
+}
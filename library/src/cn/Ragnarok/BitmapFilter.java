@@ -26,104 +26,50 @@ public class BitmapFilter {
 	public static final int SKETCH_STYLE = 17; // sketch style
 	public static final int MOTION_BLUR_STYLE = 18; // motion blur
 	public static final int GOTHAM_STYLE = 19; // gotham style
+	public static final int BRIGHT_CONTRAST_STYLE = 20; // brightness and contrast
+	public static final int GAMMA_STYLE = 21; // gamma correction
+	public static final int HUE_SATURATION_STYLE = 22; // colorize with a hue and saturation
 	
-	public static final int TOTAL_FILTER_NUM = GOTHAM_STYLE;
+	public static final int TOTAL_FILTER_NUM = HUE_SATURATION_STYLE;
 	
 	/**
 	 * change bitmap filter style
 	 * @param bitmap
 	 * @param styeNo, filter sytle id
+	 * @param options, filter options, missing options fall back to defaults, see FilterRegistry
 	 */
 	public static Bitmap changeStyle(Bitmap bitmap, int styleNo, Object... options) {
-		if (styleNo == GRAY_STYLE) {
-			return GrayFilter.changeToGray(bitmap);
+		Filter filter = FilterRegistry.create(styleNo, options);
+		if (filter == null) {
+			return bitmap;
 		}
-		else if (styleNo == RELIEF_STYLE) {
-			return ReliefFilter.changeToRelief(bitmap);
-		}
-		else if (styleNo == AVERAGE_BLUR_STYLE) {
-			if (options.length < 1) {
-				return BlurFilter.changeToAverageBlur(bitmap, 5);
-			}
-			return BlurFilter.changeToAverageBlur(bitmap, (Integer)options[0]); // maskSize
-		}
-		else if (styleNo == OIL_STYLE) {
-			if (options.length < 1) {
-				return OilFilter.changeToOil(bitmap, 5);
-			}
-			return OilFilter.changeToOil(bitmap, (Integer)options[0]);
-		}
-		else if (styleNo == NEON_STYLE) {
-			if (options.length < 3) {
-				return NeonFilter.changeToNeon(bitmap, 200, 50, 100);
-			}
-			return NeonFilter.changeToNeon(bitmap, (Integer)options[0], (Integer)options[1], (Integer)options[2]);
-		}
-		else if (styleNo == PIXELATE_STYLE) {
-			if (options.length < 1) {
-				return PixelateFilter.changeToPixelate(bitmap, 10);
-			}
-			return PixelateFilter.changeToPixelate(bitmap, (Integer)options[0]);
-		}			
-		else if (styleNo == TV_STYLE) {
-			return TvFilter.changeToTV(bitmap);
-		}
-		else if (styleNo == INVERT_STYLE) {
-			return InvertFilter.chageToInvert(bitmap);
-		}
-		else if (styleNo == BLOCK_STYLE) {
-			return BlockFilter.changeToBrick(bitmap);
-		}
-		else if (styleNo == OLD_STYLE) {
-			return OldFilter.changeToOld(bitmap);
-		}
-		else if (styleNo == SHARPEN_STYLE) {
-			return SharpenFilter.changeToSharpen(bitmap);
-		}
-		else if (styleNo == LIGHT_STYLE) {
-			if (options.length < 3) {
-				int width = bitmap.getWidth();
-				int height = bitmap.getHeight();
-				return LightFilter.changeToLight(bitmap, width / 2, height / 2, Math.min(width / 2, height / 2));
-			}
-			return LightFilter.changeToLight(bitmap, (Integer)options[0], 
-					(Integer)options[1], (Integer)options[2]); // centerX, centerY, radius
-		}
-		else if (styleNo == LOMO_STYLE) {
-			if (options.length < 1) {
-				double radius = (bitmap.getWidth() / 2) * 95 / 100;
-				return LomoFilter.changeToLomo(bitmap, radius);
-			}
-			return LomoFilter.changeToLomo(bitmap, (Double)options[0]);
-		}
-		else if (styleNo == HDR_STYLE) {
-			return HDRFilter.changeToHDR(bitmap);
-		}
-		else if (styleNo == GAUSSIAN_BLUR_STYLE) {
-			if (options.length < 1) {
-				return GaussianBlurFilter.changeToGaussianBlur(bitmap, 1.2);
-			}
-			return GaussianBlurFilter.changeToGaussianBlur(bitmap, (Double)options[0]); // sigma
-		}
-		else if (styleNo == SOFT_GLOW_STYLE) {
-			if (options.length < 1) {
-				return SoftGlowFilter.softGlowFilter(bitmap, 0.6);
-			}
-			return SoftGlowFilter.softGlowFilter(bitmap, (Double)options[0]);
-		}
-		else if (styleNo == SKETCH_STYLE) {
-			return SketchFilter.changeToSketch(bitmap);
-		} 
-		else if (styleNo == MOTION_BLUR_STYLE) {
-			if (options.length < 2) {
-				return MotionBlurFilter.changeToMotionBlur(bitmap, 5, 1);
-			}
-			return MotionBlurFilter.changeToMotionBlur(bitmap, (Integer)options[0], (Integer)options[1]);
-		}
-		else if (styleNo == GOTHAM_STYLE) {
-			return GothamFilter.changeToGotham(bitmap);
-		}
-		return bitmap;
+		return FilterPipeline.apply(bitmap, filter);
+	}
+	
+	/**
+	 * filter a copy of the bitmap resized by scale, a quick preview of changeStyle. the options
+	 * are the ones for the full bitmap, radii and sizes are scaled with it, see
+	 * FilterRegistry.createScaled
+	 * @param bitmap
+	 * @param styleNo, filter style id
+	 * @param scale, e.g. 0.25 for a quarter of the width and the height
+	 * @param options, filter options
+	 * @return the filtered copy, scale times the size of the bitmap
+	 */
+	public static Bitmap previewStyle(Bitmap bitmap, int styleNo, double scale, Object... options) {
+		int width = Math.max(1, (int) Math.round(bitmap.getWidth() * scale));
+		int height = Math.max(1, (int) Math.round(bitmap.getHeight() * scale));
+		Bitmap proxy = Bitmap.createScaledBitmap(bitmap, width, height, true);
+		Filter filter = FilterRegistry.createScaled(styleNo, scale, options);
+		if (filter == null) {
+			return proxy;
+		}
+		Bitmap preview = FilterPipeline.apply(proxy, filter);
+		// the next preview of the same size gets the proxy as its result
+		if (proxy != bitmap) {
+			PixelPool.getDefault().recycle(proxy);
+		}
+		return preview;
 	}
 
 }
\ No newline at end of file
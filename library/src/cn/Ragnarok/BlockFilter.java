@@ -1,25 +1,24 @@
 package cn.Ragnarok;
 
 import android.graphics.Bitmap;
-import android.graphics.Color;
-import android.graphics.Paint;
 
-public class BlockFilter {
+public class BlockFilter implements BandFilter {
 	
-	static {
-		System.loadLibrary("AndroidImageFilter");
+	@Override
+	public void apply(PixelBuffer buffer) {
+		if (FilterEngine.isNative()) {
+			NativeFilterFunc.blockFilterInPlace(buffer.getPixels(), buffer.getWidth(), buffer.getHeight());
+		} else {
+			JavaFilterFunc.blockFilter(buffer.getPixels(), buffer.getWidth(), buffer.getHeight());
+		}
+	}
+	
+	@Override
+	public int getHalo() {
+		return 0;
 	}
 	
 	public static Bitmap changeToBrick(Bitmap bitmap) {
-		int width = bitmap.getWidth();
-		int height = bitmap.getHeight();
-		
-		int[] pixels = new int[width * height];
-		bitmap.getPixels(pixels, 0, width, 0, 0, width, height);
-		
-		int[] returnPixels = NativeFilterFunc.blockFilter(pixels, width, height);
-		Bitmap returnBitmap = Bitmap.createBitmap(returnPixels, width, height, Bitmap.Config.ARGB_8888);
-		
-		return returnBitmap;
+		return FilterPipeline.apply(bitmap, new BlockFilter());
 	}
 }
@@ -1,32 +1,33 @@
 package cn.Ragnarok;
 
 import android.graphics.Bitmap;
-import android.graphics.Color;
 
-public class BlurFilter {
-	static {
-		System.loadLibrary("AndroidImageFilter");
+public class BlurFilter implements Filter {
+	private final int maskSize;
+	
+	public BlurFilter(int maskSize) {
+		if (maskSize < 1) {
+			throw new IllegalArgumentException(String.format("the maskSize must be at least 1, but got %d", maskSize));
+		}
+		this.maskSize = maskSize;
+	}
+	
+	@Override
+	public void apply(PixelBuffer buffer) {
+		if (FilterEngine.isNative()) {
+			NativeFilterFunc.averageSmoothInPlace(buffer.getPixels(), buffer.getWidth(), buffer.getHeight(), maskSize);
+		} else {
+			JavaFilterFunc.averageSmooth(buffer.getPixels(), buffer.getWidth(), buffer.getHeight(), maskSize);
+		}
 	}
 	
 	/**
-	 * average blur filter, the maskSize must odd
+	 * average blur filter, the cost doesn't grow with the maskSize, which may be even
 	 * @param bitmap
 	 * @param maskSize
 	 * @return
 	 */
 	public static Bitmap changeToAverageBlur(Bitmap bitmap, int maskSize) {
-		if (maskSize % 2 == 0) {
-			throw new IllegalArgumentException(String.format("the maskSize must odd, but %d is an even", maskSize));
-		}
-		int width = bitmap.getWidth();
-		int height = bitmap.getHeight();
-		
-		int[] pixels = new int[width * height];
-		bitmap.getPixels(pixels, 0, width, 0, 0, width, height);
-		
-		int[] returnPixels = NativeFilterFunc.averageSmooth(pixels, width, height, maskSize);
-		Bitmap returnBitmap = Bitmap.createBitmap(returnPixels, width, height, Bitmap.Config.ARGB_8888);
-		
-		return returnBitmap;
+		return FilterPipeline.apply(bitmap, new BlurFilter(maskSize));
 	}
 }
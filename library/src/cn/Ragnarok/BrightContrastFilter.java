@@ -0,0 +1,18 @@
+package cn.Ragnarok;
+
+import android.graphics.Bitmap;
+
+public class BrightContrastFilter extends LookupTableFilter {
+	
+	/**
+	 * @param brightness, added to every channel first, -255 to 255
+	 * @param contrast, then every channel is moved away from 128 by it, 1 leaves the colors
+	 */
+	public BrightContrastFilter(double brightness, double contrast) {
+		super(brightness(brightness).then(contrast(contrast)));
+	}
+	
+	public static Bitmap changeBrightContrast(Bitmap bitmap, double brightness, double contrast) {
+		return FilterPipeline.apply(bitmap, new BrightContrastFilter(brightness, contrast));
+	}
+}
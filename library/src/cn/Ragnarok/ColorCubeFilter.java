@@ -0,0 +1,325 @@
+package cn.Ragnarok;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.Locale;
+
+/**
+ * a 3D color lookup table: the new color of every color on a size x size x size grid, the
+ * colors in between are interpolated from the 4 corners of the tetrahedron they fall in.
+ * alpha is kept.
+ *
+ * a cube can be baked from any filter that maps every pixel by its color alone, see bake(),
+ * or loaded from a .cube file, see fromCube(), so a look costs one interpolated lookup per
+ * pixel however long the chain it was made from is. preset() bakes the built in looks once.
+ */
+public class ColorCubeFilter implements BandFilter {
+	public static final int DEFAULT_SIZE = 33;
+	public static final int MAX_SIZE = 256;
+	
+	// the grid colors are kept with 4 more bits than a channel, the weights sum to 256
+	private static final int COLOR_SHIFT = 4;
+	private static final int WEIGHT_SHIFT = 8;
+	private static final int WEIGHT_ONE = 1 << WEIGHT_SHIFT;
+	private static final int RESULT_SHIFT = COLOR_SHIFT + WEIGHT_SHIFT;
+	// red, green and blue of a grid color are packed into a long, far enough apart that the
+	// weighted sum of 4 grid colors can't carry from one into the next
+	private static final int FIELD_BITS = 21;
+	private static final long FIELD_MASK = (1L << FIELD_BITS) - 1;
+	private static final long ROUND = (1L << (RESULT_SHIFT - 1)) * (1 + (1L << FIELD_BITS) + (1L << 2 * FIELD_BITS));
+	
+	private static final HashMap<Integer, ColorCubeFilter> presets = new HashMap<Integer, ColorCubeFilter>();
+	
+	private final int size;
+	// every grid color, red changes fastest, then green, then blue
+	private final long[] cube;
+	// for every channel value, the offset of the grid color below it on each axis, and its weight
+	private final int[] redOffset = new int[256];
+	private final int[] greenOffset = new int[256];
+	private final int[] blueOffset = new int[256];
+	private final int[] fraction = new int[256];
+	// the offsets of the 2nd and the 3rd corner of every tetrahedron, see apply()
+	private final int[] firstStep = new int[8];
+	private final int[] secondStep = new int[8];
+	
+	/**
+	 * @param size, the number of grid colors on every axis
+	 * @param nodes, the channel value of every grid color on an axis, from 0 to 255
+	 * @param cube, red, green and blue of the size^3 grid colors, times 16
+	 */
+	private ColorCubeFilter(int size, double[] nodes, short[] cube) {
+		this.size = size;
+		this.cube = new long[cube.length / 3];
+		for (int i = 0; i < this.cube.length; i++) {
+			this.cube[i] = (long) cube[i * 3] << 2 * FIELD_BITS | (long) cube[i * 3 + 1] << FIELD_BITS | cube[i * 3 + 2];
+		}
+		int node = 0;
+		for (int v = 0; v < 256; v++) {
+			while (node < size - 2 && v >= nodes[node + 1]) {
+				node++;
+			}
+			double t = (v - nodes[node]) / (nodes[node + 1] - nodes[node]);
+			fraction[v] = (int) Math.round(Math.min(1, Math.max(0, t)) * WEIGHT_ONE);
+			redOffset[v] = node;
+			greenOffset[v] = node * size;
+			blueOffset[v] = node * size * size;
+		}
+		int[] steps = { 1, size, size * size };
+		for (int order = 0; order < 8; order++) {
+			// the bits say red >= green, green >= blue and red >= blue, 2 of the 8 can't happen
+			boolean redOverGreen = (order & 4) != 0;
+			boolean greenOverBlue = (order & 2) != 0;
+			boolean redOverBlue = (order & 1) != 0;
+			int highest = redOverGreen ? (redOverBlue ? 0 : 2) : (greenOverBlue ? 1 : 2);
+			int lowest = !redOverGreen ? (redOverBlue ? 2 : 0) : (greenOverBlue ? 2 : 1);
+			firstStep[order] = steps[highest];
+			secondStep[order] = steps[0] + steps[1] + steps[2] - steps[lowest];
+		}
+	}
+	
+	/**
+	 * bake a filter into a cube with DEFAULT_SIZE grid colors on every axis
+	 * @param filter, must map every pixel by its color alone, like GothamFilter, and not by its
+	 * neighbours or position, like SharpenFilter or LomoFilter
+	 */
+	public static ColorCubeFilter bake(Filter filter) {
+		return bake(filter, DEFAULT_SIZE);
+	}
+	
+	/**
+	 * bake a filter into a cube, see bake(Filter)
+	 * @param filter
+	 * @param size, 2 to 256 grid colors on every axis
+	 */
+	public static ColorCubeFilter bake(Filter filter, int size) {
+		checkSize(size);
+		// the grid colors are whole channel values, so the filter sees colors it can be given
+		double[] nodes = new double[size];
+		int[] values = new int[size];
+		for (int i = 0; i < size; i++) {
+			values[i] = (int) Math.round(i * 255.0 / (size - 1));
+			nodes[i] = values[i];
+		}
+		PixelBuffer buffer = new PixelBuffer(size * size, size);
+		int[] pixels = buffer.getPixels();
+		int index = 0;
+		for (int b = 0; b < size; b++) {
+			for (int g = 0; g < size; g++) {
+				for (int r = 0; r < size; r++) {
+					pixels[index++] = 0xFF000000 | values[r] << 16 | values[g] << 8 | values[b];
+				}
+			}
+		}
+		filter.apply(buffer);
+		pixels = buffer.getPixels();
+		short[] cube = new short[3 * pixels.length];
+		for (int i = 0; i < pixels.length; i++) {
+			cube[i * 3] = (short) (((pixels[i] >> 16) & 0xFF) << COLOR_SHIFT);
+			cube[i * 3 + 1] = (short) (((pixels[i] >> 8) & 0xFF) << COLOR_SHIFT);
+			cube[i * 3 + 2] = (short) ((pixels[i] & 0xFF) << COLOR_SHIFT);
+		}
+		return new ColorCubeFilter(size, nodes, cube);
+	}
+	
+	/**
+	 * the cube of a built in look, baked the first time it's asked for
+	 * @param styleNo, GOTHAM_STYLE, OLD_STYLE, GRAY_STYLE or INVERT_STYLE, see BitmapFilter
+	 */
+	public static ColorCubeFilter preset(int styleNo) {
+		synchronized (presets) {
+			ColorCubeFilter preset = presets.get(styleNo);
+			if (preset == null) {
+				Filter look;
+				switch (styleNo) {
+				case BitmapFilter.GOTHAM_STYLE:
+					look = new GothamFilter();
+					break;
+				case BitmapFilter.OLD_STYLE:
+					look = new OldFilter();
+					break;
+				case BitmapFilter.GRAY_STYLE:
+					look = new GrayFilter();
+					break;
+				case BitmapFilter.INVERT_STYLE:
+					look = new InvertFilter();
+					break;
+				default:
+					throw new IllegalArgumentException(String.format("style %d isn't a color look", styleNo));
+				}
+				preset = bake(look);
+				presets.put(styleNo, preset);
+			}
+			return preset;
+		}
+	}
+	
+	/**
+	 * load a 3D LUT in the .cube format, with output colors from 0 to 1
+	 * @param stream, read as UTF-8 and closed
+	 * @throws IOException if it isn't a 3D .cube file
+	 */
+	public static ColorCubeFilter fromCube(InputStream stream) throws IOException {
+		return fromCube(new InputStreamReader(stream, "UTF-8"));
+	}
+	
+	/**
+	 * see fromCube(InputStream)
+	 * @param reader, closed
+	 */
+	public static ColorCubeFilter fromCube(Reader reader) throws IOException {
+		BufferedReader input = new BufferedReader(reader);
+		try {
+			int size = 0;
+			short[] cube = null;
+			int count = 0;
+			String line;
+			int lineNumber = 0;
+			while ((line = input.readLine()) != null) {
+				lineNumber++;
+				line = line.trim();
+				if (line.length() == 0 || line.startsWith("#") || line.startsWith("TITLE")) {
+					continue;
+				}
+				String[] fields = line.split("\\s+");
+				if (fields[0].equals("LUT_3D_SIZE")) {
+					size = parseInt(fields, lineNumber);
+					if (size < 2 || size > MAX_SIZE) {
+						throw new IOException(String.format("line %d: LUT_3D_SIZE must be 2 to %d", lineNumber, MAX_SIZE));
+					}
+					cube = new short[3 * size * size * size];
+				} else if (fields[0].equals("DOMAIN_MIN") || fields[0].equals("DOMAIN_MAX")) {
+					float bound = fields[0].equals("DOMAIN_MIN") ? 0 : 1;
+					for (int i = 1; i < 4; i++) {
+						if (parseFloat(fields, i, lineNumber) != bound) {
+							throw new IOException(String.format("line %d: only the 0 to 1 domain is supported", lineNumber));
+						}
+					}
+				} else if (fields[0].equals("LUT_1D_SIZE")) {
+					throw new IOException(String.format("line %d: a 1D LUT isn't a cube, see LookupTableFilter", lineNumber));
+				} else if (Character.isLetter(fields[0].charAt(0))) {
+					continue; // a keyword of another application
+				} else {
+					if (cube == null) {
+						throw new IOException(String.format("line %d: a color before LUT_3D_SIZE", lineNumber));
+					}
+					if (count == cube.length) {
+						throw new IOException(String.format("line %d: more than %d colors", lineNumber, cube.length / 3));
+					}
+					for (int i = 0; i < 3; i++) {
+						float value = parseFloat(fields, i, lineNumber);
+						cube[count++] = (short) Math.round(Math.min(1, Math.max(0, value)) * (255 << COLOR_SHIFT));
+					}
+				}
+			}
+			if (cube == null || count < cube.length) {
+				throw new IOException(String.format("expected %d colors, but got %d", cube == null ? 0 : cube.length / 3, count / 3));
+			}
+			double[] nodes = new double[size];
+			for (int i = 0; i < size; i++) {
+				nodes[i] = i * 255.0 / (size - 1);
+			}
+			return new ColorCubeFilter(size, nodes, cube);
+		} finally {
+			input.close();
+		}
+	}
+	
+	private static int parseInt(String[] fields, int lineNumber) throws IOException {
+		try {
+			return Integer.parseInt(fields[1]);
+		} catch (RuntimeException e) {
+			throw new IOException(String.format("line %d: expected a number", lineNumber));
+		}
+	}
+	
+	private static float parseFloat(String[] fields, int index, int lineNumber) throws IOException {
+		try {
+			return Float.parseFloat(fields[index]);
+		} catch (RuntimeException e) {
+			throw new IOException(String.format("line %d: expected 3 numbers", lineNumber));
+		}
+	}
+	
+	/**
+	 * write the cube in the .cube format, e.g. for designers to start a new look from a built in one
+	 * @param writer, left open
+	 * @param title
+	 */
+	public void toCube(Writer writer, String title) throws IOException {
+		writer.write("TITLE \"" + title + "\"\n");
+		writer.write("LUT_3D_SIZE " + size + "\n");
+		double scale = 255 << COLOR_SHIFT;
+		for (long color : cube) {
+			writer.write(String.format(Locale.US, "%.6f %.6f %.6f\n", (color >> 2 * FIELD_BITS) / scale,
+					((color >> FIELD_BITS) & FIELD_MASK) / scale, (color & FIELD_MASK) / scale));
+		}
+		writer.flush();
+	}
+	
+	private static void checkSize(int size) {
+		if (size < 2 || size > MAX_SIZE) {
+			throw new IllegalArgumentException(String.format("a cube has 2 to %d colors on every axis, but got %d", MAX_SIZE, size));
+		}
+	}
+	
+	public int getSize() {
+		return size;
+	}
+	
+	@Override
+	public void apply(PixelBuffer buffer) {
+		apply(buffer.getPixels(), buffer.getWidth() * buffer.getHeight());
+	}
+	
+	/**
+	 * filter the first size pixels of an ARGB array in place
+	 * @param pixels
+	 * @param size
+	 */
+	public void apply(int[] pixels, int size) {
+		long[] c = cube;
+		int[] firstStep = this.firstStep;
+		int[] secondStep = this.secondStep;
+		int lastStep = 1 + this.size + this.size * this.size;
+		for (int i = 0; i < size; i++) {
+			int color = pixels[i];
+			int r = (color >> 16) & 0xFF;
+			int g = (color >> 8) & 0xFF;
+			int b = color & 0xFF;
+			int fr = fraction[r];
+			int fg = fraction[g];
+			int fb = fraction[b];
+			int base = redOffset[r] + greenOffset[g] + blueOffset[b];
+			
+			// walk from the corner below the color to the one above it, along the axes from the
+			// largest fraction to the smallest, the 6 orders are the 6 tetrahedra of the grid cell.
+			// the order is looked up rather than branched on, which photos would mispredict
+			int order = (fg - fr - 1) >>> 31 << 2 | (fb - fg - 1) >>> 31 << 1 | (fb - fr - 1) >>> 31;
+			int high = Math.max(fr, Math.max(fg, fb));
+			int low = Math.min(fr, Math.min(fg, fb));
+			int middle = fr + fg + fb - high - low;
+			int w0 = WEIGHT_ONE - high;
+			int w1 = high - middle;
+			int w2 = middle - low;
+			int w3 = low;
+			int first = firstStep[order];
+			int second = secondStep[order];
+			long sum = w0 * c[base] + w1 * c[base + first] + w2 * c[base + second]
+					+ w3 * c[base + lastStep] + ROUND;
+			int newR = (int) (sum >> (2 * FIELD_BITS + RESULT_SHIFT));
+			int newG = (int) ((sum >> (FIELD_BITS + RESULT_SHIFT)) & 0xFF);
+			int newB = (int) ((sum >> RESULT_SHIFT) & 0xFF);
+			pixels[i] = (color & 0xFF000000) | newR << 16 | newG << 8 | newB;
+		}
+	}
+	
+	@Override
+	public int getHalo() {
+		return 0;
+	}
+}
@@ -0,0 +1,207 @@
+package cn.Ragnarok;
+
+import java.util.Arrays;
+
+import android.graphics.ColorMatrix;
+
+/**
+ * applies a 4x5 color matrix, laid out like android.graphics.ColorMatrix, to every pixel
+ * of a PixelBuffer, so color matrix looks can take part in a FilterPipeline.
+ * 
+ * consecutive color matrices compose into one, see then(), and FilterPipeline does that for
+ * neighbouring stages, so a stack of color adjustments costs a single pass. like
+ * ColorMatrix.postConcat, the composed matrix doesn't clamp the colors in between.
+ * 
+ * in the fixed point mode the weights are rounded to 1/65536 and every pixel is computed
+ * with int arithmetic, which differs from the float pass by at most 1 per channel.
+ */
+public class ColorMatrixFilter implements BandFilter {
+	private static final int FIXED_SHIFT = 16;
+	private static final float FIXED_ONE = 1 << FIXED_SHIFT;
+	// larger weights could overflow an int sum of four 8 bit channels
+	private static final float MAX_FIXED_WEIGHT = 15;
+	private static final float MAX_FIXED_OFFSET = 4095;
+	
+	private final float[] matrix;
+	private final boolean fixedPoint;
+	private final int[] fixedMatrix;
+	
+	public ColorMatrixFilter(ColorMatrix colorMatrix) {
+		this(colorMatrix.getArray());
+	}
+	
+	/**
+	 * @param matrix, 20 values, row by row: R, G, B and A each = a * R + b * G + c * B + d * A + e
+	 */
+	public ColorMatrixFilter(float[] matrix) {
+		this(matrix, false);
+	}
+	
+	/**
+	 * @param matrix, 20 values, row by row: R, G, B and A each = a * R + b * G + c * B + d * A + e
+	 * @param fixedPoint, compute with ints, ignored when a weight is too large for them
+	 */
+	public ColorMatrixFilter(float[] matrix, boolean fixedPoint) {
+		if (matrix.length < 20) {
+			throw new IllegalArgumentException(String.format("a color matrix has 20 values, but got %d", matrix.length));
+		}
+		this.matrix = Arrays.copyOf(matrix, 20);
+		this.fixedMatrix = fixedPoint ? toFixedPoint(this.matrix) : null;
+		this.fixedPoint = fixedMatrix != null;
+	}
+	
+	/**
+	 * a copy of this filter computing with ints, see ColorMatrixFilter(float[], boolean)
+	 */
+	public ColorMatrixFilter toFixedPoint() {
+		return fixedPoint ? this : new ColorMatrixFilter(matrix, true);
+	}
+	
+	/**
+	 * scale every channel, like ColorMatrix.setScale
+	 */
+	public static ColorMatrixFilter scale(float redScale, float greenScale, float blueScale, float alphaScale) {
+		float[] m = new float[20];
+		m[0] = redScale;
+		m[6] = greenScale;
+		m[12] = blueScale;
+		m[18] = alphaScale;
+		return new ColorMatrixFilter(m);
+	}
+	
+	/**
+	 * change the saturation, 0 is gray and 1 leaves the colors, like ColorMatrix.setSaturation
+	 */
+	public static ColorMatrixFilter saturation(float sat) {
+		float invSat = 1 - sat;
+		float r = 0.213f * invSat;
+		float g = 0.715f * invSat;
+		float b = 0.072f * invSat;
+		return new ColorMatrixFilter(new float[] {
+				r + sat, g, b, 0, 0,
+				r, g + sat, b, 0, 0,
+				r, g, b + sat, 0, 0,
+				0, 0, 0, 1, 0 });
+	}
+	
+	/**
+	 * multiply every pixel by a color, so white becomes the color and black stays black
+	 */
+	public static ColorMatrixFilter tint(int color) {
+		return scale(((color >> 16) & 0xFF) / 255f, ((color >> 8) & 0xFF) / 255f, (color & 0xFF) / 255f,
+				(color >>> 24) / 255f);
+	}
+	
+	/**
+	 * @return a filter doing this one and then next in a single pass, the fixed point
+	 * mode is kept if both filters use it
+	 */
+	public ColorMatrixFilter then(ColorMatrixFilter next) {
+		// ColorMatrix.setConcat(next, this)
+		float[] a = next.matrix;
+		float[] b = matrix;
+		float[] result = new float[20];
+		int index = 0;
+		for (int j = 0; j < 20; j += 5) {
+			for (int i = 0; i < 4; i++) {
+				result[index++] = a[j + 0] * b[i + 0] + a[j + 1] * b[i + 5] +
+						a[j + 2] * b[i + 10] + a[j + 3] * b[i + 15];
+			}
+			result[index++] = a[j + 0] * b[4] + a[j + 1] * b[9] +
+					a[j + 2] * b[14] + a[j + 3] * b[19] + a[j + 4];
+		}
+		return new ColorMatrixFilter(result, fixedPoint && next.fixedPoint);
+	}
+	
+	public float[] getArray() {
+		return Arrays.copyOf(matrix, 20);
+	}
+	
+	public boolean isFixedPoint() {
+		return fixedPoint;
+	}
+	
+	@Override
+	public void apply(PixelBuffer buffer) {
+		apply(buffer.getPixels(), buffer.getWidth() * buffer.getHeight());
+	}
+	
+	/**
+	 * filter the first size pixels of an ARGB array in place
+	 * @param pixels
+	 * @param size
+	 */
+	public void apply(int[] pixels, int size) {
+		if (fixedPoint) {
+			applyFixedPoint(pixels, size);
+		} else {
+			applyFloat(pixels, size);
+		}
+	}
+	
+	private void applyFloat(int[] pixels, int size) {
+		float[] m = matrix;
+		for (int i = 0; i < size; i++) {
+			int color = pixels[i];
+			int a = color >>> 24;
+			int r = (color >> 16) & 0xFF;
+			int g = (color >> 8) & 0xFF;
+			int b = color & 0xFF;
+			int newR = clamp(m[0] * r + m[1] * g + m[2] * b + m[3] * a + m[4]);
+			int newG = clamp(m[5] * r + m[6] * g + m[7] * b + m[8] * a + m[9]);
+			int newB = clamp(m[10] * r + m[11] * g + m[12] * b + m[13] * a + m[14]);
+			int newA = clamp(m[15] * r + m[16] * g + m[17] * b + m[18] * a + m[19]);
+			pixels[i] = newA << 24 | newR << 16 | newG << 8 | newB;
+		}
+	}
+	
+	private void applyFixedPoint(int[] pixels, int size) {
+		int[] m = fixedMatrix;
+		for (int i = 0; i < size; i++) {
+			int color = pixels[i];
+			int a = color >>> 24;
+			int r = (color >> 16) & 0xFF;
+			int g = (color >> 8) & 0xFF;
+			int b = color & 0xFF;
+			int newR = clamp((m[0] * r + m[1] * g + m[2] * b + m[3] * a + m[4]) >> FIXED_SHIFT);
+			int newG = clamp((m[5] * r + m[6] * g + m[7] * b + m[8] * a + m[9]) >> FIXED_SHIFT);
+			int newB = clamp((m[10] * r + m[11] * g + m[12] * b + m[13] * a + m[14]) >> FIXED_SHIFT);
+			int newA = clamp((m[15] * r + m[16] * g + m[17] * b + m[18] * a + m[19]) >> FIXED_SHIFT);
+			pixels[i] = newA << 24 | newR << 16 | newG << 8 | newB;
+		}
+	}
+	
+	@Override
+	public int getHalo() {
+		return 0;
+	}
+	
+	/**
+	 * @return the weights times 65536, the offsets also get the 0.5 that rounds the result,
+	 * or null if a weight is too large
+	 */
+	private static int[] toFixedPoint(float[] matrix) {
+		int[] fixed = new int[20];
+		for (int i = 0; i < 20; i++) {
+			boolean offset = i % 5 == 4;
+			float limit = offset ? MAX_FIXED_OFFSET : MAX_FIXED_WEIGHT;
+			if (Math.abs(matrix[i]) > limit) {
+				return null;
+			}
+			fixed[i] = Math.round(matrix[i] * FIXED_ONE);
+			if (offset) {
+				fixed[i] += 1 << (FIXED_SHIFT - 1);
+			}
+		}
+		return fixed;
+	}
+	
+	private static int clamp(float value) {
+		int v = (int) (value + 0.5f);
+		return v < 0 ? 0 : (v > 255 ? 255 : v);
+	}
+	
+	private static int clamp(int value) {
+		return value < 0 ? 0 : (value > 255 ? 255 : value);
+	}
+}
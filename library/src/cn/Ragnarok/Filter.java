@@ -0,0 +1,13 @@
+package cn.Ragnarok;
+
+/**
+ * a filter that works on a shared pixel buffer, so several filters can be chained
+ * without converting to a Bitmap between them, see FilterPipeline
+ */
+public interface Filter {
+	/**
+	 * filter the pixels of the buffer in place
+	 * @param buffer, the pixels to filter, left holding the result
+	 */
+	public void apply(PixelBuffer buffer);
+}
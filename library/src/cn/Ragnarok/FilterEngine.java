@@ -0,0 +1,41 @@
+package cn.Ragnarok;
+
+/**
+ * selects which implementation the Filter classes run on. NATIVE calls the
+ * C++ filters in libAndroidImageFilter.so, JAVA calls JavaFilterFunc, which
+ * produces the same pixels and works wherever the native library can't be loaded.
+ */
+public enum FilterEngine {
+	NATIVE,
+	JAVA;
+	
+	private static volatile FilterEngine current;
+	
+	/**
+	 * @return the engine filters run on, NATIVE if the native library loads and JAVA otherwise,
+	 * unless another engine was set
+	 */
+	public static FilterEngine get() {
+		FilterEngine engine = current;
+		if (engine == null) {
+			engine = NativeFilterFunc.isAvailable() ? NATIVE : JAVA;
+			current = engine;
+		}
+		return engine;
+	}
+	
+	/**
+	 * switch every filter to an engine, e.g. to compare both or to profile filters on the JVM
+	 * @param engine
+	 */
+	public static void set(FilterEngine engine) {
+		if (engine == NATIVE && !NativeFilterFunc.isAvailable()) {
+			throw new IllegalStateException("the native filter library isn't available");
+		}
+		current = engine;
+	}
+	
+	static boolean isNative() {
+		return get() == NATIVE;
+	}
+}
@@ -0,0 +1,108 @@
+package cn.Ragnarok;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import android.graphics.Bitmap;
+
+/**
+ * a chain of filters run one after another on the same PixelBuffer, e.g.
+ * 
+ * FilterPipeline pipeline = new FilterPipeline.Builder()
+ * 		.add(new SharpenFilter())
+ * 		.add(new HDRFilter())
+ * 		.add(BitmapFilter.LOMO_STYLE)
+ * 		.build();
+ * Bitmap result = pipeline.apply(bitmap);
+ * 
+ * the bitmap is read once before the first filter and a bitmap is created once after
+ * the last one, however many filters there are. neighbouring color matrix filters, like
+ * gray, invert and old, are composed into a single pass, and so are neighbouring lookup table
+ * filters, like brightness, contrast and gamma. the bitmap methods split the image into
+ * bands on every core with BandExecutor.getDefault().
+ */
+public class FilterPipeline implements Filter {
+	private final Filter[] filters;
+	
+	public static class Builder {
+		private final ArrayList<Filter> filters = new ArrayList<Filter>();
+		
+		public Builder add(Filter filter) {
+			filters.add(filter);
+			return this;
+		}
+		
+		/**
+		 * add a filter by style id, see BitmapFilter
+		 * @param styleNo, filter style id
+		 * @param options, the same options BitmapFilter.changeStyle takes
+		 * @return
+		 */
+		public Builder add(int styleNo, Object... options) {
+			Filter filter = FilterRegistry.create(styleNo, options);
+			if (filter == null) {
+				throw new IllegalArgumentException(String.format("no filter is registered for style %d", styleNo));
+			}
+			return add(filter);
+		}
+		
+		/**
+		 * neighbouring ColorMatrixFilters, or LookupTableFilters, are composed into one, so they run
+		 * as a single pass
+		 * @return
+		 */
+		public FilterPipeline build() {
+			ArrayList<Filter> stages = new ArrayList<Filter>();
+			for (Filter filter : filters) {
+				int last = stages.size() - 1;
+				if (filter instanceof ColorMatrixFilter && last >= 0 && stages.get(last) instanceof ColorMatrixFilter) {
+					stages.set(last, ((ColorMatrixFilter) stages.get(last)).then((ColorMatrixFilter) filter));
+				} else if (filter instanceof LookupTableFilter && last >= 0 && stages.get(last) instanceof LookupTableFilter) {
+					stages.set(last, ((LookupTableFilter) stages.get(last)).then((LookupTableFilter) filter));
+				} else {
+					stages.add(filter);
+				}
+			}
+			return new FilterPipeline(stages.toArray(new Filter[stages.size()]));
+		}
+	}
+	
+	private FilterPipeline(Filter[] filters) {
+		this.filters = filters;
+	}
+	
+	public List<Filter> getFilters() {
+		return Arrays.asList(filters);
+	}
+	
+	@Override
+	public void apply(PixelBuffer buffer) {
+		for (Filter filter : filters) {
+			filter.apply(buffer);
+		}
+	}
+	
+	/**
+	 * run every filter on the pixels of a bitmap
+	 * @param bitmap, left untouched
+	 * @return a new bitmap with the result
+	 */
+	public Bitmap apply(Bitmap bitmap) {
+		return apply(bitmap, this);
+	}
+	
+	/**
+	 * run a single filter on the pixels of a bitmap
+	 * @param bitmap, left untouched
+	 * @param filter
+	 * @return a new bitmap with the result, from PixelPool.getDefault()
+	 */
+	public static Bitmap apply(Bitmap bitmap, Filter filter) {
+		PixelBuffer buffer = PixelBuffer.fromBitmap(bitmap);
+		BandExecutor.getDefault().apply(buffer, filter);
+		Bitmap result = buffer.toBitmap();
+		buffer.recycle();
+		return result;
+	}
+}
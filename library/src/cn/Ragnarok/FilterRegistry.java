@@ -0,0 +1,309 @@
+package cn.Ragnarok;
+
+import java.util.HashMap;
+
+/**
+ * maps filter style ids to the filters implementing them. every style of BitmapFilter
+ * is registered with the same defaults changeStyle uses, and apps can register their own.
+ *
+ * styles whose options are lengths in pixels, radii, sigmas and block sizes, also register a
+ * scaler, so the same look can be rendered on a resized copy of the image, see createScaled.
+ */
+public class FilterRegistry {
+	
+	/**
+	 * creates a filter from untyped options, missing options fall back to defaults
+	 */
+	public interface Factory {
+		public Filter create(Object... options);
+	}
+	
+	/**
+	 * converts the options of a style, missing ones included, to an image resized by scale
+	 */
+	public interface Scaler {
+		public Object[] scale(double scale, Object... options);
+	}
+	
+	private static final int DEFAULT_MASK_SIZE = 5;
+	private static final int DEFAULT_OIL_RANGE = 5;
+	private static final int DEFAULT_PIXEL_SIZE = 10;
+	private static final double DEFAULT_SIGMA = 1.2;
+	private static final double DEFAULT_GLOW_SIGMA = 0.6;
+	private static final int DEFAULT_X_SPEED = 5;
+	private static final int DEFAULT_Y_SPEED = 1;
+	// GaussianBlurFilter needs sigma * 3 + 1 >= 2, a blur under half a pixel is invisible anyway
+	private static final double MIN_SCALED_SIGMA = 0.5;
+	
+	private static final HashMap<Integer, Factory> factories = new HashMap<Integer, Factory>();
+	private static final HashMap<Integer, Scaler> scalers = new HashMap<Integer, Scaler>();
+	
+	static {
+		register(BitmapFilter.GRAY_STYLE, new Factory() {
+			public Filter create(Object... options) {
+				return new GrayFilter();
+			}
+		});
+		register(BitmapFilter.RELIEF_STYLE, new Factory() {
+			public Filter create(Object... options) {
+				return new ReliefFilter();
+			}
+		});
+		register(BitmapFilter.AVERAGE_BLUR_STYLE, new Factory() {
+			public Filter create(Object... options) {
+				if (options.length < 1) {
+					return new BlurFilter(DEFAULT_MASK_SIZE);
+				}
+				return new BlurFilter((Integer)options[0]); // maskSize
+			}
+		}, new Scaler() {
+			public Object[] scale(double scale, Object... options) {
+				return new Object[] { scaleLength(options.length < 1 ? DEFAULT_MASK_SIZE : (Integer)options[0], scale) };
+			}
+		});
+		register(BitmapFilter.OIL_STYLE, new Factory() {
+			public Filter create(Object... options) {
+				if (options.length < 1) {
+					return new OilFilter(DEFAULT_OIL_RANGE);
+				}
+				return new OilFilter((Integer)options[0]);
+			}
+		}, new Scaler() {
+			public Object[] scale(double scale, Object... options) {
+				return new Object[] { scaleLength(options.length < 1 ? DEFAULT_OIL_RANGE : (Integer)options[0], scale) };
+			}
+		});
+		register(BitmapFilter.NEON_STYLE, new Factory() {
+			public Filter create(Object... options) {
+				if (options.length < 3) {
+					return new NeonFilter(200, 50, 100);
+				}
+				return new NeonFilter((Integer)options[0], (Integer)options[1], (Integer)options[2]);
+			}
+		});
+		register(BitmapFilter.PIXELATE_STYLE, new Factory() {
+			public Filter create(Object... options) {
+				if (options.length < 1) {
+					return new PixelateFilter(DEFAULT_PIXEL_SIZE);
+				}
+				return new PixelateFilter((Integer)options[0]);
+			}
+		}, new Scaler() {
+			public Object[] scale(double scale, Object... options) {
+				return new Object[] { scaleLength(options.length < 1 ? DEFAULT_PIXEL_SIZE : (Integer)options[0], scale) };
+			}
+		});
+		register(BitmapFilter.TV_STYLE, new Factory() {
+			public Filter create(Object... options) {
+				return new TvFilter();
+			}
+		});
+		register(BitmapFilter.INVERT_STYLE, new Factory() {
+			public Filter create(Object... options) {
+				return new InvertFilter();
+			}
+		});
+		register(BitmapFilter.BLOCK_STYLE, new Factory() {
+			public Filter create(Object... options) {
+				return new BlockFilter();
+			}
+		});
+		register(BitmapFilter.OLD_STYLE, new Factory() {
+			public Filter create(Object... options) {
+				return new OldFilter();
+			}
+		});
+		register(BitmapFilter.SHARPEN_STYLE, new Factory() {
+			public Filter create(Object... options) {
+				return new SharpenFilter();
+			}
+		});
+		register(BitmapFilter.LIGHT_STYLE, new Factory() {
+			public Filter create(Object... options) {
+				if (options.length < 3) {
+					return new LightFilter(); // centered on the image
+				}
+				return new LightFilter((Integer)options[0], (Integer)options[1], (Integer)options[2]); // centerX, centerY, radius
+			}
+		}, new Scaler() {
+			public Object[] scale(double scale, Object... options) {
+				if (options.length < 3) {
+					return options; // already relative to the image
+				}
+				return new Object[] { (int) Math.round((Integer)options[0] * scale),
+						(int) Math.round((Integer)options[1] * scale), scaleLength((Integer)options[2], scale) };
+			}
+		});
+		register(BitmapFilter.LOMO_STYLE, new Factory() {
+			public Filter create(Object... options) {
+				if (options.length < 1) {
+					return new LomoFilter(); // radius from the image width
+				}
+				return new LomoFilter((Double)options[0]);
+			}
+		}, new Scaler() {
+			public Object[] scale(double scale, Object... options) {
+				if (options.length < 1) {
+					return options; // already relative to the image
+				}
+				return new Object[] { (Double)options[0] * scale };
+			}
+		});
+		register(BitmapFilter.HDR_STYLE, new Factory() {
+			public Filter create(Object... options) {
+				return new HDRFilter();
+			}
+		});
+		register(BitmapFilter.GAUSSIAN_BLUR_STYLE, new Factory() {
+			public Filter create(Object... options) {
+				if (options.length < 1) {
+					return new GaussianBlurFilter(DEFAULT_SIGMA);
+				}
+				return new GaussianBlurFilter((Double)options[0]); // sigma
+			}
+		}, new Scaler() {
+			public Object[] scale(double scale, Object... options) {
+				return new Object[] { scaleSigma(options.length < 1 ? DEFAULT_SIGMA : (Double)options[0], scale) };
+			}
+		});
+		register(BitmapFilter.SOFT_GLOW_STYLE, new Factory() {
+			public Filter create(Object... options) {
+				if (options.length < 1) {
+					return new SoftGlowFilter(DEFAULT_GLOW_SIGMA);
+				}
+				return new SoftGlowFilter((Double)options[0]);
+			}
+		}, new Scaler() {
+			public Object[] scale(double scale, Object... options) {
+				return new Object[] { scaleSigma(options.length < 1 ? DEFAULT_GLOW_SIGMA : (Double)options[0], scale) };
+			}
+		});
+		register(BitmapFilter.SKETCH_STYLE, new Factory() {
+			public Filter create(Object... options) {
+				return new SketchFilter();
+			}
+		});
+		register(BitmapFilter.MOTION_BLUR_STYLE, new Factory() {
+			public Filter create(Object... options) {
+				if (options.length < 2) {
+					return new MotionBlurFilter(DEFAULT_X_SPEED, DEFAULT_Y_SPEED);
+				}
+				return new MotionBlurFilter((Integer)options[0], (Integer)options[1]);
+			}
+		}, new Scaler() {
+			public Object[] scale(double scale, Object... options) {
+				if (options.length < 2) {
+					return new Object[] { scaleSpeed(DEFAULT_X_SPEED, scale), scaleSpeed(DEFAULT_Y_SPEED, scale) };
+				}
+				return new Object[] { scaleSpeed((Integer)options[0], scale), scaleSpeed((Integer)options[1], scale) };
+			}
+		});
+		register(BitmapFilter.GOTHAM_STYLE, new Factory() {
+			public Filter create(Object... options) {
+				return ColorCubeFilter.preset(BitmapFilter.GOTHAM_STYLE); // the chain baked once
+			}
+		});
+		register(BitmapFilter.BRIGHT_CONTRAST_STYLE, new Factory() {
+			public Filter create(Object... options) {
+				if (options.length < 2) {
+					return new BrightContrastFilter(20, 1.2);
+				}
+				return new BrightContrastFilter((Double)options[0], (Double)options[1]); // brightness, contrast
+			}
+		});
+		register(BitmapFilter.GAMMA_STYLE, new Factory() {
+			public Filter create(Object... options) {
+				if (options.length < 1) {
+					return new GammaCorrectionFilter(1 / 2.2);
+				}
+				return new GammaCorrectionFilter((Double)options[0]);
+			}
+		});
+		register(BitmapFilter.HUE_SATURATION_STYLE, new Factory() {
+			public Filter create(Object... options) {
+				if (options.length < 2) {
+					return new HueSaturationFilter(30, 0.3);
+				}
+				return new HueSaturationFilter((Double)options[0], (Double)options[1]); // hue, saturation
+			}
+		});
+	}
+	
+	/**
+	 * register a filter for a style id, replacing any filter registered before
+	 * @param styleNo, filter style id
+	 * @param factory
+	 */
+	public static synchronized void register(int styleNo, Factory factory) {
+		factories.put(styleNo, factory);
+		scalers.remove(styleNo);
+	}
+	
+	/**
+	 * register a filter whose options depend on the image size
+	 * @param styleNo, filter style id
+	 * @param factory
+	 * @param scaler, converts the options for a resized image
+	 */
+	public static synchronized void register(int styleNo, Factory factory, Scaler scaler) {
+		factories.put(styleNo, factory);
+		scalers.put(styleNo, scaler);
+	}
+	
+	public static synchronized boolean isRegistered(int styleNo) {
+		return factories.containsKey(styleNo);
+	}
+	
+	/**
+	 * create the filter for a style id
+	 * @param styleNo, filter style id
+	 * @param options, see BitmapFilter.changeStyle
+	 * @return the filter, or null if no filter is registered for the style
+	 */
+	public static Filter create(int styleNo, Object... options) {
+		Factory factory;
+		synchronized (FilterRegistry.class) {
+			factory = factories.get(styleNo);
+		}
+		if (factory == null) {
+			return null;
+		}
+		return factory.create(options);
+	}
+	
+	/**
+	 * create the filter for a style id, for the image resized by scale, e.g. a quarter size
+	 * preview looks like the full image filtered and then shrunk. styles without a scaler,
+	 * color changes and fixed 3x3 kernels, are created with the options unchanged
+	 * @param styleNo, filter style id
+	 * @param scale, the size of the image the filter runs on over the size the options are for
+	 * @param options, see BitmapFilter.changeStyle
+	 * @return the filter, or null if no filter is registered for the style
+	 */
+	public static Filter createScaled(int styleNo, double scale, Object... options) {
+		Scaler scaler;
+		synchronized (FilterRegistry.class) {
+			scaler = scalers.get(styleNo);
+		}
+		if (scaler != null) {
+			options = scaler.scale(scale, options);
+		}
+		return create(styleNo, options);
+	}
+	
+	private static int scaleLength(int length, double scale) {
+		return Math.max(1, (int) Math.round(length * scale));
+	}
+	
+	private static double scaleSigma(double sigma, double scale) {
+		return Math.max(MIN_SCALED_SIGMA, sigma * scale);
+	}
+	
+	// keeps the direction, a speed that was not 0 moves at least a pixel
+	private static int scaleSpeed(int speed, double scale) {
+		if (speed == 0) {
+			return 0;
+		}
+		return (int) Math.signum(speed) * scaleLength(Math.abs(speed), scale);
+	}
+}
@@ -0,0 +1,17 @@
+package cn.Ragnarok;
+
+import android.graphics.Bitmap;
+
+public class GammaCorrectionFilter extends LookupTableFilter {
+	
+	/**
+	 * @param gamma, above 1 brightens and below 1 darkens
+	 */
+	public GammaCorrectionFilter(double gamma) {
+		super(gamma(gamma));
+	}
+	
+	public static Bitmap changeGamma(Bitmap bitmap, double gamma) {
+		return FilterPipeline.apply(bitmap, new GammaCorrectionFilter(gamma));
+	}
+}
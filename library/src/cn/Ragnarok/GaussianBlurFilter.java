@@ -2,25 +2,56 @@ package cn.Ragnarok;
 
 import android.graphics.Bitmap;
 
-public class GaussianBlurFilter {
-	static {
-		System.loadLibrary("AndroidImageFilter");
+public class GaussianBlurFilter implements BandFilter {
+	private final double sigma;
+	private final boolean boxApproximation;
+	
+	public GaussianBlurFilter(double sigma) {
+		this(sigma, false);
 	}
 	
-	public static Bitmap changeToGaussianBlur(Bitmap bitmap, double sigma) {
+	/**
+	 * @param sigma
+	 * @param boxApproximation, approximate the gaussian with three box blurs, which cost the same
+	 * for every sigma, for large sigmas. the border of the image is blurred too.
+	 */
+	public GaussianBlurFilter(double sigma, boolean boxApproximation) {
 		int ksize = (int) (sigma * 3 + 1);
 		if (ksize == 1) {
 			throw new IllegalArgumentException(String.format("sigma %f is too small", sigma));
 		}
-		int width = bitmap.getWidth();
-		int height = bitmap.getHeight();
-		
-		int[] pixels = new int[width * height];
-		bitmap.getPixels(pixels, 0, width, 0, 0, width, height);
-		
-		int[] returnPixels = NativeFilterFunc.discreteGaussianBlur(pixels, width, height, sigma);
-		Bitmap returnBitmap = Bitmap.createBitmap(returnPixels, width, height, Bitmap.Config.ARGB_8888);
-		
-		return returnBitmap;
+		this.sigma = sigma;
+		this.boxApproximation = boxApproximation;
+	}
+	
+	@Override
+	public void apply(PixelBuffer buffer) {
+		if (boxApproximation) {
+			if (FilterEngine.isNative()) {
+				NativeFilterFunc.boxGaussianBlurInPlace(buffer.getPixels(), buffer.getWidth(), buffer.getHeight(), sigma);
+			} else {
+				JavaFilterFunc.boxGaussianBlur(buffer.getPixels(), buffer.getWidth(), buffer.getHeight(), sigma);
+			}
+		} else if (FilterEngine.isNative()) {
+			NativeFilterFunc.discreteGaussianBlurInPlace(buffer.getPixels(), buffer.getWidth(), buffer.getHeight(), sigma);
+		} else {
+			JavaFilterFunc.discreteGaussianBlur(buffer.getPixels(), buffer.getWidth(), buffer.getHeight(), sigma);
+		}
+	}
+	
+	@Override
+	public int getHalo() {
+		if (boxApproximation) {
+			int halo = 0;
+			for (int radius : JavaFilterFunc.getBoxRadii(sigma)) {
+				halo += radius;
+			}
+			return halo;
+		}
+		return (int) Math.ceil(sigma * 3 + 1) / 2;
+	}
+	
+	public static Bitmap changeToGaussianBlur(Bitmap bitmap, double sigma) {
+		return FilterPipeline.apply(bitmap, new GaussianBlurFilter(sigma));
 	}
 }
@@ -2,21 +2,23 @@ package cn.Ragnarok;
 
 import android.graphics.Bitmap;
 
-public class GothamFilter {
-	static {
-		System.loadLibrary("AndroidImageFilter");
+public class GothamFilter implements BandFilter {
+	
+	@Override
+	public void apply(PixelBuffer buffer) {
+		if (FilterEngine.isNative()) {
+			NativeFilterFunc.gothamFilterInPlace(buffer.getPixels(), buffer.getWidth(), buffer.getHeight());
+		} else {
+			JavaFilterFunc.gothamFilter(buffer.getPixels(), buffer.getWidth(), buffer.getHeight());
+		}
+	}
+	
+	@Override
+	public int getHalo() {
+		return 0;
 	}
 	
 	public static Bitmap changeToGotham(Bitmap bitmap) {
-		int width = bitmap.getWidth();
-		int height = bitmap.getHeight();
-		
-		int[] pixels = new int[width * height];
-		bitmap.getPixels(pixels, 0, width, 0, 0, width, height);
-		
-		int[] returnPixles = NativeFilterFunc.gothamFilter(pixels, width, height);
-		Bitmap returnBitmap = Bitmap.createBitmap(returnPixles, width, height, Bitmap.Config.ARGB_8888);
-		
-		return returnBitmap;
+		return FilterPipeline.apply(bitmap, new GothamFilter());
 	}
 }
@@ -1,30 +1,14 @@
 package cn.Ragnarok;
 
 import android.graphics.Bitmap;
-import android.graphics.Canvas;
-import android.graphics.ColorMatrix;
-import android.graphics.ColorMatrixColorFilter;
-import android.graphics.Paint;
 
-public class GrayFilter {
+public class GrayFilter extends ColorMatrixFilter {
+	
+	public GrayFilter() {
+		super(ColorMatrixFilter.saturation(0).getArray());
+	}
+	
 	public static Bitmap changeToGray(Bitmap bitmap) {
-		int width, height;
-		width = bitmap.getWidth();
-		height = bitmap.getHeight();
-			
-		Bitmap grayBitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
-		Canvas canvas = new Canvas(grayBitmap);
-		Paint paint = new Paint();
-		paint.setAntiAlias(true); // 设置抗锯齿
-			
-		ColorMatrix colorMatrix = new ColorMatrix();
-		colorMatrix.setSaturation(0);
-			
-		ColorMatrixColorFilter filter = new ColorMatrixColorFilter(colorMatrix);
-			
-		paint.setColorFilter(filter);
-		canvas.drawBitmap(bitmap, 0, 0, paint);
-			
-		return grayBitmap;
+		return FilterPipeline.apply(bitmap, new GrayFilter());
 	}
 }
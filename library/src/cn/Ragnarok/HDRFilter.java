@@ -2,21 +2,24 @@ package cn.Ragnarok;
 
 import android.graphics.Bitmap;
 
-public class HDRFilter {
-	static {
-		System.loadLibrary("AndroidImageFilter");
+public class HDRFilter implements BandFilter {
+	
+	@Override
+	public void apply(PixelBuffer buffer) {
+		if (FilterEngine.isNative()) {
+			NativeFilterFunc.hdrFilterInPlace(buffer.getPixels(), buffer.getWidth(), buffer.getHeight());
+		} else {
+			JavaFilterFunc.hdrFilter(buffer.getPixels(), buffer.getWidth(), buffer.getHeight());
+		}
+	}
+	
+	@Override
+	public int getHalo() {
+		// the 3x3 sharpen runs on rows blurred by a 3x3 gaussian
+		return 2;
 	}
 	
 	public static Bitmap changeToHDR(Bitmap bitmap) {
-		int width = bitmap.getWidth();
-		int height = bitmap.getHeight();
-		
-		int[] pixels = new int[width * height];
-		bitmap.getPixels(pixels, 0, width, 0, 0, width, height);
-		int[] returnPixels = NativeFilterFunc.hdrFilter(pixels, width, height);
-		
-		Bitmap returnBitmap = Bitmap.createBitmap(returnPixels, width, height, Bitmap.Config.ARGB_8888);
-		
-		return returnBitmap;
+		return FilterPipeline.apply(bitmap, new HDRFilter());
 	}
 }
@@ -0,0 +1,39 @@
+package cn.Ragnarok;
+
+import android.graphics.Bitmap;
+
+/**
+ * gives every pixel the same hue and saturation and keeps its intensity, like a colorize
+ * adjustment. it mixes the channels, so it can't be a lookup table
+ */
+public class HueSaturationFilter implements BandFilter {
+	private final double hue;
+	private final double saturation;
+	
+	/**
+	 * @param hue, 0 to 360 degrees, 0 is red, 120 green and 240 blue
+	 * @param saturation, 0 to 1
+	 */
+	public HueSaturationFilter(double hue, double saturation) {
+		this.hue = hue;
+		this.saturation = saturation;
+	}
+	
+	@Override
+	public void apply(PixelBuffer buffer) {
+		if (FilterEngine.isNative()) {
+			NativeFilterFunc.hueSaturationFilterInPlace(buffer.getPixels(), buffer.getWidth(), buffer.getHeight(), hue, saturation);
+		} else {
+			JavaFilterFunc.hueSaturationFilter(buffer.getPixels(), buffer.getWidth(), buffer.getHeight(), hue, saturation);
+		}
+	}
+	
+	@Override
+	public int getHalo() {
+		return 0;
+	}
+	
+	public static Bitmap changeHueSaturation(Bitmap bitmap, double hue, double saturation) {
+		return FilterPipeline.apply(bitmap, new HueSaturationFilter(hue, saturation));
+	}
+}
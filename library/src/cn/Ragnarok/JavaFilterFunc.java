@@ -0,0 +1,882 @@
+package cn.Ragnarok;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * pure java ports of the native filters in jni/, working in place on ARGB int arrays
+ * like the InPlace functions of NativeFilterFunc. they need neither the native library
+ * nor android classes, so they also run in a plain JVM.
+ *
+ * the ports keep the arithmetic of the C++ sources, including their integer truncation
+ * and edge handling, so results match the native ones up to floating point rounding.
+ */
+public class JavaFilterFunc {
+	// the value of PI in Util.h, kept so angles round the same way
+	private static final double PI = 3.14159265;
+	private static final double COLOR_UPPER_BOUND = 255.0;
+	// the constants of GaussianBlurFilter.h
+	private static final int KERNEL_SHIFT = 14;
+	private static final int INTERMEDIATE_SHIFT = 8;
+	private static final int BOX_PASSES = 3;
+	private static final int MAX_CACHED_KERNELS = 32;
+	
+	private static final HashMap<Double, int[]> kernelCache = new HashMap<Double, int[]>();
+	
+	private static int alpha(int color) {
+		return color >>> 24;
+	}
+	
+	private static int red(int color) {
+		return (color >> 16) & 0xFF;
+	}
+	
+	private static int green(int color) {
+		return (color >> 8) & 0xFF;
+	}
+	
+	private static int blue(int color) {
+		return color & 0xFF;
+	}
+	
+	private static int grayScale(int color) {
+		return (red(color) + green(color) + blue(color)) / 3;
+	}
+	
+	private static int argb(int alpha, int r, int g, int b) {
+		return alpha << 24 | r << 16 | g << 8 | b;
+	}
+	
+	private static int rgb(int r, int g, int b) {
+		return 255 << 24 | r << 16 | g << 8 | b;
+	}
+	
+	private static int clamp(int value) {
+		return Math.min(255, Math.max(0, value));
+	}
+	
+	private static void checkSize(int[] pixels, int width, int height) {
+		if (pixels.length < width * height) {
+			throw new IllegalArgumentException("the pixels array is smaller than width * height");
+		}
+	}
+	
+	public static void lightFilter(int[] pixels, int width, int height, int centerX, int centerY, int radius) {
+		checkSize(pixels, width, height);
+		float strength = 150;
+		for (int i = 1; i < height - 1; i++) {
+			for (int k = 1; k < width - 1; k++) {
+				int pos = i * width + k;
+				int color = pixels[pos];
+				int pixR = red(color);
+				int pixG = green(color);
+				int pixB = blue(color);
+				int newR = pixR;
+				int newG = pixG;
+				int newB = pixB;
+
+				int distance = (int) (Math.pow(centerY - i, 2) + Math.pow(centerX - k, 2));
+				if (distance < radius * radius) {
+					int result = (int) (strength * (1.0 - Math.sqrt(distance) / radius));
+					newR = pixR + result;
+					newG = pixG + result;
+					newB = pixB + result;
+				}
+				pixels[pos] = argb(255, clamp(newR), clamp(newG), clamp(newB));
+			}
+		}
+	}
+	
+	public static void lomoAddBlckRound(int[] pixels, int width, int height, double roundRadius) {
+		checkSize(pixels, width, height);
+		double pixelsFalloff = 10;
+		double centerX = width / 2;
+		double centerY = height / 2;
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				double dis = Math.sqrt(Math.pow(centerX - x, 2) + Math.pow(centerY - y, 2));
+				if (dis > roundRadius) {
+					int pos = y * width + x;
+					int color = pixels[pos];
+					double scaler = Math.abs(1 - Math.pow((dis - roundRadius) / pixelsFalloff, 2));
+					int newR = (int) (red(color) - scaler);
+					int newG = (int) (green(color) - scaler);
+					int newB = (int) (blue(color) - scaler);
+					pixels[pos] = rgb(clamp(newR), clamp(newG), clamp(newB));
+				}
+			}
+		}
+	}
+	
+	public static void neonFilter(int[] pixels, int width, int height, int r, int g, int b) {
+		checkSize(pixels, width, height);
+		int[] xSobel = { 1, 2, 1, 0, 0, 0, -1, -2, -1 };
+		int[] ySobel = { 1, 0, -1, 2, 0, -2, 1, 0, -1 };
+		float threshold = 110;
+		int[] originPixels = PixelPool.getDefault().copyOf(pixels, width * height);
+		for (int i = 1; i < height - 1; i++) {
+			for (int j = 1; j < width - 1; j++) {
+				int index = 0;
+				int xVal = 0, yVal = 0;
+				for (int m = -1; m <= 1; m++) {
+					for (int n = -1; n <= 1; n++) {
+						int originGray = grayScale(originPixels[(i + m) * width + j + n]);
+						xVal += originGray * xSobel[index];
+						yVal += originGray * ySobel[index];
+						index++;
+					}
+				}
+				int afterGray = clamp(Math.abs(xVal) + Math.abs(yVal));
+				if (afterGray > threshold) {
+					pixels[i * width + j] = rgb(r, g, b);
+				} else {
+					pixels[i * width + j] = rgb(1, 1, 1);
+				}
+			}
+		}
+		PixelPool.getDefault().recycle(originPixels);
+	}
+	
+	/**
+	 * OilFilter.cpp: the histograms slide along each row, O(oilRange) per pixel
+	 */
+	public static void oilFilter(int[] pixels, int width, int height, int oilRange) {
+		checkSize(pixels, width, height);
+		if (oilRange < 1) {
+			return;
+		}
+		int[] originPixels = PixelPool.getDefault().copyOf(pixels, width * height);
+		ModeHistogram rHis = new ModeHistogram(), gHis = new ModeHistogram(), bHis = new ModeHistogram();
+		for (int y = 0; y < height; y++) {
+			int firstRow = Math.max(0, y - oilRange);
+			int lastRow = Math.min(height, y + oilRange);
+			rHis.clear();
+			gHis.clear();
+			bHis.clear();
+			for (int col = 0; col < Math.min(width, oilRange); col++) {
+				for (int row = firstRow; row < lastRow; row++) {
+					int color = originPixels[row * width + col];
+					rHis.add(red(color));
+					gHis.add(green(color));
+					bHis.add(blue(color));
+				}
+			}
+
+			for (int x = 0; x < width; x++) {
+				int leaving = x - oilRange - 1;
+				int entering = x + oilRange - 1;
+				if (x > 0 && leaving >= 0) {
+					for (int row = firstRow; row < lastRow; row++) {
+						int color = originPixels[row * width + leaving];
+						rHis.remove(red(color));
+						gHis.remove(green(color));
+						bHis.remove(blue(color));
+					}
+				}
+				if (x > 0 && entering < width) {
+					for (int row = firstRow; row < lastRow; row++) {
+						int color = originPixels[row * width + entering];
+						rHis.add(red(color));
+						gHis.add(green(color));
+						bHis.add(blue(color));
+					}
+				}
+
+				if (rHis.getModeCount() != 0 && gHis.getModeCount() != 0 && bHis.getModeCount() != 0) {
+					pixels[y * width + x] = rgb(rHis.getMode(), gHis.getMode(), bHis.getMode());
+				}
+			}
+		}
+		PixelPool.getDefault().recycle(originPixels);
+	}
+	
+	/**
+	 * the histogram of one channel over the oil filter window, with its mode kept up to date
+	 * while levels are added, so it only has to be searched again when a level of the mode is removed
+	 */
+	private static final class ModeHistogram {
+		private final int[] counts = new int[256];
+		private int mode;
+		private boolean dirty;
+
+		void clear() {
+			Arrays.fill(counts, 0);
+			mode = 0;
+			dirty = false;
+		}
+
+		void add(int level) {
+			int count = ++counts[level];
+			if (!dirty && (count > counts[mode] || (count == counts[mode] && level < mode))) {
+				mode = level;
+			}
+		}
+
+		void remove(int level) {
+			counts[level]--;
+			if (level == mode) {
+				dirty = true;
+			}
+		}
+
+		/**
+		 * the most frequent level, the lowest one of a tie
+		 */
+		int getMode() {
+			if (dirty) {
+				mode = 0;
+				for (int i = 1; i < counts.length; i++) {
+					if (counts[i] > counts[mode]) {
+						mode = i;
+					}
+				}
+				dirty = false;
+			}
+			return mode;
+		}
+
+		int getModeCount() {
+			return counts[getMode()];
+		}
+	}
+	
+	public static void tvFilter(int[] pixels, int width, int height) {
+		checkSize(pixels, width, height);
+		int gap = 4;
+		int size = width * height;
+		for (int x = 0; x < width; x++) {
+			for (int y = 0; y < height; y += gap) {
+				int r = 0, g = 0;
+				for (int w = 0; w < 4; w++) {
+					int index = (y + w) * width + x;
+					if (index < size) {
+						r += red(pixels[index]) / gap;
+						g += green(pixels[index]) / gap;
+					}
+				}
+				r = clamp(r);
+				g = clamp(g);
+				// TvFilter.cpp clamps blue with min(0, b), so the blue row is always black
+				int b = 0;
+
+				for (int w = 0; w < 3; w++) {
+					int index = (y + w) * width + x;
+					if (index < size) {
+						if (w == 0) {
+							pixels[index] = rgb(r, 0, 0);
+						} else if (w == 1) {
+							pixels[index] = rgb(0, g, 0);
+						} else {
+							pixels[index] = rgb(0, 0, b);
+						}
+					}
+				}
+			}
+		}
+	}
+	
+	/**
+	 * AverageSmoothFilter.cpp: running window sums, so the cost doesn't depend on maskSize.
+	 * like the native filter, the sums read pixels that were already smoothed above and left
+	 * of the mask center. an even mask reaches maskSize / 2 pixels up and left but one less
+	 * down and right.
+	 */
+	public static void averageSmooth(int[] pixels, int width, int height, int maskSize) {
+		checkSize(pixels, width, height);
+		if (maskSize < 1 || width < maskSize || height < maskSize) {
+			return;
+		}
+		int div = maskSize * maskSize;
+		int before = maskSize / 2;
+		int after = (maskSize - 1) / 2;
+
+		int[] columnR = new int[width];
+		int[] columnG = new int[width];
+		int[] columnB = new int[width];
+		for (int row = 0; row < maskSize; row++) {
+			for (int col = 0; col < width; col++) {
+				int color = pixels[row * width + col];
+				columnR[col] += red(color);
+				columnG[col] += green(color);
+				columnB[col] += blue(color);
+			}
+		}
+
+		for (int row = before; row < height - after; row++) {
+			if (row > before) {
+				int entering = (row + after) * width;
+				int leaving = (row - before - 1) * width;
+				for (int col = 0; col < width; col++) {
+					int enteringColor = pixels[entering + col];
+					int leavingColor = pixels[leaving + col];
+					columnR[col] += red(enteringColor) - red(leavingColor);
+					columnG[col] += green(enteringColor) - green(leavingColor);
+					columnB[col] += blue(enteringColor) - blue(leavingColor);
+				}
+			}
+
+			int sumR = 0, sumG = 0, sumB = 0;
+			for (int col = 0; col < maskSize; col++) {
+				sumR += columnR[col];
+				sumG += columnG[col];
+				sumB += columnB[col];
+			}
+			for (int col = before; col < width - after; col++) {
+				if (col > before) {
+					sumR += columnR[col + after] - columnR[col - before - 1];
+					sumG += columnG[col + after] - columnG[col - before - 1];
+					sumB += columnB[col + after] - columnB[col - before - 1];
+				}
+				int index = row * width + col;
+				int oldColor = pixels[index];
+				int newR = sumR / div;
+				int newG = sumG / div;
+				int newB = sumB / div;
+				pixels[index] = rgb(newR, newG, newB);
+
+				// the written pixel is in the window of this and the next pixels
+				columnR[col] += newR - red(oldColor);
+				columnG[col] += newG - green(oldColor);
+				columnB[col] += newB - blue(oldColor);
+				sumR += newR - red(oldColor);
+				sumG += newG - green(oldColor);
+				sumB += newB - blue(oldColor);
+			}
+		}
+	}
+	
+	public static void hdrFilter(int[] pixels, int width, int height) {
+		checkSize(pixels, width, height);
+		int size = width * height;
+		int[] smoothPixels = PixelPool.getDefault().copyOf(pixels, size);
+		discreteGaussianBlur(smoothPixels, width, height, 0.6);
+
+		for (int i = 0; i < size; i++) {
+			int originColor = pixels[i];
+			int smoothColor = smoothPixels[i];
+			double newR = overlay(red(originColor), red(smoothColor));
+			double newG = overlay(green(originColor), green(smoothColor));
+			double newB = overlay(blue(originColor), blue(smoothColor));
+			pixels[i] = argb(alpha(smoothColor), (int) (newR * 255), (int) (newG * 255), (int) (newB * 255));
+		}
+		PixelPool.getDefault().recycle(smoothPixels);
+
+		sharpenFilter(pixels, width, height);
+	}
+	
+	private static double overlay(int origin, int smooth) {
+		if (smooth / 255.0 <= 0.5) {
+			return 2 * (smooth / 255.0) * (origin / 255.0);
+		}
+		return 1 - 2 * (1 - origin / 255.0) * (1 - smooth / 255.0);
+	}
+	
+	/**
+	 * GaussianBlurFilter.cpp: a horizontal and a vertical pass of a fixed point 1d kernel,
+	 * pixels closer than ksize / 2 to the border are left as they are
+	 */
+	public static void discreteGaussianBlur(int[] pixels, int width, int height, double sigma) {
+		checkSize(pixels, width, height);
+		int ksize = (int) Math.ceil(sigma * 3 + 1);
+		if (ksize <= 1) {
+			return;
+		}
+		int[] kernel = getGaussianKernel(sigma);
+		int bound = kernel.length / 2;
+		if (width <= 2 * bound || height <= 2 * bound) {
+			return;
+		}
+		int size = width * height;
+		int shift = KERNEL_SHIFT - INTERMEDIATE_SHIFT;
+		int roundHalf = 1 << (shift - 1);
+
+		// horizontal pass over every row, the vertical pass needs the rows next to the border
+		char[] planeR = new char[size];
+		char[] planeG = new char[size];
+		char[] planeB = new char[size];
+		for (int row = 0; row < height; row++) {
+			for (int col = bound; col < width - bound; col++) {
+				int sumR = 0, sumG = 0, sumB = 0;
+				int source = row * width + col - bound;
+				for (int i = 0; i < kernel.length; i++) {
+					int color = pixels[source + i];
+					sumR += red(color) * kernel[i];
+					sumG += green(color) * kernel[i];
+					sumB += blue(color) * kernel[i];
+				}
+				int index = row * width + col;
+				planeR[index] = (char) ((sumR + roundHalf) >> shift);
+				planeG[index] = (char) ((sumG + roundHalf) >> shift);
+				planeB[index] = (char) ((sumB + roundHalf) >> shift);
+			}
+		}
+
+		// vertical pass, a row of sums at a time so the planes are read in order
+		int[] sumR = new int[width];
+		int[] sumG = new int[width];
+		int[] sumB = new int[width];
+		for (int row = bound; row < height - bound; row++) {
+			Arrays.fill(sumR, 0);
+			Arrays.fill(sumG, 0);
+			Arrays.fill(sumB, 0);
+			for (int i = 0; i < kernel.length; i++) {
+				int weight = kernel[i];
+				int offset = (row + i - bound) * width;
+				for (int col = bound; col < width - bound; col++) {
+					sumR[col] += planeR[offset + col] * weight;
+					sumG[col] += planeG[offset + col] * weight;
+					sumB[col] += planeB[offset + col] * weight;
+				}
+			}
+			for (int col = bound; col < width - bound; col++) {
+				pixels[row * width + col] = rgb(sumR[col] >> (KERNEL_SHIFT + INTERMEDIATE_SHIFT),
+						sumG[col] >> (KERNEL_SHIFT + INTERMEDIATE_SHIFT), sumB[col] >> (KERNEL_SHIFT + INTERMEDIATE_SHIFT));
+			}
+		}
+	}
+	
+	/**
+	 * GaussianBlurFilter::getKernel: 2 * radius + 1 weights summing to 1 << KERNEL_SHIFT,
+	 * cached by sigma
+	 */
+	static int[] getGaussianKernel(double sigma) {
+		synchronized (kernelCache) {
+			int[] cached = kernelCache.get(sigma);
+			if (cached != null) {
+				return cached;
+			}
+		}
+
+		int radius = (int) Math.ceil(sigma * 3 + 1) / 2;
+		double[] weights = new double[2 * radius + 1];
+		double scale = -0.5 / (sigma * sigma);
+		double sum = 0;
+		for (int i = -radius; i <= radius; i++) {
+			weights[i + radius] = Math.exp(scale * i * i);
+			sum += weights[i + radius];
+		}
+
+		// round every weight, then give what rounding lost or added to the center
+		int[] kernel = new int[2 * radius + 1];
+		int fixedSum = 0;
+		for (int i = 0; i < kernel.length; i++) {
+			kernel[i] = (int) Math.floor(weights[i] / sum * (1 << KERNEL_SHIFT) + 0.5);
+			fixedSum += kernel[i];
+		}
+		kernel[radius] += (1 << KERNEL_SHIFT) - fixedSum;
+
+		synchronized (kernelCache) {
+			if (kernelCache.size() >= MAX_CACHED_KERNELS) {
+				kernelCache.clear();
+			}
+			kernelCache.put(sigma, kernel);
+		}
+		return kernel;
+	}
+	
+	/**
+	 * GaussianBlurFilter::getBoxRadii: the radii of the three box blurs approximating a gaussian,
+	 * see Kovesi, "Fast Almost-Gaussian Filtering"
+	 */
+	static int[] getBoxRadii(double sigma) {
+		double idealWidth = Math.sqrt(12 * sigma * sigma / BOX_PASSES + 1);
+		int lowerWidth = (int) Math.floor(idealWidth);
+		if (lowerWidth % 2 == 0) {
+			lowerWidth--;
+		}
+		int upperWidth = lowerWidth + 2;
+		double idealLowerCount = (12 * sigma * sigma - BOX_PASSES * lowerWidth * lowerWidth
+				- 4 * BOX_PASSES * lowerWidth - 3 * BOX_PASSES) / (-4.0 * lowerWidth - 4);
+		int lowerCount = (int) Math.floor(idealLowerCount + 0.5);
+		int[] radii = new int[BOX_PASSES];
+		for (int i = 0; i < BOX_PASSES; i++) {
+			radii[i] = ((i < lowerCount ? lowerWidth : upperWidth) - 1) / 2;
+		}
+		return radii;
+	}
+	
+	/**
+	 * GaussianBlurFilter.cpp in the box mode: three box blurs approximating a gaussian, the cost
+	 * doesn't grow with sigma. the border is blurred too, repeating the edge pixels.
+	 */
+	public static void boxGaussianBlur(int[] pixels, int width, int height, double sigma) {
+		checkSize(pixels, width, height);
+		int ksize = (int) Math.ceil(sigma * 3 + 1);
+		if (ksize <= 1 || width <= 0 || height <= 0) {
+			return;
+		}
+		int[] radii = getBoxRadii(sigma);
+		int size = width * height;
+
+		byte[][] planes = new byte[3][size];
+		byte[] temp = new byte[size];
+		int[] sums = new int[width];
+		for (int i = 0; i < size; i++) {
+			int color = pixels[i];
+			planes[0][i] = (byte) red(color);
+			planes[1][i] = (byte) green(color);
+			planes[2][i] = (byte) blue(color);
+		}
+		for (byte[] plane : planes) {
+			for (int radius : radii) {
+				if (radius > 0) {
+					boxBlurRows(plane, temp, width, height, radius);
+					boxBlurColumns(temp, plane, width, height, radius, sums);
+				}
+			}
+		}
+		for (int i = 0; i < size; i++) {
+			pixels[i] = rgb(planes[0][i] & 0xFF, planes[1][i] & 0xFF, planes[2][i] & 0xFF);
+		}
+	}
+	
+	/**
+	 * sum * reciprocal(boxSize) >>> 32 is sum / boxSize for every box sum of 8 bit values
+	 * while boxSize < 4096, without a division per pixel
+	 */
+	private static long reciprocal(int boxSize) {
+		return ((1L << 32) + boxSize - 1) / boxSize;
+	}
+	
+	private static void boxBlurRows(byte[] source, byte[] target, int width, int height, int radius) {
+		long scale = reciprocal(2 * radius + 1);
+		for (int row = 0; row < height; row++) {
+			int offset = row * width;
+			int sum = (radius + 1) * (source[offset] & 0xFF);
+			for (int i = 1; i <= radius; i++) {
+				sum += source[offset + Math.min(i, width - 1)] & 0xFF;
+			}
+			for (int col = 0; col < width; col++) {
+				target[offset + col] = (byte) (((sum + radius) * scale) >>> 32);
+				sum += (source[offset + Math.min(col + radius + 1, width - 1)] & 0xFF)
+						- (source[offset + Math.max(col - radius, 0)] & 0xFF);
+			}
+		}
+	}
+	
+	private static void boxBlurColumns(byte[] source, byte[] target, int width, int height, int radius, int[] sums) {
+		long scale = reciprocal(2 * radius + 1);
+		for (int col = 0; col < width; col++) {
+			sums[col] = (radius + 1) * (source[col] & 0xFF);
+		}
+		for (int i = 1; i <= radius; i++) {
+			int offset = Math.min(i, height - 1) * width;
+			for (int col = 0; col < width; col++) {
+				sums[col] += source[offset + col] & 0xFF;
+			}
+		}
+		for (int row = 0; row < height; row++) {
+			int offset = row * width;
+			int entering = Math.min(row + radius + 1, height - 1) * width;
+			int leaving = Math.max(row - radius, 0) * width;
+			for (int col = 0; col < width; col++) {
+				target[offset + col] = (byte) (((sums[col] + radius) * scale) >>> 32);
+				sums[col] += (source[entering + col] & 0xFF) - (source[leaving + col] & 0xFF);
+			}
+		}
+	}
+	
+	public static void softGlow(int[] pixels, int width, int height, double blurSigma) {
+		checkSize(pixels, width, height);
+		int size = width * height;
+		int[] blurPixels = PixelPool.getDefault().copyOf(pixels, size);
+		discreteGaussianBlur(blurPixels, width, height, blurSigma);
+
+		double factorA = 1;
+		double factorB = 0.3;
+		for (int i = 0; i < size; i++) {
+			int blurColor = blurPixels[i];
+			int pixColor = pixels[i];
+			int pixR = (int) (red(blurColor) * factorA + red(pixColor) * factorB);
+			int pixG = (int) (green(blurColor) * factorA + green(pixColor) * factorB);
+			int pixB = (int) (blue(blurColor) * factorA + blue(pixColor) * factorB);
+			pixels[i] = argb(alpha(pixColor), clamp(pixR), clamp(pixG), clamp(pixB));
+		}
+		PixelPool.getDefault().recycle(blurPixels);
+	}
+	
+	public static void sketchFilter(int[] pixels, int width, int height) {
+		checkSize(pixels, width, height);
+		int size = width * height;
+		// changeImageToGray in Util.h
+		for (int i = 0; i < size; i++) {
+			int color = pixels[i];
+			float gray = (float) (red(color) * 0.3 + green(color) * 0.59 + blue(color) * 0.11);
+			pixels[i] = rgb((int) gray, (int) gray, (int) gray);
+		}
+
+		int[] originPixels = PixelPool.getDefault().copyOf(pixels, size);
+		int threshold = 7;
+		for (int i = 1; i < height - 1; i++) {
+			for (int j = 1; j < width - 1; j++) {
+				int centerGray = red(originPixels[i * width + j]);
+				int rightBottomGray = red(originPixels[(i + 1) * width + j + 1]);
+				if (Math.abs(centerGray - rightBottomGray) >= threshold) {
+					pixels[i * width + j] = rgb(0, 0, 0); // black
+				} else {
+					pixels[i * width + j] = rgb(255, 255, 255); // white
+				}
+			}
+		}
+		PixelPool.getDefault().recycle(originPixels);
+	}
+	
+	public static void sharpenFilter(int[] pixels, int width, int height) {
+		checkSize(pixels, width, height);
+		int size = width * height;
+		int[] laplacian = {0, -1, 0, -1, 4, -1, 0, -1, 0}; // 3 * 3 laplacian
+		// the border is never written, so it has to be cleared in a borrowed array
+		int[] edgePixels = PixelPool.getDefault().obtainPixels(size);
+		Arrays.fill(edgePixels, 0);
+		for (int i = 1; i < height - 1; i++) {
+			for (int k = 1; k < width - 1; k++) {
+				int index = 0;
+				int newR = 0, newG = 0, newB = 0;
+				for (int m = -1; m <= 1; m++) {
+					for (int n = -1; n <= 1; n++) {
+						int color = pixels[(i + n) * width + k + m];
+						newR += red(color) * laplacian[index];
+						newG += green(color) * laplacian[index];
+						newB += blue(color) * laplacian[index];
+						index++;
+					}
+				}
+				edgePixels[i * width + k] = rgb(clamp(newR), clamp(newG), clamp(newB));
+			}
+		}
+		for (int i = 0; i < size; i++) {
+			int edgeColor = edgePixels[i];
+			int originColor = pixels[i];
+			pixels[i] = rgb(clamp(red(edgeColor) + red(originColor)),
+					clamp(green(edgeColor) + green(originColor)),
+					clamp(blue(edgeColor) + blue(originColor)));
+		}
+		PixelPool.getDefault().recycle(edgePixels);
+	}
+	
+	/**
+	 * SharpenFilter::highBoostSharpen, used by the relief filter
+	 */
+	private static void highBoostSharpen(int[] pixels, int width, int height) {
+		int size = width * height;
+		int[] blurPixels = PixelPool.getDefault().copyOf(pixels, size);
+		averageSmooth(blurPixels, width, height, 5);
+		for (int i = 0; i < size; i++) {
+			int pixColor = pixels[i];
+			int blurColor = blurPixels[i];
+			int edgeR = clamp(red(pixColor) - red(blurColor));
+			int edgeG = clamp(green(pixColor) - green(blurColor));
+			int edgeB = clamp(blue(pixColor) - blue(blurColor));
+			pixels[i] = rgb(clamp(red(pixColor) + edgeR), clamp(green(pixColor) + edgeG), clamp(blue(pixColor) + edgeB));
+		}
+		PixelPool.getDefault().recycle(blurPixels);
+	}
+	
+	public static void reliefFilter(int[] pixels, int width, int height) {
+		checkSize(pixels, width, height);
+		int colorCompensation = 100;
+		highBoostSharpen(pixels, width, height);
+		int preColor = pixels[0];
+		for (int i = 0; i < width; i++) {
+			for (int j = 0; j < height; j++) {
+				int index = j * width + i;
+				int currentColor = pixels[index];
+				int r = clamp(red(currentColor) - red(preColor) + colorCompensation);
+				int g = clamp(green(currentColor) - green(preColor) + colorCompensation);
+				int b = clamp(blue(currentColor) - blue(preColor) + colorCompensation);
+				pixels[index] = argb(alpha(currentColor), r, g, b);
+				preColor = currentColor;
+			}
+		}
+	}
+	
+	/**
+	 * like the native filter, a block at the right edge averages pixels wrapping into the next rows
+	 */
+	public static void pxelateFilter(int[] pixels, int width, int height, int pixelSize) {
+		checkSize(pixels, width, height);
+		int size = width * height;
+		int div = pixelSize * pixelSize;
+		for (int col = 0; col < width; col += pixelSize) {
+			for (int row = 0; row < height; row += pixelSize) {
+				int r = 0, g = 0, b = 0;
+				for (int x = col; x < col + pixelSize; x++) {
+					for (int y = row; y < row + pixelSize; y++) {
+						int index = x + y * width;
+						if (index < size) {
+							r += red(pixels[index]);
+							g += green(pixels[index]);
+							b += blue(pixels[index]);
+						}
+					}
+				}
+				int color = rgb(r / div, g / div, b / div);
+				for (int x = col; x < col + pixelSize && x < width; x++) {
+					for (int y = row; y < row + pixelSize && y < height; y++) {
+						pixels[x + y * width] = color;
+					}
+				}
+			}
+		}
+	}
+	
+	public static void blockFilter(int[] pixels, int width, int height) {
+		checkSize(pixels, width, height);
+		int threshold = 100;
+		int size = width * height;
+		for (int i = 0; i < size; i++) {
+			if (grayScale(pixels[i]) >= threshold) {
+				pixels[i] = rgb(255, 255, 255);
+			} else {
+				pixels[i] = rgb(0, 0, 0);
+			}
+		}
+	}
+	
+	public static void motionBlurFilter(int[] pixels, int width, int height, int xSpeed, int ySpeed) {
+		checkSize(pixels, width, height);
+		final int delay = 2;
+		if (xSpeed == 0) {
+			xSpeed = 1;
+		}
+		if (ySpeed == 0) {
+			ySpeed = 1;
+		}
+		int absXSpeed = Math.abs(xSpeed);
+		int absYSpeed = Math.abs(ySpeed);
+		int[] originPixels = PixelPool.getDefault().copyOf(pixels, width * height);
+
+		for (int y = 0; y < height - delay; y++) {
+			for (int x = 0; x < width - delay; x++) {
+				for (int t = 0; t < delay; t++) {
+					int color = originPixels[(y + t) * width + x + t];
+					float sumR = red(color);
+					float sumG = green(color);
+					float sumB = blue(color);
+					for (int xOffset = 1; xOffset <= absXSpeed; xOffset++) {
+						for (int yOffset = 1; yOffset <= absYSpeed; yOffset++) {
+							int xOff = xOffset <= x ? xOffset : xOffset + x;
+							int yOff = yOffset <= y ? yOffset : yOffset + y;
+							int finalXCoord = xSpeed > 0 ? x - xOff * delay + t : x + xOff * delay + t;
+							int finalYCoord = ySpeed > 0 ? y - yOff * delay + t : y + yOff * delay + t;
+							finalXCoord = Math.min(width - 1, Math.max(finalXCoord, 0));
+							finalYCoord = Math.min(height - 1, Math.max(finalYCoord, 0));
+							int offsetColor = originPixels[finalYCoord * width + finalXCoord];
+							sumR += red(offsetColor);
+							sumG += green(offsetColor);
+							sumB += blue(offsetColor);
+						}
+					}
+					sumR /= (float) (absXSpeed * absYSpeed);
+					sumG /= (float) (absXSpeed * absYSpeed);
+					sumB /= (float) (absXSpeed * absYSpeed);
+					pixels[(y + t) * width + x + t] = rgb(clamp((int) sumR), clamp((int) sumG), clamp((int) sumB));
+				}
+			}
+		}
+		PixelPool.getDefault().recycle(originPixels);
+	}
+	
+	/**
+	 * GothamFilter.cpp: brightness -50, gamma 0.7, hue 233.69 with saturation 0.2, contrast 1.2
+	 */
+	public static void gothamFilter(int[] pixels, int width, int height) {
+		checkSize(pixels, width, height);
+		int size = width * height;
+		double gothamHue = 233.69;
+		double saturation = 0.2;
+		double gammaValue = 0.7;
+		double contrast = 1.2;
+
+		double[] gammaTable = new double[256];
+		double inverseGamma = 1.0 / gammaValue;
+		for (int i = 0; i < 256; i++) {
+			gammaTable[i] = Math.pow(i / COLOR_UPPER_BOUND, inverseGamma) * COLOR_UPPER_BOUND;
+		}
+
+		// setBrightness(-50) then the gamma table
+		for (int i = 0; i < size; i++) {
+			int color = pixels[i];
+			int r = clamp((int) (red(color) - 50.0));
+			int g = clamp((int) (green(color) - 50.0));
+			int b = clamp((int) (blue(color) - 50.0));
+			pixels[i] = rgb((int) gammaTable[r], (int) gammaTable[g], (int) gammaTable[b]);
+		}
+
+		// setHueSaturationIntesity replaces hue and saturation and keeps the intensity
+		double h = gothamHue - 120;
+		double hueFactor = saturation * Math.cos(h * PI / 180.0) / Math.cos((60 - h) * PI / 180.0);
+		for (int i = 0; i < size; i++) {
+			int color = pixels[i];
+			double intensity = (red(color) / COLOR_UPPER_BOUND + green(color) / COLOR_UPPER_BOUND + blue(color) / COLOR_UPPER_BOUND) / 3.0;
+			double r = intensity * (1 - saturation);
+			double g = intensity * (1 + hueFactor);
+			double b = 3 * intensity - (r + g);
+			int newR = (int) (r * COLOR_UPPER_BOUND);
+			int newG = (int) (g * COLOR_UPPER_BOUND);
+			int newB = (int) (b * COLOR_UPPER_BOUND);
+			if (newR >= 0 && newR <= 255 && newG >= 0 && newG <= 255 && newB >= 0 && newB <= 255) {
+				pixels[i] = rgb(newR, newG, newB);
+			}
+		}
+
+		// setContrast(1.2)
+		for (int i = 0; i < size; i++) {
+			int color = pixels[i];
+			int r = clamp((int) (128 + (red(color) - 128) * contrast));
+			int g = clamp((int) (128 + (green(color) - 128) * contrast));
+			int b = clamp((int) (128 + (blue(color) - 128) * contrast));
+			pixels[i] = rgb(r, g, b);
+		}
+	}
+	
+	/**
+	 * HueSaturationFilter.cpp with options: the hue and the saturation of every pixel are replaced,
+	 * its intensity is kept, and pixels the new color doesn't fit in 0..255 are left as they were
+	 */
+	public static void hueSaturationFilter(int[] pixels, int width, int height, double hue, double saturation) {
+		checkSize(pixels, width, height);
+		int size = width * height;
+		double h = hue;
+		if (h > 360) {
+			h = h - 360;
+		} else if (h < 0) {
+			h = h + 360;
+		}
+		double s = Math.min(1.0, Math.max(0.0, saturation));
+		// ColorTranslator::HSI2RGB, the channel of the sector gets i * (1 - s), the next one the hue term
+		int sector;
+		if (h >= 0 && h < 120.0) {
+			sector = 0;
+		} else if (h >= 120.0 && h < 240.0) {
+			sector = 1;
+			h = h - 120;
+		} else if (h >= 240.0 && h <= 360.0) {
+			sector = 2;
+			h = h - 240;
+		} else {
+			return; // HSI2RGB gives -1, which never fits
+		}
+		double hueFactor = s * Math.cos(h * PI / 180.0) / Math.cos((60 - h) * PI / 180.0);
+		for (int i = 0; i < size; i++) {
+			int color = pixels[i];
+			double intensity = (red(color) / COLOR_UPPER_BOUND + green(color) / COLOR_UPPER_BOUND + blue(color) / COLOR_UPPER_BOUND) / 3.0;
+			double low = intensity * (1 - s);
+			double high = intensity * (1 + hueFactor);
+			double rest = 3 * intensity - (low + high);
+			int lowValue = (int) (low * COLOR_UPPER_BOUND);
+			int highValue = (int) (high * COLOR_UPPER_BOUND);
+			int restValue = (int) (rest * COLOR_UPPER_BOUND);
+			if (lowValue < 0 || lowValue > 255 || highValue < 0 || highValue > 255 || restValue < 0 || restValue > 255) {
+				continue;
+			}
+			if (sector == 0) {
+				pixels[i] = rgb(highValue, restValue, lowValue);
+			} else if (sector == 1) {
+				pixels[i] = rgb(lowValue, highValue, restValue);
+			} else {
+				pixels[i] = rgb(restValue, lowValue, highValue);
+			}
+		}
+	}
+}
@@ -1,24 +1,49 @@
 package cn.Ragnarok;
 
 import android.graphics.Bitmap;
-import android.util.Log;
 
-public class LightFilter {
+public class LightFilter implements Filter {
 	
-	static {
-		System.loadLibrary("AndroidImageFilter");
+	private final int centerX;
+	private final int centerY;
+	private final int radius;
+	private final boolean centered;
+	
+	/**
+	 * light centered on the image, reaching the nearest edge
+	 */
+	public LightFilter() {
+		this.centerX = 0;
+		this.centerY = 0;
+		this.radius = 0;
+		this.centered = true;
+	}
+	
+	public LightFilter(int centerX, int centerY, int radius) {
+		this.centerX = centerX;
+		this.centerY = centerY;
+		this.radius = radius;
+		this.centered = false;
+	}
+	
+	@Override
+	public void apply(PixelBuffer buffer) {
+		int width = buffer.getWidth();
+		int height = buffer.getHeight();
+		int x = centerX, y = centerY, r = radius;
+		if (centered) {
+			x = width / 2;
+			y = height / 2;
+			r = Math.min(width / 2, height / 2);
+		}
+		if (FilterEngine.isNative()) {
+			NativeFilterFunc.lightFilterInPlace(buffer.getPixels(), width, height, x, y, r);
+		} else {
+			JavaFilterFunc.lightFilter(buffer.getPixels(), width, height, x, y, r);
+		}
 	}
 	
 	public static Bitmap changeToLight(Bitmap bitmap, int centerX, int centerY, int radius) {
-		int width = bitmap.getWidth();
-		int height = bitmap.getHeight();
-		
-		int[] pixels = new int[width * height];
-		bitmap.getPixels(pixels, 0, width, 0, 0, width, height);
-		
-		int[] returnPixels = NativeFilterFunc.lightFilter(pixels, width, height, centerX, centerY, radius);
-		Bitmap returnBitmap = Bitmap.createBitmap(returnPixels, width, height, Bitmap.Config.ARGB_8888);
-		
-		return returnBitmap;
+		return FilterPipeline.apply(bitmap, new LightFilter(centerX, centerY, radius));
 	}
 }
@@ -0,0 +1,246 @@
+package cn.Ragnarok;
+
+import java.util.Arrays;
+
+/**
+ * maps every channel of every pixel through its own 256 entry table, alpha is kept. the
+ * factories build the tables of the common tone adjustments, gamma, brightness, contrast,
+ * invert and curves, with the same formulas as the native kernels.
+ *
+ * consecutive tables compose into one, see then(), and FilterPipeline does that for
+ * neighbouring stages, so a stack of tone adjustments costs a single lookup per channel.
+ * unlike color matrices, every table clamps to 0..255, so the composed table gives exactly
+ * the pixels the separate passes would.
+ */
+public class LookupTableFilter implements BandFilter {
+	public static final int TABLE_SIZE = 256;
+	
+	// red, green and blue, one after another
+	private final int[] table;
+	
+	/**
+	 * @param red, 256 values from 0 to 255, the new red of every old red
+	 * @param green
+	 * @param blue
+	 */
+	public LookupTableFilter(int[] red, int[] green, int[] blue) {
+		table = new int[3 * TABLE_SIZE];
+		System.arraycopy(checkTable(red), 0, table, 0, TABLE_SIZE);
+		System.arraycopy(checkTable(green), 0, table, TABLE_SIZE, TABLE_SIZE);
+		System.arraycopy(checkTable(blue), 0, table, 2 * TABLE_SIZE, TABLE_SIZE);
+	}
+	
+	/**
+	 * the same table for every channel
+	 * @param table, 256 values from 0 to 255
+	 */
+	public LookupTableFilter(int[] table) {
+		this(table, table, table);
+	}
+	
+	/**
+	 * the tables of another filter, so subclasses can be built from the factories
+	 */
+	protected LookupTableFilter(LookupTableFilter filter) {
+		table = filter.table;
+	}
+	
+	private static int[] checkTable(int[] table) {
+		if (table.length != TABLE_SIZE) {
+			throw new IllegalArgumentException(String.format("a lookup table has %d values, but got %d", TABLE_SIZE, table.length));
+		}
+		for (int value : table) {
+			if (value < 0 || value > 255) {
+				throw new IllegalArgumentException(String.format("lookup table values are 0 to 255, but got %d", value));
+			}
+		}
+		return table;
+	}
+	
+	public static LookupTableFilter identity() {
+		int[] table = new int[TABLE_SIZE];
+		for (int i = 0; i < TABLE_SIZE; i++) {
+			table[i] = i;
+		}
+		return new LookupTableFilter(table);
+	}
+	
+	public static LookupTableFilter invert() {
+		int[] table = new int[TABLE_SIZE];
+		for (int i = 0; i < TABLE_SIZE; i++) {
+			table[i] = 255 - i;
+		}
+		return new LookupTableFilter(table);
+	}
+	
+	/**
+	 * like GammaCorrectionFilter.cpp, every channel becomes (c / 255) ^ (1 / gamma) * 255
+	 * @param gamma, above 1 brightens and below 1 darkens, normally 1 / 2.2
+	 */
+	public static LookupTableFilter gamma(double gamma) {
+		if (gamma <= 0) {
+			throw new IllegalArgumentException(String.format("gamma must be positive, but got %f", gamma));
+		}
+		double inverseGamma = 1.0 / gamma;
+		int[] table = new int[TABLE_SIZE];
+		for (int i = 0; i < TABLE_SIZE; i++) {
+			table[i] = (int) (Math.pow(i / 255.0, inverseGamma) * 255.0);
+		}
+		return new LookupTableFilter(table);
+	}
+	
+	/**
+	 * like BrightContrastFilter::setBrightness, brightness is added to every channel
+	 * @param brightness, -255 to 255
+	 */
+	public static LookupTableFilter brightness(double brightness) {
+		int[] table = new int[TABLE_SIZE];
+		for (int i = 0; i < TABLE_SIZE; i++) {
+			table[i] = clamp((int) (i + brightness));
+		}
+		return new LookupTableFilter(table);
+	}
+	
+	/**
+	 * like BrightContrastFilter::setContrast, every channel is moved away from 128 by contrast
+	 * @param contrast, 1 leaves the colors, 0 is flat gray
+	 */
+	public static LookupTableFilter contrast(double contrast) {
+		int[] table = new int[TABLE_SIZE];
+		for (int i = 0; i < TABLE_SIZE; i++) {
+			table[i] = clamp((int) (128 + (i - 128) * contrast));
+		}
+		return new LookupTableFilter(table);
+	}
+	
+	/**
+	 * a smooth curve through control points, the same for every channel. between the points the
+	 * curve is a monotone cubic, so it never overshoots the points, and before the first point
+	 * and after the last one it stays flat
+	 * @param points, x0, y0, x1, y1, ... with x increasing, from 0 to 255
+	 */
+	public static LookupTableFilter curve(int... points) {
+		return new LookupTableFilter(curveTable(points));
+	}
+	
+	static int[] curveTable(int... points) {
+		int n = points.length / 2;
+		if (points.length % 2 != 0 || n < 2) {
+			throw new IllegalArgumentException("a curve needs at least two x, y points");
+		}
+		double[] x = new double[n];
+		double[] y = new double[n];
+		for (int i = 0; i < n; i++) {
+			x[i] = points[i * 2];
+			y[i] = points[i * 2 + 1];
+			if (i > 0 && x[i] <= x[i - 1]) {
+				throw new IllegalArgumentException("the x of curve points must increase");
+			}
+		}
+
+		// Fritsch-Carlson tangents
+		double[] slopes = new double[n - 1];
+		for (int i = 0; i < n - 1; i++) {
+			slopes[i] = (y[i + 1] - y[i]) / (x[i + 1] - x[i]);
+		}
+		double[] tangents = new double[n];
+		tangents[0] = slopes[0];
+		tangents[n - 1] = slopes[n - 2];
+		for (int i = 1; i < n - 1; i++) {
+			tangents[i] = slopes[i - 1] * slopes[i] <= 0 ? 0 : (slopes[i - 1] + slopes[i]) / 2;
+		}
+		for (int i = 0; i < n - 1; i++) {
+			if (slopes[i] == 0) {
+				tangents[i] = tangents[i + 1] = 0;
+				continue;
+			}
+			double a = tangents[i] / slopes[i];
+			double b = tangents[i + 1] / slopes[i];
+			double length = a * a + b * b;
+			if (length > 9) {
+				double scale = 3 / Math.sqrt(length);
+				tangents[i] = scale * a * slopes[i];
+				tangents[i + 1] = scale * b * slopes[i];
+			}
+		}
+
+		int[] table = new int[TABLE_SIZE];
+		int segment = 0;
+		for (int i = 0; i < TABLE_SIZE; i++) {
+			double value;
+			if (i <= x[0]) {
+				value = y[0];
+			} else if (i >= x[n - 1]) {
+				value = y[n - 1];
+			} else {
+				while (i > x[segment + 1]) {
+					segment++;
+				}
+				double h = x[segment + 1] - x[segment];
+				double t = (i - x[segment]) / h;
+				double t2 = t * t;
+				double t3 = t2 * t;
+				value = (2 * t3 - 3 * t2 + 1) * y[segment] + (t3 - 2 * t2 + t) * h * tangents[segment]
+						+ (-2 * t3 + 3 * t2) * y[segment + 1] + (t3 - t2) * h * tangents[segment + 1];
+			}
+			table[i] = clamp((int) Math.round(value));
+		}
+		return table;
+	}
+	
+	/**
+	 * @return a filter doing this one and then next in a single pass
+	 */
+	public LookupTableFilter then(LookupTableFilter next) {
+		int[] result = new int[3 * TABLE_SIZE];
+		for (int channel = 0; channel < 3 * TABLE_SIZE; channel += TABLE_SIZE) {
+			for (int i = 0; i < TABLE_SIZE; i++) {
+				result[channel + i] = next.table[channel + table[channel + i]];
+			}
+		}
+		return new LookupTableFilter(Arrays.copyOfRange(result, 0, TABLE_SIZE),
+				Arrays.copyOfRange(result, TABLE_SIZE, 2 * TABLE_SIZE),
+				Arrays.copyOfRange(result, 2 * TABLE_SIZE, 3 * TABLE_SIZE));
+	}
+	
+	/**
+	 * @return the red, green and blue tables one after another
+	 */
+	public int[] getTable() {
+		return Arrays.copyOf(table, table.length);
+	}
+	
+	@Override
+	public void apply(PixelBuffer buffer) {
+		if (FilterEngine.isNative()) {
+			NativeFilterFunc.lookupTableFilterInPlace(buffer.getPixels(), buffer.getWidth(), buffer.getHeight(), table);
+		} else {
+			apply(buffer.getPixels(), buffer.getWidth() * buffer.getHeight());
+		}
+	}
+	
+	/**
+	 * filter the first size pixels of an ARGB array in place
+	 * @param pixels
+	 * @param size
+	 */
+	public void apply(int[] pixels, int size) {
+		int[] t = table;
+		for (int i = 0; i < size; i++) {
+			int color = pixels[i];
+			pixels[i] = (color & 0xFF000000)
+					| t[(color >> 16) & 0xFF] << 16
+					| t[TABLE_SIZE + ((color >> 8) & 0xFF)] << 8
+					| t[2 * TABLE_SIZE + (color & 0xFF)];
+		}
+	}
+	
+	@Override
+	public int getHalo() {
+		return 0;
+	}
+	
+	private static int clamp(int value) {
+		return value < 0 ? 0 : (value > 255 ? 255 : value);
+	}
+}
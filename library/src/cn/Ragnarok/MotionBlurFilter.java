@@ -2,21 +2,32 @@ package cn.Ragnarok;
 
 import android.graphics.Bitmap;
 
-public class MotionBlurFilter {
-
-	static {
-		System.loadLibrary("AndroidImageFilter");
+public class MotionBlurFilter implements BandFilter {
+	private final int xSpeed;
+	private final int ySpeed;
+	
+	public MotionBlurFilter(int xSpeed, int ySpeed) {
+		this.xSpeed = xSpeed;
+		this.ySpeed = ySpeed;
+	}
+	
+	@Override
+	public void apply(PixelBuffer buffer) {
+		if (FilterEngine.isNative()) {
+			NativeFilterFunc.motionBlurFilterInPlace(buffer.getPixels(), buffer.getWidth(), buffer.getHeight(), xSpeed, ySpeed);
+		} else {
+			JavaFilterFunc.motionBlurFilter(buffer.getPixels(), buffer.getWidth(), buffer.getHeight(), xSpeed, ySpeed);
+		}
+	}
+	
+	@Override
+	public int getHalo() {
+		// rows are read up to |ySpeed| * 2 away, and the last two rows of an image
+		// are blurred differently
+		return Math.max(1, Math.abs(ySpeed)) * 2;
 	}
 	
 	public static Bitmap changeToMotionBlur(Bitmap bitmap, int xSpeed, int ySpeed) {
-		int width = bitmap.getWidth();
-		int height = bitmap.getHeight();
-		
-		int[] pixels = new int[width * height];
-		bitmap.getPixels(pixels, 0, width, 0, 0, width, height);
-		
-		int[] returnPixels = NativeFilterFunc.motionBlurFilter(pixels, width, height, xSpeed, ySpeed);
-		Bitmap returnBitmap = Bitmap.createBitmap(returnPixels, width, height, Bitmap.Config.ARGB_8888);
-		return returnBitmap;
+		return FilterPipeline.apply(bitmap, new MotionBlurFilter(xSpeed, ySpeed));
 	}
 }
@@ -1,8 +1,30 @@
 package cn.Ragnarok;
 
+import java.nio.Buffer;
+
 import android.R.integer;
 
 public class NativeFilterFunc {
+	private static final boolean available;
+	
+	static {
+		boolean loaded;
+		try {
+			System.loadLibrary("AndroidImageFilter");
+			loaded = true;
+		} catch (UnsatisfiedLinkError e) {
+			loaded = false;
+		}
+		available = loaded;
+	}
+	
+	/**
+	 * @return false if libAndroidImageFilter.so couldn't be loaded, e.g. on a plain JVM
+	 */
+	public static boolean isAvailable() {
+		return available;
+	}
+	
 	public static native int[] lightFilter(int[] pixels, int width, int height, int centerX, int centerY, int radius);
 	public static native int[] lomoAddBlckRound(int[] pixels, int width, int height, double roundRadius);
 	public static native int[] neonFilter(int[] pixels, int width, int height, int r, int g, int b);
@@ -19,4 +41,54 @@ public class NativeFilterFunc {
 	public static native int[] blockFilter(int[] pixels, int width, int height);
 	public static native int[] motionBlurFilter(int[] pixels, int width, int height, int xSpeed, int ySpeed);
 	public static native int[] gothamFilter(int[] pixels, int width, int height);
+	
+	/**
+	 * the InPlace functions filter the caller's array and leave the result in it, the array is
+	 * pinned with critical access instead of being copied in and out of native memory.
+	 * the Direct functions do the same on a direct IntBuffer, or ByteBuffer in native order,
+	 * holding ARGB ints. both throw IllegalArgumentException if the pixels don't fit width * height.
+	 */
+	public static native void lightFilterInPlace(int[] pixels, int width, int height, int centerX, int centerY, int radius);
+	public static native void lightFilterDirect(Buffer pixels, int width, int height, int centerX, int centerY, int radius);
+	public static native void lomoAddBlckRoundInPlace(int[] pixels, int width, int height, double roundRadius);
+	public static native void lomoAddBlckRoundDirect(Buffer pixels, int width, int height, double roundRadius);
+	public static native void neonFilterInPlace(int[] pixels, int width, int height, int r, int g, int b);
+	public static native void neonFilterDirect(Buffer pixels, int width, int height, int r, int g, int b);
+	public static native void oilFilterInPlace(int[] pixels, int width, int height, int oilRange);
+	public static native void oilFilterDirect(Buffer pixels, int width, int height, int oilRange);
+	public static native void tvFilterInPlace(int[] pixels, int width, int height);
+	public static native void tvFilterDirect(Buffer pixels, int width, int height);
+	public static native void averageSmoothInPlace(int[] pixels, int width, int height, int maskSize);
+	public static native void averageSmoothDirect(Buffer pixels, int width, int height, int maskSize);
+	public static native void hdrFilterInPlace(int[] pixels, int width, int height);
+	public static native void hdrFilterDirect(Buffer pixels, int width, int height);
+	public static native void discreteGaussianBlurInPlace(int[] pixels, int width, int height, double sigma);
+	public static native void discreteGaussianBlurDirect(Buffer pixels, int width, int height, double sigma);
+	public static native void boxGaussianBlurInPlace(int[] pixels, int width, int height, double sigma);
+	public static native void boxGaussianBlurDirect(Buffer pixels, int width, int height, double sigma);
+	public static native void softGlowInPlace(int[] pixels, int width, int height, double blurSigma);
+	public static native void softGlowDirect(Buffer pixels, int width, int height, double blurSigma);
+	public static native void sketchFilterInPlace(int[] pixels, int width, int height);
+	public static native void sketchFilterDirect(Buffer pixels, int width, int height);
+	public static native void sharpenFilterInPlace(int[] pixels, int width, int height);
+	public static native void sharpenFilterDirect(Buffer pixels, int width, int height);
+	public static native void reliefFilterInPlace(int[] pixels, int width, int height);
+	public static native void reliefFilterDirect(Buffer pixels, int width, int height);
+	public static native void pxelateFilterInPlace(int[] pixels, int width, int height, int pixelSize);
+	public static native void pxelateFilterDirect(Buffer pixels, int width, int height, int pixelSize);
+	public static native void blockFilterInPlace(int[] pixels, int width, int height);
+	public static native void blockFilterDirect(Buffer pixels, int width, int height);
+	public static native void motionBlurFilterInPlace(int[] pixels, int width, int height, int xSpeed, int ySpeed);
+	public static native void motionBlurFilterDirect(Buffer pixels, int width, int height, int xSpeed, int ySpeed);
+	public static native void gothamFilterInPlace(int[] pixels, int width, int height);
+	public static native void gothamFilterDirect(Buffer pixels, int width, int height);
+	
+	/**
+	 * map every channel through a table, table holds 256 red, 256 green and then 256 blue values,
+	 * see LookupTableFilter
+	 */
+	public static native void lookupTableFilterInPlace(int[] pixels, int width, int height, int[] table);
+	public static native void lookupTableFilterDirect(Buffer pixels, int width, int height, int[] table);
+	public static native void hueSaturationFilterInPlace(int[] pixels, int width, int height, double hue, double saturation);
+	public static native void hueSaturationFilterDirect(Buffer pixels, int width, int height, double hue, double saturation);
 }
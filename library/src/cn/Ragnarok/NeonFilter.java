@@ -1,29 +1,33 @@
 package cn.Ragnarok;
 
-import android.R.integer;
 import android.graphics.Bitmap;
-import android.graphics.Color;
-import android.graphics.Paint;
-import android.util.Log;
 
-public class NeonFilter {
+public class NeonFilter implements BandFilter {
+	private final int r;
+	private final int g;
+	private final int b;
 	
-	static {
-		System.loadLibrary("AndroidImageFilter");
+	public NeonFilter(int r, int g, int b) {
+		this.r = r;
+		this.g = g;
+		this.b = b;
+	}
+	
+	@Override
+	public void apply(PixelBuffer buffer) {
+		if (FilterEngine.isNative()) {
+			NativeFilterFunc.neonFilterInPlace(buffer.getPixels(), buffer.getWidth(), buffer.getHeight(), r, g, b);
+		} else {
+			JavaFilterFunc.neonFilter(buffer.getPixels(), buffer.getWidth(), buffer.getHeight(), r, g, b);
+		}
+	}
+	
+	@Override
+	public int getHalo() {
+		return 1;
 	}
 	
-
 	public static Bitmap changeToNeon(Bitmap bitmap, int r, int g, int b) {
-		int width = bitmap.getWidth();
-		int height = bitmap.getHeight();
-		
-		
-		int[] pixels = new int[width * height];
-		bitmap.getPixels(pixels, 0, width, 0, 0, width, height);
-		
-		int[] returnPixels = NativeFilterFunc.neonFilter(pixels, width, height, r, g, b);
-		Bitmap returnBitmap = Bitmap.createBitmap(returnPixels, width, height, Bitmap.Config.ARGB_8888);
-		
-		return returnBitmap;
+		return FilterPipeline.apply(bitmap, new NeonFilter(r, g, b));
 	}
 }
@@ -1,23 +1,29 @@
 package cn.Ragnarok;
 
-import java.util.Random;
-
 import android.graphics.Bitmap;
 
-public class OilFilter {
-	static {
-		System.loadLibrary("AndroidImageFilter");
+public class OilFilter implements BandFilter {
+	private final int oilRange;
+	
+	public OilFilter(int oilRange) {
+		this.oilRange = oilRange;
+	}
+	
+	@Override
+	public void apply(PixelBuffer buffer) {
+		if (FilterEngine.isNative()) {
+			NativeFilterFunc.oilFilterInPlace(buffer.getPixels(), buffer.getWidth(), buffer.getHeight(), oilRange);
+		} else {
+			JavaFilterFunc.oilFilter(buffer.getPixels(), buffer.getWidth(), buffer.getHeight(), oilRange);
+		}
+	}
+	
+	@Override
+	public int getHalo() {
+		return oilRange;
 	}
 	
 	public static Bitmap changeToOil(Bitmap bitmap, int oilRange) {
-		int width = bitmap.getWidth();
-		int height = bitmap.getHeight();
-		
-		int[] pixels = new int[width * height];
-		bitmap.getPixels(pixels, 0, width, 0, 0, width, height);
-		
-		int[] returnPixels = NativeFilterFunc.oilFilter(pixels, width, height, oilRange);
-		Bitmap returnBitmap = Bitmap.createBitmap(returnPixels, width, height, Bitmap.Config.ARGB_8888);
-		return returnBitmap;
+		return FilterPipeline.apply(bitmap, new OilFilter(oilRange));
 	}
 }
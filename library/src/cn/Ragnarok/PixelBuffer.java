@@ -0,0 +1,121 @@
+package cn.Ragnarok;
+
+import android.graphics.Bitmap;
+
+/**
+ * ARGB pixels of an image, shared by every stage of a FilterPipeline.
+ * the bitmap is read once into the buffer and written back once at the end.
+ *
+ * a buffer read from a bitmap borrows its pixels from PixelPool.getDefault(), and so do the
+ * results BandExecutor puts in it, recycle() gives them back. pixels passed in by the caller
+ * stay the caller's and are never given to the pool.
+ */
+public class PixelBuffer {
+	private int[] pixels;
+	// the pixels were borrowed from the default pool
+	private boolean pooled;
+	private final int width;
+	private final int height;
+	
+	public PixelBuffer(int width, int height) {
+		this(new int[width * height], width, height);
+	}
+	
+	public PixelBuffer(int[] pixels, int width, int height) {
+		if (pixels.length < width * height) {
+			throw new IllegalArgumentException(String.format("%d pixels can't hold a %dx%d image", pixels.length, width, height));
+		}
+		this.pixels = pixels;
+		this.width = width;
+		this.height = height;
+	}
+	
+	/**
+	 * read the pixels of a bitmap into a new buffer, with pixels borrowed from the pool
+	 * @param bitmap
+	 * @return
+	 */
+	public static PixelBuffer fromBitmap(Bitmap bitmap) {
+		int width = bitmap.getWidth();
+		int height = bitmap.getHeight();
+		PixelBuffer buffer = new PixelBuffer(PixelPool.getDefault().obtainPixels(width * height), width, height);
+		buffer.pooled = true;
+		buffer.readFrom(bitmap);
+		return buffer;
+	}
+	
+	/**
+	 * read the pixels of a bitmap with the same size as the buffer
+	 * @param bitmap
+	 */
+	public void readFrom(Bitmap bitmap) {
+		bitmap.getPixels(pixels, 0, width, 0, 0, width, height);
+	}
+	
+	/**
+	 * write the pixels to a mutable bitmap with the same size as the buffer
+	 * @param bitmap
+	 */
+	public void writeTo(Bitmap bitmap) {
+		bitmap.setPixels(pixels, 0, width, 0, 0, width, height);
+	}
+	
+	/**
+	 * a mutable ARGB_8888 bitmap from the pool holding the pixels, the caller may give it back
+	 * to PixelPool.getDefault() once it is done with it
+	 * @return
+	 */
+	public Bitmap toBitmap() {
+		Bitmap bitmap = PixelPool.getDefault().obtainBitmap(width, height);
+		writeTo(bitmap);
+		return bitmap;
+	}
+	
+	public int[] getPixels() {
+		return pixels;
+	}
+	
+	/**
+	 * replace the pixels with an array holding the result of a filter
+	 * @param pixels, at least width * height pixels
+	 */
+	public void setPixels(int[] pixels) {
+		if (pixels.length < width * height) {
+			throw new IllegalArgumentException(String.format("%d pixels can't hold a %dx%d image", pixels.length, width, height));
+		}
+		this.pixels = pixels;
+		pooled = false;
+	}
+	
+	/**
+	 * replace the pixels with an array borrowed from the default pool, pooled pixels replaced
+	 * are given back
+	 */
+	void setPooledPixels(int[] pixels) {
+		if (pixels.length < width * height) {
+			throw new IllegalArgumentException(String.format("%d pixels can't hold a %dx%d image", pixels.length, width, height));
+		}
+		recycle();
+		this.pixels = pixels;
+		pooled = true;
+	}
+	
+	/**
+	 * give pixels borrowed from the pool back, the buffer can't be used afterwards. pixels the
+	 * caller passed in are left alone
+	 */
+	public void recycle() {
+		if (pooled) {
+			PixelPool.getDefault().recycle(pixels);
+		}
+		pooled = false;
+	}
+	
+	public int getWidth() {
+		return width;
+	}
+	
+	public int getHeight() {
+		return height;
+	}
+}
@@ -0,0 +1,235 @@
+package cn.Ragnarok;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+
+import android.graphics.Bitmap;
+
+/**
+ * keeps pixel arrays and mutable bitmaps that are no longer used, so the next filter of the same
+ * size borrows them instead of allocating new ones. arrays are kept by length and bitmaps by
+ * width and height, and the memory kept is capped by a byte budget, the oldest ones are
+ * dropped first.
+ *
+ * borrowed arrays and bitmaps hold the pixels of whoever returned them last. only return what
+ * nobody reads or writes any more, the pool hands it out again right away.
+ *
+ * the counters report how many bytes the pool had to allocate and how many it could reuse, e.g.
+ * to compare the bytes allocated per filter application with and without it.
+ */
+public class PixelPool {
+
+	private static PixelPool defaultPool;
+	
+	private final HashMap<Integer, ArrayDeque<int[]>> arrays = new HashMap<Integer, ArrayDeque<int[]>>();
+	private final HashMap<Long, ArrayDeque<Bitmap>> bitmaps = new HashMap<Long, ArrayDeque<Bitmap>>();
+	// everything kept, the oldest first
+	private final ArrayDeque<Object> kept = new ArrayDeque<Object>();
+	private long maxBytes;
+	private long keptBytes;
+	
+	private long allocatedBytes;
+	private long reusedBytes;
+	private int allocatedCount;
+	private int reusedCount;
+	
+	/**
+	 * @param maxBytes, the most memory kept, 0 keeps nothing, so everything is allocated
+	 */
+	public PixelPool(long maxBytes) {
+		this.maxBytes = maxBytes;
+	}
+	
+	/**
+	 * @return the pool shared by the filters and the bitmap methods, keeping up to a quarter of the heap
+	 */
+	public static synchronized PixelPool getDefault() {
+		if (defaultPool == null) {
+			defaultPool = new PixelPool(Runtime.getRuntime().maxMemory() / 4);
+		}
+		return defaultPool;
+	}
+	
+	/**
+	 * replace the shared pool, e.g. with new PixelPool(0) to measure without it
+	 */
+	public static synchronized void setDefault(PixelPool pool) {
+		defaultPool = pool;
+	}
+	
+	/**
+	 * @param length
+	 * @return an array of exactly length pixels, holding anything
+	 */
+	public synchronized int[] obtainPixels(int length) {
+		ArrayDeque<int[]> free = arrays.get(length);
+		if (free != null && !free.isEmpty()) {
+			int[] pixels = free.pop();
+			kept.removeFirstOccurrence(pixels);
+			keptBytes -= bytes(pixels);
+			reusedBytes += bytes(pixels);
+			reusedCount++;
+			return pixels;
+		}
+		allocatedBytes += 4L * length;
+		allocatedCount++;
+		return new int[length];
+	}
+	
+	/**
+	 * @param pixels
+	 * @param length
+	 * @return a copy of the first length pixels, in an array of exactly length pixels
+	 */
+	public int[] copyOf(int[] pixels, int length) {
+		int[] copy = obtainPixels(length);
+		System.arraycopy(pixels, 0, copy, 0, Math.min(length, pixels.length));
+		return copy;
+	}
+	
+	/**
+	 * give an array back, it must not be used afterwards
+	 * @param pixels, may be null
+	 */
+	public synchronized void recycle(int[] pixels) {
+		if (pixels == null || !makeRoom(bytes(pixels))) {
+			return;
+		}
+		ArrayDeque<int[]> free = arrays.get(pixels.length);
+		if (free == null) {
+			free = new ArrayDeque<int[]>();
+			arrays.put(pixels.length, free);
+		}
+		free.push(pixels);
+		kept.add(pixels);
+		keptBytes += bytes(pixels);
+	}
+	
+	/**
+	 * @param width
+	 * @param height
+	 * @return a mutable ARGB_8888 bitmap, holding anything
+	 */
+	public Bitmap obtainBitmap(int width, int height) {
+		synchronized (this) {
+			ArrayDeque<Bitmap> free = bitmaps.get(key(width, height));
+			if (free != null && !free.isEmpty()) {
+				Bitmap bitmap = free.pop();
+				kept.removeFirstOccurrence(bitmap);
+				keptBytes -= bytes(bitmap);
+				reusedBytes += bytes(bitmap);
+				reusedCount++;
+				return bitmap;
+			}
+			allocatedBytes += 4L * width * height;
+			allocatedCount++;
+		}
+		return Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+	}
+	
+	/**
+	 * give a bitmap back, it must not be used afterwards. bitmaps that are immutable, recycled or
+	 * not ARGB_8888 are left to the garbage collector
+	 * @param bitmap, may be null
+	 */
+	public synchronized void recycle(Bitmap bitmap) {
+		if (bitmap == null || bitmap.isRecycled() || !bitmap.isMutable() || bitmap.getConfig() != Bitmap.Config.ARGB_8888
+				|| !makeRoom(bytes(bitmap))) {
+			return;
+		}
+		long key = key(bitmap.getWidth(), bitmap.getHeight());
+		ArrayDeque<Bitmap> free = bitmaps.get(key);
+		if (free == null) {
+			free = new ArrayDeque<Bitmap>();
+			bitmaps.put(key, free);
+		}
+		free.push(bitmap);
+		kept.add(bitmap);
+		keptBytes += bytes(bitmap);
+	}
+	
+	/**
+	 * drop the oldest arrays and bitmaps until at most bytes are kept, the budget stays
+	 * @param bytes
+	 */
+	public synchronized void trimToSize(long bytes) {
+		while (keptBytes > bytes && !kept.isEmpty()) {
+			Object oldest = kept.poll();
+			if (oldest instanceof int[]) {
+				int[] pixels = (int[]) oldest;
+				arrays.get(pixels.length).removeFirstOccurrence(pixels);
+				keptBytes -= bytes(pixels);
+			} else {
+				Bitmap bitmap = (Bitmap) oldest;
+				bitmaps.get(key(bitmap.getWidth(), bitmap.getHeight())).removeFirstOccurrence(bitmap);
+				keptBytes -= bytes(bitmap);
+			}
+		}
+	}
+	
+	public synchronized void setMaxBytes(long bytes) {
+		maxBytes = bytes;
+		trimToSize(bytes);
+	}
+	
+	public synchronized long getMaxBytes() {
+		return maxBytes;
+	}
+	
+	/**
+	 * @return the memory held by the arrays and bitmaps kept for reuse
+	 */
+	public synchronized long getKeptBytes() {
+		return keptBytes;
+	}
+	
+	/**
+	 * @return the bytes of the arrays and bitmaps allocated because none of the size was kept
+	 */
+	public synchronized long getAllocatedBytes() {
+		return allocatedBytes;
+	}
+	
+	/**
+	 * @return the bytes of the arrays and bitmaps handed out again instead of allocated
+	 */
+	public synchronized long getReusedBytes() {
+		return reusedBytes;
+	}
+	
+	public synchronized int getAllocatedCount() {
+		return allocatedCount;
+	}
+	
+	public synchronized int getReusedCount() {
+		return reusedCount;
+	}
+	
+	public synchronized void resetCounters() {
+		allocatedBytes = 0;
+		reusedBytes = 0;
+		allocatedCount = 0;
+		reusedCount = 0;
+	}
+	
+	// drops the oldest kept until bytes more fit, false if they never fit
+	private boolean makeRoom(long bytes) {
+		if (bytes > maxBytes) {
+			return false;
+		}
+		trimToSize(maxBytes - bytes);
+		return true;
+	}
+	
+	private static long bytes(int[] pixels) {
+		return 4L * pixels.length;
+	}
+	
+	private static long bytes(Bitmap bitmap) {
+		return 4L * bitmap.getWidth() * bitmap.getHeight();
+	}
+	
+	private static long key(int width, int height) {
+		return (long) width << 32 | height;
+	}
+}
@@ -1,24 +1,24 @@
 package cn.Ragnarok;
 
 import android.graphics.Bitmap;
-import android.graphics.Color;
 
-public class PixelateFilter {
-	static {
-		System.loadLibrary("AndroidImageFilter");
+public class PixelateFilter implements Filter {
+	private final int pixelSize;
+	
+	public PixelateFilter(int pixelSize) {
+		this.pixelSize = pixelSize;
+	}
+	
+	@Override
+	public void apply(PixelBuffer buffer) {
+		if (FilterEngine.isNative()) {
+			NativeFilterFunc.pxelateFilterInPlace(buffer.getPixels(), buffer.getWidth(), buffer.getHeight(), pixelSize);
+		} else {
+			JavaFilterFunc.pxelateFilter(buffer.getPixels(), buffer.getWidth(), buffer.getHeight(), pixelSize);
+		}
 	}
 	
 	public static final Bitmap changeToPixelate(Bitmap bitmap, int pixelSize) {
-		int width = bitmap.getWidth();
-		int height = bitmap.getHeight();
-		
-		int[] pixels = new int[width * height];
-		bitmap.getPixels(pixels, 0, width, 0, 0, width, height);
-		
-		int[] returnPixels = NativeFilterFunc.pxelateFilter(pixels, width, height, pixelSize);
-		Bitmap returnBitmap = Bitmap.createBitmap(returnPixels, width, height, Bitmap.Config.ARGB_8888);
-		
-		return returnBitmap;
-		
+		return FilterPipeline.apply(bitmap, new PixelateFilter(pixelSize));
 	}
 }
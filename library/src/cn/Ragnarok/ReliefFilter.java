@@ -1,39 +1,19 @@
 package cn.Ragnarok;
 
 import android.graphics.Bitmap;
-import android.graphics.Canvas;
-import android.graphics.Color;
-import android.graphics.ColorMatrix;
-import android.graphics.ColorMatrixColorFilter;
-import android.graphics.Paint;
 
-
-public class ReliefFilter {
+public class ReliefFilter implements Filter {
 	
-	static {
-		System.loadLibrary("AndroidImageFilter");
+	@Override
+	public void apply(PixelBuffer buffer) {
+		if (FilterEngine.isNative()) {
+			NativeFilterFunc.reliefFilterInPlace(buffer.getPixels(), buffer.getWidth(), buffer.getHeight());
+		} else {
+			JavaFilterFunc.reliefFilter(buffer.getPixels(), buffer.getWidth(), buffer.getHeight());
+		}
 	}
 	
-	public static Bitmap changeToRelief(Bitmap bitmap) {        
-		int width = bitmap.getWidth();
-		int height = bitmap.getHeight();
-		int[] pixels = new int[width * height];
-		bitmap.getPixels(pixels, 0, width, 0, 0, width, height);
-		
-		int[] returnPixels = NativeFilterFunc.reliefFilter(pixels, width, height);
-		Bitmap returnBitmap = Bitmap.createBitmap(returnPixels, width, height, Bitmap.Config.ARGB_8888);
-		
-		// set the saturation
-//		Canvas c = new Canvas(returnBitmap);
-//		Paint paint = new Paint();
-//		ColorMatrix cm = new ColorMatrix();
-//		cm.setSaturation(0);
-//		ColorMatrixColorFilter f = new ColorMatrixColorFilter(cm);
-//		paint.setColorFilter(f);
-//		c.drawBitmap(returnBitmap, 0, 0, paint);
-		
-		return returnBitmap;
+	public static Bitmap changeToRelief(Bitmap bitmap) {
+		return FilterPipeline.apply(bitmap, new ReliefFilter());
 	}
-		
-	
 }
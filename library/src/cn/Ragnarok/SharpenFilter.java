@@ -1,27 +1,24 @@
 package cn.Ragnarok;
 
-import java.util.Arrays;
-
 import android.graphics.Bitmap;
-import android.graphics.Color;
 
-public class SharpenFilter {
+public class SharpenFilter implements BandFilter {
 	
-	static {
-		System.loadLibrary("AndroidImageFilter");
+	@Override
+	public void apply(PixelBuffer buffer) {
+		if (FilterEngine.isNative()) {
+			NativeFilterFunc.sharpenFilterInPlace(buffer.getPixels(), buffer.getWidth(), buffer.getHeight());
+		} else {
+			JavaFilterFunc.sharpenFilter(buffer.getPixels(), buffer.getWidth(), buffer.getHeight());
+		}
+	}
+	
+	@Override
+	public int getHalo() {
+		return 1;
 	}
 	
-
 	public static Bitmap changeToSharpen(Bitmap bitmap) {
-		
-		int width = bitmap.getWidth();
-		int height = bitmap.getHeight();
-		
-		int[] pixels = new int[width * height];
-		bitmap.getPixels(pixels, 0, width, 0, 0, width, height);
-		
-		int[] returnPixels = NativeFilterFunc.sharpenFilter(pixels, width, height);
-		Bitmap returnBitmap = Bitmap.createBitmap(returnPixels, width, height, Bitmap.Config.ARGB_8888);
-		return returnBitmap;
+		return FilterPipeline.apply(bitmap, new SharpenFilter());
 	}
 }
@@ -2,24 +2,23 @@ package cn.Ragnarok;
 
 import android.graphics.Bitmap;
 
-public class SketchFilter {
+public class SketchFilter implements BandFilter {
 	
-	static {
-		System.loadLibrary("AndroidImageFilter");
+	@Override
+	public void apply(PixelBuffer buffer) {
+		if (FilterEngine.isNative()) {
+			NativeFilterFunc.sketchFilterInPlace(buffer.getPixels(), buffer.getWidth(), buffer.getHeight());
+		} else {
+			JavaFilterFunc.sketchFilter(buffer.getPixels(), buffer.getWidth(), buffer.getHeight());
+		}
 	}
-
+	
+	@Override
+	public int getHalo() {
+		return 1;
+	}
+	
 	public static Bitmap changeToSketch(Bitmap bitmap) {
-		int width = bitmap.getWidth();
-		int height = bitmap.getHeight();
-		
-		int[] pixels = new int[width * height];
-		bitmap.getPixels(pixels, 0, width, 0, 0, width, height);
-		
-		int[] returnPixels = NativeFilterFunc.sketchFilter(pixels, width, height);
-		Bitmap returnBitmap = Bitmap.createBitmap(returnPixels, width, height, Bitmap.Config.ARGB_8888);
-		
-		return returnBitmap;
-		
+		return FilterPipeline.apply(bitmap, new SketchFilter());
 	}
-
 }
@@ -2,21 +2,28 @@ package cn.Ragnarok;
 
 import android.graphics.Bitmap;
 
-public class SoftGlowFilter {
-	static {
-		System.loadLibrary("AndroidImageFilter");
+public class SoftGlowFilter implements BandFilter {
+	private final double blurSigma;
+	
+	public SoftGlowFilter(double blurSigma) {
+		this.blurSigma = blurSigma;
+	}
+	
+	@Override
+	public void apply(PixelBuffer buffer) {
+		if (FilterEngine.isNative()) {
+			NativeFilterFunc.softGlowInPlace(buffer.getPixels(), buffer.getWidth(), buffer.getHeight(), blurSigma);
+		} else {
+			JavaFilterFunc.softGlow(buffer.getPixels(), buffer.getWidth(), buffer.getHeight(), blurSigma);
+		}
+	}
+	
+	@Override
+	public int getHalo() {
+		return (int) Math.ceil(blurSigma * 3 + 1) / 2;
 	}
 	
 	public static Bitmap softGlowFilter(Bitmap bitmap, double blurSigma) {
-		int width = bitmap.getWidth();
-		int height = bitmap.getHeight();
-		
-		int[] pixels = new int[width * height];
-		bitmap.getPixels(pixels, 0, width, 0, 0, width, height);
-		
-		int[] returnPixels = NativeFilterFunc.softGlow(pixels, width, height, blurSigma);
-		Bitmap returnBitmap = Bitmap.createBitmap(returnPixels, width, height, Bitmap.Config.ARGB_8888);
-		
-		return returnBitmap;
+		return FilterPipeline.apply(bitmap, new SoftGlowFilter(blurSigma));
 	}
 }
@@ -2,22 +2,18 @@ package cn.Ragnarok;
 
 import android.graphics.Bitmap;
 
-public class TvFilter {
+public class TvFilter implements Filter {
 	
-	static {
-		System.loadLibrary("AndroidImageFilter");
+	@Override
+	public void apply(PixelBuffer buffer) {
+		if (FilterEngine.isNative()) {
+			NativeFilterFunc.tvFilterInPlace(buffer.getPixels(), buffer.getWidth(), buffer.getHeight());
+		} else {
+			JavaFilterFunc.tvFilter(buffer.getPixels(), buffer.getWidth(), buffer.getHeight());
+		}
 	}
 	
 	public static final Bitmap changeToTV(Bitmap bitmap) {
-		int height = bitmap.getHeight();
-		int width = bitmap.getWidth();
-		
-		int[] pixels = new int[width * height];
-		bitmap.getPixels(pixels, 0, width, 0, 0, width, height);
-		
-		int[] resultPixels = NativeFilterFunc.tvFilter(pixels, width, height);
-		Bitmap returnBitmap = Bitmap.createBitmap(resultPixels, width, height, Bitmap.Config.ARGB_8888);
-		
-		return returnBitmap;
+		return FilterPipeline.apply(bitmap, new TvFilter());
 	}
 }